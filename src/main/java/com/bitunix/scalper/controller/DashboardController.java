@@ -3,16 +3,16 @@ package com.bitunix.scalper.controller;
 import com.bitunix.scalper.model.Trade;
 import com.bitunix.scalper.model.TradingPair;
 import com.bitunix.scalper.model.TradingSignal;
-import com.bitunix.scalper.repository.TradeRepository;
 import com.bitunix.scalper.repository.TradingSignalRepository;
 import com.bitunix.scalper.scheduler.TradingScheduler;
 import com.bitunix.scalper.service.BitunixApiService;
-import com.bitunix.scalper.service.TradingService;
 import com.bitunix.scalper.service.RateLimiterService;
 import com.bitunix.scalper.service.TradingConfigService;
 import com.bitunix.scalper.service.BybitDemoTradingService;
 import com.bitunix.scalper.service.BalanceCacheService;
+import com.bitunix.scalper.service.TradeStatisticsService;
 import com.bitunix.scalper.strategy.TradingStrategyInterface;
+import com.bitunix.scalper.util.AsyncLog;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -31,17 +31,16 @@ import java.util.stream.Collectors;
 @Controller
 public class DashboardController {
     
-    @Autowired
-    private BitunixApiService bitunixApiService;
+    private static final AsyncLog log = AsyncLog.getLogger(DashboardController.class);
     
     @Autowired
-    private TradingService tradingService;
+    private BitunixApiService bitunixApiService;
     
     @Autowired
     private TradingScheduler tradingScheduler;
     
     @Autowired
-    private TradeRepository tradeRepository;
+    private TradeStatisticsService tradeStatisticsService;
     
     @Autowired
     private RateLimiterService rateLimiterService;
@@ -85,7 +84,7 @@ public class DashboardController {
                 }
             }
         } catch (Exception e) {
-            System.err.println("Error fetching trading pairs: " + e.getMessage());
+            log.error("Error fetching trading pairs", "error", e.getMessage());
             // Continue with demo data
         }
         
@@ -127,15 +126,12 @@ public class DashboardController {
         Map<String, Trade> activeTrades = tradingScheduler.getActiveTrades();
         Trade currentTrade = activeTrades.isEmpty() ? null : activeTrades.values().iterator().next();
         
-        // Calculate statistics from database
-        List<Trade> allTrades = tradeRepository.findAll();
-        BigDecimal totalProfit = tradingService.calculateTotalProfit(allTrades);
-        BigDecimal successRate = tradingService.calculateSuccessRate(allTrades);
-        int totalTrades = allTrades.size();
-        int successfulTrades = (int) allTrades.stream()
-                .filter(trade -> trade.getStatus() == Trade.TradeStatus.CLOSED)
-                .filter(trade -> trade.getProfit() != null && trade.getProfit().compareTo(BigDecimal.ZERO) > 0)
-                .count();
+        // Statistics from running aggregates (updated when trades open/close)
+        TradeStatisticsService.TradeStats stats = tradeStatisticsService.getOverall();
+        BigDecimal totalProfit = stats.getTotalProfit();
+        BigDecimal successRate = stats.getSuccessRate();
+        long totalTrades = stats.getOpenedTrades();
+        long successfulTrades = stats.getWinningTrades();
         
         model.addAttribute("selectedPair", selectedPair);
         model.addAttribute("currentStrategy", currentStrategy);
@@ -161,7 +157,7 @@ public class DashboardController {
         model.addAttribute("selectedPairs", selectedPairs); // List of selected pair symbols
         model.addAttribute("strategies", activeStrategies);
         model.addAttribute("tradingEnabled", tradingScheduler.isTradingEnabled());
-        model.addAttribute("activeTradesCount", tradingScheduler.getActiveTrades().size());
+        model.addAttribute("activeTradesCount", tradingScheduler.getActiveTradeCount());
         
         // Rate Limiter information
         model.addAttribute("bitunixRequests", rateLimiterService.getCurrentRequestCount("bitunix"));
@@ -177,7 +173,7 @@ public class DashboardController {
         if (!balanceCacheService.shouldFetchBalance()) {
             totalBalance = balanceCacheService.getCachedTotalBalance();
             coinBalances = balanceCacheService.getCachedCoinBalances();
-            System.out.println("Using cached balance");
+            log.debug("Using cached balance");
         }
         
         // If cache expired or empty, try to fetch from API
@@ -195,13 +191,13 @@ public class DashboardController {
                         
                         // Update cache
                         balanceCacheService.updateCache(walletBalance, totalBalance, coinBalances);
-                        System.out.println("Balance updated from API and cached");
+                        log.info("Balance updated from API and cached");
                     }
                 } else {
-                    System.out.println("Rate limit exceeded for balance request");
+                    log.warn("Rate limit exceeded for balance request");
                 }
             } catch (Exception e) {
-                System.err.println("Error fetching wallet balance: " + e.getMessage());
+                log.error("Error fetching wallet balance", "error", e.getMessage());
             }
         }
         
@@ -240,9 +236,9 @@ public class DashboardController {
                               Model model) {
         try {
             tradingScheduler.startTrading();
-            System.out.println("Trading started successfully");
+            log.info("Trading started successfully");
         } catch (Exception e) {
-            System.err.println("Error starting trading: " + e.getMessage());
+            log.error("Error starting trading", "error", e.getMessage());
         }
         return "redirect:/";
     }
@@ -251,9 +247,9 @@ public class DashboardController {
     public String stopTrading(Model model) {
         try {
             tradingScheduler.stopTrading();
-            System.out.println("Trading stopped successfully");
+            log.info("Trading stopped successfully");
         } catch (Exception e) {
-            System.err.println("Error stopping trading: " + e.getMessage());
+            log.error("Error stopping trading", "error", e.getMessage());
         }
         return "redirect:/";
     }
@@ -341,7 +337,7 @@ public class DashboardController {
                 }
             }
         } catch (Exception e) {
-            System.err.println("Error parsing total balance: " + e.getMessage());
+            log.error("Error parsing total balance", "error", e.getMessage());
         }
         return BigDecimal.ZERO;
     }
@@ -381,7 +377,7 @@ public class DashboardController {
                 }
             }
         } catch (Exception e) {
-            System.err.println("Error parsing coin balances: " + e.getMessage());
+            log.error("Error parsing coin balances", "error", e.getMessage());
         }
         
         return balances;
@@ -1,6 +1,8 @@
 package com.bitunix.scalper.controller;
 
+import com.bitunix.scalper.scheduler.ExitMonitor;
 import com.bitunix.scalper.service.BybitDemoTradingService;
+import com.bitunix.scalper.service.OrderBatchService;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -9,6 +11,7 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -21,6 +24,12 @@ public class DemoTradingController {
     @Autowired
     private BybitDemoTradingService demoTradingService;
     
+    @Autowired
+    private OrderBatchService orderBatchService;
+    
+    @Autowired
+    private ExitMonitor exitMonitor;
+    
     /**
      * Demo trading dashboard
      */
@@ -201,16 +210,18 @@ public class DemoTradingController {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            JsonNode result = demoTradingService.cancelOrder(category, symbol, orderId, orderLinkId);
+            // Cancellations within the batch window share one cancel-batch call
+            JsonNode result = orderBatchService.await(
+                    orderBatchService.cancelOrder(category, symbol, orderId, orderLinkId));
             
-            if (result != null && result.has("retCode") && result.get("retCode").asInt() == 0) {
+            if (OrderBatchService.isAccepted(result)) {
                 response.put("success", true);
                 response.put("message", "Order cancelled successfully");
                 response.put("data", result);
             } else {
                 response.put("success", false);
-                response.put("message", result != null && result.has("retMsg") ? 
-                    result.get("retMsg").asText() : "Failed to cancel order");
+                response.put("message", result != null && result.has("msg") ? 
+                    result.get("msg").asText() : "Failed to cancel order");
                 response.put("data", result);
             }
         } catch (Exception e) {
@@ -251,6 +262,36 @@ public class DemoTradingController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Kill switch: stop trading and close all open positions with reduce-only
+     * market orders in batch requests; tracked trades are closed with them
+     * POST /demo/positions/flatten
+     */
+    @PostMapping("/positions/flatten")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> flattenPositions(
+            @RequestParam(defaultValue = "linear") String category) {
+        
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            List<JsonNode> results = exitMonitor.flattenAllPositions(category);
+            long failed = results.stream()
+                    .filter(r -> r == null || r.path("code").asInt(-1) != 0)
+                    .count();
+            
+            response.put("success", failed == 0);
+            response.put("message", results.isEmpty() ? "No open positions" :
+                    "Closing orders sent: " + results.size() + ", failed: " + failed);
+            response.put("data", results);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error: " + e.getMessage());
+        }
+        
+        return ResponseEntity.ok(response);
+    }
+    
     /**
      * Get account info
      * GET /demo/account/info
@@ -0,0 +1,53 @@
+package com.bitunix.scalper.controller;
+
+import com.bitunix.scalper.model.Trade;
+import com.bitunix.scalper.service.TradeJournalService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST endpoints for reading the trade journal history
+ */
+@RestController
+@RequestMapping("/api/journal")
+public class JournalController {
+    
+    private static final int MAX_LIMIT = 1000;
+    
+    @Autowired
+    private TradeJournalService tradeJournalService;
+    
+    /**
+     * Trades entered in [from, to), or the most recent trades when no range is given
+     */
+    @GetMapping("/trades")
+    public List<Trade> getTrades(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "50") int limit) {
+        if (from != null) {
+            return tradeJournalService.loadTradesBetween(from, to != null ? to : LocalDateTime.now());
+        }
+        return tradeJournalService.loadRecentTrades(Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+    
+    /**
+     * Journal events of a symbol in [from, to)
+     */
+    @GetMapping("/events/{symbol}")
+    public List<Map<String, Object>> getEvents(
+            @PathVariable String symbol,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return tradeJournalService.loadEvents(symbol, from, to != null ? to : LocalDateTime.now());
+    }
+}
@@ -0,0 +1,58 @@
+package com.bitunix.scalper.controller;
+
+import com.bitunix.scalper.service.LatencyTrackerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * REST endpoints for tick-to-trade latency percentiles
+ */
+@RestController
+@RequestMapping("/api/latency")
+public class LatencyController {
+    
+    @Autowired
+    private LatencyTrackerService latencyTrackerService;
+    
+    /**
+     * Percentiles per pipeline stage (microseconds)
+     */
+    @GetMapping
+    public Map<String, Object> getLatency() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("stages", latencyTrackerService.getStageSummary());
+        response.put("symbols", latencyTrackerService.getTrackedSymbols());
+        return response;
+    }
+    
+    /**
+     * Percentiles per pipeline stage for a single symbol (microseconds)
+     */
+    @GetMapping("/{symbol}")
+    public Map<String, Object> getSymbolLatency(@PathVariable String symbol) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("symbol", symbol);
+        response.put("stages", latencyTrackerService.getSymbolSummary(symbol));
+        return response;
+    }
+    
+    /**
+     * Clear all recorded latencies
+     */
+    @PostMapping("/reset")
+    public Map<String, String> reset() {
+        latencyTrackerService.reset();
+        
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Latency histograms reset");
+        response.put("status", "success");
+        return response;
+    }
+}
@@ -0,0 +1,24 @@
+package com.bitunix.scalper.controller;
+
+import com.bitunix.scalper.service.MetricsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Prometheus scrape endpoint
+ */
+@RestController
+public class MetricsController {
+    
+    @Autowired
+    private MetricsService metricsService;
+    
+    /**
+     * All metrics in the Prometheus text exposition format
+     */
+    @GetMapping(value = "/metrics", produces = "text/plain; version=0.0.4; charset=utf-8")
+    public String metrics() {
+        return metricsService.scrape();
+    }
+}
@@ -0,0 +1,28 @@
+package com.bitunix.scalper.controller;
+
+import com.bitunix.scalper.scheduler.TradingScheduler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * REST endpoints for the trading cycle
+ */
+@RestController
+@RequestMapping("/api/scheduler")
+public class SchedulerController {
+    
+    @Autowired
+    private TradingScheduler tradingScheduler;
+    
+    /**
+     * Cycle durations, overruns, skipped slots and deadline misses
+     */
+    @GetMapping("/cycles")
+    public Map<String, Object> getCycleStats() {
+        return tradingScheduler.getCycleStats();
+    }
+}
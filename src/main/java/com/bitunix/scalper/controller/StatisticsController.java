@@ -0,0 +1,45 @@
+package com.bitunix.scalper.controller;
+
+import com.bitunix.scalper.service.TradeStatisticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * REST endpoints for pre-aggregated trade statistics
+ */
+@RestController
+@RequestMapping("/api/statistics")
+public class StatisticsController {
+    
+    @Autowired
+    private TradeStatisticsService tradeStatisticsService;
+    
+    /**
+     * Overall, per strategy, per symbol and per day statistics
+     */
+    @GetMapping
+    public Map<String, Object> getStatistics() {
+        return tradeStatisticsService.getSummary();
+    }
+    
+    /**
+     * Statistics for a single strategy
+     */
+    @GetMapping("/strategy/{strategy}")
+    public Map<String, Object> getStrategyStatistics(@PathVariable String strategy) {
+        return tradeStatisticsService.getStrategyStats(strategy).toMap();
+    }
+    
+    /**
+     * Statistics for a single symbol
+     */
+    @GetMapping("/symbol/{symbol}")
+    public Map<String, Object> getSymbolStatistics(@PathVariable String symbol) {
+        return tradeStatisticsService.getSymbolStats(symbol).toMap();
+    }
+}
@@ -98,6 +98,7 @@ public class TradingConfigController {
             @RequestParam(required = false) Double positionSizePercent,
             @RequestParam(required = false) Double stopLossPercent,
             @RequestParam(required = false) Double takeProfitPercent,
+            @RequestParam(required = false) Double trailingStopPercent,
             @RequestParam(required = false) Double maxDailyLossPercent) {
         
         Map<String, Object> response = new HashMap<>();
@@ -114,6 +115,9 @@ public class TradingConfigController {
             if (takeProfitPercent != null) {
                 config.setTakeProfitPercent(takeProfitPercent);
             }
+            if (trailingStopPercent != null) {
+                config.setTrailingStopPercent(trailingStopPercent);
+            }
             if (maxDailyLossPercent != null) {
                 config.setMaxDailyLossPercent(maxDailyLossPercent);
             }
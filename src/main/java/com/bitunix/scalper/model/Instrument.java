@@ -0,0 +1,44 @@
+package com.bitunix.scalper.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Exchange metadata of a tradable instrument (Bybit v5 /market/instruments-info)
+ * Not a JPA entity: loaded from the exchange and kept in memory
+ */
+@Data
+@NoArgsConstructor
+public class Instrument {
+    
+    public static final String STATUS_TRADING = "Trading";
+    
+    private String symbol;
+    private String baseCoin;
+    private String quoteCoin;
+    private String settleCoin;
+    private String status;
+    
+    // Price filter
+    private BigDecimal tickSize;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    
+    // Lot size filter
+    private BigDecimal qtyStep;
+    private BigDecimal minOrderQty;
+    private BigDecimal maxOrderQty;
+    private BigDecimal maxMarketOrderQty;
+    private BigDecimal minNotionalValue;
+    
+    // Leverage filter
+    private BigDecimal minLeverage;
+    private BigDecimal maxLeverage;
+    private BigDecimal leverageStep;
+    
+    public boolean isTrading() {
+        return STATUS_TRADING.equals(status);
+    }
+}
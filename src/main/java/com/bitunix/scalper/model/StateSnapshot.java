@@ -0,0 +1,30 @@
+package com.bitunix.scalper.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Point-in-time copy of the bot's in-memory state, written to disk periodically
+ * Not a JPA entity: stored as JSON next to the trade journal
+ */
+@Data
+@NoArgsConstructor
+public class StateSnapshot {
+    
+    private int version = 1;
+    
+    // Epoch millis when the snapshot was taken
+    private long takenAt;
+    
+    // Last trade journal event already reflected in this snapshot
+    private long lastEventId;
+    
+    private boolean tradingEnabled;
+    
+    private Double availableBalance;
+    
+    private List<Trade> activeTrades = new ArrayList<>();
+}
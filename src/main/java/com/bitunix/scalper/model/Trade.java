@@ -1,5 +1,6 @@
 package com.bitunix.scalper.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -51,16 +52,54 @@ public class Trade {
     @Column(precision = 20, scale = 8)
     private BigDecimal totalFees;
     
+    // Exchange-side protection attached to the entry order
+    @Column(precision = 20, scale = 8)
+    private BigDecimal stopLossPrice;
+    
+    @Column(precision = 20, scale = 8)
+    private BigDecimal takeProfitPrice;
+    
+    // Exchange order identifiers
+    private String orderId;
+    private String orderLinkId;
+    
     private String strategy;
     private LocalDateTime entryTime;
     private LocalDateTime exitTime;
     private String notes;
     
+    // Id from StrategyRegistryService, -1 until resolved; not persisted
+    @Transient
+    @JsonIgnore
+    private int strategyId = -1;
+    
+    // Trailing stop distance still to be set on the exchange position, null once set; not persisted
+    @Transient
+    @JsonIgnore
+    private BigDecimal pendingTrailingStop;
+    
+    // Earliest time (epoch ms) of the next attempt to set the trailing stop; not persisted
+    @Transient
+    @JsonIgnore
+    private long trailingStopRetryAt;
+    
+    // Earliest time (epoch ms) a pending limit entry is checked again; not persisted
+    @Transient
+    @JsonIgnore
+    private long entryCheckAt;
+    
+    // The exchange accepted the cancellation of the pending limit entry; not persisted
+    @Transient
+    @JsonIgnore
+    private boolean entryCancelRequested;
+    
     public enum TradeType {
         BUY, SELL
     }
     
     public enum TradeStatus {
+        // Limit entry accepted by the exchange and not filled yet
+        PENDING,
         OPEN, CLOSED, CANCELLED
     }
 }
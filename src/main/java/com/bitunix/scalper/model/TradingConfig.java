@@ -42,6 +42,9 @@ public class TradingConfig {
     @Column(precision = 10, scale = 4)
     private Double takeProfitPercent; // % take profit
     
+    @Column(precision = 10, scale = 4)
+    private Double trailingStopPercent; // % trailing stop distance (null or 0 = disabled)
+    
     @Column(precision = 10, scale = 4)
     private Double maxDailyLossPercent; // % max daily loss
     
@@ -1,5 +1,6 @@
 package com.bitunix.scalper.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -59,4 +60,14 @@ public class TradingPair {
     private BigDecimal resistanceLevel;
     
     private Integer volumeSpike;
+    
+    // Interned id from SymbolRegistryService, -1 until assigned; not persisted
+    @Transient
+    @JsonIgnore
+    private int symbolId = -1;
+    
+    // Kline open time in epoch millis, 0 for ticker data; not persisted
+    @Transient
+    @JsonIgnore
+    private long candleTime;
 }
@@ -0,0 +1,205 @@
+package com.bitunix.scalper.scheduler;
+
+import com.bitunix.scalper.util.AsyncLog;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-rate runner for a long periodic cycle on its own thread
+ * 
+ * Runs never overlap and each run gets a deadline relative to its slot. A run
+ * that ends after the next slot is an overrun; the slots it missed are handled
+ * by the {@link LatePolicy} instead of being replayed back to back.
+ * start() and stop() may be called from any thread; stop() cancels the pending
+ * run and interrupts the one in flight.
+ */
+final class CycleRunner {
+    
+    private static final AsyncLog log = AsyncLog.getLogger(CycleRunner.class);
+    
+    /**
+     * What to do with slots missed by an overrun
+     */
+    enum LatePolicy {
+        // Wait for the next slot that is still in the future
+        SKIP,
+        // Run once right away in place of all missed slots
+        COALESCE
+    }
+    
+    /**
+     * One run of the cycle
+     */
+    interface Cycle {
+        /**
+         * @param deadlineNanos System.nanoTime() by which the run should be finished
+         */
+        void run(long deadlineNanos) throws Exception;
+    }
+    
+    private final String name;
+    private final long intervalNanos;
+    private final long deadlineNanos;
+    private final LatePolicy latePolicy;
+    private final Cycle cycle;
+    private final ScheduledExecutorService executor;
+    
+    // Guarded by this
+    private ScheduledFuture<?> pending;
+    private long generation;
+    
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong overruns = new AtomicLong();
+    private final AtomicLong skippedSlots = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile long lastDurationNanos;
+    private volatile long maxDurationNanos;
+    
+    /**
+     * @param intervalMs Time between slots
+     * @param deadlineMs Time from a slot to its run's deadline
+     */
+    CycleRunner(String name, long intervalMs, long deadlineMs, LatePolicy latePolicy, Cycle cycle) {
+        this.name = name;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        this.latePolicy = latePolicy;
+        this.cycle = cycle;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Start running (the first slot is now); no-op if already running
+     */
+    synchronized void start() {
+        if (pending != null) {
+            return;
+        }
+        schedule(++generation, System.nanoTime());
+    }
+    
+    /**
+     * Stop running and interrupt the run in flight; no-op if stopped
+     */
+    synchronized void stop() {
+        if (pending == null) {
+            return;
+        }
+        generation++;
+        pending.cancel(true);
+        pending = null;
+    }
+    
+    synchronized boolean isRunning() {
+        return pending != null;
+    }
+    
+    /**
+     * Stop for good
+     */
+    void shutdown() {
+        stop();
+        executor.shutdownNow();
+    }
+    
+    private void schedule(long runGeneration, long slotNanos) {
+        long delay = Math.max(0, slotNanos - System.nanoTime());
+        pending = executor.schedule(() -> runSlot(runGeneration, slotNanos), delay, TimeUnit.NANOSECONDS);
+    }
+    
+    private void runSlot(long runGeneration, long slotNanos) {
+        long start = System.nanoTime();
+        try {
+            cycle.run(slotNanos + deadlineNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            log.error("Cycle failed", e, "cycle", name);
+        }
+        long end = System.nanoTime();
+        record(end - start);
+        
+        long nextSlot = nextSlot(slotNanos, end, intervalNanos, latePolicy);
+        long missed = missedSlots(slotNanos, end, intervalNanos);
+        if (missed > 0) {
+            overruns.incrementAndGet();
+            if (latePolicy == LatePolicy.SKIP) {
+                skippedSlots.addAndGet(missed);
+            } else {
+                skippedSlots.addAndGet(missed - 1);
+            }
+            log.warn("Cycle overran its interval", "cycle", name, "durationMs", (end - start) / 1_000_000,
+                    "missedSlots", missed, "policy", latePolicy);
+        }
+        
+        synchronized (this) {
+            // Stopped (or restarted) while running
+            if (runGeneration == generation && pending != null) {
+                schedule(runGeneration, nextSlot);
+            }
+        }
+    }
+    
+    private void record(long durationNanos) {
+        runs.incrementAndGet();
+        lastDurationNanos = durationNanos;
+        if (durationNanos > maxDurationNanos) {
+            maxDurationNanos = durationNanos;
+        }
+    }
+    
+    /**
+     * Number of slots after slotNanos that had already started by endNanos
+     */
+    static long missedSlots(long slotNanos, long endNanos, long intervalNanos) {
+        long elapsed = endNanos - slotNanos;
+        return elapsed <= intervalNanos ? 0 : (elapsed - 1) / intervalNanos;
+    }
+    
+    /**
+     * Slot of the next run after a run of slotNanos that ended at endNanos
+     */
+    static long nextSlot(long slotNanos, long endNanos, long intervalNanos, LatePolicy latePolicy) {
+        long missed = missedSlots(slotNanos, endNanos, intervalNanos);
+        if (missed == 0) {
+            return slotNanos + intervalNanos;
+        }
+        if (latePolicy == LatePolicy.COALESCE) {
+            return endNanos;
+        }
+        return slotNanos + (missed + 1) * intervalNanos;
+    }
+    
+    long getRuns() {
+        return runs.get();
+    }
+    
+    long getOverruns() {
+        return overruns.get();
+    }
+    
+    long getSkippedSlots() {
+        return skippedSlots.get();
+    }
+    
+    long getFailures() {
+        return failures.get();
+    }
+    
+    long getLastDurationNanos() {
+        return lastDurationNanos;
+    }
+    
+    long getMaxDurationNanos() {
+        return maxDurationNanos;
+    }
+}
@@ -0,0 +1,366 @@
+package com.bitunix.scalper.scheduler;
+
+import com.bitunix.scalper.model.Trade;
+import com.bitunix.scalper.model.TradingPair;
+import com.bitunix.scalper.service.BitunixApiService;
+import com.bitunix.scalper.service.MetricsService;
+import com.bitunix.scalper.service.OrderBatchService;
+import com.bitunix.scalper.service.RateLimiterService;
+import com.bitunix.scalper.service.StrategyRegistryService;
+import com.bitunix.scalper.service.SymbolRegistryService;
+import com.bitunix.scalper.service.ThreadAffinityService;
+import com.bitunix.scalper.service.TradingService;
+import com.bitunix.scalper.strategy.FeatureSnapshot;
+import com.bitunix.scalper.strategy.TradingStrategyInterface;
+import com.bitunix.scalper.util.AsyncLog;
+import com.bitunix.scalper.util.SymbolTable;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * High-frequency exit monitor for open positions
+ * 
+ * Runs on its own thread (not the Spring scheduler thread the safety-net
+ * scan blocks on, nor the engine workers that evaluate entries) and checks
+ * only open trades: stop loss / take profit against the latest mark price,
+ * then the opening strategy's exit against the in-memory feature snapshot.
+ * A strategy exit closes the exchange position with a reduce-only market
+ * order, sent on a priority budget of its own; the trade stays open until
+ * that order is accepted.
+ * Mark prices come from the market stream; when the stream has gone quiet
+ * for a symbol they are fetched over REST on a high-priority rate limiter
+ * budget that entry-side requests cannot use up.
+ * A trailing stop left pending by the entry is set here once the position
+ * exists, retried at most every trailing-stop-retry-ms until it succeeds.
+ * Pending limit entries are checked every pending-entry-poll-ms until they
+ * fill (the trade opens) or are cancelled (the trade is dropped).
+ * 
+ * This is the only place trades are closed, so an open trade has a single
+ * writer after it has been opened.
+ */
+@Component
+public class ExitMonitor {
+    
+    private static final AsyncLog log = AsyncLog.getLogger(ExitMonitor.class);
+    
+    private static final String RATE_LIMIT_KEY = "exits";
+    
+    @Value("${bitunix.exits.interval-ms:250}")
+    private long intervalMs;
+    
+    @Value("${bitunix.exits.stale-after-ms:3000}")
+    private long staleAfterMs;
+    
+    @Value("${bitunix.exits.trailing-stop-retry-ms:1000}")
+    private long trailingStopRetryMs;
+    
+    @Value("${bitunix.exits.pending-entry-poll-ms:1000}")
+    private long pendingEntryPollMs;
+    
+    @Autowired
+    @Lazy
+    private TradingScheduler tradingScheduler;
+    
+    @Autowired
+    private TradingService tradingService;
+    
+    @Autowired
+    private StrategyRegistryService strategyRegistry;
+    
+    @Autowired
+    private SymbolRegistryService symbolRegistry;
+    
+    @Autowired
+    private BitunixApiService bitunixApiService;
+    
+    @Autowired
+    private RateLimiterService rateLimiterService;
+    
+    @Autowired
+    private OrderBatchService orderBatchService;
+    
+    @Autowired
+    private MetricsService metricsService;
+    
+    @Autowired
+    private ThreadAffinityService threadAffinity;
+    
+    // Latest mark price per symbol id (written by the stream thread)
+    private final SymbolTable<MarkPrice> markPrices = new SymbolTable<>();
+    
+    // Monitor thread only: pair carrying the mark price and a copy of the symbol's features
+    private final SymbolTable<TradingPair> markPairs = new SymbolTable<>();
+    private final SymbolTable<FeatureSnapshot> features = new SymbolTable<>();
+    private final FeatureSnapshot scratch = new FeatureSnapshot();
+    
+    private ScheduledExecutorService executor;
+    
+    private MetricsService.Timer checkTimer;
+    private MetricsService.Counter protectionExits;
+    private MetricsService.Counter strategyExits;
+    private MetricsService.Counter killSwitchExits;
+    private MetricsService.Counter restPrices;
+    
+    @PostConstruct
+    public void start() {
+        checkTimer = metricsService.timer("scalper_exit_check_seconds");
+        protectionExits = metricsService.counter("scalper_exits_total", "reason", "protection");
+        strategyExits = metricsService.counter("scalper_exits_total", "reason", "strategy");
+        killSwitchExits = metricsService.counter("scalper_exits_total", "reason", "kill_switch");
+        restPrices = metricsService.counter("scalper_exit_rest_prices_total");
+        
+        executor = Executors.newSingleThreadScheduledExecutor(threadAffinity.factory(
+                ThreadAffinityService.Role.EXECUTION, "exit-monitor", false, Thread.MAX_PRIORITY));
+        executor.scheduleWithFixedDelay(this::checkOpenTrades, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * Mark price from the market stream
+     */
+    public void onMarkPrice(String symbol, double price) {
+        int symbolId = symbolRegistry.find(symbol);
+        if (symbolId == SymbolRegistryService.UNKNOWN) {
+            return;
+        }
+        markPrice(symbolId).update(price);
+    }
+    
+    /**
+     * Kill switch: stop trading, then close every exchange position and the trades tracked for them
+     * 
+     * Trading is stopped first, so no new entry races the flatten. The closing
+     * runs on the monitor thread, the only writer of open trades. A pending limit
+     * entry the exchange has not reported cancelled yet stays tracked.
+     * 
+     * @return Item results of the closing orders, each with its symbol
+     */
+    public List<JsonNode> flattenAllPositions(String category) throws InterruptedException, ExecutionException {
+        tradingScheduler.stopTrading();
+        return executor.submit(() -> flatten(category)).get();
+    }
+    
+    /**
+     * Cancel pending limit entries, then send the closing batch and close each
+     * tracked trade whose closing order was accepted
+     */
+    List<JsonNode> flatten(String category) {
+        SymbolTable<Trade> activeTrades = tradingScheduler.getActiveTradeTable();
+        // Cancel resting limit entries first; a partial fill opens its trade and is flattened below
+        for (int symbolId = 0; symbolId < activeTrades.capacity(); symbolId++) {
+            Trade trade = activeTrades.get(symbolId);
+            if (trade != null && trade.getStatus() == Trade.TradeStatus.PENDING
+                    && tradingService.cancelPendingEntry(trade).getStatus() == Trade.TradeStatus.CANCELLED) {
+                activeTrades.remove(symbolId);
+            }
+        }
+        
+        List<JsonNode> results = orderBatchService.flattenAllPositions(category);
+        for (JsonNode result : results) {
+            if (!OrderBatchService.isAccepted(result)) {
+                continue;
+            }
+            int symbolId = symbolRegistry.find(result.path("symbol").asText());
+            Trade trade = symbolId != SymbolRegistryService.UNKNOWN ? activeTrades.get(symbolId) : null;
+            if (trade == null) {
+                continue;
+            }
+            // The market close fills near the last mark price
+            double price = markPrice(symbolId).price;
+            Trade closedTrade = tradingService.closeTradeAt(trade,
+                    Double.isNaN(price) ? trade.getEntryPrice() : BigDecimal.valueOf(price));
+            if (closedTrade.getStatus() == Trade.TradeStatus.CLOSED) {
+                activeTrades.remove(symbolId);
+                killSwitchExits.increment();
+                log.info("Trade closed by kill switch", "symbol", closedTrade.getSymbol(),
+                        "exit", closedTrade.getExitPrice(), "profit", closedTrade.getProfit());
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * Check every open trade once
+     */
+    void checkOpenTrades() {
+        SymbolTable<Trade> activeTrades = tradingScheduler.getActiveTradeTable();
+        if (!tradingScheduler.isTradingEnabled() || activeTrades.isEmpty()) {
+            return;
+        }
+        
+        long start = System.nanoTime();
+        try {
+            for (int symbolId = 0; symbolId < activeTrades.capacity(); symbolId++) {
+                Trade trade = activeTrades.get(symbolId);
+                if (trade != null && trade.getStatus() == Trade.TradeStatus.PENDING) {
+                    checkPendingEntry(symbolId, trade, activeTrades);
+                }
+                if (trade == null || trade.getStatus() != Trade.TradeStatus.OPEN) {
+                    continue;
+                }
+                if (trade.getPendingTrailingStop() != null) {
+                    retryTrailingStop(trade);
+                }
+                double price = currentMarkPrice(symbolId, trade.getSymbol());
+                if (!Double.isNaN(price)) {
+                    checkExit(symbolId, trade, price, activeTrades);
+                }
+            }
+        } catch (Exception e) {
+            // Never let an exception cancel the periodic task
+            log.error("Error checking exits", e);
+        } finally {
+            checkTimer.recordSince(start);
+        }
+    }
+    
+    /**
+     * Check a pending limit entry, at most once per poll interval
+     */
+    private void checkPendingEntry(int symbolId, Trade trade, SymbolTable<Trade> activeTrades) {
+        long now = System.currentTimeMillis();
+        if (now < trade.getEntryCheckAt()) {
+            return;
+        }
+        trade.setEntryCheckAt(now + pendingEntryPollMs);
+        Trade checkedTrade = tradingService.checkPendingEntry(trade);
+        if (checkedTrade.getStatus() == Trade.TradeStatus.CANCELLED) {
+            activeTrades.remove(symbolId);
+            log.info("Limit entry cancelled", "symbol", checkedTrade.getSymbol(), "reason", checkedTrade.getNotes());
+        } else if (checkedTrade.getStatus() == Trade.TradeStatus.OPEN) {
+            log.info("Limit entry filled", "symbol", checkedTrade.getSymbol(),
+                    "entry", checkedTrade.getEntryPrice(), "qty", checkedTrade.getQuantity());
+        }
+    }
+    
+    /**
+     * Try to set a trade's pending trailing stop, at most once per retry interval
+     */
+    private void retryTrailingStop(Trade trade) {
+        long now = System.currentTimeMillis();
+        if (now < trade.getTrailingStopRetryAt()) {
+            return;
+        }
+        trade.setTrailingStopRetryAt(now + trailingStopRetryMs);
+        tradingService.setPendingTrailingStop(trade);
+    }
+    
+    private void checkExit(int symbolId, Trade trade, double price, SymbolTable<Trade> activeTrades) {
+        TradingPair markPair = markPairs.get(symbolId);
+        if (markPair == null) {
+            markPair = new TradingPair();
+            markPair.setSymbol(trade.getSymbol());
+            markPair.setSymbolId(symbolId);
+            markPairs.put(symbolId, markPair);
+        }
+        markPair.setPrice(BigDecimal.valueOf(price));
+        
+        // Stop loss / take profit are executed by the exchange; mirror them locally
+        BigDecimal protectionPrice = tradingService.getTriggeredProtectionPrice(trade, markPair);
+        if (protectionPrice != null) {
+            Trade closedTrade = tradingService.closeTradeAt(trade, protectionPrice);
+            if (closedTrade.getStatus() == Trade.TradeStatus.CLOSED) {
+                activeTrades.remove(symbolId);
+                protectionExits.increment();
+                log.info("Trade closed by exchange stop", "symbol", closedTrade.getSymbol(),
+                        "exit", closedTrade.getExitPrice(), "profit", closedTrade.getProfit());
+            }
+            return;
+        }
+        
+        // Strategy that opened this trade
+        TradingStrategyInterface strategy = strategyRegistry.forTrade(trade);
+        if (strategy == null) {
+            return;
+        }
+        
+        // Evaluated once: closeTrade acts on this decision and does not re-check it
+        if (!strategy.shouldExit(trade, markPair, currentFeatures(symbolId))) {
+            return;
+        }
+        Trade closedTrade = tradingService.closeTrade(trade, markPair, strategy);
+        if (closedTrade.getStatus() == Trade.TradeStatus.CLOSED) {
+            activeTrades.remove(symbolId);
+            strategyExits.increment();
+            log.info("Trade closed", "symbol", closedTrade.getSymbol(),
+                    "strategy", closedTrade.getStrategy(), "profit", closedTrade.getProfit());
+        }
+    }
+    
+    /**
+     * Streamed mark price, or a REST fetch on the priority budget when it is stale
+     * 
+     * @return Latest known price, NaN if none
+     */
+    private double currentMarkPrice(int symbolId, String symbol) {
+        MarkPrice mark = markPrice(symbolId);
+        if (System.currentTimeMillis() - mark.updatedAt <= staleAfterMs) {
+            return mark.price;
+        }
+        if (rateLimiterService.canMakeRequest(RATE_LIMIT_KEY, RateLimiterService.Priority.HIGH)) {
+            BigDecimal fetched = bitunixApiService.getMarkPrice(symbol);
+            if (fetched != null) {
+                restPrices.increment();
+                mark.update(fetched.doubleValue());
+            }
+        }
+        return mark.price;
+    }
+    
+    /**
+     * Consistent copy of the symbol's features, kept from the last good copy while it is being updated
+     */
+    private FeatureSnapshot currentFeatures(int symbolId) {
+        FeatureSnapshot live = tradingScheduler.getFeatures(symbolId);
+        if (live == null) {
+            return null;
+        }
+        FeatureSnapshot copy = features.get(symbolId);
+        if (copy == null) {
+            copy = new FeatureSnapshot();
+            features.put(symbolId, copy);
+        }
+        if (scratch.copyFrom(live)) {
+            copy.copyFrom(scratch);
+        }
+        return copy;
+    }
+    
+    private MarkPrice markPrice(int symbolId) {
+        MarkPrice mark = markPrices.get(symbolId);
+        if (mark == null) {
+            MarkPrice created = new MarkPrice();
+            mark = markPrices.putIfAbsent(symbolId, created);
+            if (mark == null) {
+                mark = created;
+            }
+        }
+        return mark;
+    }
+    
+    private static final class MarkPrice {
+        private volatile double price = Double.NaN;
+        private volatile long updatedAt;
+        
+        private void update(double price) {
+            this.price = price;
+            this.updatedAt = System.currentTimeMillis();
+        }
+    }
+}
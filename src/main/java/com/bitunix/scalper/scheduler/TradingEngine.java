@@ -0,0 +1,206 @@
+package com.bitunix.scalper.scheduler;
+
+import com.bitunix.scalper.model.TradingPair;
+import com.bitunix.scalper.service.MetricsService;
+import com.bitunix.scalper.service.SymbolRegistryService;
+import com.bitunix.scalper.service.ThreadAffinityService;
+import com.bitunix.scalper.util.AsyncLog;
+import com.bitunix.scalper.util.SymbolTable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Event-driven trading engine
+ * 
+ * Market events (candle closes, price ticks) and scan work for a symbol are
+ * queued on that symbol's worker, a lock-free mailbox that runs on a shared
+ * thread pool but never on more than one thread at a time. All per-symbol
+ * trading state is therefore written by a single writer without locks, and
+ * an event only evaluates the strategies and exits of its own symbol.
+ * 
+ * Ticks are coalesced: while a tick is waiting, newer ticks only replace its
+ * price, so a burst of trades never builds a backlog.
+ */
+@Component
+public class TradingEngine {
+    
+    private static final AsyncLog log = AsyncLog.getLogger(TradingEngine.class);
+    
+    @Value("${bitunix.engine.threads:0}")
+    private int threads;
+    
+    @Autowired
+    @Lazy
+    private TradingScheduler tradingScheduler;
+    
+    @Autowired
+    private SymbolRegistryService symbolRegistry;
+    
+    @Autowired
+    private MetricsService metricsService;
+    
+    @Autowired
+    private ThreadAffinityService threadAffinity;
+    
+    private final SymbolTable<SymbolWorker> workers = new SymbolTable<>();
+    private ExecutorService executor;
+    
+    private MetricsService.Counter tickEvents;
+    private MetricsService.Counter coalescedTicks;
+    private MetricsService.Counter candleEvents;
+    private MetricsService.Timer tickReaction;
+    private MetricsService.Timer candleReaction;
+    
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        executor = Executors.newFixedThreadPool(poolSize, threadAffinity.factory(
+                ThreadAffinityService.Role.STRATEGY, "trading-engine", true, Thread.NORM_PRIORITY + 1));
+        
+        tickEvents = metricsService.counter("scalper_engine_events_total", "type", "tick");
+        coalescedTicks = metricsService.counter("scalper_engine_coalesced_ticks_total");
+        candleEvents = metricsService.counter("scalper_engine_events_total", "type", "candle");
+        tickReaction = metricsService.timer("scalper_engine_reaction_seconds", "type", "tick");
+        candleReaction = metricsService.timer("scalper_engine_reaction_seconds", "type", "candle");
+        metricsService.gauge("scalper_engine_symbols", workers::size);
+        log.info("Trading engine started", "threads", poolSize);
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * Latest traded price of a symbol
+     * 
+     * @param receivedAt System.nanoTime() when the message arrived
+     */
+    public void onTick(String symbol, double price, long receivedAt) {
+        int symbolId = symbolRegistry.find(symbol);
+        if (symbolId == SymbolRegistryService.UNKNOWN) {
+            return;
+        }
+        tickEvents.increment();
+        worker(symbolId).tick(price, receivedAt);
+    }
+    
+    /**
+     * A confirmed (closed) candle of a symbol
+     * 
+     * @param receivedAt System.nanoTime() when the message arrived
+     */
+    public void onCandleClose(String symbol, TradingPair kline, long receivedAt) {
+        int symbolId = symbolRegistry.find(symbol);
+        if (symbolId == SymbolRegistryService.UNKNOWN) {
+            return;
+        }
+        candleEvents.increment();
+        execute(symbolId, () -> {
+            tradingScheduler.onCandleClose(symbolId, kline);
+            candleReaction.recordSince(receivedAt);
+        });
+    }
+    
+    /**
+     * Run a task on the symbol's worker, after everything queued before it
+     */
+    public void execute(int symbolId, Runnable task) {
+        worker(symbolId).submit(task);
+    }
+    
+    private SymbolWorker worker(int symbolId) {
+        SymbolWorker worker = workers.get(symbolId);
+        if (worker == null) {
+            SymbolWorker created = new SymbolWorker(symbolId);
+            worker = workers.putIfAbsent(symbolId, created);
+            if (worker == null) {
+                worker = created;
+            }
+        }
+        return worker;
+    }
+    
+    /**
+     * Single-writer mailbox of one symbol
+     */
+    private final class SymbolWorker implements Runnable {
+        private final int symbolId;
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean tickPending = new AtomicBoolean();
+        private volatile double tickPrice;
+        private volatile long tickReceivedAt;
+        
+        private SymbolWorker(int symbolId) {
+            this.symbolId = symbolId;
+        }
+        
+        private void submit(Runnable task) {
+            tasks.offer(task);
+            schedule();
+        }
+        
+        private void tick(double price, long receivedAt) {
+            tickPrice = price;
+            tickReceivedAt = receivedAt;
+            if (tickPending.getAndSet(true)) {
+                coalescedTicks.increment();
+            } else {
+                schedule();
+            }
+        }
+        
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // Shutting down
+                    scheduled.set(false);
+                }
+            }
+        }
+        
+        @Override
+        public void run() {
+            try {
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    runSafely(task);
+                }
+                if (tickPending.getAndSet(false)) {
+                    long receivedAt = tickReceivedAt;
+                    runSafely(() -> tradingScheduler.onTick(symbolId, tickPrice));
+                    tickReaction.recordSince(receivedAt);
+                }
+            } finally {
+                scheduled.set(false);
+                // Work that arrived after the queue was drained
+                if (!tasks.isEmpty() || tickPending.get()) {
+                    schedule();
+                }
+            }
+        }
+        
+        private void runSafely(Runnable task) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error("Error handling symbol event", e, "symbol", symbolRegistry.symbolOf(symbolId));
+            }
+        }
+    }
+}
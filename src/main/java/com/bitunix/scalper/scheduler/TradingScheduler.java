@@ -10,20 +10,60 @@ import com.bitunix.scalper.service.TradingService;
 import com.bitunix.scalper.service.TradingConfigService;
 import com.bitunix.scalper.service.StrategyEvaluationService;
 import com.bitunix.scalper.service.BybitDemoTradingService;
+import com.bitunix.scalper.service.IoExecutorService;
+import com.bitunix.scalper.service.LatencyTrackerService;
+import com.bitunix.scalper.service.MarketStreamService;
+import com.bitunix.scalper.service.MetricsService;
+import com.bitunix.scalper.service.StrategyRegistryService;
+import com.bitunix.scalper.service.SymbolRegistryService;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.bitunix.scalper.strategy.CandleAggregator;
+import com.bitunix.scalper.strategy.FeatureSnapshot;
+import com.bitunix.scalper.strategy.SignalResult;
+import com.bitunix.scalper.strategy.Timeframe;
 import com.bitunix.scalper.strategy.TradingStrategyInterface;
+import com.bitunix.scalper.util.AsyncLog;
+import com.bitunix.scalper.util.SymbolTable;
+import com.bitunix.scalper.util.TaskScope;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
+/**
+ * Trading loop
+ * 
+ * Reacts to market events: each price tick or candle close from the market
+ * stream is handled on its symbol's {@link TradingEngine} worker, which
+ * evaluates only that symbol's strategies. All per-symbol market state is
+ * written by the symbol's worker only; open trades are watched and closed by
+ * the {@link ExitMonitor}.
+ * 
+ * The fixed-rate cycle remains as a safety net: it refreshes the trading
+ * universe, balance and klines, hands each symbol to its worker for a full
+ * scan and opens the best signal of the whole universe. It runs on its own
+ * {@link CycleRunner} thread with a per-run deadline, so a slow cycle never
+ * blocks Spring's @Scheduled tasks and late runs are skipped, not queued.
+ */
 @Component
 public class TradingScheduler {
     
+    private static final AsyncLog log = AsyncLog.getLogger(TradingScheduler.class);
+    
     @Autowired
     private BitunixApiService bitunixApiService;
     
@@ -34,7 +74,7 @@ public class TradingScheduler {
     private TechnicalAnalysisService technicalAnalysisService;
     
     @Autowired
-    private List<TradingStrategyInterface> strategies;
+    private StrategyRegistryService strategyRegistry;
     
     @Autowired
     private TradingConfigService configService;
@@ -48,22 +88,117 @@ public class TradingScheduler {
     @Autowired
     private TradingSignalRepository signalRepository;
     
-    // Store active trades
-    private final ConcurrentMap<String, Trade> activeTrades = new ConcurrentHashMap<>();
+    @Autowired
+    private LatencyTrackerService latencyTracker;
+    
+    @Autowired
+    private MetricsService metricsService;
+    
+    @Autowired
+    private SymbolRegistryService symbolRegistry;
+    
+    @Autowired
+    private TradingEngine tradingEngine;
+    
+    @Autowired
+    private MarketStreamService marketStreamService;
+    
+    @Autowired
+    private IoExecutorService ioExecutorService;
+    
+    // Minimum move since the last evaluation for a tick to re-evaluate entries
+    @Value("${bitunix.engine.tick-threshold-bps:5}")
+    private double tickThresholdBps;
+    
+    // Safety-net scan: interval, deadline of each run and what to do after an overrun
+    @Value("${bitunix.cycle.interval-ms:30000}")
+    private long cycleIntervalMs;
+    
+    @Value("${bitunix.cycle.deadline-ms:25000}")
+    private long cycleDeadlineMs;
+    
+    @Value("${bitunix.cycle.late-policy:SKIP}")
+    private CycleRunner.LatePolicy latePolicy;
+    
+    private static final long CANDLE_INTERVAL_MS = 60000;
+    private static final int INDICATOR_CANDLES = 100;
+    private static final int ENTRY_CANDLES = 50;
+    
+    private CycleRunner cycleRunner;
+    
+    private MetricsService.Timer cycleTimer;
+    private MetricsService.Counter deadlineMisses;
+    private MetricsService.Counter cancelledFetches;
+    private MetricsService.Timer indicatorTimer;
+    private MetricsService.Counter[] evaluationCounters;
+    
+    // Timeframes any strategy reads, aggregated per symbol from the 1m candles
+    private Set<Timeframe> requiredTimeframes;
+    
+    // Per-symbol state indexed by symbol id, written by the symbol's engine worker
+    private final SymbolTable<Trade> activeTrades = new SymbolTable<>();
+    private final SymbolTable<TradingPair> currentPairs = new SymbolTable<>();
+    private final SymbolTable<List<TradingPair>> candles = new SymbolTable<>();
+    private final SymbolTable<SymbolState> states = new SymbolTable<>();
+    private final SymbolTable<CandleAggregator> timeframes = new SymbolTable<>();
+    
+    // Shared features per symbol id, kept across cycles and recomputed once per closed candle
+    private final SymbolTable<FeatureSnapshot> features = new SymbolTable<>();
+    
+    // Held while a worker opens a trade, so that only one trade is open at a time
+    private final AtomicBoolean entryGate = new AtomicBoolean();
+    
+    // Symbols of the previous scan (scheduler thread only)
+    private BitSet lastScanned = new BitSet();
     
     // Trading configuration
-    private boolean tradingEnabled = false;
-    private double availableBalance = 10000.0; // Starting balance (will be updated from API)
+    private volatile boolean tradingEnabled = false;
+    private volatile double availableBalance = 10000.0; // Starting balance (will be updated from API)
+    
+    @PostConstruct
+    public void init() {
+        cycleTimer = metricsService.timer("scalper_scheduler_cycle_seconds");
+        deadlineMisses = metricsService.counter("scalper_scheduler_cycle_deadline_misses_total");
+        cancelledFetches = metricsService.counter("scalper_scheduler_cancelled_fetches_total");
+        indicatorTimer = metricsService.timer("scalper_indicator_update_seconds");
+        metricsService.gauge("scalper_active_trades", activeTrades::size);
+        requiredTimeframes = EnumSet.of(Timeframe.M1);
+        for (TradingStrategyInterface strategy : strategyRegistry.getAll()) {
+            requiredTimeframes.addAll(strategy.getTimeframes());
+        }
+        evaluationCounters = new MetricsService.Counter[strategyRegistry.size()];
+        for (int id = 0; id < evaluationCounters.length; id++) {
+            evaluationCounters[id] = metricsService.counter("scalper_strategy_evaluations_total",
+                    "strategy", strategyRegistry.get(id).getName());
+        }
+        
+        cycleRunner = new CycleRunner("trading-cycle", cycleIntervalMs, cycleDeadlineMs, latePolicy,
+                this::executeTradingCycle);
+        metricsService.gauge("scalper_scheduler_cycle_overruns_total", cycleRunner::getOverruns);
+        metricsService.gauge("scalper_scheduler_cycle_skipped_slots_total", cycleRunner::getSkippedSlots);
+        metricsService.gauge("scalper_scheduler_cycle_failures_total", cycleRunner::getFailures);
+        if (tradingEnabled) {
+            cycleRunner.start();
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        cycleRunner.shutdown();
+    }
     
     /**
-     * Main trading loop - runs every 30 seconds
+     * Safety-net scan of the whole universe - runs every 30 seconds on the cycle runner's thread
+     * 
+     * @param deadlineNanos Kline fetches still running at the deadline are cancelled, and no trade is
+     *                      opened from a scan that did not finish by then
      */
-    @Scheduled(fixedRate = 30000)
-    public void executeTradingCycle() {
+    private void executeTradingCycle(long deadlineNanos) throws InterruptedException {
         if (!tradingEnabled) {
             return;
         }
         
+        long cycleStart = System.nanoTime();
         try {
             // Update balance from API
             updateBalanceFromAPI();
@@ -88,128 +223,248 @@ public class TradingScheduler {
                                    pair.getVolume24h().doubleValue() > 1000)
                     .collect(Collectors.toList());
             
-            // Update technical indicators
+            // Symbols that left the universe are retired on their own worker
+            BitSet scanned = new BitSet();
             for (TradingPair pair : activePairs) {
-                List<TradingPair> historicalData = bitunixApiService.getKlineData(
-                    pair.getSymbol(), "1m", 100);
-                technicalAnalysisService.updateTechnicalIndicators(pair, historicalData);
+                scanned.set(symbolRegistry.idOf(pair));
             }
+            for (int id = lastScanned.nextSetBit(0); id >= 0; id = lastScanned.nextSetBit(id + 1)) {
+                if (!scanned.get(id)) {
+                    int retiredId = id;
+                    tradingEngine.execute(retiredId, () -> retire(retiredId));
+                }
+            }
+            lastScanned = scanned;
+            marketStreamService.track(activePairs.stream().map(TradingPair::getSymbol).collect(Collectors.toList()));
             
-            // Check for exit signals on active trades
-            checkExitSignals(activePairs);
+            // Fetch klines concurrently, one task per symbol; fetches still running at the deadline are cancelled
+            ScanRound round = new ScanRound(activePairs.size());
+            try (TaskScope<List<TradingPair>> fetches = ioExecutorService.openScope(deadlineNanos)) {
+                for (TradingPair pair : activePairs) {
+                    fetches.fork(() -> bitunixApiService.getKlineData(pair.getSymbol(), "1m", INDICATOR_CANDLES));
+                }
+                fetches.join();
+                cancelledFetches.add(fetches.getCancelled());
+                
+                // Indicators and entry evaluation run on each symbol's worker
+                for (int i = 0; i < activePairs.size(); i++) {
+                    TradingPair pair = activePairs.get(i);
+                    List<TradingPair> historicalData = fetches.result(i);
+                    Throwable failure = fetches.failure(i);
+                    if (failure != null) {
+                        log.warn("Kline fetch failed", "symbol", pair.getSymbol(), "error", failure.getMessage());
+                    }
+                    tradingEngine.execute(pair.getSymbolId(), () -> scanSymbol(pair, historicalData, round));
+                }
+            }
             
-            // Check for new entry signals
-            checkEntrySignals(activePairs);
+            // Open the best signal of the universe on its symbol's worker
+            int bestSymbolId = round.awaitBest(deadlineNanos);
+            if (bestSymbolId != SymbolRegistryService.UNKNOWN) {
+                tradingEngine.execute(bestSymbolId, () -> openPosition(bestSymbolId));
+            } else if (System.nanoTime() - deadlineNanos > 0) {
+                deadlineMisses.increment();
+                log.warn("Trading cycle missed its deadline", "symbols", activePairs.size());
+            }
             
+        } catch (InterruptedException e) {
+            // Trading stopped during the cycle
+            throw e;
         } catch (Exception e) {
-            System.err.println("Error in trading cycle: " + e.getMessage());
+            log.error("Error in trading cycle", "error", e.getMessage());
+        } finally {
+            cycleTimer.recordSince(cycleStart);
         }
     }
     
     /**
-     * Check for exit signals on active trades
+     * Price tick from the market stream (on the symbol's worker)
      */
-    private void checkExitSignals(List<TradingPair> activePairs) {
-        for (Trade trade : activeTrades.values()) {
-            if (trade.getStatus() != Trade.TradeStatus.OPEN) {
-                continue;
+    public void onTick(int symbolId, double price) {
+        TradingPair pair = currentPairs.get(symbolId);
+        if (!tradingEnabled || pair == null) {
+            return;
+        }
+        pair.setPrice(java.math.BigDecimal.valueOf(price));
+        
+        // Re-evaluate entries only when the price moved enough since the last evaluation
+        SymbolState state = states.get(symbolId);
+        double evaluated = state != null ? state.evaluatedPrice : Double.NaN;
+        if (Double.isNaN(evaluated) || Math.abs(price - evaluated) >= evaluated * tickThresholdBps / 10000.0) {
+            if (evaluateEntry(symbolId) != null) {
+                openPosition(symbolId);
             }
-            
-            // Find current pair data
-            TradingPair currentPair = activePairs.stream()
-                    .filter(pair -> pair.getSymbol().equals(trade.getSymbol()))
-                    .findFirst()
-                    .orElse(null);
-            
-            if (currentPair == null) {
-                continue;
+        }
+    }
+    
+    /**
+     * Closed candle from the market stream (on the symbol's worker)
+     */
+    public void onCandleClose(int symbolId, TradingPair kline) {
+        TradingPair pair = currentPairs.get(symbolId);
+        if (!tradingEnabled || pair == null) {
+            return;
+        }
+        List<TradingPair> history = candles.get(symbolId);
+        if (history == null) {
+            // No klines fetched yet: build the history from the stream
+            history = new ArrayList<>();
+        }
+        
+        // Newest first: a forming placeholder, the closed candle, then the older closed candles
+        List<TradingPair> updated = new ArrayList<>(INDICATOR_CANDLES);
+        TradingPair forming = new TradingPair();
+        forming.setSymbol(kline.getSymbol());
+        forming.setPrice(kline.getPrice());
+        forming.setCandleTime(kline.getCandleTime() + CANDLE_INTERVAL_MS);
+        updated.add(forming);
+        updated.add(kline);
+        for (TradingPair candle : history) {
+            if (updated.size() >= INDICATOR_CANDLES) {
+                break;
             }
-            
-            // Find strategy for this trade
-            TradingStrategyInterface strategy = strategies.stream()
-                    .filter(s -> s.getName().equals(trade.getStrategy()))
-                    .findFirst()
-                    .orElse(null);
-            
-            if (strategy == null) {
-                continue;
+            if (candle.getCandleTime() < kline.getCandleTime()) {
+                updated.add(candle);
             }
+        }
+        candles.put(symbolId, updated);
+        timeframesFor(symbolId).onCandle(kline);
+        
+        long indicatorStart = System.nanoTime();
+        technicalAnalysisService.updateFeatures(pair, featuresFor(symbolId), updated);
+        latencyTracker.record(LatencyTrackerService.Stage.INDICATOR_UPDATE, pair.getSymbol(), indicatorStart);
+        indicatorTimer.recordSince(indicatorStart);
+        
+        if (evaluateEntry(symbolId) != null) {
+            openPosition(symbolId);
+        }
+    }
+    
+    /**
+     * Full refresh of one symbol during the safety-net scan (on the symbol's worker)
+     */
+    private void scanSymbol(TradingPair pair, List<TradingPair> historicalData, ScanRound round) {
+        try {
+            int symbolId = pair.getSymbolId();
+            currentPairs.put(symbolId, pair);
+            // Keep the stream-maintained candles when no klines could be fetched
+            if (historicalData != null && !historicalData.isEmpty()) {
+                candles.put(symbolId, historicalData);
+                timeframesFor(symbolId).catchUp(historicalData);
+            }
+            
+            long indicatorStart = System.nanoTime();
+            technicalAnalysisService.updateFeatures(pair, featuresFor(symbolId), candles.get(symbolId));
+            latencyTracker.record(LatencyTrackerService.Stage.INDICATOR_UPDATE, pair.getSymbol(), indicatorStart);
+            indicatorTimer.recordSince(indicatorStart);
             
-            // Check exit signal
-            if (strategy.shouldExit(trade, currentPair, null)) {
-                Trade closedTrade = tradingService.closeTrade(trade, currentPair, strategy);
-                activeTrades.remove(trade.getSymbol());
-                System.out.println("Trade closed: " + closedTrade.getSymbol() + 
-                                 " Profit: " + closedTrade.getProfit());
+            SymbolState state = evaluateEntry(symbolId);
+            if (state != null) {
+                round.offer(symbolId, state.bestScore);
             }
+        } catch (Exception e) {
+            log.error("Error scanning symbol", e, "symbol", pair.getSymbol());
+        } finally {
+            round.done();
         }
     }
     
     /**
-     * Check for new entry signals
-     * Analyzes all pairs and all strategies, then selects the best signal
+     * Drop the market data of a symbol that left the trading universe (on the symbol's worker)
      */
-    private void checkEntrySignals(List<TradingPair> activePairs) {
+    private void retire(int symbolId) {
+        currentPairs.remove(symbolId);
+        candles.remove(symbolId);
+        timeframes.remove(symbolId);
+    }
+    
+    /**
+     * Evaluate all selected strategies for one symbol and keep its best signal
+     * 
+     * @return The symbol's state if a signal scored at least the minimum score, otherwise null
+     */
+    private SymbolState evaluateEntry(int symbolId) {
         // Don't open new trades if we already have active trades
         if (!activeTrades.isEmpty()) {
-            return;
+            return null;
         }
         
-        // Get selected strategies from configuration
-        List<TradingStrategyInterface> availableStrategies = strategies.stream()
-                .filter(s -> s.isActive())
-                .filter(s -> configService.isStrategySelected(s.getName()))
-                .collect(Collectors.toList());
+        TradingPair pair = currentPairs.get(symbolId);
         
-        if (availableStrategies.isEmpty()) {
-            return;
+        // Most recent candles (newest first)
+        List<TradingPair> historicalData = candles.get(symbolId);
+        if (pair == null || historicalData == null || historicalData.isEmpty()) {
+            return null;
         }
+        historicalData = historicalData.subList(0, Math.min(ENTRY_CANDLES, historicalData.size()));
+        FeatureSnapshot snapshot = features.get(symbolId);
         
-        // Analyze all pairs and all strategies to find the best signal
-        TradingPair bestPair = null;
-        TradingStrategyInterface bestStrategy = null;
-        double bestScore = 0.0;
-        List<TradingPair> bestHistoricalData = null;
+        SymbolState state = states.get(symbolId);
+        if (state == null) {
+            state = new SymbolState(strategyRegistry.size());
+            states.put(symbolId, state);
+        }
+        state.clear();
+        state.evaluatedPrice = pair.getPrice() != null ? pair.getPrice().doubleValue() : Double.NaN;
         
         double minScore = configService.getActiveConfig().getMinStrategyScore();
+        List<String> selectedStrategies = configService.getSelectedStrategies();
         
-        // Check each pair
-        for (TradingPair pair : activePairs) {
-            // Skip if already have active trade for this pair
-            if (activeTrades.containsKey(pair.getSymbol())) {
+        // Check each selected strategy for this pair
+        for (TradingStrategyInterface strategy : strategyRegistry.getAll()) {
+            if (!strategy.isActive()
+                    || (!selectedStrategies.isEmpty() && !selectedStrategies.contains(strategy.getName()))) {
                 continue;
             }
             
-            // Get historical data for technical analysis
-            List<TradingPair> historicalData = bitunixApiService.getKlineData(
-                pair.getSymbol(), "1m", 50);
-            
-            if (historicalData == null || historicalData.isEmpty()) {
+            int strategyId = strategyRegistry.idOf(strategy);
+            SignalResult signal = state.signals[strategyId];
+            long evaluationStart = System.nanoTime();
+            boolean shouldEnter = strategy.evaluate(pair, historicalData, snapshot, timeframes.get(symbolId), signal);
+            latencyTracker.record(LatencyTrackerService.Stage.STRATEGY_EVALUATION, pair.getSymbol(), evaluationStart);
+            evaluationCounters[strategyId].increment();
+            if (!shouldEnter) {
                 continue;
             }
             
-            // Check each strategy for this pair
-            for (TradingStrategyInterface strategy : availableStrategies) {
-                if (!strategy.shouldEnter(pair, historicalData)) {
-                    continue;
-                }
-                
-                // Evaluate strategy score
-                double score = strategyEvaluationService.evaluateStrategy(
-                    pair, strategy, historicalData);
-                
-                // If score is above minimum and better than current best, update
-                if (score >= minScore && score > bestScore) {
-                    bestPair = pair;
-                    bestStrategy = strategy;
-                    bestScore = score;
-                    bestHistoricalData = historicalData;
-                }
+            // Score the signal without evaluating the strategy again, costed at the size it would trade
+            long scoringStart = System.nanoTime();
+            double quantity = tradingService.plannedQuantity(pair, strategy, signal, availableBalance);
+            double score = strategyEvaluationService.scoreSignal(pair, strategy, signal, quantity);
+            latencyTracker.record(LatencyTrackerService.Stage.SCORING, pair.getSymbol(), scoringStart);
+            
+            // If score is above minimum and better than current best, update
+            if (score >= minScore && score > state.bestScore) {
+                state.bestStrategy = strategy;
+                state.bestScore = score;
+                state.bestSignal.copyFrom(signal);
             }
         }
         
-        // If we found a good signal, execute it
-        if (bestPair != null && bestStrategy != null && bestHistoricalData != null) {
+        return state.bestStrategy != null ? state : null;
+    }
+    
+    /**
+     * Open the symbol's best signal unless a trade is already open
+     */
+    private void openPosition(int symbolId) {
+        SymbolState state = states.get(symbolId);
+        TradingPair bestPair = currentPairs.get(symbolId);
+        if (!tradingEnabled || state == null || bestPair == null
+                || state.bestStrategy == null || !state.bestSignal.isEntry()) {
+            return;
+        }
+        if (!entryGate.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // Another worker may have opened a trade before this one got the gate
+            if (!activeTrades.isEmpty()) {
+                return;
+            }
+            
+            TradingStrategyInterface bestStrategy = state.bestStrategy;
+            double bestScore = state.bestScore;
             String signalReason = "Best signal selected: " + bestStrategy.getName() + 
                                  " for " + bestPair.getSymbol() + 
                                  " with score: " + String.format("%.2f", bestScore);
@@ -218,7 +473,8 @@ public class TradingScheduler {
             TradingSignal signal = new TradingSignal();
             signal.setSymbol(bestPair.getSymbol());
             signal.setStrategy(bestStrategy.getName());
-            signal.setSignalType(TradingSignal.SignalType.BUY);
+            signal.setSignalType(state.bestSignal.getDirection() == Trade.TradeType.SELL
+                    ? TradingSignal.SignalType.SELL : TradingSignal.SignalType.BUY);
             signal.setPrice(bestPair.getPrice());
             signal.setSignalStrength(java.math.BigDecimal.valueOf(bestScore));
             signal.setSignalTime(java.time.LocalDateTime.now());
@@ -227,22 +483,48 @@ public class TradingScheduler {
             
             // Try to execute trade
             Trade newTrade = tradingService.executeTrade(bestPair, bestStrategy, 
-                                                        bestHistoricalData, availableBalance);
+                                                        state.bestSignal, availableBalance);
             
             if (newTrade != null) {
-                signal.setExecuted(true);
-                signal.setExecutedTime(java.time.LocalDateTime.now());
-                activeTrades.put(bestPair.getSymbol(), newTrade);
-                System.out.println("New trade opened: " + newTrade.getSymbol() + 
-                                 " Strategy: " + newTrade.getStrategy() +
-                                 " Entry: " + newTrade.getEntryPrice() +
-                                 " Score: " + String.format("%.2f", bestScore));
+                // Send to the exchange with SL/TP attached; a rejected entry is cancelled and not tracked
+                if (tradingService.submitEntryOrder(newTrade)) {
+                    signal.setExecuted(true);
+                    signal.setExecutedTime(java.time.LocalDateTime.now());
+                    activeTrades.put(symbolId, newTrade);
+                    log.info("New trade opened", "symbol", newTrade.getSymbol(), "status", newTrade.getStatus(),
+                            "strategy", newTrade.getStrategy(), "entry", newTrade.getEntryPrice(),
+                            "score", String.format("%.2f", bestScore), "orderId", newTrade.getOrderId());
+                } else {
+                    log.warn("Entry order not placed", "symbol", newTrade.getSymbol(),
+                            "orderLinkId", newTrade.getOrderLinkId(), "reason", newTrade.getNotes());
+                    signal.setReason(signalReason + " (Entry order not placed - check logs)");
+                }
             } else {
                 signal.setReason(signalReason + " (Trade not executed - check logs)");
             }
             
             signalRepository.save(signal);
+        } finally {
+            entryGate.set(false);
+        }
+    }
+    
+    private CandleAggregator timeframesFor(int symbolId) {
+        CandleAggregator aggregator = timeframes.get(symbolId);
+        if (aggregator == null) {
+            aggregator = new CandleAggregator(requiredTimeframes, INDICATOR_CANDLES);
+            timeframes.put(symbolId, aggregator);
+        }
+        return aggregator;
+    }
+    
+    private FeatureSnapshot featuresFor(int symbolId) {
+        FeatureSnapshot snapshot = features.get(symbolId);
+        if (snapshot == null) {
+            snapshot = new FeatureSnapshot();
+            features.put(symbolId, snapshot);
         }
+        return snapshot;
     }
     
     /**
@@ -259,7 +541,7 @@ public class TradingScheduler {
                 .filter(pair -> pair.getRsi().doubleValue() > 20 && pair.getRsi().doubleValue() < 80)
                 .filter(pair -> pair.getVolume24h() != null && 
                                pair.getVolume24h().doubleValue() > 10000)
-                .filter(pair -> !activeTrades.containsKey(pair.getSymbol()))
+                .filter(pair -> !activeTrades.contains(symbolRegistry.idOf(pair)))
                 .findFirst()
                 .orElse(null);
     }
@@ -269,7 +551,8 @@ public class TradingScheduler {
      */
     public void startTrading() {
         tradingEnabled = true;
-        System.out.println("Trading started");
+        cycleRunner.start();
+        log.info("Trading started");
     }
     
     /**
@@ -277,7 +560,8 @@ public class TradingScheduler {
      */
     public void stopTrading() {
         tradingEnabled = false;
-        System.out.println("Trading stopped");
+        cycleRunner.stop();
+        log.info("Trading stopped");
     }
     
     /**
@@ -288,12 +572,34 @@ public class TradingScheduler {
     }
     
     /**
-     * Get active trades
+     * Copy of the active trades by symbol (not for the trading loop)
      */
-    public ConcurrentMap<String, Trade> getActiveTrades() {
+    public Map<String, Trade> getActiveTrades() {
+        Map<String, Trade> trades = new LinkedHashMap<>();
+        for (Trade trade : activeTrades.values()) {
+            trades.put(trade.getSymbol(), trade);
+        }
+        return trades;
+    }
+    
+    public int getActiveTradeCount() {
+        return activeTrades.size();
+    }
+    
+    /**
+     * Active trades by symbol id, for the exit monitor
+     */
+    SymbolTable<Trade> getActiveTradeTable() {
         return activeTrades;
     }
     
+    /**
+     * Live features of a symbol (written by its worker; read with {@link FeatureSnapshot#copyFrom})
+     */
+    FeatureSnapshot getFeatures(int symbolId) {
+        return features.get(symbolId);
+    }
+    
     /**
      * Get available balance
      */
@@ -301,6 +607,49 @@ public class TradingScheduler {
         return availableBalance;
     }
     
+    /**
+     * Replace in-memory state with state rebuilt on startup
+     * 
+     * @param trades Open trades to manage
+     * @param balance Last known available balance (null keeps the default)
+     * @param enableTrading Whether the trading loop should resume
+     */
+    public void restoreState(List<Trade> trades, Double balance, boolean enableTrading) {
+        activeTrades.clear();
+        for (Trade trade : trades) {
+            activeTrades.put(symbolRegistry.idOf(trade.getSymbol()), trade);
+        }
+        if (balance != null) {
+            this.availableBalance = balance;
+        }
+        this.tradingEnabled = enableTrading;
+        if (enableTrading) {
+            cycleRunner.start();
+        } else {
+            cycleRunner.stop();
+        }
+    }
+    
+    /**
+     * Duration and overrun statistics of the safety-net scan
+     */
+    public Map<String, Object> getCycleStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", cycleRunner.isRunning());
+        stats.put("intervalMs", cycleIntervalMs);
+        stats.put("deadlineMs", cycleDeadlineMs);
+        stats.put("latePolicy", latePolicy);
+        stats.put("runs", cycleRunner.getRuns());
+        stats.put("lastDurationMs", cycleRunner.getLastDurationNanos() / 1_000_000.0);
+        stats.put("maxDurationMs", cycleRunner.getMaxDurationNanos() / 1_000_000.0);
+        stats.put("overruns", cycleRunner.getOverruns());
+        stats.put("skippedSlots", cycleRunner.getSkippedSlots());
+        stats.put("deadlineMisses", deadlineMisses.get());
+        stats.put("cancelledFetches", cancelledFetches.get());
+        stats.put("failures", cycleRunner.getFailures());
+        return stats;
+    }
+    
     /**
      * Update available balance
      */
@@ -353,8 +702,83 @@ public class TradingScheduler {
                 }
             }
         } catch (Exception e) {
-            System.err.println("Error updating balance from API: " + e.getMessage());
+            log.error("Error updating balance from API", "error", e.getMessage());
             // Keep current balance if API call fails
         }
     }
+    
+    /**
+     * Reusable evaluation results of one symbol, one per strategy id, plus its best signal
+     */
+    private static final class SymbolState {
+        private final SignalResult[] signals;
+        private final SignalResult bestSignal = new SignalResult();
+        private TradingStrategyInterface bestStrategy;
+        private double bestScore;
+        private double evaluatedPrice = Double.NaN;
+        
+        private SymbolState(int strategies) {
+            signals = new SignalResult[strategies];
+            for (int id = 0; id < strategies; id++) {
+                signals[id] = new SignalResult();
+            }
+        }
+        
+        private void clear() {
+            bestSignal.reset();
+            bestStrategy = null;
+            bestScore = 0.0;
+        }
+    }
+    
+    /**
+     * Collects the best signal of one safety-net scan from the symbol workers
+     */
+    private static final class ScanRound {
+        private final CountDownLatch pending;
+        private final AtomicReference<Offer> best = new AtomicReference<>();
+        
+        private ScanRound(int symbols) {
+            pending = new CountDownLatch(symbols);
+        }
+        
+        private void offer(int symbolId, double score) {
+            Offer offer = new Offer(symbolId, score);
+            Offer current;
+            do {
+                current = best.get();
+                if (current != null && current.score >= score) {
+                    return;
+                }
+            } while (!best.compareAndSet(current, offer));
+        }
+        
+        private void done() {
+            pending.countDown();
+        }
+        
+        /**
+         * Wait for all symbols of the scan until the deadline
+         * 
+         * @return Symbol id with the best signal, or SymbolRegistryService.UNKNOWN (also when the deadline passed)
+         */
+        private int awaitBest(long deadlineNanos) throws InterruptedException {
+            if (!pending.await(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                // Not every symbol was scanned in time
+                return SymbolRegistryService.UNKNOWN;
+            }
+            Offer offer = best.get();
+            return offer != null ? offer.symbolId : SymbolRegistryService.UNKNOWN;
+        }
+    }
+    
+    private static final class Offer {
+        private final int symbolId;
+        private final double score;
+        
+        private Offer(int symbolId, double score) {
+            this.symbolId = symbolId;
+            this.score = score;
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package com.bitunix.scalper.service;
 
 import com.bitunix.scalper.model.TradingPair;
+import com.bitunix.scalper.util.AsyncLog;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.http.client.methods.CloseableHttpResponse;
@@ -19,6 +20,8 @@ import java.util.List;
 @Service
 public class AlternativeDataService {
     
+    private static final AsyncLog log = AsyncLog.getLogger(AlternativeDataService.class);
+    
     @Autowired
     private RateLimiterService rateLimiterService;
     
@@ -32,7 +35,7 @@ public class AlternativeDataService {
         
         // Проверяем Rate Limiter перед запросом
         if (!rateLimiterService.canMakeRequest("binance")) {
-            System.out.println("Rate limit exceeded for binance request");
+            log.warn("Rate limit exceeded for binance request");
             return new ArrayList<>();
         }
         
@@ -57,7 +60,7 @@ public class AlternativeDataService {
                 }
             }
         } catch (Exception e) {
-            System.err.println("Error fetching Binance data: " + e.getMessage());
+            log.error("Error fetching Binance data", "error", e.getMessage());
         }
         
         return pairs;
@@ -71,7 +74,7 @@ public class AlternativeDataService {
         
         // Проверяем Rate Limiter перед запросом
         if (!rateLimiterService.canMakeRequest("coingecko")) {
-            System.out.println("Rate limit exceeded for coingecko request");
+            log.warn("Rate limit exceeded for coingecko request");
             return new ArrayList<>();
         }
         
@@ -96,7 +99,7 @@ public class AlternativeDataService {
                 }
             }
         } catch (Exception e) {
-            System.err.println("Error fetching CoinGecko data: " + e.getMessage());
+            log.error("Error fetching CoinGecko data", "error", e.getMessage());
         }
         
         return pairs;
@@ -124,7 +127,7 @@ public class AlternativeDataService {
             
             return pair;
         } catch (Exception e) {
-            System.err.println("Error parsing Binance pair: " + e.getMessage());
+            log.error("Error parsing Binance pair", "error", e.getMessage());
             return null;
         }
     }
@@ -149,7 +152,7 @@ public class AlternativeDataService {
             
             return pair;
         } catch (Exception e) {
-            System.err.println("Error parsing CoinGecko pair: " + e.getMessage());
+            log.error("Error parsing CoinGecko pair", "error", e.getMessage());
             return null;
         }
     }
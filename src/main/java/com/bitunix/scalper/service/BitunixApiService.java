@@ -1,9 +1,15 @@
 package com.bitunix.scalper.service;
 
+import com.bitunix.scalper.model.Instrument;
 import com.bitunix.scalper.model.TradingConfig;
 import com.bitunix.scalper.model.TradingPair;
+import com.bitunix.scalper.util.HttpMetricsInterceptor;
+import com.bitunix.scalper.util.AsyncLog;
+import com.bitunix.scalper.util.TaskScope;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
@@ -15,6 +21,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -22,6 +30,8 @@ import java.util.List;
 @Service
 public class BitunixApiService {
     
+    private static final AsyncLog log = AsyncLog.getLogger(BitunixApiService.class);
+    
     @Value("${bitunix.api.base-url:https://api-demo.bybit.com}")
     private String defaultBaseUrl;
     
@@ -40,6 +50,18 @@ public class BitunixApiService {
     @Autowired(required = false)
     private TradingConfigService configService;
     
+    @Autowired
+    private LatencyTrackerService latencyTracker;
+    
+    @Autowired
+    private MetricsService metricsService;
+    
+    @Autowired
+    private InstrumentRegistryService instrumentRegistry;
+    
+    @Autowired
+    private SymbolRegistryService symbolRegistry;
+    
     /**
      * Get base URL from config or use default
      */
@@ -53,6 +75,23 @@ public class BitunixApiService {
         return defaultBaseUrl;
     }
     
+    /**
+     * Base URL normalized for building request URLs: scheme added, no trailing slash
+     */
+    private String getApiUrl() {
+        String apiUrl = getBaseUrl();
+        if (apiUrl == null || apiUrl.isEmpty()) {
+            apiUrl = "https://api-demo.bybit.com";
+        }
+        if (!apiUrl.startsWith("http")) {
+            apiUrl = "https://" + apiUrl;
+        }
+        if (apiUrl.endsWith("/")) {
+            apiUrl = apiUrl.substring(0, apiUrl.length() - 1);
+        }
+        return apiUrl;
+    }
+    
     /**
      * Get API key from config or use default
      */
@@ -91,8 +130,11 @@ public class BitunixApiService {
                 .setSocketTimeout(10000) // 10 seconds
                 .build();
         
+        HttpMetricsInterceptor metricsInterceptor = new HttpMetricsInterceptor(metricsService, "bitunix");
         return HttpClients.custom()
                 .setDefaultRequestConfig(requestConfig)
+                .addInterceptorFirst((HttpRequestInterceptor) metricsInterceptor)
+                .addInterceptorLast((HttpResponseInterceptor) metricsInterceptor)
                 .build();
     }
     
@@ -110,30 +152,24 @@ public class BitunixApiService {
         
         // Check rate limiter - if limit exceeded, return empty list (non-blocking)
         if (!rateLimiterService.canMakeRequest("bitunix")) {
-            System.out.println("Rate limit exceeded for trading pairs request, returning empty list");
+            log.warn("Rate limit exceeded for trading pairs request, returning empty list");
             return new ArrayList<>();
         }
         
         try (CloseableHttpClient httpClient = createHttpClient()) {
-            String apiUrl = getBaseUrl();
-            if (apiUrl == null || apiUrl.isEmpty()) {
-                apiUrl = "https://api-demo.bybit.com";
-            }
-            if (!apiUrl.startsWith("http")) {
-                apiUrl = "https://" + apiUrl;
-            }
-            if (apiUrl.endsWith("/")) {
-                apiUrl = apiUrl.substring(0, apiUrl.length() - 1);
-            }
+            String apiUrl = getApiUrl();
             
             // Make a single request to get all tickers (more efficient than multiple requests)
             String tickersUrl = apiUrl + "/v5/market/tickers?category=linear";
             HttpGet request = new HttpGet(tickersUrl);
             request.setHeader("Accept", "application/json");
             
+            long requestStart = System.nanoTime();
             try (CloseableHttpResponse response = httpClient.execute(request)) {
                 int statusCode = response.getStatusLine().getStatusCode();
                 String responseBody = EntityUtils.toString(response.getEntity());
+                latencyTracker.record(LatencyTrackerService.Stage.RECEIVE, null, requestStart);
+                long receivedAt = System.nanoTime();
                 
                 if (statusCode == 200) {
                     JsonNode jsonNode = objectMapper.readTree(responseBody);
@@ -153,30 +189,31 @@ public class BitunixApiService {
                                     TradingPair pair = parseBybitV5Ticker(pairNode);
                                     if (pair != null && selectedSymbolsSet.contains(pair.getSymbol())) {
                                         pairs.add(pair);
+                                        latencyTracker.markReceived(pair.getSymbol(), receivedAt);
                                     }
                                 }
+                                latencyTracker.record(LatencyTrackerService.Stage.PARSE, null, receivedAt);
                                 
                                 if (!pairs.isEmpty()) {
-                                    System.out.println("Successfully fetched " + pairs.size() + 
-                                                     " trading pairs for " + symbols.size() + " selected symbols");
+                                    log.debug("Fetched trading pairs", "count", pairs.size(),
+                                            "selected", symbols.size());
                                     return pairs;
                                 }
                             }
                         }
                     } else {
-                        System.err.println("Bybit API error: " + responseBody);
+                        log.error("Bybit API error", "body", responseBody);
                     }
                 } else {
-                    System.err.println("HTTP error " + statusCode + ": " + responseBody);
+                    log.error("Bybit HTTP error", "status", statusCode, "body", responseBody);
                 }
             }
         } catch (Exception e) {
-            System.err.println("Error fetching trading pairs: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error fetching trading pairs", e);
         }
         
         // If failed, try alternative API
-        System.out.println("No pairs received for selected symbols, trying alternative");
+        log.info("No pairs received for selected symbols, trying alternative");
         return tryAlternativeApi();
     }
     
@@ -189,7 +226,7 @@ public class BitunixApiService {
         
         // Check rate limiter - if limit exceeded, return empty list (non-blocking)
         if (!rateLimiterService.canMakeRequest("bitunix")) {
-            System.out.println("Rate limit exceeded for all trading pairs request, returning empty list");
+            log.warn("Rate limit exceeded for all trading pairs request, returning empty list");
             return new ArrayList<>();
         }
         
@@ -197,30 +234,22 @@ public class BitunixApiService {
             // Use Bybit v5 market tickers endpoint (public, no auth required)
             // For demo: https://api-demo.bybit.com/v5/market/tickers
             // For mainnet: https://api.bybit.com/v5/market/tickers
-            String apiUrl = getBaseUrl();
-            if (apiUrl == null || apiUrl.isEmpty()) {
-                apiUrl = "https://api-demo.bybit.com";
-            }
-            // Ensure we use the correct base URL format
-            if (!apiUrl.startsWith("http")) {
-                apiUrl = "https://" + apiUrl;
-            }
-            // Remove trailing slash if present
-            if (apiUrl.endsWith("/")) {
-                apiUrl = apiUrl.substring(0, apiUrl.length() - 1);
-            }
+            String apiUrl = getApiUrl();
             
             String tickersUrl = apiUrl + "/v5/market/tickers?category=linear";
             HttpGet request = new HttpGet(tickersUrl);
             request.setHeader("Accept", "application/json");
             
+            long requestStart = System.nanoTime();
             try (CloseableHttpResponse response = httpClient.execute(request)) {
                 int statusCode = response.getStatusLine().getStatusCode();
                 String responseBody = EntityUtils.toString(response.getEntity());
+                latencyTracker.record(LatencyTrackerService.Stage.RECEIVE, null, requestStart);
+                long receivedAt = System.nanoTime();
                 
                 if (statusCode == 200) {
                 JsonNode jsonNode = objectMapper.readTree(responseBody);
-                
+                    
                     // Bybit v5 format: { "retCode": 0, "retMsg": "OK", "result": { "list": [...] } }
                     if (jsonNode.has("retCode") && jsonNode.get("retCode").asInt() == 0) {
                         JsonNode result = jsonNode.get("result");
@@ -231,30 +260,31 @@ public class BitunixApiService {
                                     TradingPair pair = parseBybitV5Ticker(pairNode);
                         if (pair != null) {
                             pairs.add(pair);
+                            latencyTracker.markReceived(pair.getSymbol(), receivedAt);
                         }
                     }
+                                latencyTracker.record(LatencyTrackerService.Stage.PARSE, null, receivedAt);
                             }
                         }
                     } else {
-                        System.err.println("Bybit API error: " + responseBody);
+                        log.error("Bybit API error", "body", responseBody);
                     }
                 } else {
-                    System.err.println("HTTP error " + statusCode + ": " + responseBody);
+                    log.error("Bybit HTTP error", "status", statusCode, "body", responseBody);
                 }
             }
         } catch (Exception e) {
             // Log error and try alternative API
-            System.err.println("Error fetching trading pairs from Bybit v5 API: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error fetching trading pairs from Bybit v5 API", e);
             return tryAlternativeApi();
         }
         
         if (pairs.isEmpty()) {
-            System.out.println("No pairs received from Bybit API, trying alternatives");
+            log.info("No pairs received from Bybit API, trying alternatives");
             return tryAlternativeApi();
         }
         
-        System.out.println("Successfully fetched " + pairs.size() + " trading pairs from Bybit v5 API");
+        log.debug("Fetched trading pairs from Bybit v5 API", "count", pairs.size());
         return pairs;
     }
     
@@ -264,52 +294,108 @@ public class BitunixApiService {
     public TradingPair getTradingPair(String symbol) {
         // Check rate limiter - if limit exceeded, return null (non-blocking)
         if (!rateLimiterService.canMakeRequest("bitunix")) {
-            System.out.println("Rate limit exceeded for trading pair request: " + symbol);
+            log.warn("Rate limit exceeded for trading pair request", "symbol", symbol);
             return null;
         }
         
         try (CloseableHttpClient httpClient = createHttpClient()) {
-            String apiUrl = getBaseUrl();
-            if (apiUrl == null || apiUrl.isEmpty()) {
-                apiUrl = "https://api-demo.bybit.com";
-            }
-            if (!apiUrl.startsWith("http")) {
-                apiUrl = "https://" + apiUrl;
-            }
-            if (apiUrl.endsWith("/")) {
-                apiUrl = apiUrl.substring(0, apiUrl.length() - 1);
-            }
+            String apiUrl = getApiUrl();
             
             String tickersUrl = apiUrl + "/v5/market/tickers?category=linear&symbol=" + symbol;
             HttpGet request = new HttpGet(tickersUrl);
             request.setHeader("Accept", "application/json");
             
+            long requestStart = System.nanoTime();
             try (CloseableHttpResponse response = httpClient.execute(request)) {
                 int statusCode = response.getStatusLine().getStatusCode();
                 String responseBody = EntityUtils.toString(response.getEntity());
+                latencyTracker.record(LatencyTrackerService.Stage.RECEIVE, symbol, requestStart);
+                long receivedAt = System.nanoTime();
                 
                 if (statusCode == 200) {
                 JsonNode jsonNode = objectMapper.readTree(responseBody);
-                
+                    
                     if (jsonNode.has("retCode") && jsonNode.get("retCode").asInt() == 0) {
                         JsonNode result = jsonNode.get("result");
                         if (result != null && result.has("list") && result.get("list").isArray()) {
                             JsonNode list = result.get("list");
                             if (list.size() > 0) {
-                                return parseBybitV5Ticker(list.get(0));
+                                TradingPair pair = parseBybitV5Ticker(list.get(0));
+                                latencyTracker.record(LatencyTrackerService.Stage.PARSE, symbol, receivedAt);
+                                latencyTracker.markReceived(symbol, receivedAt);
+                                return pair;
                             }
                         }
                     }
                 }
             }
         } catch (Exception e) {
-            System.err.println("Error fetching trading pair " + symbol + ": " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error fetching trading pair", e, "symbol", symbol);
         }
-        
+            
             return null;
     }
     
+    /**
+     * Get one page of instrument metadata from Bybit v5 API
+     * Not rate limited here: callers fetch all pages of one refresh back to back
+     */
+    public JsonNode getInstrumentsInfo(String category, String cursor) {
+        try (CloseableHttpClient httpClient = createHttpClient()) {
+            String apiUrl = getApiUrl();
+            
+            String url = apiUrl + "/v5/market/instruments-info?category=" + category + "&limit=1000";
+            if (cursor != null && !cursor.isEmpty()) {
+                url += "&cursor=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8.name());
+            }
+            HttpGet request = new HttpGet(url);
+            request.setHeader("Accept", "application/json");
+            
+            try (CloseableHttpResponse response = httpClient.execute(request)) {
+                int statusCode = response.getStatusLine().getStatusCode();
+                String responseBody = EntityUtils.toString(response.getEntity());
+                if (statusCode == 200) {
+                    return objectMapper.readTree(responseBody);
+                }
+                log.error("Bybit HTTP error", "status", statusCode, "body", responseBody);
+            }
+        } catch (Exception e) {
+            log.error("Error fetching instruments info", e, "category", category);
+        }
+        return null;
+    }
+
+    /**
+     * Get the current mark price of a linear symbol (last price if no mark price is reported)
+     * Not rate limited here: the exit monitor checks its own priority budget
+     */
+    public BigDecimal getMarkPrice(String symbol) {
+        try (CloseableHttpClient httpClient = createHttpClient()) {
+            String apiUrl = getApiUrl();
+
+            HttpGet request = new HttpGet(apiUrl + "/v5/market/tickers?category=linear&symbol=" + symbol);
+            request.setHeader("Accept", "application/json");
+
+            try (CloseableHttpResponse response = httpClient.execute(request)) {
+                int statusCode = response.getStatusLine().getStatusCode();
+                String responseBody = EntityUtils.toString(response.getEntity());
+                if (statusCode != 200) {
+                    log.error("Bybit HTTP error", "status", statusCode, "body", responseBody);
+                    return null;
+                }
+                JsonNode ticker = objectMapper.readTree(responseBody).path("result").path("list").path(0);
+                String price = ticker.path("markPrice").asText("");
+                if (price.isEmpty()) {
+                    price = ticker.path("lastPrice").asText("");
+                }
+                return price.isEmpty() ? null : new BigDecimal(price);
+            }
+        } catch (Exception e) {
+            log.error("Error fetching mark price", e, "symbol", symbol);
+        }
+        return null;
+    }
+
     /**
      * Get kline/candlestick data for technical analysis from Bybit v5 API
      */
@@ -318,21 +404,12 @@ public class BitunixApiService {
         
         // Check rate limiter - if limit exceeded, return empty list (non-blocking)
         if (!rateLimiterService.canMakeRequest("bitunix")) {
-            System.out.println("Rate limit exceeded for kline data request: " + symbol);
+            log.warn("Rate limit exceeded for kline data request", "symbol", symbol);
             return new ArrayList<>();
         }
         
         try (CloseableHttpClient httpClient = createHttpClient()) {
-            String apiUrl = getBaseUrl();
-            if (apiUrl == null || apiUrl.isEmpty()) {
-                apiUrl = "https://api-demo.bybit.com";
-            }
-            if (!apiUrl.startsWith("http")) {
-                apiUrl = "https://" + apiUrl;
-            }
-            if (apiUrl.endsWith("/")) {
-                apiUrl = apiUrl.substring(0, apiUrl.length() - 1);
-            }
+            String apiUrl = getApiUrl();
             
             // Map interval format (1m -> 1, 5m -> 5, 1h -> 60, 1d -> D)
             String bybitInterval = mapIntervalToBybit(interval);
@@ -341,14 +418,19 @@ public class BitunixApiService {
                                           apiUrl, symbol, bybitInterval, limit);
             HttpGet request = new HttpGet(klineUrl);
             request.setHeader("Accept", "application/json");
+            // A fetch cancelled at the cycle deadline closes its connection instead of reading on
+            TaskScope.onCancel(request::abort);
             
+            long requestStart = System.nanoTime();
             try (CloseableHttpResponse response = httpClient.execute(request)) {
                 int statusCode = response.getStatusLine().getStatusCode();
                 String responseBody = EntityUtils.toString(response.getEntity());
+                latencyTracker.record(LatencyTrackerService.Stage.RECEIVE, symbol, requestStart);
+                long receivedAt = System.nanoTime();
                 
                 if (statusCode == 200) {
                 JsonNode jsonNode = objectMapper.readTree(responseBody);
-                
+                    
                     if (jsonNode.has("retCode") && jsonNode.get("retCode").asInt() == 0) {
                         JsonNode result = jsonNode.get("result");
                         if (result != null && result.has("list") && result.get("list").isArray()) {
@@ -359,15 +441,16 @@ public class BitunixApiService {
                             klines.add(pair);
                         }
                     }
+                            latencyTracker.record(LatencyTrackerService.Stage.PARSE, symbol, receivedAt);
+                            latencyTracker.markReceived(symbol, receivedAt);
                         }
                     }
                 } else {
-                    System.err.println("Error fetching kline data: HTTP " + statusCode + " - " + responseBody);
+                    log.error("Error fetching kline data", "symbol", symbol, "status", statusCode, "body", responseBody);
                 }
             }
         } catch (Exception e) {
-            System.err.println("Error fetching kline data for " + symbol + ": " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error fetching kline data", e, "symbol", symbol);
         }
         
         return klines;
@@ -409,6 +492,7 @@ public class BitunixApiService {
             }
             
             pair.setSymbol(node.get("symbol").asText());
+            pair.setSymbolId(symbolRegistry.idOf(pair.getSymbol()));
             
             // Parse price
             if (node.has("lastPrice")) {
@@ -439,9 +523,13 @@ public class BitunixApiService {
             pair.setIsActive(true);
             pair.setLastUpdated(LocalDateTime.now());
             
-            // Extract base and quote assets from symbol
+            // Base and quote assets from instrument metadata, suffix matching as a fallback
             String symbol = pair.getSymbol();
-            if (symbol.endsWith("USDT")) {
+            Instrument instrument = instrumentRegistry.getInstrument(pair.getSymbolId());
+            if (instrument != null) {
+                pair.setBaseAsset(instrument.getBaseCoin());
+                pair.setQuoteAsset(instrument.getQuoteCoin());
+            } else if (symbol.endsWith("USDT")) {
                 pair.setBaseAsset(symbol.substring(0, symbol.length() - 4));
                 pair.setQuoteAsset("USDT");
             } else if (symbol.endsWith("USDC")) {
@@ -454,8 +542,7 @@ public class BitunixApiService {
             
             return pair;
         } catch (Exception e) {
-            System.err.println("Error parsing Bybit v5 ticker: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error parsing Bybit v5 ticker", e);
             return null;
         }
     }
@@ -485,7 +572,7 @@ public class BitunixApiService {
             
             return pair;
         } catch (Exception e) {
-            System.err.println("Error parsing trading pair: " + e.getMessage());
+            log.error("Error parsing trading pair", "error", e.getMessage());
             return null;
         }
     }
@@ -505,6 +592,8 @@ public class BitunixApiService {
             pair.setSymbol(symbol);
             
             // Bybit v5 kline format: [timestamp, open, high, low, close, volume, turnover]
+            pair.setCandleTime(node.get(0).asLong());
+            
             // Index 4 is close price
             pair.setPrice(new BigDecimal(node.get(4).asText()));
             
@@ -518,8 +607,7 @@ public class BitunixApiService {
             
             return pair;
         } catch (Exception e) {
-            System.err.println("Error parsing Bybit v5 kline data: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error parsing Bybit v5 kline data", e);
             return null;
         }
     }
@@ -538,7 +626,7 @@ public class BitunixApiService {
             
             return pair;
         } catch (Exception e) {
-            System.err.println("Error parsing kline data: " + e.getMessage());
+            log.error("Error parsing kline data", "error", e.getMessage());
             return null;
         }
     }
@@ -589,22 +677,22 @@ public class BitunixApiService {
         try {
             pairs = alternativeDataService.getBinanceData();
             if (!pairs.isEmpty()) {
-                System.out.println("Successfully fetched " + pairs.size() + " trading pairs from Binance");
+                log.info("Fetched trading pairs from Binance", "count", pairs.size());
                 return pairs;
             }
         } catch (Exception e) {
-            System.err.println("Error fetching Binance data: " + e.getMessage());
+            log.error("Error fetching Binance data", "error", e.getMessage());
         }
         
         // Try CoinGecko API
         try {
             pairs = alternativeDataService.getCoinGeckoData();
             if (!pairs.isEmpty()) {
-                System.out.println("Successfully fetched " + pairs.size() + " trading pairs from CoinGecko");
+                log.info("Fetched trading pairs from CoinGecko", "count", pairs.size());
                 return pairs;
             }
         } catch (Exception e) {
-            System.err.println("Error fetching CoinGecko data: " + e.getMessage());
+            log.error("Error fetching CoinGecko data", "error", e.getMessage());
         }
         
         // Try different Bitunix API endpoints
@@ -617,7 +705,7 @@ public class BitunixApiService {
         for (String endpoint : apiEndpoints) {
             // Проверяем Rate Limiter перед каждым альтернативным запросом
             if (!rateLimiterService.canMakeRequest("bitunix")) {
-                System.out.println("Rate limit exceeded for bitunix request");
+                log.warn("Rate limit exceeded for bitunix request");
                 continue; // Skip this endpoint
             }
             
@@ -641,18 +729,18 @@ public class BitunixApiService {
                         }
                         
                         if (!pairs.isEmpty()) {
-                            System.out.println("Successfully fetched " + pairs.size() + " trading pairs from " + endpoint);
+                            log.info("Fetched trading pairs", "count", pairs.size(), "endpoint", endpoint);
                             return pairs;
                         }
                     }
                 }
             } catch (Exception e) {
-                System.err.println("Error with endpoint " + endpoint + ": " + e.getMessage());
+                log.error("Error with endpoint", "endpoint", endpoint, "error", e.getMessage());
             }
         }
         
         // If all APIs fail, return demo data
-        System.out.println("All API endpoints failed, using demo data");
+        log.info("All API endpoints failed, using demo data");
         return getDemoTradingPairs();
     }
 }
@@ -2,8 +2,14 @@ package com.bitunix.scalper.service;
 
 import com.bitunix.scalper.model.TradingConfig;
 import com.bitunix.scalper.util.BybitApiAuthUtil;
+import com.bitunix.scalper.util.HttpMetricsInterceptor;
+import com.bitunix.scalper.util.AsyncLog;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
@@ -16,7 +22,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -26,6 +35,8 @@ import java.util.Map;
 @Service
 public class BybitDemoTradingService {
     
+    private static final AsyncLog log = AsyncLog.getLogger(BybitDemoTradingService.class);
+    
     @Value("${bitunix.api.base-url:https://api-demo.bybit.com}")
     private String defaultBaseUrl;
     
@@ -41,6 +52,12 @@ public class BybitDemoTradingService {
     @Autowired(required = false)
     private TradingConfigService configService;
     
+    @Autowired
+    private LatencyTrackerService latencyTracker;
+    
+    @Autowired
+    private MetricsService metricsService;
+    
     /**
      * Get base URL from config or use default
      */
@@ -82,6 +99,20 @@ public class BybitDemoTradingService {
     
     private final ObjectMapper objectMapper = new ObjectMapper();
     private static final long RECV_WINDOW = 5000; // 5 seconds
+    private static final String TPSL_TRIGGER_BY = "MarkPrice";
+    
+    // Rate limiter budgets: order traffic, and closing orders that entries cannot use up
+    private static final String ORDER_BUDGET = "bybit_demo";
+    private static final String EXIT_BUDGET = "bybit_demo_exits";
+    
+    /**
+     * Maximum number of orders per batch request (linear category)
+     */
+    public static final int MAX_BATCH_SIZE = 10;
+    
+    // Position listing: largest page the exchange returns, and a bound on the pages followed
+    private static final int POSITION_PAGE_SIZE = 200;
+    private static final int MAX_POSITION_PAGES = 50;
     
     /**
      * Create HTTP client with timeout configuration
@@ -93,8 +124,11 @@ public class BybitDemoTradingService {
                 .setSocketTimeout(10000)
                 .build();
         
+        HttpMetricsInterceptor metricsInterceptor = new HttpMetricsInterceptor(metricsService, "bybit_demo");
         return HttpClients.custom()
                 .setDefaultRequestConfig(requestConfig)
+                .addInterceptorFirst((HttpRequestInterceptor) metricsInterceptor)
+                .addInterceptorLast((HttpResponseInterceptor) metricsInterceptor)
                 .build();
     }
     
@@ -139,7 +173,7 @@ public class BybitDemoTradingService {
      */
     public JsonNode requestDemoFunds(int adjustType, Map<String, String> demoApplyMoney) {
         if (!rateLimiterService.canMakeRequest("bybit_demo")) {
-            System.out.println("Rate limit exceeded for demo funds request");
+            log.warn("Rate limit exceeded for demo funds request");
             return null;
         }
         
@@ -168,16 +202,15 @@ public class BybitDemoTradingService {
                 JsonNode jsonNode = objectMapper.readTree(responseBody);
                 
                 if (response.getStatusLine().getStatusCode() == 200) {
-                    System.out.println("Successfully requested demo funds");
+                    log.info("Successfully requested demo funds");
                     return jsonNode;
                 } else {
-                    System.err.println("Error requesting demo funds: " + responseBody);
+                    log.error("Error requesting demo funds", "body", responseBody);
                     return null;
                 }
             }
         } catch (Exception e) {
-            System.err.println("Error requesting demo funds: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error requesting demo funds", e);
             return null;
         }
     }
@@ -192,7 +225,7 @@ public class BybitDemoTradingService {
     public JsonNode getWalletBalance(String accountType) {
         // Check rate limiter - if limit exceeded, return null (non-blocking)
         if (!rateLimiterService.canMakeRequest("bybit_demo")) {
-            System.out.println("Rate limit exceeded for wallet balance request");
+            log.warn("Rate limit exceeded for wallet balance request");
             return null;
         }
         
@@ -210,13 +243,12 @@ public class BybitDemoTradingService {
                 if (response.getStatusLine().getStatusCode() == 200) {
                     return jsonNode;
                 } else {
-                    System.err.println("Error getting wallet balance: " + responseBody);
+                    log.error("Error getting wallet balance", "body", responseBody);
                     return null;
                 }
             }
         } catch (Exception e) {
-            System.err.println("Error getting wallet balance: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error getting wallet balance", e);
             return null;
         }
     }
@@ -235,44 +267,380 @@ public class BybitDemoTradingService {
      */
     public JsonNode placeOrder(String category, String symbol, String side, 
                               String orderType, String qty, String price) {
-        if (!rateLimiterService.canMakeRequest("bybit_demo")) {
-            System.out.println("Rate limit exceeded for bybit_demo request");
+        return placeOrder(category, symbol, side, orderType, qty, price, null, null, null);
+    }
+    
+    /**
+     * Place order with exchange-side stop loss / take profit attached
+     * POST /v5/order/create
+     * 
+     * The exchange triggers the protection itself, so it does not depend on
+     * how often the trading scheduler polls for exit signals.
+     * 
+     * @param category Product category (e.g., "linear", "spot")
+     * @param symbol Trading symbol (e.g., "BTCUSDT")
+     * @param side Order side ("Buy" or "Sell")
+     * @param orderType Order type (e.g., "Market", "Limit")
+     * @param qty Order quantity
+     * @param price Order price (for limit orders)
+     * @param stopLoss Stop loss trigger price (optional)
+     * @param takeProfit Take profit trigger price (optional)
+     * @param orderLinkId Client order ID (optional)
+     * @return Order response JSON node
+     */
+    public JsonNode placeOrder(String category, String symbol, String side, 
+                              String orderType, String qty, String price,
+                              String stopLoss, String takeProfit, String orderLinkId) {
+        if (!canSendOrder()) {
             return null;
         }
         
         try (CloseableHttpClient httpClient = createHttpClient()) {
-            Map<String, Object> requestBodyMap = new HashMap<>();
+            long sendStart = System.nanoTime();
+            Map<String, Object> requestBodyMap = orderRequest(symbol, side, orderType, qty, price,
+                    stopLoss, takeProfit, orderLinkId);
             requestBodyMap.put("category", category);
-            requestBodyMap.put("symbol", symbol);
-            requestBodyMap.put("side", side);
-            requestBodyMap.put("orderType", orderType);
-            requestBodyMap.put("qty", qty);
-            
-            if (price != null && !price.isEmpty()) {
-                requestBodyMap.put("price", price);
-            }
             
             String requestBody = objectMapper.writeValueAsString(requestBodyMap);
             
             HttpPost request = new HttpPost(getBaseUrl() + "/v5/order/create");
             addAuthHeaders(request, requestBody);
             request.setEntity(new StringEntity(requestBody, "UTF-8"));
+            latencyTracker.record(LatencyTrackerService.Stage.SIGN_AND_SEND, symbol, sendStart);
             
+            long ackStart = System.nanoTime();
             try (CloseableHttpResponse response = httpClient.execute(request)) {
                 String responseBody = EntityUtils.toString(response.getEntity());
+                latencyTracker.record(LatencyTrackerService.Stage.ACK, symbol, ackStart);
                 JsonNode jsonNode = objectMapper.readTree(responseBody);
                 
                 if (response.getStatusLine().getStatusCode() == 200) {
-                    System.out.println("Order placed successfully: " + symbol);
+                    latencyTracker.recordTickToTrade(symbol);
+                    log.info("Order placed", "symbol", symbol, "side", side, "qty", qty, "orderLinkId", orderLinkId);
                     return jsonNode;
                 } else {
-                    System.err.println("Error placing order: " + responseBody);
+                    log.error("Error placing order", "symbol", symbol, "orderLinkId", orderLinkId, "body", responseBody);
                     return jsonNode; // Return error response for inspection
                 }
             }
         } catch (Exception e) {
-            System.err.println("Error placing order: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error placing order", e, "symbol", symbol, "orderLinkId", orderLinkId);
+            return null;
+        }
+    }
+    
+    /**
+     * Body of an order request (without category), for {@link #placeOrder} and create-batch
+     * 
+     * @param price Limit price (optional, market orders have none)
+     * @param stopLoss Stop loss trigger price (optional)
+     * @param takeProfit Take profit trigger price (optional)
+     * @param orderLinkId Client order ID (optional)
+     */
+    public Map<String, Object> orderRequest(String symbol, String side, String orderType, String qty, String price,
+                                            String stopLoss, String takeProfit, String orderLinkId) {
+        Map<String, Object> requestBodyMap = new HashMap<>();
+        requestBodyMap.put("symbol", symbol);
+        requestBodyMap.put("side", side);
+        requestBodyMap.put("orderType", orderType);
+        requestBodyMap.put("qty", qty);
+        
+        if (price != null && !price.isEmpty()) {
+            requestBodyMap.put("price", price);
+        }
+        if (orderLinkId != null && !orderLinkId.isEmpty()) {
+            requestBodyMap.put("orderLinkId", orderLinkId);
+        }
+        addProtectionParams(requestBodyMap, stopLoss, takeProfit);
+        return requestBodyMap;
+    }
+    
+    /**
+     * Body of a reduce-only market order closing a position (without category)
+     * 
+     * Reduce-only never opens or flips a position, so a close that races an
+     * exchange-side stop cannot leave a position in the opposite direction.
+     * Send it with {@link #closePositionBatch}, on the closing-order budget.
+     * 
+     * @param side Side of the closing order ("Sell" closes a long, "Buy" a short)
+     * @param orderLinkId Client order ID (optional)
+     */
+    public Map<String, Object> closingOrderRequest(String symbol, String side, String qty, String orderLinkId) {
+        Map<String, Object> requestBodyMap = orderRequest(symbol, side, "Market", qty, null, null, null, orderLinkId);
+        requestBodyMap.put("reduceOnly", true);
+        return requestBodyMap;
+    }
+    
+    /**
+     * Body of a cancel request (without category), for {@link #cancelOrder} and cancel-batch
+     * 
+     * @param orderId Order ID (optional if orderLinkId is set)
+     * @param orderLinkId Order link ID (optional if orderId is set)
+     */
+    public Map<String, Object> cancelRequest(String symbol, String orderId, String orderLinkId) {
+        Map<String, Object> requestBodyMap = new HashMap<>();
+        requestBodyMap.put("symbol", symbol);
+        if (orderId != null && !orderId.isEmpty()) {
+            requestBodyMap.put("orderId", orderId);
+        }
+        if (orderLinkId != null && !orderLinkId.isEmpty()) {
+            requestBodyMap.put("orderLinkId", orderLinkId);
+        }
+        return requestBodyMap;
+    }
+    
+    /**
+     * Amend an open order (price, quantity or attached TP/SL)
+     * POST /v5/order/amend
+     * 
+     * @param category Product category
+     * @param symbol Trading symbol
+     * @param orderId Order ID (optional if orderLinkId is set)
+     * @param orderLinkId Order link ID (optional if orderId is set)
+     * @param qty New quantity (optional)
+     * @param price New price (optional)
+     * @param stopLoss New stop loss price (optional, "0" cancels it)
+     * @param takeProfit New take profit price (optional, "0" cancels it)
+     * @return Amend response JSON node
+     */
+    public JsonNode amendOrder(String category, String symbol, String orderId, String orderLinkId,
+                              String qty, String price, String stopLoss, String takeProfit) {
+        Map<String, Object> requestBodyMap = new HashMap<>();
+        requestBodyMap.put("category", category);
+        requestBodyMap.put("symbol", symbol);
+        
+        if (orderId != null && !orderId.isEmpty()) {
+            requestBodyMap.put("orderId", orderId);
+        }
+        if (orderLinkId != null && !orderLinkId.isEmpty()) {
+            requestBodyMap.put("orderLinkId", orderLinkId);
+        }
+        if (qty != null && !qty.isEmpty()) {
+            requestBodyMap.put("qty", qty);
+        }
+        if (price != null && !price.isEmpty()) {
+            requestBodyMap.put("price", price);
+        }
+        addProtectionParams(requestBodyMap, stopLoss, takeProfit);
+        
+        return executeSignedPost("/v5/order/amend", requestBodyMap, "amending order");
+    }
+    
+    /**
+     * Set or update stop loss, take profit and trailing stop of an open position
+     * POST /v5/position/trading-stop
+     * 
+     * @param category Product category
+     * @param symbol Trading symbol
+     * @param stopLoss Stop loss price (optional, "0" cancels it)
+     * @param takeProfit Take profit price (optional, "0" cancels it)
+     * @param trailingStop Trailing stop distance in price units (optional, "0" cancels it)
+     * @return Response JSON node
+     */
+    public JsonNode setTradingStop(String category, String symbol, String stopLoss,
+                                  String takeProfit, String trailingStop) {
+        Map<String, Object> requestBodyMap = new HashMap<>();
+        requestBodyMap.put("category", category);
+        requestBodyMap.put("symbol", symbol);
+        requestBodyMap.put("positionIdx", 0); // One-way mode
+        addProtectionParams(requestBodyMap, stopLoss, takeProfit);
+        
+        if (trailingStop != null && !trailingStop.isEmpty()) {
+            requestBodyMap.put("trailingStop", trailingStop);
+        }
+        
+        return executeSignedPost("/v5/position/trading-stop", requestBodyMap, "setting trading stop");
+    }
+    
+    /**
+     * Place up to a batch worth of orders in one request
+     * POST /v5/order/create-batch
+     * 
+     * @param category Product category
+     * @param orders Order request bodies (symbol, side, orderType, qty, ... without category)
+     * @return Response JSON node; use {@link #splitBatchResults} to map items back to orders
+     */
+    public JsonNode placeOrderBatch(String category, List<Map<String, Object>> orders) {
+        return executeBatch("/v5/order/create-batch", category, orders, "placing order batch", ORDER_BUDGET, 0);
+    }
+    
+    /**
+     * Place up to a batch worth of closing orders in one request
+     * POST /v5/order/create-batch
+     * 
+     * Closing orders have their own high-priority budget, so entries and
+     * protection updates cannot delay an exit. Waits up to maxWaitMs for it,
+     * so the chunks of a large flatten queue behind each other instead of
+     * being rejected locally.
+     * 
+     * @param category Product category
+     * @param orders Reduce-only order request bodies (without category)
+     * @param maxWaitMs How long to wait for the rate limiter
+     * @return Response JSON node, or null if rate limited or failed
+     */
+    public JsonNode closePositionBatch(String category, List<Map<String, Object>> orders, long maxWaitMs) {
+        return executeBatch("/v5/order/create-batch", category, orders, "closing position batch",
+                EXIT_BUDGET, maxWaitMs);
+    }
+    
+    /**
+     * Amend up to a batch worth of orders in one request
+     * POST /v5/order/amend-batch
+     */
+    public JsonNode amendOrderBatch(String category, List<Map<String, Object>> amendments) {
+        return executeBatch("/v5/order/amend-batch", category, amendments, "amending order batch", ORDER_BUDGET, 0);
+    }
+    
+    /**
+     * Cancel up to a batch worth of orders in one request
+     * POST /v5/order/cancel-batch
+     */
+    public JsonNode cancelOrderBatch(String category, List<Map<String, Object>> cancellations) {
+        return executeBatch("/v5/order/cancel-batch", category, cancellations, "cancelling order batch",
+                ORDER_BUDGET, 0);
+    }
+    
+    /**
+     * Split a batch response into one node per request item, in request order.
+     * Each node carries the item's "code" and "msg" from retExtInfo plus the
+     * order fields (orderId, orderLinkId, symbol) from the result list.
+     * If the whole batch failed every item gets the batch-level retCode/retMsg.
+     * 
+     * @param response Batch response (may be null)
+     * @param size Number of items sent in the batch
+     * @return List of per-item results, null entries if the request itself failed
+     */
+    public List<JsonNode> splitBatchResults(JsonNode response, int size) {
+        List<JsonNode> results = new ArrayList<>(size);
+        
+        if (response == null) {
+            for (int i = 0; i < size; i++) {
+                results.add(null);
+            }
+            return results;
+        }
+        
+        JsonNode resultList = response.path("result").path("list");
+        JsonNode extInfoList = response.path("retExtInfo").path("list");
+        int batchCode = response.path("retCode").asInt(-1);
+        String batchMsg = response.path("retMsg").asText("");
+        
+        for (int i = 0; i < size; i++) {
+            ObjectNode item = objectMapper.createObjectNode();
+            JsonNode orderNode = resultList.path(i);
+            if (orderNode.isObject()) {
+                item.setAll((ObjectNode) orderNode);
+            }
+            
+            JsonNode extInfo = extInfoList.path(i);
+            if (batchCode == 0 && extInfo.isObject()) {
+                item.put("code", extInfo.path("code").asInt(-1));
+                item.put("msg", extInfo.path("msg").asText(""));
+            } else {
+                item.put("code", batchCode);
+                item.put("msg", batchMsg);
+            }
+            results.add(item);
+        }
+        
+        return results;
+    }
+    
+    private JsonNode executeBatch(String path, String category, List<Map<String, Object>> items, String action,
+                                  String budget, long maxWaitMs) {
+        if (items.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch size " + items.size() + " exceeds maximum of " + MAX_BATCH_SIZE);
+        }
+        
+        Map<String, Object> requestBodyMap = new HashMap<>();
+        requestBodyMap.put("category", category);
+        requestBodyMap.put("request", items);
+        
+        return executeSignedPost(path, requestBodyMap, action, budget, maxWaitMs);
+    }
+    
+    /**
+     * Add TP/SL parameters to a request body (full position, mark price triggered)
+     */
+    private void addProtectionParams(Map<String, Object> requestBodyMap, String stopLoss, String takeProfit) {
+        boolean hasStopLoss = stopLoss != null && !stopLoss.isEmpty();
+        boolean hasTakeProfit = takeProfit != null && !takeProfit.isEmpty();
+        
+        if (hasStopLoss) {
+            requestBodyMap.put("stopLoss", stopLoss);
+            requestBodyMap.put("slTriggerBy", TPSL_TRIGGER_BY);
+        }
+        if (hasTakeProfit) {
+            requestBodyMap.put("takeProfit", takeProfit);
+            requestBodyMap.put("tpTriggerBy", TPSL_TRIGGER_BY);
+        }
+        if (hasStopLoss || hasTakeProfit) {
+            requestBodyMap.put("tpslMode", "Full");
+        }
+    }
+    
+    /**
+     * Take a request from the order budget
+     * 
+     * Order and position protection endpoints (create, amend, cancel,
+     * trading-stop and their batch forms) use the high-priority budget, so
+     * balance and market data polling on the shared budget cannot starve an
+     * entry, its trailing stop or an exit.
+     */
+    private boolean canSendOrder() {
+        return canSendOrder(ORDER_BUDGET);
+    }
+    
+    private boolean canSendOrder(String budget) {
+        return canSendOrder(budget, 0);
+    }
+    
+    private boolean canSendOrder(String budget, long maxWaitMs) {
+        if (!rateLimiterService.waitForRequest(budget, RateLimiterService.Priority.HIGH, maxWaitMs)) {
+            log.warn("Rate limit exceeded for order request", "budget", budget);
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Execute a signed POST request against the private API
+     * 
+     * @return Response JSON node (also on HTTP errors), or null if rate limited or failed
+     */
+    private JsonNode executeSignedPost(String path, Map<String, Object> requestBodyMap, String action) {
+        return executeSignedPost(path, requestBodyMap, action, ORDER_BUDGET);
+    }
+    
+    private JsonNode executeSignedPost(String path, Map<String, Object> requestBodyMap, String action,
+                                       String budget) {
+        return executeSignedPost(path, requestBodyMap, action, budget, 0);
+    }
+    
+    private JsonNode executeSignedPost(String path, Map<String, Object> requestBodyMap, String action,
+                                       String budget, long maxWaitMs) {
+        if (!canSendOrder(budget, maxWaitMs)) {
+            return null;
+        }
+        
+        try (CloseableHttpClient httpClient = createHttpClient()) {
+            String requestBody = objectMapper.writeValueAsString(requestBodyMap);
+            
+            HttpPost request = new HttpPost(getBaseUrl() + path);
+            addAuthHeaders(request, requestBody);
+            request.setEntity(new StringEntity(requestBody, "UTF-8"));
+            
+            try (CloseableHttpResponse response = httpClient.execute(request)) {
+                String responseBody = EntityUtils.toString(response.getEntity());
+                JsonNode jsonNode = objectMapper.readTree(responseBody);
+                
+                if (response.getStatusLine().getStatusCode() != 200) {
+                    log.error("Exchange request failed", "action", action, "body", responseBody);
+                }
+                return jsonNode;
+            }
+        } catch (Exception e) {
+            log.error("Exchange request failed", e, "action", action);
             return null;
         }
     }
@@ -287,7 +655,7 @@ public class BybitDemoTradingService {
      */
     public JsonNode getOpenOrders(String category, String symbol) {
         if (!rateLimiterService.canMakeRequest("bybit_demo")) {
-            System.out.println("Rate limit exceeded for bybit_demo request");
+            log.warn("Rate limit exceeded for bybit_demo request");
             return null;
         }
         
@@ -310,13 +678,52 @@ public class BybitDemoTradingService {
                 if (response.getStatusLine().getStatusCode() == 200) {
                     return jsonNode;
                 } else {
-                    System.err.println("Error getting open orders: " + responseBody);
+                    log.error("Error getting open orders", "body", responseBody);
                     return null;
                 }
             }
         } catch (Exception e) {
-            System.err.println("Error getting open orders: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error getting open orders", e);
+            return null;
+        }
+    }
+    
+    /**
+     * Get one order by its order link id
+     * GET /v5/order/realtime
+     * 
+     * Queried by order link id, the order is listed whether it is still
+     * resting or already filled or cancelled. Takes a request from the order
+     * budget, since resting entries are polled with it.
+     * 
+     * @param category Product category
+     * @param symbol Trading symbol
+     * @param orderLinkId Order link ID
+     * @return Response JSON node with the order (if known) in result.list, or null if rate limited or failed
+     */
+    public JsonNode getOrder(String category, String symbol, String orderLinkId) {
+        if (!canSendOrder()) {
+            return null;
+        }
+        
+        try (CloseableHttpClient httpClient = createHttpClient()) {
+            String queryString = "category=" + category + "&symbol=" + symbol + "&orderLinkId=" + orderLinkId;
+            
+            HttpGet request = new HttpGet(getBaseUrl() + "/v5/order/realtime?" + queryString);
+            addAuthHeaders(request, queryString);
+            
+            try (CloseableHttpResponse response = httpClient.execute(request)) {
+                String responseBody = EntityUtils.toString(response.getEntity());
+                
+                if (response.getStatusLine().getStatusCode() == 200) {
+                    return objectMapper.readTree(responseBody);
+                } else {
+                    log.error("Error getting order", "orderLinkId", orderLinkId, "body", responseBody);
+                    return null;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error getting order", e, "orderLinkId", orderLinkId);
             return null;
         }
     }
@@ -332,22 +739,13 @@ public class BybitDemoTradingService {
      * @return Cancel response JSON node
      */
     public JsonNode cancelOrder(String category, String symbol, String orderId, String orderLinkId) {
-        if (!rateLimiterService.canMakeRequest("bybit_demo")) {
-            System.out.println("Rate limit exceeded for bybit_demo request");
+        if (!canSendOrder()) {
             return null;
         }
         
         try (CloseableHttpClient httpClient = createHttpClient()) {
-            Map<String, Object> requestBodyMap = new HashMap<>();
+            Map<String, Object> requestBodyMap = cancelRequest(symbol, orderId, orderLinkId);
             requestBodyMap.put("category", category);
-            requestBodyMap.put("symbol", symbol);
-            
-            if (orderId != null && !orderId.isEmpty()) {
-                requestBodyMap.put("orderId", orderId);
-            }
-            if (orderLinkId != null && !orderLinkId.isEmpty()) {
-                requestBodyMap.put("orderLinkId", orderLinkId);
-            }
             
             String requestBody = objectMapper.writeValueAsString(requestBodyMap);
             
@@ -360,16 +758,15 @@ public class BybitDemoTradingService {
                 JsonNode jsonNode = objectMapper.readTree(responseBody);
                 
                 if (response.getStatusLine().getStatusCode() == 200) {
-                    System.out.println("Order cancelled successfully");
+                    log.info("Order cancelled successfully");
                     return jsonNode;
                 } else {
-                    System.err.println("Error cancelling order: " + responseBody);
+                    log.error("Error cancelling order", "symbol", symbol, "orderId", orderId, "body", responseBody);
                     return jsonNode;
                 }
             }
         } catch (Exception e) {
-            System.err.println("Error cancelling order: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error cancelling order", e);
             return null;
         }
     }
@@ -383,41 +780,95 @@ public class BybitDemoTradingService {
      * @return Position list JSON node
      */
     public JsonNode getPositions(String category, String symbol) {
-        if (!rateLimiterService.canMakeRequest("bybit_demo")) {
-            System.out.println("Rate limit exceeded for bybit_demo request");
+        return getPositions(category, symbol, RateLimiterService.Priority.NORMAL);
+    }
+    
+    /**
+     * Get position list with the given rate limit priority
+     * 
+     * HIGH reads from the closing-order budget, for closing paths (kill switch)
+     * that must not wait for the shared budget taken by balance polling.
+     * Without a symbol every page of the listing is fetched (one request of
+     * the budget per listing) and the lists are merged into the first response.
+     */
+    public JsonNode getPositions(String category, String symbol, RateLimiterService.Priority priority) {
+        if (priority == RateLimiterService.Priority.HIGH) {
+            if (!canSendOrder(EXIT_BUDGET)) {
+                return null;
+            }
+        } else if (!rateLimiterService.canMakeRequest("bybit_demo")) {
+            log.warn("Rate limit exceeded for bybit_demo request");
             return null;
         }
         
         try (CloseableHttpClient httpClient = createHttpClient()) {
-            StringBuilder queryBuilder = new StringBuilder();
-            queryBuilder.append("category=").append(category);
             if (symbol != null && !symbol.isEmpty()) {
-                queryBuilder.append("&symbol=").append(symbol);
+                return getPositionPage(httpClient, "category=" + category + "&symbol=" + symbol);
             }
-            String queryString = queryBuilder.toString();
             
-            String url = getBaseUrl() + "/v5/position/list?" + queryString;
-            HttpGet request = new HttpGet(url);
-            addAuthHeaders(request, queryString);
-            
-            try (CloseableHttpResponse response = httpClient.execute(request)) {
-                String responseBody = EntityUtils.toString(response.getEntity());
-                JsonNode jsonNode = objectMapper.readTree(responseBody);
-                
-                if (response.getStatusLine().getStatusCode() == 200) {
-                    return jsonNode;
-                } else {
-                    System.err.println("Error getting positions: " + responseBody);
-                    return null;
+            // Listing all positions: full pages, following the cursor to the last one
+            String query = "category=" + category + "&limit=" + POSITION_PAGE_SIZE;
+            if ("linear".equals(category)) {
+                // Listing all linear positions requires a settle coin
+                query += "&settleCoin=USDT";
+            }
+            JsonNode first = null;
+            ArrayNode positions = objectMapper.createArrayNode();
+            String cursor = "";
+            for (int page = 0; page < MAX_POSITION_PAGES; page++) {
+                // The cursor comes back URL-encoded and is sent as is
+                JsonNode response = getPositionPage(httpClient, cursor.isEmpty() ? query : query + "&cursor=" + cursor);
+                if (response == null || response.path("retCode").asInt(-1) != 0) {
+                    // A partial listing would look like closed positions to the caller
+                    return response;
+                }
+                if (first == null) {
+                    first = response;
                 }
+                response.path("result").path("list").forEach(positions::add);
+                cursor = response.path("result").path("nextPageCursor").asText("");
+                if (cursor.isEmpty()) {
+                    break;
+                }
+            }
+            if (!cursor.isEmpty()) {
+                log.error("Error getting positions", "reason", "more than " + MAX_POSITION_PAGES + " pages");
+                return null;
             }
+            
+            ObjectNode result = first.path("result").isObject() ? (ObjectNode) first.get("result")
+                    : ((ObjectNode) first).putObject("result");
+            result.set("list", positions);
+            result.put("nextPageCursor", "");
+            return first;
         } catch (Exception e) {
-            System.err.println("Error getting positions: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error getting positions", e);
             return null;
         }
     }
     
+    /**
+     * One signed GET /v5/position/list request
+     * 
+     * @return Response JSON node, or null on an HTTP error
+     */
+    private JsonNode getPositionPage(CloseableHttpClient httpClient, String queryString) throws IOException {
+        HttpGet request = new HttpGet(getBaseUrl() + "/v5/position/list?" + queryString);
+        addAuthHeaders(request, queryString);
+        
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            String responseBody = EntityUtils.toString(response.getEntity());
+            JsonNode jsonNode = objectMapper.readTree(responseBody);
+            
+            if (response.getStatusLine().getStatusCode() == 200) {
+                return jsonNode;
+            } else {
+                log.error("Error getting positions", "body", responseBody);
+                return null;
+            }
+        }
+    }
+    
     /**
      * Get account info
      * GET /v5/account/info
@@ -426,7 +877,7 @@ public class BybitDemoTradingService {
      */
     public JsonNode getAccountInfo() {
         if (!rateLimiterService.canMakeRequest("bybit_demo")) {
-            System.out.println("Rate limit exceeded for bybit_demo request");
+            log.warn("Rate limit exceeded for bybit_demo request");
             return null;
         }
         
@@ -441,13 +892,12 @@ public class BybitDemoTradingService {
                 if (response.getStatusLine().getStatusCode() == 200) {
                     return jsonNode;
                 } else {
-                    System.err.println("Error getting account info: " + responseBody);
+                    log.error("Error getting account info", "body", responseBody);
                     return null;
                 }
             }
         } catch (Exception e) {
-            System.err.println("Error getting account info: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error getting account info", e);
             return null;
         }
     }
@@ -462,7 +912,7 @@ public class BybitDemoTradingService {
      */
     public JsonNode getMarketTickers(String category, String symbol) {
         if (!rateLimiterService.canMakeRequest("bybit_demo")) {
-            System.out.println("Rate limit exceeded for bybit_demo request");
+            log.warn("Rate limit exceeded for bybit_demo request");
             return null;
         }
         
@@ -484,13 +934,12 @@ public class BybitDemoTradingService {
                 if (response.getStatusLine().getStatusCode() == 200) {
                     return jsonNode;
                 } else {
-                    System.err.println("Error getting market tickers: " + responseBody);
+                    log.error("Error getting market tickers", "body", responseBody);
                     return null;
                 }
             }
         } catch (Exception e) {
-            System.err.println("Error getting market tickers: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error getting market tickers", e);
             return null;
         }
     }
@@ -0,0 +1,123 @@
+package com.bitunix.scalper.service;
+
+import com.bitunix.scalper.model.TradingPair;
+import com.bitunix.scalper.strategy.ExecutionCostModel;
+import com.bitunix.scalper.strategy.OrderBook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+
+/**
+ * Execution costs of the bot's orders, shared by signal scoring, entry pricing and exits
+ * 
+ * Entries are market orders (taker fee, half the spread and the slippage of
+ * walking the symbol's current order book) or limit orders at the expected
+ * price (maker fee only), as configured. Exits are always market orders:
+ * the exchange-side stop loss / take profit and the reduce-only strategy exit.
+ * Fee rates come from the account's configured fee tier.
+ */
+@Service
+public class ExecutionCostService {
+    
+    /**
+     * Order type of the bot's exits
+     */
+    public static final ExecutionCostModel.OrderType EXIT_ORDER_TYPE = ExecutionCostModel.OrderType.MARKET;
+    
+    @Value("${bitunix.trading.entry-order-type:market}")
+    private String entryOrderTypeName;
+    
+    @Value("${bitunix.trading.fee-tier:default}")
+    private String feeTier;
+    
+    @Value("${bitunix.trading.fee-tiers.${bitunix.trading.fee-tier:default}.maker-fee}")
+    private BigDecimal makerFee;
+    
+    @Value("${bitunix.trading.fee-tiers.${bitunix.trading.fee-tier:default}.taker-fee}")
+    private BigDecimal takerFee;
+    
+    @Value("${bitunix.costs.half-spread-bps:2}")
+    private double halfSpreadBps;
+    
+    @Value("${bitunix.costs.slippage-bps:2}")
+    private double slippageBps;
+    
+    @Autowired
+    private OrderBookService orderBookService;
+    
+    private ExecutionCostModel model;
+    private ExecutionCostModel.OrderType entryOrderType;
+    
+    // Scratch quote per scoring / execution thread
+    private final ThreadLocal<OrderBook.Quote> quotes = ThreadLocal.withInitial(OrderBook.Quote::new);
+    
+    @PostConstruct
+    public void init() {
+        try {
+            entryOrderType = ExecutionCostModel.OrderType.valueOf(entryOrderTypeName.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("bitunix.trading.entry-order-type must be market or limit, was "
+                    + entryOrderTypeName);
+        }
+        model = new ExecutionCostModel(makerFee.doubleValue(), takerFee.doubleValue(), halfSpreadBps, slippageBps);
+    }
+    
+    public ExecutionCostModel getModel() {
+        return model;
+    }
+    
+    public ExecutionCostModel.OrderType getEntryOrderType() {
+        return entryOrderType;
+    }
+    
+    public String getFeeTier() {
+        return feeTier;
+    }
+    
+    /**
+     * Maker fee rate of the fee tier, as a fraction of notional
+     */
+    public BigDecimal getMakerFee() {
+        return makerFee;
+    }
+    
+    /**
+     * Taker fee rate of the fee tier, as a fraction of notional
+     */
+    public BigDecimal getTakerFee() {
+        return takerFee;
+    }
+    
+    /**
+     * Fee rate of an order type: taker for market orders, maker for limit orders
+     */
+    public BigDecimal feeRate(ExecutionCostModel.OrderType type) {
+        return type == ExecutionCostModel.OrderType.MARKET ? takerFee : makerFee;
+    }
+    
+    /**
+     * Expected round trip cost of a position in a pair, in basis points
+     * 
+     * @param buy Whether the entry buys
+     * @param quantity Position size in base units (NaN if unknown: typical slippage)
+     */
+    public double roundTripBps(TradingPair pair, boolean buy, double quantity) {
+        return model.roundTripBps(orderBookService.book(pair), quotes.get(), buy, quantity,
+                entryOrderType, EXIT_ORDER_TYPE);
+    }
+    
+    /**
+     * Expected fill price of a market order for a quantity: walked from the
+     * current order book, else the reference price moved by the typical spread and slippage
+     * 
+     * @param price Reference (last or mark) price
+     */
+    public double marketFillPrice(TradingPair pair, boolean buy, double quantity, double price) {
+        OrderBook book = orderBookService.book(pair);
+        double fill = book != null ? book.fillPrice(buy, quantity) : Double.NaN;
+        return Double.isNaN(fill) ? model.marketFillPrice(price, buy) : fill;
+    }
+}
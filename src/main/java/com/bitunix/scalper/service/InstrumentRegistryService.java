@@ -0,0 +1,231 @@
+package com.bitunix.scalper.service;
+
+import com.bitunix.scalper.model.Instrument;
+import com.bitunix.scalper.util.AsyncLog;
+import com.bitunix.scalper.util.SymbolScale;
+import com.bitunix.scalper.util.SymbolTable;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory cache of exchange instrument metadata
+ * 
+ * Loaded once on startup from /v5/market/instruments-info and refreshed
+ * periodically. Instruments are stored by interned symbol id, so lookups on
+ * the trading path are an array load with no I/O. Tick and
+ * lot sizes are also registered with {@link SymbolScaleService} so that
+ * prices and quantities land on the exchange grid.
+ */
+@Service
+public class InstrumentRegistryService {
+    
+    private static final AsyncLog log = AsyncLog.getLogger(InstrumentRegistryService.class);
+    
+    private static final int MAX_PAGES = 20;
+    
+    @Value("${bitunix.trading.category:linear}")
+    private String category;
+    
+    @Autowired
+    @Lazy
+    private BitunixApiService bitunixApiService;
+    
+    @Autowired
+    private SymbolScaleService symbolScaleService;
+    
+    @Autowired
+    private SymbolRegistryService symbolRegistry;
+    
+    @Autowired
+    private RateLimiterService rateLimiterService;
+    
+    @Autowired
+    private MetricsService metricsService;
+    
+    private final SymbolTable<Instrument> instruments = new SymbolTable<>();
+    private volatile long lastRefreshMillis;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        metricsService.gauge("scalper_instruments_loaded", () -> instruments.size());
+        refresh();
+    }
+    
+    /**
+     * Reload all instruments; the previous snapshot is kept if the exchange call fails
+     */
+    @Scheduled(fixedDelayString = "${bitunix.instruments.refresh-interval-ms:3600000}",
+            initialDelayString = "${bitunix.instruments.refresh-interval-ms:3600000}")
+    public void refresh() {
+        if (!rateLimiterService.canMakeRequest("instruments")) {
+            log.warn("Rate limit exceeded for instruments refresh, keeping cached instruments");
+            return;
+        }
+        
+        long start = System.currentTimeMillis();
+        Map<String, Instrument> loaded = new HashMap<>();
+        String cursor = null;
+        for (int page = 0; page < MAX_PAGES; page++) {
+            JsonNode response = bitunixApiService.getInstrumentsInfo(category, cursor);
+            if (response == null || response.path("retCode").asInt(-1) != 0) {
+                log.error("Instruments refresh failed, keeping cached instruments",
+                        "retMsg", response != null ? response.path("retMsg").asText() : "no response");
+                return;
+            }
+            
+            JsonNode result = response.path("result");
+            for (JsonNode node : result.path("list")) {
+                Instrument instrument = parseInstrument(node);
+                if (instrument.getSymbol() != null) {
+                    loaded.put(instrument.getSymbol(), instrument);
+                }
+            }
+            
+            cursor = result.path("nextPageCursor").asText("");
+            if (cursor.isEmpty()) {
+                break;
+            }
+        }
+        
+        // Ids are assigned to all listed symbols at load time
+        symbolRegistry.registerAll(loaded.keySet());
+        int scales = 0;
+        for (Instrument instrument : loaded.values()) {
+            instruments.put(symbolRegistry.idOf(instrument.getSymbol()), instrument);
+            if (registerScale(instrument)) {
+                scales++;
+            }
+        }
+        // Drop instruments the exchange no longer lists
+        for (int id = 0; id < instruments.capacity(); id++) {
+            if (instruments.contains(id) && !loaded.containsKey(symbolRegistry.symbolOf(id))) {
+                instruments.remove(id);
+            }
+        }
+        lastRefreshMillis = System.currentTimeMillis();
+        log.info("Instruments loaded", "category", category, "count", loaded.size(), "scales", scales,
+                "durationMs", lastRefreshMillis - start);
+    }
+    
+    /**
+     * Metadata of a symbol, or null if the exchange does not list it (or nothing is loaded yet)
+     */
+    public Instrument getInstrument(String symbol) {
+        return instruments.get(symbolRegistry.find(symbol));
+    }
+    
+    public Instrument getInstrument(int symbolId) {
+        return instruments.get(symbolId);
+    }
+    
+    public int getInstrumentCount() {
+        return instruments.size();
+    }
+    
+    public long getLastRefreshMillis() {
+        return lastRefreshMillis;
+    }
+    
+    /**
+     * Check an order against the instrument's quantity limits and minimum notional
+     * 
+     * @return Rejection reason, or null if the order is acceptable (or the symbol is unknown)
+     */
+    public String validateOrder(String symbol, BigDecimal quantity, BigDecimal price) {
+        Instrument instrument = getInstrument(symbol);
+        if (instrument == null) {
+            return null;
+        }
+        if (!instrument.isTrading()) {
+            return "instrument status " + instrument.getStatus();
+        }
+        if (instrument.getMinOrderQty() != null && quantity.compareTo(instrument.getMinOrderQty()) < 0) {
+            return "quantity below minimum " + instrument.getMinOrderQty();
+        }
+        if (instrument.getMinNotionalValue() != null
+                && quantity.multiply(price).compareTo(instrument.getMinNotionalValue()) < 0) {
+            return "notional below minimum " + instrument.getMinNotionalValue();
+        }
+        return null;
+    }
+    
+    /**
+     * Largest quantity accepted for a market order, or null if unknown
+     */
+    public BigDecimal getMaxMarketQty(String symbol) {
+        Instrument instrument = getInstrument(symbol);
+        if (instrument == null) {
+            return null;
+        }
+        return instrument.getMaxMarketOrderQty() != null ? instrument.getMaxMarketOrderQty()
+                : instrument.getMaxOrderQty();
+    }
+    
+    private boolean registerScale(Instrument instrument) {
+        if (instrument.getTickSize() == null || instrument.getQtyStep() == null
+                || instrument.getTickSize().signum() <= 0 || instrument.getQtyStep().signum() <= 0) {
+            return false;
+        }
+        try {
+            symbolScaleService.register(SymbolScale.of(instrument.getSymbol(),
+                    instrument.getTickSize(), instrument.getQtyStep()));
+            return true;
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            // Steps too fine for the fixed-point layout, keep the inferred one
+            log.debug("Instrument steps not representable", "symbol", instrument.getSymbol(),
+                    "tickSize", instrument.getTickSize(), "qtyStep", instrument.getQtyStep());
+            return false;
+        }
+    }
+    
+    private Instrument parseInstrument(JsonNode node) {
+        Instrument instrument = new Instrument();
+        instrument.setSymbol(text(node, "symbol"));
+        instrument.setBaseCoin(text(node, "baseCoin"));
+        instrument.setQuoteCoin(text(node, "quoteCoin"));
+        instrument.setSettleCoin(text(node, "settleCoin"));
+        instrument.setStatus(text(node, "status"));
+        
+        JsonNode priceFilter = node.path("priceFilter");
+        instrument.setTickSize(decimal(priceFilter, "tickSize"));
+        instrument.setMinPrice(decimal(priceFilter, "minPrice"));
+        instrument.setMaxPrice(decimal(priceFilter, "maxPrice"));
+        
+        JsonNode lotSizeFilter = node.path("lotSizeFilter");
+        instrument.setQtyStep(decimal(lotSizeFilter, "qtyStep"));
+        instrument.setMinOrderQty(decimal(lotSizeFilter, "minOrderQty"));
+        instrument.setMaxOrderQty(decimal(lotSizeFilter, "maxOrderQty"));
+        instrument.setMaxMarketOrderQty(decimal(lotSizeFilter, "maxMktOrderQty"));
+        instrument.setMinNotionalValue(decimal(lotSizeFilter, "minNotionalValue"));
+        
+        JsonNode leverageFilter = node.path("leverageFilter");
+        instrument.setMinLeverage(decimal(leverageFilter, "minLeverage"));
+        instrument.setMaxLeverage(decimal(leverageFilter, "maxLeverage"));
+        instrument.setLeverageStep(decimal(leverageFilter, "leverageStep"));
+        return instrument;
+    }
+    
+    private static String text(JsonNode node, String field) {
+        String value = node.path(field).asText("");
+        return value.isEmpty() ? null : value;
+    }
+    
+    private static BigDecimal decimal(JsonNode node, String field) {
+        String value = text(node, field);
+        try {
+            return value != null ? new BigDecimal(value) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
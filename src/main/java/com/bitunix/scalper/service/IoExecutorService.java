@@ -0,0 +1,95 @@
+package com.bitunix.scalper.service;
+
+import com.bitunix.scalper.util.AsyncLog;
+import com.bitunix.scalper.util.TaskScope;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor for blocking exchange I/O (kline fetches, order batches)
+ * 
+ * On a JDK with virtual threads (21+) every task gets its own virtual thread,
+ * so a fan-out over hundreds of symbols needs no pool sizing. On Java 11 it
+ * falls back to a bounded pool of platform threads. Virtual threads are looked
+ * up reflectively, so the same code builds and runs on both.
+ */
+@Service
+public class IoExecutorService {
+    
+    private static final AsyncLog log = AsyncLog.getLogger(IoExecutorService.class);
+    
+    // auto = virtual threads when the JVM has them, true = require them, false = platform pool
+    @Value("${bitunix.io.virtual-threads:auto}")
+    private String virtualThreads;
+    
+    @Value("${bitunix.io.platform-threads:16}")
+    private int platformThreads;
+    
+    private ExecutorService executor;
+    private boolean virtual;
+    
+    @PostConstruct
+    public void init() {
+        if (!"false".equalsIgnoreCase(virtualThreads)) {
+            executor = newVirtualThreadExecutor();
+            if (executor == null && "true".equalsIgnoreCase(virtualThreads)) {
+                throw new IllegalStateException("bitunix.io.virtual-threads=true requires a JDK with virtual threads");
+            }
+        }
+        virtual = executor != null;
+        if (!virtual) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(platformThreads, runnable -> {
+                Thread thread = new Thread(runnable, "exchange-io-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        log.info("Exchange I/O executor started", "virtualThreads", virtual,
+                "threads", virtual ? "per task" : platformThreads);
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * Open a scope whose subtasks run on this executor
+     * 
+     * @param deadlineNanos System.nanoTime() after which unfinished subtasks are cancelled
+     */
+    public <T> TaskScope<T> openScope(long deadlineNanos) {
+        return new TaskScope<>(executor, deadlineNanos);
+    }
+    
+    /**
+     * Open a scope with a timeout from now
+     */
+    public <T> TaskScope<T> openScope(long timeout, TimeUnit unit) {
+        return openScope(System.nanoTime() + unit.toNanos(timeout));
+    }
+    
+    public boolean isVirtual() {
+        return virtual;
+    }
+    
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() if this JVM has it
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
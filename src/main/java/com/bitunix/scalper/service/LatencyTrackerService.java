@@ -0,0 +1,208 @@
+package com.bitunix.scalper.service;
+
+import com.bitunix.scalper.util.LatencyHistogram;
+import com.bitunix.scalper.util.AsyncLog;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Service for tick-to-trade latency instrumentation
+ * 
+ * Each stage of the signal pipeline records its duration (System.nanoTime
+ * deltas) into a lock-free histogram, both overall and per symbol. The time
+ * a symbol's market data was received is remembered so that an order
+ * acknowledgement can record the full tick-to-trade latency.
+ * 
+ * Per-symbol histograms are created on first use of a stage for a symbol,
+ * so symbols that are only scanned hold histograms for the stages they ran
+ * through and not a full set each.
+ */
+@Service
+public class LatencyTrackerService {
+    
+    private static final AsyncLog log = AsyncLog.getLogger(LatencyTrackerService.class);
+    
+    /**
+     * Pipeline stages, in the order a price update flows through them
+     */
+    public enum Stage {
+        RECEIVE,
+        PARSE,
+        INDICATOR_UPDATE,
+        STRATEGY_EVALUATION,
+        SCORING,
+        RISK_CHECK,
+        SIGN_AND_SEND,
+        ACK,
+        TICK_TO_TRADE
+    }
+    
+    private static final Stage[] STAGES = Stage.values();
+    
+    private final LatencyHistogram[] stageHistograms = new LatencyHistogram[STAGES.length];
+    private final ConcurrentMap<String, AtomicReferenceArray<LatencyHistogram>> symbolHistograms =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> lastReceiveTimes = new ConcurrentHashMap<>();
+    
+    public LatencyTrackerService() {
+        for (int i = 0; i < STAGES.length; i++) {
+            stageHistograms[i] = new LatencyHistogram();
+        }
+    }
+    
+    /**
+     * Record the duration of a stage that started at startNanos (from System.nanoTime)
+     * 
+     * @param symbol Symbol the work was done for, or null for multi-symbol work
+     */
+    public void record(Stage stage, String symbol, long startNanos) {
+        recordDuration(stage, symbol, System.nanoTime() - startNanos);
+    }
+    
+    /**
+     * Record an already measured stage duration in nanoseconds
+     */
+    public void recordDuration(Stage stage, String symbol, long durationNanos) {
+        stageHistograms[stage.ordinal()].record(durationNanos);
+        if (symbol != null) {
+            symbolHistogram(symbol, stage).record(durationNanos);
+        }
+    }
+    
+    /**
+     * Histogram of a stage for a symbol; lookups only on the hot path, creation on first use
+     */
+    private LatencyHistogram symbolHistogram(String symbol, Stage stage) {
+        AtomicReferenceArray<LatencyHistogram> histograms = symbolHistograms.get(symbol);
+        if (histograms == null) {
+            histograms = symbolHistograms.computeIfAbsent(symbol, k -> new AtomicReferenceArray<>(STAGES.length));
+        }
+        LatencyHistogram histogram = histograms.get(stage.ordinal());
+        if (histogram == null) {
+            histograms.compareAndSet(stage.ordinal(), null, new LatencyHistogram());
+            histogram = histograms.get(stage.ordinal());
+        }
+        return histogram;
+    }
+    
+    /**
+     * Remember when market data for a symbol arrived (System.nanoTime)
+     */
+    public void markReceived(String symbol, long receivedNanos) {
+        lastReceiveTimes.put(symbol, receivedNanos);
+    }
+    
+    /**
+     * Record tick-to-trade latency for a symbol whose order was just acknowledged
+     */
+    public void recordTickToTrade(String symbol) {
+        Long receivedNanos = lastReceiveTimes.get(symbol);
+        if (receivedNanos != null) {
+            recordDuration(Stage.TICK_TO_TRADE, symbol, System.nanoTime() - receivedNanos);
+        }
+    }
+    
+    /**
+     * Get percentile summary for all stages (values in microseconds)
+     */
+    public Map<String, Map<String, Object>> getStageSummary() {
+        return summarize(stageHistograms);
+    }
+    
+    /**
+     * Get percentile summary for a single symbol, empty if nothing was recorded
+     */
+    public Map<String, Map<String, Object>> getSymbolSummary(String symbol) {
+        AtomicReferenceArray<LatencyHistogram> histograms = symbolHistograms.get(symbol);
+        if (histograms == null) {
+            return new LinkedHashMap<>();
+        }
+        LatencyHistogram[] recorded = new LatencyHistogram[STAGES.length];
+        for (int i = 0; i < STAGES.length; i++) {
+            recorded[i] = histograms.get(i);
+        }
+        return summarize(recorded);
+    }
+    
+    /**
+     * Get symbols that have recorded latencies
+     */
+    public Set<String> getTrackedSymbols() {
+        return symbolHistograms.keySet();
+    }
+    
+    /**
+     * Get the overall histogram of a stage
+     */
+    public LatencyHistogram getHistogram(Stage stage) {
+        return stageHistograms[stage.ordinal()];
+    }
+    
+    /**
+     * Clear all histograms
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : stageHistograms) {
+            histogram.reset();
+        }
+        symbolHistograms.clear();
+        lastReceiveTimes.clear();
+    }
+    
+    /**
+     * Periodic latency summary - runs every minute
+     */
+    @Scheduled(fixedRate = 60000)
+    public void logSummary() {
+        StringBuilder summary = new StringBuilder("Latency summary (us, p50/p99/max):");
+        boolean hasData = false;
+        
+        for (Stage stage : STAGES) {
+            LatencyHistogram histogram = stageHistograms[stage.ordinal()];
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            hasData = true;
+            summary.append(' ').append(stage.name().toLowerCase()).append('=')
+                   .append(toMicros(histogram.getValueAtPercentile(50))).append('/')
+                   .append(toMicros(histogram.getValueAtPercentile(99))).append('/')
+                   .append(toMicros(histogram.getMax()));
+        }
+        
+        if (hasData) {
+            log.info(summary.toString());
+        }
+    }
+    
+    private Map<String, Map<String, Object>> summarize(LatencyHistogram[] histograms) {
+        Map<String, Map<String, Object>> summary = new LinkedHashMap<>();
+        for (Stage stage : STAGES) {
+            LatencyHistogram histogram = histograms[stage.ordinal()];
+            if (histogram == null || histogram.getCount() == 0) {
+                continue;
+            }
+            
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count", histogram.getCount());
+            stats.put("meanUs", toMicros((long) histogram.getMean()));
+            stats.put("p50Us", toMicros(histogram.getValueAtPercentile(50)));
+            stats.put("p90Us", toMicros(histogram.getValueAtPercentile(90)));
+            stats.put("p99Us", toMicros(histogram.getValueAtPercentile(99)));
+            stats.put("p999Us", toMicros(histogram.getValueAtPercentile(99.9)));
+            stats.put("maxUs", toMicros(histogram.getMax()));
+            summary.put(stage.name(), stats);
+        }
+        return summary;
+    }
+    
+    private static double toMicros(long nanos) {
+        return Math.round(nanos / 100.0) / 10.0;
+    }
+}
@@ -0,0 +1,503 @@
+package com.bitunix.scalper.service;
+
+import com.bitunix.scalper.model.TradingPair;
+import com.bitunix.scalper.scheduler.ExitMonitor;
+import com.bitunix.scalper.scheduler.TradingEngine;
+import com.bitunix.scalper.util.AsyncLog;
+import com.bitunix.scalper.util.RingBuffer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Public market data stream (Bybit v5 WebSocket)
+ * 
+ * Subscribes to the ticker, 1m kline, public trade and order book topics of
+ * the symbols the trading loop is tracking and forwards every price tick and
+ * confirmed candle to the {@link TradingEngine}, every mark price to the
+ * {@link ExitMonitor}, every trade to the {@link TradeTapeService} and every
+ * book snapshot or delta to the {@link OrderBookService}. A book that misses
+ * a delta is resubscribed, which makes the exchange send a fresh snapshot.
+ * Parsed updates are handed from the socket thread to a "market-feed"
+ * dispatcher thread through a preallocated {@link RingBuffer}, so the socket
+ * is never held up by symbol lookups or mailbox handoffs. A heartbeat keeps the connection alive and reconnects
+ * (resubscribing everything) after a drop; while disconnected the fixed-rate
+ * scan in TradingScheduler keeps trading.
+ */
+@Service
+public class MarketStreamService {
+    
+    private static final AsyncLog log = AsyncLog.getLogger(MarketStreamService.class);
+    
+    // Topics per subscribe request
+    private static final int TOPICS_PER_REQUEST = 10;
+    
+    // Events dispatched per ring buffer poll
+    private static final int DISPATCH_BATCH = 256;
+    
+    @Value("${bitunix.stream.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${bitunix.stream.url:wss://stream.bybit.com/v5/public/linear}")
+    private String url;
+    
+    @Value("${bitunix.stream.kline-interval:1}")
+    private String klineInterval;
+    
+    @Value("${bitunix.trades.enabled:true}")
+    private boolean tradesEnabled;
+    
+    @Value("${bitunix.stream.ring-size:8192}")
+    private int ringSize;
+    
+    @Value("${bitunix.stream.wait-strategy:PARK}")
+    private RingBuffer.WaitStrategy waitStrategy;
+    
+    @Autowired
+    private TradingEngine tradingEngine;
+    
+    @Autowired
+    private ExitMonitor exitMonitor;
+    
+    @Autowired
+    private TradeTapeService tradeTapeService;
+    
+    @Autowired
+    private OrderBookService orderBookService;
+    
+    @Autowired
+    private MetricsService metricsService;
+    
+    @Autowired
+    private ThreadAffinityService threadAffinity;
+    
+    @Autowired
+    private LatencyTrackerService latencyTracker;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    
+    // Symbols the trading loop wants and symbols subscribed on the current connection
+    private final Set<String> tracked = ConcurrentHashMap.newKeySet();
+    private final Set<String> subscribed = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean connecting = new AtomicBoolean();
+    private volatile WebSocket webSocket;
+    private volatile long lastMessageAt;
+    
+    // Socket thread (producer) to dispatcher thread (consumer)
+    private RingBuffer<MarketEvent> events;
+    private Thread dispatcher;
+    private volatile boolean dispatching;
+    
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        events = new RingBuffer<>(ringSize, MarketEvent::new, waitStrategy);
+        metricsService.gauge("scalper_stream_ring_depth", events::size);
+        dispatching = true;
+        dispatcher = threadAffinity.newThread(ThreadAffinityService.Role.FEED, "market-feed",
+                Thread.MAX_PRIORITY, this::dispatchEvents);
+        dispatcher.start();
+    }
+    
+    /**
+     * Stream the given symbols (and stop streaming the others)
+     */
+    public void track(Collection<String> symbols) {
+        if (!enabled) {
+            return;
+        }
+        tracked.retainAll(new HashSet<>(symbols));
+        tracked.addAll(symbols);
+        
+        WebSocket socket = webSocket;
+        if (socket == null) {
+            connect();
+            return;
+        }
+        syncSubscriptions(socket);
+    }
+    
+    public boolean isConnected() {
+        return webSocket != null;
+    }
+    
+    /**
+     * Heartbeat: ping the server, reconnect when the connection is gone or silent
+     */
+    @Scheduled(fixedRateString = "${bitunix.stream.ping-interval-ms:20000}")
+    public void heartbeat() {
+        if (!enabled || tracked.isEmpty()) {
+            return;
+        }
+        WebSocket socket = webSocket;
+        if (socket == null) {
+            connect();
+            return;
+        }
+        if (System.currentTimeMillis() - lastMessageAt > 60000) {
+            log.warn("Market stream silent, reconnecting", "url", url);
+            socket.abort();
+            disconnected();
+            connect();
+            return;
+        }
+        send(socket, "{\"op\":\"ping\"}");
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        enabled = false;
+        dispatching = false;
+        WebSocket socket = webSocket;
+        if (socket != null) {
+            socket.sendClose(WebSocket.NORMAL_CLOSURE, "shutdown");
+        }
+    }
+    
+    private void connect() {
+        if (!connecting.compareAndSet(false, true)) {
+            return;
+        }
+        httpClient.newWebSocketBuilder()
+                .buildAsync(URI.create(url), new Listener())
+                .whenComplete((socket, error) -> {
+                    connecting.set(false);
+                    if (error != null) {
+                        log.warn("Market stream connect failed", "url", url, "error", error.getMessage());
+                        return;
+                    }
+                    orderBookService.onConnected();
+                    webSocket = socket;
+                    lastMessageAt = System.currentTimeMillis();
+                    subscribed.clear();
+                    log.info("Market stream connected", "url", url);
+                    syncSubscriptions(socket);
+                });
+    }
+    
+    private void disconnected() {
+        webSocket = null;
+        orderBookService.onDisconnected();
+        subscribed.clear();
+    }
+    
+    private synchronized void syncSubscriptions(WebSocket socket) {
+        List<String> subscribe = new ArrayList<>();
+        List<String> unsubscribe = new ArrayList<>();
+        for (String symbol : tracked) {
+            if (subscribed.add(symbol)) {
+                subscribe.add("tickers." + symbol);
+                subscribe.add("kline." + klineInterval + "." + symbol);
+                if (tradesEnabled) {
+                    subscribe.add("publicTrade." + symbol);
+                }
+                if (orderBookService.isEnabled()) {
+                    subscribe.add(bookTopic(symbol));
+                }
+            }
+        }
+        for (String symbol : new ArrayList<>(subscribed)) {
+            if (!tracked.contains(symbol)) {
+                subscribed.remove(symbol);
+                unsubscribe.add("tickers." + symbol);
+                unsubscribe.add("kline." + klineInterval + "." + symbol);
+                if (tradesEnabled) {
+                    unsubscribe.add("publicTrade." + symbol);
+                }
+                if (orderBookService.isEnabled()) {
+                    unsubscribe.add(bookTopic(symbol));
+                }
+            }
+        }
+        sendTopics(socket, "subscribe", subscribe);
+        sendTopics(socket, "unsubscribe", unsubscribe);
+    }
+    
+    private String bookTopic(String symbol) {
+        return "orderbook." + orderBookService.getDepth() + "." + symbol;
+    }
+    
+    /**
+     * Resubscribe a symbol's order book after a gap; the exchange answers with a snapshot
+     */
+    private void resyncBook(String symbol) {
+        WebSocket socket = webSocket;
+        if (socket == null || !subscribed.contains(symbol)) {
+            return;
+        }
+        log.warn("Order book gap, resubscribing", "symbol", symbol);
+        List<String> topic = List.of(bookTopic(symbol));
+        sendTopics(socket, "unsubscribe", topic);
+        sendTopics(socket, "subscribe", topic);
+    }
+    
+    private void sendTopics(WebSocket socket, String op, List<String> topics) {
+        for (int from = 0; from < topics.size(); from += TOPICS_PER_REQUEST) {
+            ObjectNode request = objectMapper.createObjectNode();
+            request.put("op", op);
+            ArrayNode args = request.putArray("args");
+            topics.subList(from, Math.min(from + TOPICS_PER_REQUEST, topics.size())).forEach(args::add);
+            send(socket, request.toString());
+        }
+    }
+    
+    private void send(WebSocket socket, String text) {
+        // One outstanding send at a time per WebSocket
+        synchronized (socket) {
+            socket.sendText(text, true).join();
+        }
+    }
+    
+    /**
+     * Dispatch one complete message
+     */
+    private void handleMessage(String text, long receivedAt) {
+        JsonNode message;
+        try {
+            message = objectMapper.readTree(text);
+        } catch (Exception e) {
+            log.warn("Unparseable market stream message", "error", e.getMessage());
+            return;
+        }
+        
+        String topic = message.path("topic").asText("");
+        if (topic.startsWith("tickers.")) {
+            JsonNode data = message.path("data");
+            String symbol = data.path("symbol").asText(topic.substring(8));
+            // Deltas carry only the fields that changed
+            String markPrice = data.path("markPrice").asText("");
+            if (!markPrice.isEmpty()) {
+                MarketEvent event = events.claim();
+                event.set(MarketEvent.MARK, symbol, Double.parseDouble(markPrice), receivedAt);
+                events.publish();
+            }
+            String lastPrice = data.path("lastPrice").asText("");
+            if (!lastPrice.isEmpty()) {
+                MarketEvent event = events.claim();
+                event.set(MarketEvent.TICK, symbol, Double.parseDouble(lastPrice), receivedAt);
+                events.publish();
+                latencyTracker.record(LatencyTrackerService.Stage.PARSE, symbol, receivedAt);
+            }
+        } else if (topic.startsWith("kline.")) {
+            String symbol = topic.substring(topic.lastIndexOf('.') + 1);
+            for (JsonNode candle : message.path("data")) {
+                if (candle.path("confirm").asBoolean(false)) {
+                    MarketEvent event = events.claim();
+                    event.set(MarketEvent.CANDLE, symbol, candle.path("close").asDouble(), receivedAt);
+                    event.volume = candle.path("volume").asDouble(0);
+                    event.candleTime = candle.path("start").asLong();
+                    events.publish();
+                    latencyTracker.record(LatencyTrackerService.Stage.PARSE, symbol, receivedAt);
+                }
+            }
+        } else if (topic.startsWith("publicTrade.")) {
+            String symbol = topic.substring(12);
+            for (JsonNode trade : message.path("data")) {
+                MarketEvent event = events.claim();
+                event.set(MarketEvent.TRADE, trade.path("s").asText(symbol), trade.path("p").asDouble(), receivedAt);
+                event.volume = trade.path("v").asDouble(0);
+                event.candleTime = trade.path("T").asLong();
+                event.buy = "Buy".equals(trade.path("S").asText());
+                events.publish();
+            }
+        } else if (topic.startsWith("orderbook.")) {
+            JsonNode data = message.path("data");
+            long updateId = data.path("u").asLong();
+            MarketEvent event = events.claim();
+            event.set(MarketEvent.BOOK, data.path("s").asText(topic.substring(topic.lastIndexOf('.') + 1)), 0,
+                    receivedAt);
+            event.candleTime = message.path("cts").asLong(message.path("ts").asLong());
+            event.updateId = updateId;
+            // u = 1 is a snapshot after an exchange-side restart
+            event.snapshot = "snapshot".equals(message.path("type").asText()) || updateId == 1;
+            event.setLevels(data.path("b"), data.path("a"));
+            events.publish();
+        } else if (message.has("op") && !message.path("success").asBoolean(true)) {
+            log.warn("Market stream request rejected", "op", message.path("op").asText(),
+                    "message", message.path("ret_msg").asText());
+        }
+    }
+    
+    /**
+     * Dispatcher thread: hand ring buffer events to the engine, the exit monitor, the trade tape and the books
+     */
+    private void dispatchEvents() {
+        RingBuffer.EventHandler<MarketEvent> handler = (event, sequence, endOfBatch) -> dispatch(event);
+        while (dispatching) {
+            try {
+                events.consume(handler, DISPATCH_BATCH, () -> dispatching);
+            } catch (Exception e) {
+                // The failing event is consumed; keep dispatching the rest
+                log.error("Error dispatching market event", e);
+            }
+        }
+    }
+    
+    private void dispatch(MarketEvent event) {
+        switch (event.type) {
+            case MarketEvent.TICK:
+                markReceived(event);
+                tradingEngine.onTick(event.symbol, event.price, event.receivedAt);
+                break;
+            case MarketEvent.MARK:
+                exitMonitor.onMarkPrice(event.symbol, event.price);
+                break;
+            case MarketEvent.TRADE:
+                tradeTapeService.onTrade(event.symbol, event.candleTime, event.price, event.volume, event.buy);
+                break;
+            case MarketEvent.BOOK:
+                if (!orderBookService.apply(event.symbol, event.snapshot, event.updateId, event.candleTime,
+                        event.bids, event.bidLevels, event.asks, event.askLevels)) {
+                    resyncBook(event.symbol);
+                }
+                break;
+            default:
+                markReceived(event);
+                tradingEngine.onCandleClose(event.symbol, toCandle(event), event.receivedAt);
+                break;
+        }
+    }
+    
+    /**
+     * Time from arrival to hand-off; also the start of the symbol's tick-to-trade
+     */
+    private void markReceived(MarketEvent event) {
+        latencyTracker.record(LatencyTrackerService.Stage.RECEIVE, event.symbol, event.receivedAt);
+        latencyTracker.markReceived(event.symbol, event.receivedAt);
+    }
+    
+    private static TradingPair toCandle(MarketEvent event) {
+        TradingPair kline = new TradingPair();
+        kline.setSymbol(event.symbol);
+        kline.setPrice(BigDecimal.valueOf(event.price));
+        kline.setVolume24h(BigDecimal.valueOf(event.volume));
+        kline.setCandleTime(event.candleTime);
+        kline.setIsActive(true);
+        kline.setLastUpdated(LocalDateTime.now());
+        return kline;
+    }
+    
+    /**
+     * Reusable ring buffer slot for one market update
+     */
+    private static final class MarketEvent {
+        private static final int TICK = 0;
+        private static final int MARK = 1;
+        private static final int CANDLE = 2;
+        private static final int TRADE = 3;
+        private static final int BOOK = 4;
+        
+        private int type;
+        private String symbol;
+        private double price;
+        // Candle volume or trade size
+        private double volume;
+        // Candle start, trade time or book update time
+        private long candleTime;
+        // Taker side of a trade
+        private boolean buy;
+        // Book update: levels as price, size pairs, grown on demand and reused
+        private long updateId;
+        private boolean snapshot;
+        private double[] bids = new double[0];
+        private double[] asks = new double[0];
+        private int bidLevels;
+        private int askLevels;
+        private long receivedAt;
+        
+        private void set(int type, String symbol, double price, long receivedAt) {
+            this.type = type;
+            this.symbol = symbol;
+            this.price = price;
+            this.volume = 0;
+            this.candleTime = 0;
+            this.buy = false;
+            this.updateId = 0;
+            this.snapshot = false;
+            this.bidLevels = 0;
+            this.askLevels = 0;
+            this.receivedAt = receivedAt;
+        }
+        
+        private void setLevels(JsonNode bidNodes, JsonNode askNodes) {
+            if (bids.length < 2 * bidNodes.size()) {
+                bids = new double[2 * bidNodes.size()];
+            }
+            if (asks.length < 2 * askNodes.size()) {
+                asks = new double[2 * askNodes.size()];
+            }
+            bidLevels = levels(bidNodes, bids);
+            askLevels = levels(askNodes, asks);
+        }
+        
+        private static int levels(JsonNode nodes, double[] levels) {
+            int count = 0;
+            for (JsonNode level : nodes) {
+                levels[2 * count] = Double.parseDouble(level.path(0).asText());
+                levels[2 * count + 1] = Double.parseDouble(level.path(1).asText());
+                count++;
+            }
+            return count;
+        }
+    }
+    
+    private class Listener implements WebSocket.Listener {
+        private final StringBuilder buffer = new StringBuilder();
+        
+        @Override
+        public CompletionStage<?> onText(WebSocket socket, CharSequence data, boolean last) {
+            lastMessageAt = System.currentTimeMillis();
+            buffer.append(data);
+            if (last) {
+                String text = buffer.toString();
+                buffer.setLength(0);
+                // Only the current connection publishes, so the ring buffer has a single producer
+                if (socket == webSocket) {
+                    handleMessage(text, System.nanoTime());
+                }
+            }
+            socket.request(1);
+            return null;
+        }
+        
+        @Override
+        public CompletionStage<?> onClose(WebSocket socket, int statusCode, String reason) {
+            log.warn("Market stream closed", "status", statusCode, "reason", reason);
+            disconnected();
+            return null;
+        }
+        
+        @Override
+        public void onError(WebSocket socket, Throwable error) {
+            log.warn("Market stream error", "error", error.getMessage());
+            disconnected();
+        }
+    }
+}
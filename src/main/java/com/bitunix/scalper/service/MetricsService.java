@@ -0,0 +1,296 @@
+package com.bitunix.scalper.service;
+
+import com.bitunix.scalper.util.AsyncLog;
+import com.bitunix.scalper.util.LatencyHistogram;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * In-process metrics registry rendered in the Prometheus text format
+ * 
+ * Counters are LongAdders and timers are lock-free latency histograms, so
+ * updating a meter never blocks and never allocates once the meter exists.
+ * Hot paths should keep the handle returned by counter()/timer() instead of
+ * looking it up on every call. Rate limiter, pipeline latency and JVM
+ * figures are read from their sources at scrape time.
+ */
+@Service
+public class MetricsService {
+    
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+    
+    @Autowired
+    private RateLimiterService rateLimiterService;
+    
+    @Autowired
+    private LatencyTrackerService latencyTracker;
+    
+    public MetricsService() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+            if (sunThreadBean.isThreadAllocatedMemorySupported()) {
+                sunThreadBean.setThreadAllocatedMemoryEnabled(true);
+            }
+        }
+    }
+    
+    /**
+     * Get or create a counter
+     * 
+     * @param name Metric name, e.g. scalper_orders_total
+     * @param labels Alternating label names and values
+     */
+    public Counter counter(String name, String... labels) {
+        String labelText = formatLabels(labels);
+        return counters.computeIfAbsent(name + labelText, k -> new Counter(name, labelText));
+    }
+    
+    /**
+     * Get or create a timer (reported as a summary in seconds)
+     */
+    public Timer timer(String name, String... labels) {
+        String labelText = formatLabels(labels);
+        return timers.computeIfAbsent(name + labelText, k -> new Timer(name, labelText));
+    }
+    
+    /**
+     * Register a gauge whose value is read on every scrape
+     */
+    public void gauge(String name, Supplier<Number> value, String... labels) {
+        String labelText = formatLabels(labels);
+        gauges.put(name + labelText, new Gauge(name, labelText, value));
+    }
+    
+    /**
+     * Render all metrics in the Prometheus text exposition format (version 0.0.4)
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        
+        String lastName = null;
+        for (Counter counter : new TreeMap<>(counters).values()) {
+            if (!counter.name.equals(lastName)) {
+                appendType(out, counter.name, "counter");
+                lastName = counter.name;
+            }
+            appendSample(out, counter.name, counter.labels, counter.get());
+        }
+        
+        lastName = null;
+        for (Gauge gauge : new TreeMap<>(gauges).values()) {
+            if (!gauge.name.equals(lastName)) {
+                appendType(out, gauge.name, "gauge");
+                lastName = gauge.name;
+            }
+            Number value = gauge.value.get();
+            appendSample(out, gauge.name, gauge.labels, value != null ? value.doubleValue() : Double.NaN);
+        }
+        
+        lastName = null;
+        for (Timer timer : new TreeMap<>(timers).values()) {
+            if (!timer.name.equals(lastName)) {
+                appendType(out, timer.name, "summary");
+                lastName = timer.name;
+            }
+            appendSummary(out, timer.name, timer.labels, timer.histogram);
+        }
+        
+        appendPipelineLatency(out);
+        appendRateLimiter(out);
+        appendJvm(out);
+        appendLogging(out);
+        return out.toString();
+    }
+    
+    private void appendPipelineLatency(StringBuilder out) {
+        appendType(out, "scalper_pipeline_stage_seconds", "summary");
+        for (LatencyTrackerService.Stage stage : LatencyTrackerService.Stage.values()) {
+            appendSummary(out, "scalper_pipeline_stage_seconds", "stage=\"" + stage.name().toLowerCase() + "\"",
+                    latencyTracker.getHistogram(stage));
+        }
+    }
+    
+    private void appendRateLimiter(StringBuilder out) {
+        appendType(out, "scalper_rate_limiter_grants_total", "counter");
+        for (String api : rateLimiterService.getTrackedApis()) {
+            appendSample(out, "scalper_rate_limiter_grants_total", "api=\"" + escape(api) + "\"",
+                    rateLimiterService.getGrantedCount(api));
+        }
+        appendType(out, "scalper_rate_limiter_denials_total", "counter");
+        for (String api : rateLimiterService.getTrackedApis()) {
+            appendSample(out, "scalper_rate_limiter_denials_total", "api=\"" + escape(api) + "\"",
+                    rateLimiterService.getDeniedCount(api));
+        }
+    }
+    
+    private void appendJvm(StringBuilder out) {
+        appendType(out, "jvm_gc_collections_total", "counter");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            appendSample(out, "jvm_gc_collections_total", "gc=\"" + escape(gc.getName()) + "\"",
+                    Math.max(0, gc.getCollectionCount()));
+        }
+        appendType(out, "jvm_gc_collection_seconds_total", "counter");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            appendSample(out, "jvm_gc_collection_seconds_total", "gc=\"" + escape(gc.getName()) + "\"",
+                    Math.max(0, gc.getCollectionTime()) / 1000.0);
+        }
+        
+        MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+        appendType(out, "jvm_memory_heap_used_bytes", "gauge");
+        appendSample(out, "jvm_memory_heap_used_bytes", "", memoryBean.getHeapMemoryUsage().getUsed());
+        
+        // Bytes allocated by live threads; rate() of this approximates the allocation rate
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+            if (sunThreadBean.isThreadAllocatedMemoryEnabled()) {
+                long allocated = 0;
+                for (long bytes : sunThreadBean.getThreadAllocatedBytes(threadBean.getAllThreadIds())) {
+                    if (bytes > 0) {
+                        allocated += bytes;
+                    }
+                }
+                appendType(out, "jvm_threads_allocated_bytes", "gauge");
+                appendSample(out, "jvm_threads_allocated_bytes", "", allocated);
+            }
+        }
+    }
+    
+    private void appendLogging(StringBuilder out) {
+        appendType(out, "scalper_log_dropped_total", "counter");
+        appendSample(out, "scalper_log_dropped_total", "", AsyncLog.getDroppedCount());
+        appendType(out, "scalper_log_suppressed_total", "counter");
+        appendSample(out, "scalper_log_suppressed_total", "", AsyncLog.getSuppressedCount());
+    }
+    
+    private static void appendSummary(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        for (double quantile : QUANTILES) {
+            appendSample(out, name, prefix + "quantile=\"" + quantile + "\"",
+                    histogram.getValueAtPercentile(quantile * 100) / 1e9);
+        }
+        appendSample(out, name + "_sum", labels, histogram.getSum() / 1e9);
+        appendSample(out, name + "_count", labels, histogram.getCount());
+    }
+    
+    private static void appendType(StringBuilder out, String name, String type) {
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+    
+    private static void appendSample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+    
+    private static String formatLabels(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        return text.toString();
+    }
+    
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+    
+    /**
+     * Monotonic counter
+     */
+    public static class Counter {
+        private final String name;
+        private final String labels;
+        private final LongAdder value = new LongAdder();
+        
+        private Counter(String name, String labels) {
+            this.name = name;
+            this.labels = labels;
+        }
+        
+        public void increment() {
+            value.increment();
+        }
+        
+        public void add(long amount) {
+            value.add(amount);
+        }
+        
+        public long get() {
+            return value.sum();
+        }
+    }
+    
+    /**
+     * Duration timer backed by a latency histogram (nanoseconds)
+     */
+    public static class Timer {
+        private final String name;
+        private final String labels;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        
+        private Timer(String name, String labels) {
+            this.name = name;
+            this.labels = labels;
+        }
+        
+        public void record(long durationNanos) {
+            histogram.record(durationNanos);
+        }
+        
+        /**
+         * Record the time elapsed since startNanos (from System.nanoTime)
+         */
+        public void recordSince(long startNanos) {
+            histogram.record(System.nanoTime() - startNanos);
+        }
+        
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+    }
+    
+    private static class Gauge {
+        private final String name;
+        private final String labels;
+        private final Supplier<Number> value;
+        
+        private Gauge(String name, String labels, Supplier<Number> value) {
+            this.name = name;
+            this.labels = labels;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.bitunix.scalper.service;
+
+import com.bitunix.scalper.util.AsyncLog;
+import com.bitunix.scalper.util.TaskScope;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service for coalescing order requests into Bybit batch calls
+ *
+ * Orders, closing orders, amendments and cancellations submitted within a
+ * short window are sent together through create-batch / amend-batch /
+ * cancel-batch, so several entries of a scan round or a kill switch cost one
+ * signed request per batch instead of one per order. Each caller gets its own
+ * item result back. Closing orders are batched separately on the
+ * closing-order budget, which balance polling and entries cannot take.
+ */
+@Service
+public class OrderBatchService {
+    
+    private static final AsyncLog log = AsyncLog.getLogger(OrderBatchService.class);
+    
+    @Autowired
+    private BybitDemoTradingService bybitDemoTradingService;
+    
+    @Autowired
+    private MetricsService metricsService;
+    
+    @Autowired
+    private LatencyTrackerService latencyTracker;
+    
+    @Autowired
+    private IoExecutorService ioExecutorService;
+    
+    // Requests arriving within this window share a batch call
+    @Value("${bitunix.trading.batch-window-ms:10}")
+    private long batchWindowMs;
+    
+    // Batch calls of one flush are sent concurrently and abandoned after this
+    @Value("${bitunix.trading.batch-timeout-ms:15000}")
+    private long batchTimeoutMs;
+    
+    private final Map<BatchType, ConcurrentLinkedQueue<PendingItem>> queues = new EnumMap<>(BatchType.class);
+    private final Map<BatchType, AtomicBoolean> flushScheduled = new EnumMap<>(BatchType.class);
+    
+    // One thread per batch type, so a slow create-batch cannot hold back closing orders
+    private final ScheduledExecutorService flusher;
+    
+    public OrderBatchService() {
+        for (BatchType type : BatchType.values()) {
+            queues.put(type, new ConcurrentLinkedQueue<>());
+            flushScheduled.put(type, new AtomicBoolean(false));
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        flusher = Executors.newScheduledThreadPool(BatchType.values().length, r -> {
+            Thread thread = new Thread(r, "order-batch-flusher-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Queue an order for the next create-batch call
+     *
+     * @param category Product category
+     * @param order Order request body without category, see {@link BybitDemoTradingService#orderRequest}
+     * @return Future completed with the item result (code, msg, orderId, ...) or null on request failure
+     */
+    public CompletableFuture<JsonNode> submitOrder(String category, Map<String, Object> order) {
+        return enqueue(BatchType.CREATE, category, order);
+    }
+    
+    /**
+     * Queue a reduce-only order for the next create-batch call on the closing-order budget
+     *
+     * @param order Closing order body, see {@link BybitDemoTradingService#closingOrderRequest}
+     */
+    public CompletableFuture<JsonNode> submitClosingOrder(String category, Map<String, Object> order) {
+        return enqueue(BatchType.CLOSE, category, order);
+    }
+    
+    /**
+     * Queue an amendment for the next amend-batch call
+     */
+    public CompletableFuture<JsonNode> amendOrder(String category, Map<String, Object> amendment) {
+        return enqueue(BatchType.AMEND, category, amendment);
+    }
+    
+    /**
+     * Queue a cancellation for the next cancel-batch call
+     */
+    public CompletableFuture<JsonNode> cancelOrder(String category, String symbol, String orderId, String orderLinkId) {
+        return enqueue(BatchType.CANCEL, category,
+                bybitDemoTradingService.cancelRequest(symbol, orderId, orderLinkId));
+    }
+    
+    /**
+     * Wait for the result of a queued item
+     *
+     * @return Item result, or null if its batch call failed or timed out
+     */
+    public JsonNode await(CompletableFuture<JsonNode> item) {
+        try {
+            return item.get(batchWindowMs + batchTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Whether an item result reports the request as accepted by the exchange
+     */
+    public static boolean isAccepted(JsonNode result) {
+        return result != null && result.path("code").asInt(-1) == 0;
+    }
+    
+    /**
+     * Close every open position with reduce-only market orders (kill switch)
+     *
+     * Every result carries the symbol of its position, also when the batch
+     * call failed or timed out.
+     *
+     * @return Item results per closing order; empty if there is nothing to close
+     *         or positions could not be fetched
+     */
+    public List<JsonNode> flattenAllPositions(String category) {
+        JsonNode positions = bybitDemoTradingService.getPositions(category, null, RateLimiterService.Priority.HIGH);
+        List<Map<String, Object>> closingOrders = new ArrayList<>();
+        
+        JsonNode list = positions != null ? positions.path("result").path("list") : null;
+        if (list != null && list.isArray()) {
+            for (JsonNode position : list) {
+                String size = position.path("size").asText("0");
+                String side = position.path("side").asText("");
+                if (side.isEmpty() || side.equals("None") || Double.parseDouble(size) == 0.0) {
+                    continue;
+                }
+                closingOrders.add(bybitDemoTradingService.closingOrderRequest(position.path("symbol").asText(),
+                        side.equals("Buy") ? "Sell" : "Buy", size, null));
+            }
+        }
+        
+        if (closingOrders.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        log.info("Flattening positions", "count", closingOrders.size(), "category", category);
+        List<JsonNode> results = closeInBatches(category, closingOrders);
+        for (int i = 0; i < results.size(); i++) {
+            ObjectNode result = results.get(i) != null ? (ObjectNode) results.get(i)
+                    : JsonNodeFactory.instance.objectNode().put("code", -1).put("msg", "no response");
+            if (result.path("symbol").asText("").isEmpty()) {
+                result.put("symbol", (String) closingOrders.get(i).get("symbol"));
+            }
+            results.set(i, result);
+        }
+        return results;
+    }
+    
+    /**
+     * Send closing orders in as few batch calls as possible, right away
+     *
+     * Chunks wait for the closing-order budget until the batch timeout, so
+     * more chunks than the budget allows per second are sent late, not dropped.
+     *
+     * @return Item results in the order of the given list
+     */
+    private List<JsonNode> closeInBatches(String category, List<Map<String, Object>> orders) {
+        List<List<Map<String, Object>>> chunks = chunk(orders);
+        List<JsonNode> results = new ArrayList<>(orders.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchTimeoutMs);
+        try (TaskScope<List<JsonNode>> scope = ioExecutorService.openScope(deadline)) {
+            for (List<Map<String, Object>> chunk : chunks) {
+                scope.fork(() -> {
+                    long maxWaitMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    return bybitDemoTradingService.splitBatchResults(
+                            bybitDemoTradingService.closePositionBatch(category, chunk, Math.max(0, maxWaitMs)),
+                            chunk.size());
+                });
+            }
+            scope.join();
+            
+            for (int i = 0; i < chunks.size(); i++) {
+                List<JsonNode> chunkResults = scope.result(i);
+                for (int item = 0; item < chunks.get(i).size(); item++) {
+                    // A batch call that failed or timed out yields null item results
+                    JsonNode result = chunkResults != null ? chunkResults.get(item) : null;
+                    countResult(BatchType.CLOSE, result);
+                    results.add(result);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while closing positions", "category", category, "count", orders.size());
+            while (results.size() < orders.size()) {
+                results.add(null);
+            }
+        }
+        return results;
+    }
+    
+    private CompletableFuture<JsonNode> enqueue(BatchType type, String category, Map<String, Object> body) {
+        PendingItem item = new PendingItem(category, body);
+        queues.get(type).add(item);
+        
+        // The first item of a window schedules the flush; later items ride along
+        if (flushScheduled.get(type).compareAndSet(false, true)) {
+            flusher.schedule(() -> flush(type), batchWindowMs, TimeUnit.MILLISECONDS);
+        }
+        return item.future;
+    }
+    
+    /**
+     * Send everything queued for a batch type, grouped by category
+     */
+    private void flush(BatchType type) {
+        flushScheduled.get(type).set(false);
+        
+        Map<String, List<PendingItem>> byCategory = new LinkedHashMap<>();
+        PendingItem item;
+        while ((item = queues.get(type).poll()) != null) {
+            byCategory.computeIfAbsent(item.category, k -> new ArrayList<>()).add(item);
+        }
+        if (byCategory.isEmpty()) {
+            return;
+        }
+        
+        // Every batch call of this flush runs concurrently
+        List<List<PendingItem>> chunks = new ArrayList<>();
+        try (TaskScope<Boolean> scope = ioExecutorService.openScope(batchTimeoutMs, TimeUnit.MILLISECONDS)) {
+            for (Map.Entry<String, List<PendingItem>> entry : byCategory.entrySet()) {
+                for (List<PendingItem> chunk : chunk(entry.getValue())) {
+                    chunks.add(chunk);
+                    scope.fork(() -> {
+                        sendChunk(type, entry.getKey(), chunk);
+                        return Boolean.TRUE;
+                    });
+                }
+            }
+            scope.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        // Callers of abandoned batch calls must not wait forever
+        for (List<PendingItem> chunk : chunks) {
+            for (PendingItem pending : chunk) {
+                if (pending.future.completeExceptionally(new TimeoutException("Batch call timed out"))) {
+                    metricsService.counter("scalper_orders_total",
+                            "action", type.action, "state", "failed").increment();
+                }
+            }
+        }
+    }
+    
+    private void sendChunk(BatchType type, String category, List<PendingItem> chunk) {
+        List<Map<String, Object>> bodies = new ArrayList<>(chunk.size());
+        for (PendingItem pending : chunk) {
+            bodies.add(pending.body);
+        }
+        
+        try {
+            long sendStart = System.nanoTime();
+            JsonNode response;
+            switch (type) {
+                case CREATE:
+                    response = bybitDemoTradingService.placeOrderBatch(category, bodies);
+                    break;
+                case CLOSE:
+                    response = bybitDemoTradingService.closePositionBatch(category, bodies, 0);
+                    break;
+                case AMEND:
+                    response = bybitDemoTradingService.amendOrderBatch(category, bodies);
+                    break;
+                default:
+                    response = bybitDemoTradingService.cancelOrderBatch(category, bodies);
+                    break;
+            }
+            
+            List<JsonNode> results = bybitDemoTradingService.splitBatchResults(response, chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                JsonNode result = results.get(i);
+                if (response != null && type != BatchType.AMEND && type != BatchType.CANCEL) {
+                    String symbol = (String) chunk.get(i).body.get("symbol");
+                    latencyTracker.record(LatencyTrackerService.Stage.ACK, symbol, sendStart);
+                    if (type == BatchType.CREATE && isAccepted(result)) {
+                        latencyTracker.recordTickToTrade(symbol);
+                    }
+                }
+                countResult(type, result);
+                chunk.get(i).future.complete(result);
+            }
+        } catch (Exception e) {
+            log.error("Error sending batch", e, "type", type, "size", chunk.size());
+            metricsService.counter("scalper_orders_total",
+                    "action", type.action, "state", "failed").add(chunk.size());
+            for (PendingItem pending : chunk) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+    
+    private void countResult(BatchType type, JsonNode result) {
+        String state = isAccepted(result) ? "accepted" : "rejected";
+        metricsService.counter("scalper_orders_total", "action", type.action, "state", state).increment();
+    }
+    
+    static <T> List<List<T>> chunk(List<T> items) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += BybitDemoTradingService.MAX_BATCH_SIZE) {
+            chunks.add(items.subList(i, Math.min(i + BybitDemoTradingService.MAX_BATCH_SIZE, items.size())));
+        }
+        return chunks;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        for (BatchType type : BatchType.values()) {
+            flush(type);
+        }
+        flusher.shutdown();
+    }
+    
+    private enum BatchType {
+        CREATE("create"),
+        CLOSE("close"),
+        AMEND("amend"),
+        CANCEL("cancel");
+        
+        // Action label of scalper_orders_total
+        private final String action;
+        
+        BatchType(String action) {
+            this.action = action;
+        }
+    }
+    
+    /**
+     * Inner class for a queued batch item
+     */
+    private static class PendingItem {
+        private final String category;
+        private final Map<String, Object> body;
+        private final CompletableFuture<JsonNode> future = new CompletableFuture<>();
+        
+        public PendingItem(String category, Map<String, Object> body) {
+            this.category = category;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.bitunix.scalper.service;
+
+import com.bitunix.scalper.model.TradingPair;
+import com.bitunix.scalper.strategy.OrderBook;
+import com.bitunix.scalper.util.SymbolTable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Local L2 order books from the order book stream
+ * 
+ * Snapshots and deltas arrive on the market feed thread, the only writer of
+ * every {@link OrderBook}. A book counts as current only when it was
+ * rebuilt from a snapshot on the current stream connection and has seen no
+ * gap since; strategies and order sizing read it lock-free.
+ */
+@Service
+public class OrderBookService {
+    
+    @Value("${bitunix.book.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${bitunix.book.depth:50}")
+    private int depth;
+    
+    @Value("${bitunix.book.imbalance-levels:5}")
+    private int imbalanceLevels;
+    
+    @Autowired
+    private SymbolRegistryService symbolRegistry;
+    
+    @Autowired
+    private MetricsService metricsService;
+    
+    private final SymbolTable<Entry> books = new SymbolTable<>();
+    // Incremented on every stream (re)connect; books from older connections are not current
+    private volatile long connection;
+    private volatile boolean connected;
+    private MetricsService.Counter updates;
+    private MetricsService.Counter gaps;
+    
+    @PostConstruct
+    public void init() {
+        updates = metricsService.counter("scalper_book_updates_total");
+        gaps = metricsService.counter("scalper_book_gaps_total");
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Depth of the order book topic (levels per side)
+     */
+    public int getDepth() {
+        return depth;
+    }
+    
+    public void onConnected() {
+        connection++;
+        connected = true;
+    }
+    
+    public void onDisconnected() {
+        connected = false;
+    }
+    
+    /**
+     * Apply a snapshot or delta (market feed thread only)
+     * 
+     * @param bids Bid levels as price, size pairs (size 0 removes the level)
+     * @param asks Ask levels as price, size pairs
+     * @param time Exchange time of the update (epoch millis)
+     * @return false if this delta revealed a gap: the book is out of sync and
+     *         needs a new snapshot (resubscribe); deltas are ignored until then
+     */
+    public boolean apply(String symbol, boolean snapshot, long updateId, long time,
+                         double[] bids, int bidLevels, double[] asks, int askLevels) {
+        int symbolId = symbolRegistry.find(symbol);
+        if (symbolId == SymbolRegistryService.UNKNOWN) {
+            return true;
+        }
+        Entry entry = books.get(symbolId);
+        if (entry == null) {
+            // Room for levels pushed out of the topic depth and back within one delta
+            entry = new Entry(new OrderBook(depth * 2));
+            books.put(symbolId, entry);
+        }
+        OrderBook book = entry.book;
+        boolean wasSynced = book.isSynced();
+        if (!book.begin(updateId, snapshot)) {
+            if (wasSynced) {
+                gaps.increment();
+            }
+            return !wasSynced;
+        }
+        for (int i = 0; i < bidLevels; i++) {
+            book.update(true, bids[2 * i], bids[2 * i + 1]);
+        }
+        for (int i = 0; i < askLevels; i++) {
+            book.update(false, asks[2 * i], asks[2 * i + 1]);
+        }
+        book.end(time);
+        if (snapshot) {
+            entry.connection = connection;
+        }
+        updates.increment();
+        return true;
+    }
+    
+    /**
+     * Order book of a pair's symbol if it is current, else null
+     */
+    public OrderBook book(TradingPair pair) {
+        int symbolId = pair.getSymbolId() != SymbolRegistryService.UNKNOWN
+                ? pair.getSymbolId() : symbolRegistry.find(pair.getSymbol());
+        Entry entry = books.get(symbolId);
+        if (entry == null || !connected || entry.connection != connection) {
+            return null;
+        }
+        return entry.book;
+    }
+    
+    /**
+     * Copy the top of a pair's book (best bid / ask, spread, microprice, depth imbalance)
+     * 
+     * @return false if there is no current, in-sync book for the symbol
+     */
+    public boolean quote(TradingPair pair, OrderBook.Quote quote) {
+        OrderBook book = book(pair);
+        return book != null && book.readQuote(quote, imbalanceLevels);
+    }
+    
+    private static final class Entry {
+        private final OrderBook book;
+        // Connection the last snapshot arrived on
+        private volatile long connection = -1;
+        
+        private Entry(OrderBook book) {
+            this.book = book;
+        }
+    }
+}
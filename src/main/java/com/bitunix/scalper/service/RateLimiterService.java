@@ -2,8 +2,10 @@ package com.bitunix.scalper.service;
 
 import org.springframework.stereotype.Service;
 
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 public class RateLimiterService {
@@ -11,30 +13,83 @@ public class RateLimiterService {
     private final ConcurrentHashMap<String, AtomicLong> requestCounters = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, Long> lastResetTimes = new ConcurrentHashMap<>();
     
+    // Накопительная статистика для метрик (не сбрасывается вместе с окном)
+    private final ConcurrentHashMap<String, LongAdder> grantedCounts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> deniedCounts = new ConcurrentHashMap<>();
+    
     // Максимум 1 запрос в 90 секунд
     private static final int MAX_REQUESTS_PER_WINDOW = 1;
     private static final long TIME_WINDOW_MS = 90000; // 90 секунд
     
+    // Отдельный бюджет для приоритетных запросов (ордера, защита и закрытие позиций): 5 запросов в секунду
+    private static final int HIGH_PRIORITY_REQUESTS_PER_WINDOW = 5;
+    private static final long HIGH_PRIORITY_WINDOW_MS = 1000;
+    private static final String HIGH_PRIORITY_SUFFIX = ":high";
+    
+    /**
+     * Приоритет запроса
+     */
+    public enum Priority {
+        // Общий бюджет API (вход в сделки, обновление данных)
+        NORMAL,
+        // Собственный бюджет, который не расходуется обычными запросами
+        HIGH
+    }
+    
     /**
      * Проверяет, можно ли выполнить запрос
      */
     public boolean canMakeRequest(String apiName) {
+        return acquire(apiName, MAX_REQUESTS_PER_WINDOW, TIME_WINDOW_MS);
+    }
+    
+    /**
+     * Проверяет, можно ли выполнить запрос с заданным приоритетом.
+     * Приоритетные запросы учитываются отдельно (ключ apiName + ":high"),
+     * поэтому обычные запросы не могут исчерпать их лимит.
+     */
+    public boolean canMakeRequest(String apiName, Priority priority) {
+        return record(keyOf(apiName, priority), tryAcquire(apiName, priority));
+    }
+    
+    private boolean acquire(String key, int maxRequests, long windowMs) {
+        return record(key, tryAcquire(key, maxRequests, windowMs));
+    }
+    
+    private boolean tryAcquire(String apiName, Priority priority) {
+        if (priority == Priority.HIGH) {
+            return tryAcquire(apiName + HIGH_PRIORITY_SUFFIX, HIGH_PRIORITY_REQUESTS_PER_WINDOW, HIGH_PRIORITY_WINDOW_MS);
+        }
+        return tryAcquire(apiName, MAX_REQUESTS_PER_WINDOW, TIME_WINDOW_MS);
+    }
+    
+    private static String keyOf(String apiName, Priority priority) {
+        return priority == Priority.HIGH ? apiName + HIGH_PRIORITY_SUFFIX : apiName;
+    }
+    
+    // Учитывает результат в статистике (одна запись на запрос)
+    private boolean record(String key, boolean allowed) {
+        (allowed ? grantedCounts : deniedCounts).computeIfAbsent(key, k -> new LongAdder()).increment();
+        return allowed;
+    }
+    
+    // Берет запрос из окна, не трогая статистику
+    private boolean tryAcquire(String key, int maxRequests, long windowMs) {
         long currentTime = System.currentTimeMillis();
-        String key = apiName;
         
         // Получаем или создаем счетчик для данного API
         AtomicLong counter = requestCounters.computeIfAbsent(key, k -> new AtomicLong(0));
         Long lastResetTime = lastResetTimes.get(key);
         
-        // Если прошло 90 секунд, сбрасываем счетчик
-        if (lastResetTime == null || (currentTime - lastResetTime) >= TIME_WINDOW_MS) {
+        // Если окно прошло, сбрасываем счетчик
+        if (lastResetTime == null || (currentTime - lastResetTime) >= windowMs) {
             counter.set(0);
             lastResetTimes.put(key, currentTime);
         }
         
         // Проверяем, не превышен ли лимит
         long currentCount = counter.incrementAndGet();
-        return currentCount <= MAX_REQUESTS_PER_WINDOW;
+        return currentCount <= maxRequests;
     }
     
     /**
@@ -57,6 +112,34 @@ public class RateLimiterService {
         }
     }
     
+    /**
+     * Ждет свободный запрос с заданным приоритетом, но не дольше maxWaitMs.
+     * При maxWaitMs = 0 делает одну попытку, как canMakeRequest.
+     * Повторные попытки не учитываются в статистике: весь вызов дает
+     * одно разрешение или один отказ.
+     *
+     * @return true, если запрос разрешен
+     */
+    public boolean waitForRequest(String apiName, Priority priority, long maxWaitMs) {
+        String key = keyOf(apiName, priority);
+        long deadline = System.currentTimeMillis() + maxWaitMs;
+        
+        while (!tryAcquire(apiName, priority)) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return record(key, false);
+            }
+            try {
+                // Ждем до сброса окна, но не дольше оставшегося времени
+                Thread.sleep(Math.max(1, Math.min(getTimeUntilReset(key), remaining)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return record(key, false);
+            }
+        }
+        return record(key, true);
+    }
+    
     /**
      * Получает текущий счетчик запросов
      */
@@ -65,6 +148,31 @@ public class RateLimiterService {
         return counter != null ? counter.get() : 0;
     }
     
+    /**
+     * Получает общее число разрешенных запросов
+     */
+    public long getGrantedCount(String apiName) {
+        LongAdder granted = grantedCounts.get(apiName);
+        return granted != null ? granted.sum() : 0;
+    }
+    
+    /**
+     * Получает общее число отклоненных запросов
+     */
+    public long getDeniedCount(String apiName) {
+        LongAdder denied = deniedCounts.get(apiName);
+        return denied != null ? denied.sum() : 0;
+    }
+    
+    /**
+     * Получает список API, для которых есть статистика
+     */
+    public Set<String> getTrackedApis() {
+        Set<String> apis = new java.util.TreeSet<>(grantedCounts.keySet());
+        apis.addAll(deniedCounts.keySet());
+        return apis;
+    }
+    
     /**
      * Получает оставшееся время до сброса счетчика
      */
@@ -76,7 +184,8 @@ public class RateLimiterService {
         
         long currentTime = System.currentTimeMillis();
         long timePassed = currentTime - lastResetTime;
-        long timeUntilReset = TIME_WINDOW_MS - timePassed;
+        long windowMs = apiName.endsWith(HIGH_PRIORITY_SUFFIX) ? HIGH_PRIORITY_WINDOW_MS : TIME_WINDOW_MS;
+        long timeUntilReset = windowMs - timePassed;
         
         return Math.max(0, timeUntilReset);
     }
@@ -0,0 +1,291 @@
+package com.bitunix.scalper.service;
+
+import com.bitunix.scalper.model.StateSnapshot;
+import com.bitunix.scalper.model.Trade;
+import com.bitunix.scalper.scheduler.TradingScheduler;
+import com.bitunix.scalper.util.AsyncLog;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Service for crash recovery of the bot's in-memory state
+ * 
+ * The scheduler state (active trades, balance, trading flag) is written to a
+ * JSON snapshot every snapshot interval. The snapshot records the last trade
+ * journal event it reflects, so on startup the state is rebuilt from the
+ * snapshot plus only the journal events written after it - recovery time is
+ * bounded by the snapshot interval, not by uptime. The rebuilt state is then
+ * reconciled against open exchange positions.
+ * 
+ * Indicator values are not snapshotted: they are recomputed from exchange
+ * klines on the first trading cycle.
+ */
+@Service
+public class StateRecoveryService {
+    
+    private static final AsyncLog log = AsyncLog.getLogger(StateRecoveryService.class);
+    
+    private static final String RECOVERED_STRATEGY = "RECOVERED";
+    
+    @Value("${bitunix.recovery.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${bitunix.recovery.snapshot-path:./data/state-snapshot.json}")
+    private String snapshotPath;
+    
+    @Value("${bitunix.recovery.resume-trading:true}")
+    private boolean resumeTrading;
+    
+    @Value("${bitunix.trading.place-orders:true}")
+    private boolean placeOrders;
+    
+    @Value("${bitunix.trading.category:linear}")
+    private String category;
+    
+    @Autowired
+    private TradingScheduler tradingScheduler;
+    
+    @Autowired
+    private TradeJournalService tradeJournalService;
+    
+    @Autowired
+    private BybitDemoTradingService bybitDemoTradingService;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    
+    // Snapshots are only taken once recovery has finished, so an empty
+    // pre-recovery state never overwrites the last good snapshot
+    private final AtomicBoolean recovered = new AtomicBoolean(false);
+    
+    /**
+     * Rebuild state on startup: snapshot, journal tail, exchange reconciliation
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        if (!enabled) {
+            recovered.set(true);
+            return;
+        }
+        
+        long start = System.currentTimeMillis();
+        StateSnapshot snapshot = readSnapshot();
+        
+        // Apply journal events written after the snapshot
+        Map<String, Trade> trades = new LinkedHashMap<>();
+        for (Trade trade : snapshot.getActiveTrades()) {
+            if (isActive(trade)) {
+                trades.put(trade.getSymbol(), trade);
+            }
+        }
+        List<Trade> tail = tradeJournalService.loadTradesChangedAfter(snapshot.getLastEventId());
+        for (Trade trade : tail) {
+            if (isActive(trade)) {
+                trades.put(trade.getSymbol(), trade);
+            } else {
+                Trade current = trades.get(trade.getSymbol());
+                if (current != null && sameTrade(current, trade)) {
+                    trades.remove(trade.getSymbol());
+                }
+            }
+        }
+        
+        int reconciled = placeOrders ? reconcileWithExchange(trades) : 0;
+        
+        tradingScheduler.restoreState(new ArrayList<>(trades.values()), snapshot.getAvailableBalance(),
+                resumeTrading && snapshot.isTradingEnabled());
+        recovered.set(true);
+        takeSnapshot();
+        
+        log.info("State recovered", "openTrades", trades.size(), "journalTail", tail.size(),
+                "reconciled", reconciled, "tradingEnabled", tradingScheduler.isTradingEnabled(),
+                "durationMs", System.currentTimeMillis() - start);
+    }
+    
+    /**
+     * Write a snapshot of the current state - runs every snapshot interval
+     */
+    @Scheduled(fixedRateString = "${bitunix.recovery.snapshot-interval-ms:30000}")
+    public void takeSnapshot() {
+        if (!enabled || !recovered.get()) {
+            return;
+        }
+        
+        // Read the journal position first: anything that changes after this point
+        // has a later event id and is replayed on top of the snapshot
+        StateSnapshot snapshot = new StateSnapshot();
+        snapshot.setLastEventId(tradeJournalService.getLastEventId());
+        snapshot.setTakenAt(System.currentTimeMillis());
+        snapshot.setTradingEnabled(tradingScheduler.isTradingEnabled());
+        snapshot.setAvailableBalance(tradingScheduler.getAvailableBalance());
+        snapshot.setActiveTrades(new ArrayList<>(tradingScheduler.getActiveTrades().values()));
+        
+        try {
+            writeSnapshot(snapshot);
+        } catch (IOException e) {
+            log.error("Error writing state snapshot", e, "path", snapshotPath);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        takeSnapshot();
+    }
+    
+    /**
+     * Align recovered trades with the positions the exchange actually holds
+     * 
+     * @return Number of trades adjusted or adopted
+     */
+    private int reconcileWithExchange(Map<String, Trade> trades) {
+        JsonNode response = bybitDemoTradingService.getPositions(category, null);
+        JsonNode list = response != null ? response.path("result").path("list") : null;
+        if (list == null || !list.isArray() || response.path("retCode").asInt(-1) != 0) {
+            log.warn("Could not fetch exchange positions, keeping recovered trades unreconciled");
+            return 0;
+        }
+        
+        Map<String, JsonNode> positions = new HashMap<>();
+        for (JsonNode position : list) {
+            String side = position.path("side").asText("");
+            BigDecimal size = parseDecimal(position.path("size").asText());
+            if (!side.isEmpty() && !side.equals("None") && size != null && size.signum() > 0) {
+                positions.put(position.path("symbol").asText(), position);
+            }
+        }
+        
+        int reconciled = 0;
+        
+        // Trades closed on the exchange while the bot was down
+        for (Trade trade : new ArrayList<>(trades.values())) {
+            // A pending limit entry has no position yet; the exit monitor follows its order
+            if (trade.getStatus() != Trade.TradeStatus.PENDING && !positions.containsKey(trade.getSymbol())) {
+                trade.setStatus(Trade.TradeStatus.CANCELLED);
+                trade.setExitTime(LocalDateTime.now());
+                trade.setNotes("No exchange position found during recovery");
+                tradeJournalService.record(TradeJournalService.EventType.RECONCILED, trade);
+                trades.remove(trade.getSymbol());
+                reconciled++;
+            }
+        }
+        
+        // Exchange positions the bot does not know about: adopt them so that they are managed
+        for (Map.Entry<String, JsonNode> entry : positions.entrySet()) {
+            if (trades.containsKey(entry.getKey())) {
+                continue;
+            }
+            Trade trade = adoptPosition(entry.getValue());
+            tradeJournalService.record(TradeJournalService.EventType.RECONCILED, trade);
+            trades.put(trade.getSymbol(), trade);
+            reconciled++;
+            log.warn("Adopted orphaned exchange position", "symbol", trade.getSymbol(),
+                    "side", trade.getType(), "qty", trade.getQuantity());
+        }
+        
+        return reconciled;
+    }
+    
+    private Trade adoptPosition(JsonNode position) {
+        Trade trade = new Trade();
+        trade.setSymbol(position.path("symbol").asText());
+        trade.setType("Sell".equals(position.path("side").asText()) ? Trade.TradeType.SELL : Trade.TradeType.BUY);
+        trade.setStatus(Trade.TradeStatus.OPEN);
+        trade.setQuantity(parseDecimal(position.path("size").asText()));
+        trade.setEntryPrice(parseDecimal(position.path("avgPrice").asText()));
+        trade.setStopLossPrice(parsePrice(position.path("stopLoss").asText()));
+        trade.setTakeProfitPrice(parsePrice(position.path("takeProfit").asText()));
+        trade.setTotalFees(BigDecimal.ZERO);
+        trade.setStrategy(RECOVERED_STRATEGY);
+        trade.setEntryTime(LocalDateTime.now());
+        trade.setOrderLinkId("rc" + UUID.randomUUID().toString().replace("-", "").substring(0, 24));
+        trade.setNotes("Adopted from exchange position during recovery");
+        return trade;
+    }
+    
+    private StateSnapshot readSnapshot() {
+        Path path = Paths.get(snapshotPath);
+        if (!Files.exists(path)) {
+            return new StateSnapshot();
+        }
+        try {
+            return objectMapper.readValue(path.toFile(), StateSnapshot.class);
+        } catch (IOException e) {
+            // Fall back to replaying the whole journal
+            log.error("Unreadable state snapshot, replaying full journal", e, "path", snapshotPath);
+            return new StateSnapshot();
+        }
+    }
+    
+    /**
+     * Write to a temp file, fsync it, then atomically replace the previous snapshot
+     */
+    private synchronized void writeSnapshot(StateSnapshot snapshot) throws IOException {
+        Path path = Paths.get(snapshotPath).toAbsolutePath();
+        Files.createDirectories(path.getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        
+        ByteBuffer buffer = ByteBuffer.wrap(objectMapper.writeValueAsBytes(snapshot));
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private static boolean sameTrade(Trade a, Trade b) {
+        return a.getOrderLinkId() != null && a.getOrderLinkId().equals(b.getOrderLinkId());
+    }
+    
+    /**
+     * Open trade, or limit entry still waiting for its fill
+     */
+    private static boolean isActive(Trade trade) {
+        return trade.getStatus() == Trade.TradeStatus.OPEN || trade.getStatus() == Trade.TradeStatus.PENDING;
+    }
+    
+    private static BigDecimal parseDecimal(String value) {
+        try {
+            return value == null || value.isEmpty() ? null : new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    private static BigDecimal parsePrice(String value) {
+        BigDecimal price = parseDecimal(value);
+        return price != null && price.signum() > 0 ? price : null;
+    }
+}
@@ -1,7 +1,12 @@
 package com.bitunix.scalper.service;
 
+import com.bitunix.scalper.model.Trade;
+import com.bitunix.scalper.model.TradingConfig;
 import com.bitunix.scalper.model.TradingPair;
+import com.bitunix.scalper.strategy.SignalResult;
 import com.bitunix.scalper.strategy.TradingStrategyInterface;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -10,22 +15,49 @@ import java.util.List;
 
 /**
  * Service for evaluating and ranking trading strategies
+ * 
+ * Entry signals are ranked net of execution costs: a signal whose expected
+ * edge (distance to its target, or to the configured take profit) does not
+ * beat the round-trip cost scores zero.
  */
 @Service
 public class StrategyEvaluationService {
     
+    // Expected edge must exceed round-trip cost by this factor
+    @Value("${bitunix.costs.min-edge-ratio:1.0}")
+    private double minEdgeRatio;
+    
+    @Autowired
+    private ExecutionCostService executionCostService;
+    
+    @Autowired
+    private TradingConfigService configService;
+    
     /**
      * Evaluate strategy for a given trading pair
      * Returns score from 0.0 to 1.0
      */
     public double evaluateStrategy(TradingPair pair, TradingStrategyInterface strategy, 
                                   List<TradingPair> historicalData) {
+        SignalResult signal = new SignalResult();
+        strategy.evaluate(pair, historicalData, signal);
+        // No position size here: costs at the typical slippage
+        return scoreSignal(pair, strategy, signal, Double.NaN);
+    }
+    
+    /**
+     * Score a signal the strategy has already evaluated
+     * Returns score from 0.0 to 1.0
+     * 
+     * @param quantity Planned position size in base units, which the round-trip cost is estimated for
+     */
+    public double scoreSignal(TradingPair pair, TradingStrategyInterface strategy, SignalResult signal,
+                              double quantity) {
         double score = 0.0;
         
         // Factor 1: Strategy signal strength (0-0.4)
-        if (strategy.shouldEnter(pair, historicalData)) {
-            double signalStrength = calculateSignalStrength(pair, strategy);
-            score += signalStrength * 0.4;
+        if (signal.isEntry()) {
+            score += signal.getStrength() * 0.4;
         }
         
         // Factor 2: Technical indicators alignment (0-0.3)
@@ -40,58 +72,41 @@ public class StrategyEvaluationService {
         double priorityScore = strategy.getPriority() / 10.0; // Normalize to 0-1
         score += Math.min(priorityScore, 1.0) * 0.1;
         
-        return Math.min(score, 1.0);
+        // Factor 5: Share of the expected edge eaten by execution costs (up to -0.2)
+        if (signal.isEntry()) {
+            double costShare = costShare(pair, signal, quantity);
+            if (!(costShare * minEdgeRatio < 1.0)) {
+                return 0.0;
+            }
+            score -= costShare * 0.2;
+        }
+        
+        return Math.max(0.0, Math.min(score, 1.0));
     }
     
     /**
-     * Calculate signal strength for strategy
+     * Round-trip execution cost as a share of the signal's expected edge (NaN or >= 1 when the edge does not cover it)
      */
-    private double calculateSignalStrength(TradingPair pair, TradingStrategyInterface strategy) {
-        String strategyName = strategy.getName();
-        
-        // RSI Scalping
-        if (strategyName.contains("RSI")) {
-            if (pair.getRsi() != null) {
-                double rsi = pair.getRsi().doubleValue();
-                if (rsi < 30) {
-                    return 1.0 - (rsi / 30.0); // Stronger signal when RSI is lower
-                } else if (rsi > 70) {
-                    return 1.0 - ((100 - rsi) / 30.0); // Stronger signal when RSI is higher
-                }
-            }
+    private double costShare(TradingPair pair, SignalResult signal, double quantity) {
+        double entryPrice = signal.getEntryPrice();
+        if (!(entryPrice > 0)) {
+            return Double.NaN;
         }
-        
-        // Bollinger Bounce
-        if (strategyName.contains("Bollinger")) {
-            if (pair.getBollingerLower() != null && pair.getBollingerUpper() != null) {
-                double price = pair.getPrice().doubleValue();
-                double lower = pair.getBollingerLower().doubleValue();
-                double upper = pair.getBollingerUpper().doubleValue();
-                double range = upper - lower;
-                
-                if (range > 0) {
-                    double distanceFromLower = (price - lower) / range;
-                    double distanceFromUpper = (upper - price) / range;
-                    return Math.max(distanceFromLower, distanceFromUpper);
-                }
-            }
-        }
-        
-        // EMA Crossover
-        if (strategyName.contains("EMA")) {
-            if (pair.getEma12() != null && pair.getEma26() != null) {
-                double ema12 = pair.getEma12().doubleValue();
-                double ema26 = pair.getEma26().doubleValue();
-                
-                if (ema26 > 0) {
-                    double crossoverStrength = Math.abs(ema12 - ema26) / ema26;
-                    return Math.min(crossoverStrength * 10, 1.0);
-                }
+        double edgeBps;
+        if (signal.hasTargetPrice()) {
+            edgeBps = Math.abs(signal.getTargetPrice() - entryPrice) / entryPrice * 10_000;
+        } else {
+            TradingConfig config = configService.getActiveConfig();
+            Double takeProfitPercent = config.getTakeProfitPercent();
+            if (takeProfitPercent == null || takeProfitPercent <= 0) {
+                // No target: nothing to weigh the cost against
+                return 0.0;
             }
+            edgeBps = takeProfitPercent * 100;
         }
-        
-        // Default: moderate signal
-        return 0.5;
+        boolean buy = signal.getDirection() == Trade.TradeType.BUY;
+        double costBps = executionCostService.roundTripBps(pair, buy, quantity);
+        return edgeBps > 0 ? costBps / edgeBps : Double.NaN;
     }
     
     /**
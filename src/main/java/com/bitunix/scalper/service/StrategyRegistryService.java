@@ -0,0 +1,91 @@
+package com.bitunix.scalper.service;
+
+import com.bitunix.scalper.model.Trade;
+import com.bitunix.scalper.strategy.TradingStrategyInterface;
+import com.bitunix.scalper.util.AsyncLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of strategy beans with integer ids
+ * 
+ * Built once at startup: strategies are sorted by name and numbered from 0,
+ * so lookups by id are an array load. Trades remember the id of their
+ * strategy, which removes the per-trade scan over all strategies by name.
+ */
+@Service
+public class StrategyRegistryService {
+    
+    private static final AsyncLog log = AsyncLog.getLogger(StrategyRegistryService.class);
+    
+    public static final int UNKNOWN = -1;
+    
+    @Autowired
+    private List<TradingStrategyInterface> strategyBeans;
+    
+    private TradingStrategyInterface[] strategies;
+    private List<TradingStrategyInterface> strategyList;
+    private final Map<String, Integer> idsByName = new HashMap<>();
+    private final Map<TradingStrategyInterface, Integer> ids = new IdentityHashMap<>();
+    
+    @PostConstruct
+    public void init() {
+        strategies = strategyBeans.stream()
+                .sorted(Comparator.comparing(TradingStrategyInterface::getName))
+                .toArray(TradingStrategyInterface[]::new);
+        for (int id = 0; id < strategies.length; id++) {
+            ids.put(strategies[id], id);
+            if (idsByName.putIfAbsent(strategies[id].getName(), id) != null) {
+                throw new IllegalStateException("Duplicate strategy name: " + strategies[id].getName());
+            }
+        }
+        strategyList = Collections.unmodifiableList(Arrays.asList(strategies));
+        log.info("Strategies registered", "count", strategies.length);
+    }
+    
+    public TradingStrategyInterface get(int id) {
+        return id >= 0 && id < strategies.length ? strategies[id] : null;
+    }
+    
+    public int idOf(TradingStrategyInterface strategy) {
+        Integer id = ids.get(strategy);
+        return id != null ? id : UNKNOWN;
+    }
+    
+    public int idOf(String name) {
+        Integer id = name != null ? idsByName.get(name) : null;
+        return id != null ? id : UNKNOWN;
+    }
+    
+    /**
+     * Strategy that opened a trade; the id is resolved from the name once for trades loaded from disk
+     */
+    public TradingStrategyInterface forTrade(Trade trade) {
+        int id = trade.getStrategyId();
+        if (id == UNKNOWN) {
+            id = idOf(trade.getStrategy());
+            trade.setStrategyId(id);
+        }
+        return get(id);
+    }
+    
+    /**
+     * All strategies in id order
+     */
+    public List<TradingStrategyInterface> getAll() {
+        return strategyList;
+    }
+    
+    public int size() {
+        return strategies.length;
+    }
+}
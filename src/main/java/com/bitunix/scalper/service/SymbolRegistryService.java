@@ -0,0 +1,92 @@
+package com.bitunix.scalper.service;
+
+import com.bitunix.scalper.model.TradingPair;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interns trading symbols to dense integer ids
+ * 
+ * Ids are assigned in registration order starting at 0 and never reused, so
+ * per-symbol state can live in arrays indexed by id ({@link com.bitunix.scalper.util.SymbolTable})
+ * instead of String-keyed maps. All exchange instruments are registered when
+ * the instrument metadata is loaded; unknown symbols get an id on first sight.
+ */
+@Service
+public class SymbolRegistryService {
+    
+    public static final int UNKNOWN = -1;
+    
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] symbols = new String[256];
+    private volatile int size;
+    
+    /**
+     * Id of a symbol, registering it if needed
+     */
+    public int idOf(String symbol) {
+        Integer id = ids.get(symbol);
+        return id != null ? id : register(symbol);
+    }
+    
+    /**
+     * Id carried by a parsed pair, falling back to a lookup by symbol
+     */
+    public int idOf(TradingPair pair) {
+        int id = pair.getSymbolId();
+        if (id == UNKNOWN) {
+            id = idOf(pair.getSymbol());
+            pair.setSymbolId(id);
+        }
+        return id;
+    }
+    
+    /**
+     * Id of an already registered symbol, or UNKNOWN
+     */
+    public int find(String symbol) {
+        Integer id = ids.get(symbol);
+        return id != null ? id : UNKNOWN;
+    }
+    
+    /**
+     * Register symbols in sorted order, so ids are stable across restarts with the same instrument list
+     */
+    public void registerAll(Collection<String> newSymbols) {
+        newSymbols.stream().sorted().forEach(this::idOf);
+    }
+    
+    public String symbolOf(int id) {
+        return id >= 0 && id < size ? symbols[id] : null;
+    }
+    
+    /**
+     * Number of registered symbols; all ids are below this value
+     */
+    public int size() {
+        return size;
+    }
+    
+    private synchronized int register(String symbol) {
+        Integer existing = ids.get(symbol);
+        if (existing != null) {
+            return existing;
+        }
+        
+        int id = size;
+        String[] current = symbols;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[id] = symbol;
+        symbols = current;
+        // Publish the array slot before the id becomes visible to lock-free readers
+        size = id + 1;
+        ids.put(symbol, id);
+        return id;
+    }
+}
@@ -0,0 +1,46 @@
+package com.bitunix.scalper.service;
+
+import com.bitunix.scalper.util.SymbolScale;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per-symbol fixed-point layouts used by the trading core
+ * 
+ * Exchange step sizes are registered when known; otherwise a layout is
+ * inferred from the first price seen for the symbol and kept from then on,
+ * so values of one symbol are always at the same scale.
+ */
+@Service
+public class SymbolScaleService {
+    
+    private final ConcurrentMap<String, SymbolScale> scales = new ConcurrentHashMap<>();
+    
+    /**
+     * Layout for a symbol, inferring one from referencePrice if none is registered
+     */
+    public SymbolScale getScale(String symbol, double referencePrice) {
+        SymbolScale scale = scales.get(symbol);
+        if (scale == null) {
+            SymbolScale inferred = SymbolScale.infer(symbol, referencePrice);
+            scale = scales.putIfAbsent(symbol, inferred);
+            if (scale == null) {
+                scale = inferred;
+            }
+        }
+        return scale;
+    }
+    
+    /**
+     * Register (or replace) the layout of a symbol from exchange metadata
+     */
+    public void register(SymbolScale scale) {
+        scales.put(scale.getSymbol(), scale);
+    }
+    
+    public SymbolScale findScale(String symbol) {
+        return scales.get(symbol);
+    }
+}
@@ -1,6 +1,7 @@
 package com.bitunix.scalper.service;
 
 import com.bitunix.scalper.model.TradingPair;
+import com.bitunix.scalper.strategy.FeatureSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -12,6 +13,9 @@ import java.util.List;
 @Service
 public class TechnicalAnalysisService {
     
+    // Bybit returns the candle that is still forming first
+    private static final int FORMING_CANDLES = 1;
+    
     @Autowired
     private TradingConfigService configService;
     
@@ -202,4 +206,50 @@ public class TechnicalAnalysisService {
             pair.setResistanceLevel(supportResistance[1]);
         }
     }
+    
+    /**
+     * Refresh a symbol's feature snapshot and copy its indicators onto the pair
+     * 
+     * The snapshot is recomputed only when a new candle has closed (klines
+     * newest first, the forming candle is skipped); otherwise - including when
+     * no klines could be fetched - the last snapshot is kept.
+     * 
+     * @return true if the snapshot was recomputed
+     */
+    public boolean updateFeatures(TradingPair pair, FeatureSnapshot features, List<TradingPair> klines) {
+        boolean updated = features.update(klines, FORMING_CANDLES, getFeatureSettings());
+        
+        if (!Double.isNaN(features.getRsi())) {
+            pair.setRsi(BigDecimal.valueOf(features.getRsi()).setScale(4, RoundingMode.HALF_UP));
+        }
+        if (!Double.isNaN(features.getBollingerUpper())) {
+            pair.setBollingerUpper(BigDecimal.valueOf(features.getBollingerUpper()));
+            pair.setBollingerLower(BigDecimal.valueOf(features.getBollingerLower()));
+        }
+        if (!Double.isNaN(features.getEmaFast())) {
+            pair.setEma12(BigDecimal.valueOf(features.getEmaFast()));
+        }
+        if (!Double.isNaN(features.getEmaSlow())) {
+            pair.setEma26(BigDecimal.valueOf(features.getEmaSlow()));
+        }
+        if (!Double.isNaN(features.getSupport())) {
+            pair.setSupportLevel(BigDecimal.valueOf(features.getSupport()));
+            pair.setResistanceLevel(BigDecimal.valueOf(features.getResistance()));
+        }
+        return updated;
+    }
+    
+    /**
+     * Indicator periods from the active config
+     */
+    private FeatureSnapshot.Settings getFeatureSettings() {
+        com.bitunix.scalper.model.TradingConfig config = configService.getActiveConfig();
+        return new FeatureSnapshot.Settings(
+                config.getRsiPeriod() != null ? config.getRsiPeriod() : 14,
+                config.getBollingerPeriod() != null ? config.getBollingerPeriod() : 20,
+                config.getBollingerStdDev() != null ? config.getBollingerStdDev() : 2.0,
+                config.getEmaFastPeriod() != null ? config.getEmaFastPeriod() : 12,
+                config.getEmaSlowPeriod() != null ? config.getEmaSlowPeriod() : 26,
+                config.getSupportResistancePeriod() != null ? config.getSupportResistancePeriod() : 50);
+    }
 }
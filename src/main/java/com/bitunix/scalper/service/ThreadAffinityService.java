@@ -0,0 +1,181 @@
+package com.bitunix.scalper.service;
+
+import com.bitunix.scalper.util.AsyncLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factories for latency-critical threads, with optional CPU pinning
+ * 
+ * Critical threads (feed, strategy, execution) are named, prioritised and,
+ * when bitunix.affinity.enabled is set on Linux, pinned to their configured
+ * CPU set with taskset. At startup every existing thread of the process is
+ * moved to the "other" CPU set; threads created later (Tomcat, journal and
+ * batch writers) inherit it from their creator, so they stay off the
+ * critical cores.
+ * 
+ * CPU time and involuntary context switches of every critical thread are
+ * exported as metrics. Java thread priorities only take effect on Linux with
+ * -XX:ThreadPriorityPolicy=1 and sufficient privileges.
+ */
+@Service
+public class ThreadAffinityService {
+    
+    private static final AsyncLog log = AsyncLog.getLogger(ThreadAffinityService.class);
+    
+    /**
+     * Kind of critical thread, each with its own CPU set
+     */
+    public enum Role {
+        FEED, STRATEGY, EXECUTION
+    }
+    
+    @Value("${bitunix.affinity.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${bitunix.affinity.feed-cpus:}")
+    private String feedCpus;
+    
+    @Value("${bitunix.affinity.strategy-cpus:}")
+    private String strategyCpus;
+    
+    @Value("${bitunix.affinity.execution-cpus:}")
+    private String executionCpus;
+    
+    @Value("${bitunix.affinity.other-cpus:}")
+    private String otherCpus;
+    
+    @Autowired
+    private MetricsService metricsService;
+    
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private boolean pinning;
+    
+    @PostConstruct
+    public void init() {
+        pinning = enabled && Files.isDirectory(Paths.get("/proc/thread-self"));
+        if (enabled && !pinning) {
+            log.warn("Thread pinning needs Linux /proc, threads are not pinned");
+        }
+        if (pinning && !otherCpus.isEmpty()) {
+            // All current threads; later non-critical threads inherit the mask from their creator
+            taskset("-a", "-p", "-c", otherCpus, String.valueOf(ProcessHandle.current().pid()));
+        }
+        log.info("Thread affinity", "pinning", pinning, "feed", feedCpus, "strategy", strategyCpus,
+                "execution", executionCpus, "other", otherCpus);
+    }
+    
+    /**
+     * Factory for daemon threads of a role, named prefix-N (or just prefix for a single thread)
+     */
+    public ThreadFactory factory(Role role, String prefix, boolean numbered, int priority) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            String name = numbered ? prefix + "-" + threadNumber.incrementAndGet() : prefix;
+            return newThread(role, name, priority, runnable);
+        };
+    }
+    
+    /**
+     * New daemon thread that pins itself and registers its metrics when it starts
+     */
+    public Thread newThread(Role role, String name, int priority, Runnable task) {
+        Thread thread = new Thread(() -> {
+            onStart(role);
+            task.run();
+        }, name);
+        thread.setDaemon(true);
+        thread.setPriority(priority);
+        return thread;
+    }
+    
+    private void onStart(Role role) {
+        Thread thread = Thread.currentThread();
+        int tid = nativeThreadId();
+        String cpus = cpusOf(role);
+        if (pinning && tid > 0 && !cpus.isEmpty()) {
+            taskset("-p", "-c", cpus, String.valueOf(tid));
+        }
+        
+        String roleName = role.name().toLowerCase();
+        long javaId = thread.getId();
+        metricsService.gauge("scalper_thread_cpu_seconds_total", () -> {
+            long nanos = threadBean.isThreadCpuTimeSupported() ? threadBean.getThreadCpuTime(javaId) : -1;
+            return nanos < 0 ? Double.NaN : nanos / 1e9;
+        }, "thread", thread.getName(), "role", roleName);
+        if (tid > 0) {
+            Path status = Paths.get("/proc/self/task/" + tid + "/status");
+            metricsService.gauge("scalper_thread_involuntary_context_switches_total",
+                    () -> involuntaryContextSwitches(status), "thread", thread.getName(), "role", roleName);
+        }
+    }
+    
+    private String cpusOf(Role role) {
+        switch (role) {
+            case FEED:
+                return feedCpus;
+            case STRATEGY:
+                return strategyCpus;
+            default:
+                return executionCpus;
+        }
+    }
+    
+    /**
+     * Linux thread id of the calling thread, -1 if unavailable
+     */
+    private static int nativeThreadId() {
+        try {
+            // /proc/thread-self -> <pid>/task/<tid>
+            String target = Files.readSymbolicLink(Paths.get("/proc/thread-self")).toString();
+            return Integer.parseInt(target.substring(target.lastIndexOf('/') + 1));
+        } catch (IOException | UnsupportedOperationException | NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    private static Number involuntaryContextSwitches(Path status) {
+        try {
+            List<String> lines = Files.readAllLines(status, StandardCharsets.US_ASCII);
+            for (String line : lines) {
+                if (line.startsWith("nonvoluntary_ctxt_switches:")) {
+                    return Long.parseLong(line.substring(line.indexOf(':') + 1).trim());
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Thread has exited
+        }
+        return Double.NaN;
+    }
+    
+    private static void taskset(String... args) {
+        String[] command = new String[args.length + 1];
+        command[0] = "taskset";
+        System.arraycopy(args, 0, command, 1, args.length);
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            if (!process.waitFor(5, TimeUnit.SECONDS) || process.exitValue() != 0) {
+                log.warn("taskset failed", "command", String.join(" ", command), "output", output);
+            }
+        } catch (IOException e) {
+            log.warn("taskset not available", "error", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,753 @@
+package com.bitunix.scalper.service;
+
+import com.bitunix.scalper.model.Trade;
+import com.bitunix.scalper.util.AsyncLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Durable journal of trade and order lifecycle events
+ * 
+ * The trading thread only copies the trade into an immutable entry and puts it
+ * on a lock-free queue. A background writer drains the queue at least every
+ * flush interval and writes JDBC batches to a file-backed H2 database:
+ * every event is appended to journal_events and the latest state of each
+ * trade (keyed by orderLinkId) is merged into journal_trades.
+ * 
+ * fsync policy (bitunix.journal.fsync):
+ * - batch: CHECKPOINT SYNC after every committed batch (default, nothing
+ *   acknowledged by the writer is lost on power failure)
+ * - interval: CHECKPOINT SYNC at most every fsync-interval-ms
+ * - none: leave syncing to H2
+ * 
+ * Events are partitioned by month into journal_events_pYYYYMM tables (ids come
+ * from one shared sequence, so they stay globally ordered). Reads by time range
+ * only touch the partitions that overlap the range. A nightly maintenance job
+ * drops partitions older than retention-months and compacts partitions older
+ * than compact-after-months down to the last event of each trade, which is all
+ * that journal tail replay needs. journal_trades holds one row per trade and
+ * is indexed for the status, symbol, strategy and entry time access paths.
+ */
+@Service
+public class TradeJournalService {
+    
+    private static final AsyncLog log = AsyncLog.getLogger(TradeJournalService.class);
+    
+    /**
+     * Journaled lifecycle events
+     */
+    public enum EventType {
+        OPENED,
+        ORDER_ACCEPTED,
+        ORDER_REJECTED,
+        ENTRY_FILLED,
+        ENTRY_CANCELLED,
+        PROTECTION_UPDATED,
+        CLOSED,
+        RECONCILED
+    }
+    
+    private static final String PARTITION_PREFIX = "journal_events_p";
+    private static final String LEGACY_EVENTS_TABLE = "JOURNAL_EVENTS";
+    
+    private static final String EVENT_COLUMNS = "event_time, event_type, order_link_id, order_id, symbol, "
+            + "strategy, side, status, quantity, entry_price, exit_price, stop_loss_price, take_profit_price, "
+            + "profit, notes";
+    
+    private static final String INSERT_EVENT = "INSERT INTO %s (id, " + EVENT_COLUMNS + ") "
+            + "VALUES (NEXT VALUE FOR journal_event_seq, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final String MERGE_TRADE = "MERGE INTO journal_trades "
+            + "(order_link_id, order_id, symbol, strategy, side, status, quantity, entry_price, exit_price, "
+            + "stop_loss_price, take_profit_price, profit, profit_percentage, total_fees, entry_time, exit_time, "
+            + "notes, updated_at) KEY (order_link_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    @Value("${bitunix.journal.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${bitunix.journal.url:jdbc:h2:file:./data/trade-journal}")
+    private String url;
+    
+    @Value("${bitunix.journal.batch-size:256}")
+    private int batchSize;
+    
+    @Value("${bitunix.journal.flush-interval-ms:100}")
+    private long flushIntervalMs;
+    
+    @Value("${bitunix.journal.fsync:batch}")
+    private String fsyncPolicy;
+    
+    @Value("${bitunix.journal.fsync-interval-ms:1000}")
+    private long fsyncIntervalMs;
+    
+    @Value("${bitunix.journal.retention-months:12}")
+    private int retentionMonths;
+    
+    @Value("${bitunix.journal.compact-after-months:1}")
+    private int compactAfterMonths;
+    
+    @Autowired
+    private MetricsService metricsService;
+    
+    private final ConcurrentLinkedQueue<JournalEntry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    
+    // Partition month (yyyyMM) -> compacted flag; guarded by this
+    private final TreeMap<Integer, Boolean> partitions = new TreeMap<>();
+    
+    private Connection connection;
+    private Thread writer;
+    private long lastSyncMillis;
+    
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        
+        try {
+            connection = DriverManager.getConnection(url, "sa", "");
+            connection.setAutoCommit(false);
+            createSchema();
+            maintain();
+        } catch (SQLException e) {
+            log.error("Trade journal unavailable, events will not be persisted", e, "url", url);
+            enabled = false;
+            return;
+        }
+        
+        metricsService.gauge("scalper_journal_pending_events", pending::get);
+        metricsService.gauge("scalper_journal_written_events", written::get);
+        metricsService.gauge("scalper_journal_partitions", this::getPartitionCount);
+        
+        running.set(true);
+        writer = new Thread(this::runWriter, "trade-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Trade journal started", "url", url, "fsync", fsyncPolicy);
+    }
+    
+    /**
+     * Journal a lifecycle event; never blocks and never touches the database
+     */
+    public void record(EventType type, Trade trade) {
+        if (!enabled || trade == null || trade.getOrderLinkId() == null) {
+            return;
+        }
+        queue.add(new JournalEntry(type, trade));
+        pending.incrementAndGet();
+    }
+    
+    /**
+     * Latest journaled state of all trades with the given status (all trades if null)
+     * Reads go through the writer's connection and must not be called on the trading thread.
+     */
+    public List<Trade> loadTrades(Trade.TradeStatus status) {
+        if (status == null) {
+            return queryTrades("SELECT * FROM journal_trades ORDER BY entry_time", statement -> { });
+        }
+        return queryTrades("SELECT * FROM journal_trades WHERE status = ? ORDER BY entry_time",
+                statement -> statement.setString(1, status.name()));
+    }
+    
+    /**
+     * Trades entered in [from, to), oldest first
+     */
+    public List<Trade> loadTradesBetween(LocalDateTime from, LocalDateTime to) {
+        return queryTrades("SELECT * FROM journal_trades WHERE entry_time >= ? AND entry_time < ? ORDER BY entry_time",
+                statement -> {
+                    statement.setTimestamp(1, Timestamp.valueOf(from));
+                    statement.setTimestamp(2, Timestamp.valueOf(to));
+                });
+    }
+    
+    /**
+     * Most recently entered trades, newest first
+     */
+    public List<Trade> loadRecentTrades(int limit) {
+        return queryTrades("SELECT * FROM journal_trades ORDER BY entry_time DESC LIMIT ?",
+                statement -> statement.setInt(1, limit));
+    }
+    
+    /**
+     * Id of the last event written to the journal, 0 if the journal is empty
+     */
+    public long getLastEventId() {
+        if (!enabled) {
+            return 0;
+        }
+        synchronized (this) {
+            long lastId = 0;
+            try (Statement statement = connection.createStatement()) {
+                // MAX(id) is a primary key lookup per partition
+                for (Integer month : partitions.keySet()) {
+                    try (ResultSet rs = statement.executeQuery("SELECT MAX(id) FROM " + partitionTable(month))) {
+                        if (rs.next()) {
+                            lastId = Math.max(lastId, rs.getLong(1));
+                        }
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                log.error("Error reading trade journal", e);
+                return 0;
+            }
+            return lastId;
+        }
+    }
+    
+    /**
+     * Latest state of every trade that has an event with id greater than afterEventId
+     * 
+     * Compaction keeps the last event of every trade, so the result is the same
+     * before and after a partition is compacted.
+     */
+    public List<Trade> loadTradesChangedAfter(long afterEventId) {
+        List<String> selects = new ArrayList<>();
+        synchronized (this) {
+            for (Integer month : partitions.keySet()) {
+                selects.add("SELECT order_link_id FROM " + partitionTable(month) + " WHERE id > ?");
+            }
+        }
+        if (selects.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        String sql = "SELECT * FROM journal_trades WHERE order_link_id IN ("
+                + String.join(" UNION ", selects) + ") ORDER BY entry_time";
+        return queryTrades(sql, statement -> {
+            for (int i = 1; i <= selects.size(); i++) {
+                statement.setLong(i, afterEventId);
+            }
+        });
+    }
+    
+    /**
+     * Raw events of a symbol in [from, to), oldest first; only partitions overlapping the range are read
+     * An empty or reversed range has no events
+     */
+    public List<Map<String, Object>> loadEvents(String symbol, LocalDateTime from, LocalDateTime to) {
+        List<Map<String, Object>> events = new ArrayList<>();
+        if (!enabled || !from.isBefore(to)) {
+            return events;
+        }
+        
+        synchronized (this) {
+            List<Integer> months = new ArrayList<>(
+                    partitions.subMap(monthKey(from), true, monthKey(to), true).keySet());
+            try {
+                for (Integer month : months) {
+                    String sql = "SELECT id, " + EVENT_COLUMNS + " FROM " + partitionTable(month)
+                            + " WHERE symbol = ? AND event_time >= ? AND event_time < ? ORDER BY id";
+                    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                        statement.setString(1, symbol);
+                        statement.setTimestamp(2, Timestamp.valueOf(from));
+                        statement.setTimestamp(3, Timestamp.valueOf(to));
+                        try (ResultSet rs = statement.executeQuery()) {
+                            while (rs.next()) {
+                                events.add(mapEvent(rs));
+                            }
+                        }
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                log.error("Error reading trade journal", e);
+            }
+        }
+        return events;
+    }
+    
+    /**
+     * Drop partitions past retention and compact old ones - runs nightly and on startup
+     */
+    @Scheduled(cron = "${bitunix.journal.maintenance-cron:0 15 3 * * *}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        
+        YearMonth current = YearMonth.now();
+        int dropBefore = retentionMonths > 0 ? monthKey(current.minusMonths(retentionMonths)) : Integer.MIN_VALUE;
+        int compactBefore = monthKey(current.minusMonths(compactAfterMonths));
+        int dropped = 0;
+        int compacted = 0;
+        long removedEvents = 0;
+        
+        synchronized (this) {
+            try (Statement statement = connection.createStatement()) {
+                for (Map.Entry<Integer, Boolean> partition : new ArrayList<>(partitions.entrySet())) {
+                    int month = partition.getKey();
+                    if (month < dropBefore) {
+                        // Dropping a whole table is O(1) compared to deleting rows
+                        statement.execute("DROP TABLE IF EXISTS " + partitionTable(month));
+                        statement.execute("DELETE FROM journal_partitions WHERE partition_month = " + month);
+                        partitions.remove(month);
+                        dropped++;
+                    } else if (month < compactBefore && !partition.getValue()) {
+                        String table = partitionTable(month);
+                        removedEvents += statement.executeUpdate("DELETE FROM " + table + " e WHERE EXISTS "
+                                + "(SELECT 1 FROM " + table + " n WHERE n.order_link_id = e.order_link_id AND n.id > e.id)");
+                        statement.execute("UPDATE journal_partitions SET compacted = TRUE WHERE partition_month = " + month);
+                        partitions.put(month, true);
+                        compacted++;
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                log.error("Error maintaining trade journal partitions", e);
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackError) {
+                    log.error("Error rolling back trade journal maintenance", rollbackError);
+                }
+                return;
+            }
+        }
+        
+        if (dropped > 0 || compacted > 0) {
+            log.info("Trade journal maintained", "droppedPartitions", dropped, "compactedPartitions", compacted,
+                    "removedEvents", removedEvents);
+        }
+    }
+    
+    public synchronized int getPartitionCount() {
+        return partitions.size();
+    }
+    
+    public long getPendingCount() {
+        return pending.get();
+    }
+    
+    public long getWrittenCount() {
+        return written.get();
+    }
+    
+    @PreDestroy
+    public void stop() {
+        if (!running.compareAndSet(true, false)) {
+            return;
+        }
+        LockSupport.unpark(writer);
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                sync();
+                connection.close();
+            } catch (SQLException e) {
+                log.error("Error closing trade journal", e);
+            }
+        }
+    }
+    
+    private void runWriter() {
+        List<JournalEntry> batch = new ArrayList<>(batchSize);
+        while (running.get() || !queue.isEmpty() || !batch.isEmpty()) {
+            JournalEntry entry;
+            while (batch.size() < batchSize && (entry = queue.poll()) != null) {
+                batch.add(entry);
+            }
+            
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(flushIntervalMs * 1_000_000L);
+                continue;
+            }
+            
+            if (writeBatch(batch)) {
+                pending.addAndGet(-batch.size());
+                written.addAndGet(batch.size());
+                batch.clear();
+            } else if (!running.get()) {
+                log.error("Dropping unwritten journal events on shutdown", "count", batch.size());
+                break;
+            } else {
+                // Keep the batch and retry after a pause
+                LockSupport.parkNanos(flushIntervalMs * 10_000_000L);
+            }
+        }
+    }
+    
+    private synchronized boolean writeBatch(List<JournalEntry> batch) {
+        Map<Integer, PreparedStatement> inserts = new LinkedHashMap<>();
+        try (PreparedStatement merge = connection.prepareStatement(MERGE_TRADE)) {
+            // DDL commits implicitly in H2, so create missing partitions before the batch
+            for (JournalEntry entry : batch) {
+                ensurePartition(entry.partitionMonth);
+            }
+            for (JournalEntry entry : batch) {
+                PreparedStatement insert = inserts.get(entry.partitionMonth);
+                if (insert == null) {
+                    insert = connection.prepareStatement(
+                            String.format(INSERT_EVENT, partitionTable(entry.partitionMonth)));
+                    inserts.put(entry.partitionMonth, insert);
+                }
+                bindEvent(insert, entry);
+                insert.addBatch();
+                bindTrade(merge, entry);
+                merge.addBatch();
+            }
+            for (PreparedStatement insert : inserts.values()) {
+                insert.executeBatch();
+            }
+            merge.executeBatch();
+            connection.commit();
+            
+            long now = System.currentTimeMillis();
+            if ("batch".equalsIgnoreCase(fsyncPolicy)
+                    || ("interval".equalsIgnoreCase(fsyncPolicy) && now - lastSyncMillis >= fsyncIntervalMs)) {
+                sync();
+                lastSyncMillis = now;
+            }
+            return true;
+        } catch (SQLException e) {
+            log.error("Error writing trade journal batch", e, "size", batch.size());
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackError) {
+                log.error("Error rolling back trade journal batch", rollbackError);
+            }
+            return false;
+        } finally {
+            for (PreparedStatement insert : inserts.values()) {
+                try {
+                    insert.close();
+                } catch (SQLException ignored) {
+                    // Nothing to do, the statement is discarded anyway
+                }
+            }
+        }
+    }
+    
+    private void sync() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CHECKPOINT SYNC");
+        }
+    }
+    
+    private void createSchema() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SEQUENCE IF NOT EXISTS journal_event_seq");
+            statement.execute("CREATE TABLE IF NOT EXISTS journal_partitions ("
+                    + "partition_month INT PRIMARY KEY, "
+                    + "compacted BOOLEAN DEFAULT FALSE NOT NULL, "
+                    + "created_at TIMESTAMP NOT NULL)");
+            statement.execute("CREATE TABLE IF NOT EXISTS journal_trades ("
+                    + "order_link_id VARCHAR(64) PRIMARY KEY, "
+                    + "order_id VARCHAR(64), "
+                    + "symbol VARCHAR(32) NOT NULL, "
+                    + "strategy VARCHAR(64), "
+                    + "side VARCHAR(8), "
+                    + "status VARCHAR(16), "
+                    + "quantity DECIMAL(20, 8), "
+                    + "entry_price DECIMAL(20, 8), "
+                    + "exit_price DECIMAL(20, 8), "
+                    + "stop_loss_price DECIMAL(20, 8), "
+                    + "take_profit_price DECIMAL(20, 8), "
+                    + "profit DECIMAL(20, 8), "
+                    + "profit_percentage DECIMAL(10, 4), "
+                    + "total_fees DECIMAL(20, 8), "
+                    + "entry_time TIMESTAMP, "
+                    + "exit_time TIMESTAMP, "
+                    + "notes VARCHAR(1024), "
+                    + "updated_at TIMESTAMP NOT NULL)");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_journal_trades_status_entry "
+                    + "ON journal_trades (status, entry_time)");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_journal_trades_symbol_entry "
+                    + "ON journal_trades (symbol, entry_time)");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_journal_trades_strategy_entry "
+                    + "ON journal_trades (strategy, entry_time)");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_journal_trades_entry "
+                    + "ON journal_trades (entry_time)");
+            
+            try (ResultSet rs = statement.executeQuery("SELECT partition_month, compacted FROM journal_partitions")) {
+                while (rs.next()) {
+                    partitions.put(rs.getInt(1), rs.getBoolean(2));
+                }
+            }
+        }
+        connection.commit();
+        migrateLegacyEvents();
+    }
+    
+    /**
+     * Create the partition table for a month if it does not exist yet
+     */
+    private void ensurePartition(int month) throws SQLException {
+        if (partitions.containsKey(month)) {
+            return;
+        }
+        
+        String table = partitionTable(month);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + table + " ("
+                    + "id BIGINT PRIMARY KEY, "
+                    + "event_time TIMESTAMP NOT NULL, "
+                    + "event_type VARCHAR(32) NOT NULL, "
+                    + "order_link_id VARCHAR(64), "
+                    + "order_id VARCHAR(64), "
+                    + "symbol VARCHAR(32) NOT NULL, "
+                    + "strategy VARCHAR(64), "
+                    + "side VARCHAR(8), "
+                    + "status VARCHAR(16), "
+                    + "quantity DECIMAL(20, 8), "
+                    + "entry_price DECIMAL(20, 8), "
+                    + "exit_price DECIMAL(20, 8), "
+                    + "stop_loss_price DECIMAL(20, 8), "
+                    + "take_profit_price DECIMAL(20, 8), "
+                    + "profit DECIMAL(20, 8), "
+                    + "notes VARCHAR(1024))");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_" + table + "_trade ON " + table + " (order_link_id, id)");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_" + table + "_symbol_time ON " + table + " (symbol, event_time)");
+            statement.execute("MERGE INTO journal_partitions (partition_month, compacted, created_at) KEY (partition_month) "
+                    + "VALUES (" + month + ", FALSE, CURRENT_TIMESTAMP)");
+        }
+        connection.commit();
+        partitions.put(month, false);
+    }
+    
+    /**
+     * Move events from the unpartitioned journal_events table of earlier versions into monthly partitions
+     */
+    private void migrateLegacyEvents() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES "
+                    + "WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME = '" + LEGACY_EVENTS_TABLE + "'")) {
+                if (!rs.next() || rs.getInt(1) == 0) {
+                    return;
+                }
+            }
+            
+            TreeSet<Integer> months = new TreeSet<>();
+            long maxId = 0;
+            try (ResultSet rs = statement.executeQuery("SELECT DISTINCT YEAR(event_time) * 100 + MONTH(event_time) "
+                    + "FROM journal_events")) {
+                while (rs.next()) {
+                    months.add(rs.getInt(1));
+                }
+            }
+            try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM journal_events")) {
+                maxId = rs.next() ? rs.getLong(1) : 0;
+            }
+            
+            for (Integer month : months) {
+                ensurePartition(month);
+                statement.executeUpdate("INSERT INTO " + partitionTable(month) + " (id, " + EVENT_COLUMNS + ") "
+                        + "SELECT id, " + EVENT_COLUMNS + " FROM journal_events "
+                        + "WHERE YEAR(event_time) * 100 + MONTH(event_time) = " + month);
+            }
+            statement.execute("ALTER SEQUENCE journal_event_seq RESTART WITH " + (maxId + 1));
+            statement.execute("DROP TABLE journal_events");
+            connection.commit();
+            log.info("Migrated journal events into monthly partitions", "partitions", months.size(), "lastEventId", maxId);
+        }
+    }
+    
+    private static String partitionTable(int month) {
+        return PARTITION_PREFIX + month;
+    }
+    
+    private static int monthKey(YearMonth month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+    
+    private static int monthKey(LocalDateTime time) {
+        return time.getYear() * 100 + time.getMonthValue();
+    }
+    
+    private List<Trade> queryTrades(String sql, StatementBinder binder) {
+        List<Trade> trades = new ArrayList<>();
+        if (!enabled) {
+            return trades;
+        }
+        synchronized (this) {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                binder.bind(statement);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        trades.add(mapTrade(rs));
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                log.error("Error reading trade journal", e);
+            }
+        }
+        return trades;
+    }
+    
+    private void bindEvent(PreparedStatement statement, JournalEntry entry) throws SQLException {
+        statement.setTimestamp(1, new Timestamp(entry.eventTimeMillis));
+        statement.setString(2, entry.type.name());
+        statement.setString(3, entry.orderLinkId);
+        statement.setString(4, entry.orderId);
+        statement.setString(5, entry.symbol);
+        statement.setString(6, entry.strategy);
+        statement.setString(7, entry.side);
+        statement.setString(8, entry.status);
+        statement.setBigDecimal(9, entry.quantity);
+        statement.setBigDecimal(10, entry.entryPrice);
+        statement.setBigDecimal(11, entry.exitPrice);
+        statement.setBigDecimal(12, entry.stopLossPrice);
+        statement.setBigDecimal(13, entry.takeProfitPrice);
+        statement.setBigDecimal(14, entry.profit);
+        statement.setString(15, truncate(entry.notes));
+    }
+    
+    private void bindTrade(PreparedStatement statement, JournalEntry entry) throws SQLException {
+        statement.setString(1, entry.orderLinkId);
+        statement.setString(2, entry.orderId);
+        statement.setString(3, entry.symbol);
+        statement.setString(4, entry.strategy);
+        statement.setString(5, entry.side);
+        statement.setString(6, entry.status);
+        statement.setBigDecimal(7, entry.quantity);
+        statement.setBigDecimal(8, entry.entryPrice);
+        statement.setBigDecimal(9, entry.exitPrice);
+        statement.setBigDecimal(10, entry.stopLossPrice);
+        statement.setBigDecimal(11, entry.takeProfitPrice);
+        statement.setBigDecimal(12, entry.profit);
+        statement.setBigDecimal(13, entry.profitPercentage);
+        statement.setBigDecimal(14, entry.totalFees);
+        statement.setTimestamp(15, entry.entryTime != null ? Timestamp.valueOf(entry.entryTime) : null);
+        statement.setTimestamp(16, entry.exitTime != null ? Timestamp.valueOf(entry.exitTime) : null);
+        statement.setString(17, truncate(entry.notes));
+        statement.setTimestamp(18, new Timestamp(entry.eventTimeMillis));
+    }
+    
+    private Map<String, Object> mapEvent(ResultSet rs) throws SQLException {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("id", rs.getLong("id"));
+        event.put("eventTime", rs.getTimestamp("event_time").toLocalDateTime());
+        event.put("eventType", rs.getString("event_type"));
+        event.put("orderLinkId", rs.getString("order_link_id"));
+        event.put("orderId", rs.getString("order_id"));
+        event.put("symbol", rs.getString("symbol"));
+        event.put("strategy", rs.getString("strategy"));
+        event.put("side", rs.getString("side"));
+        event.put("status", rs.getString("status"));
+        event.put("quantity", rs.getBigDecimal("quantity"));
+        event.put("entryPrice", rs.getBigDecimal("entry_price"));
+        event.put("exitPrice", rs.getBigDecimal("exit_price"));
+        event.put("stopLossPrice", rs.getBigDecimal("stop_loss_price"));
+        event.put("takeProfitPrice", rs.getBigDecimal("take_profit_price"));
+        event.put("profit", rs.getBigDecimal("profit"));
+        event.put("notes", rs.getString("notes"));
+        return event;
+    }
+    
+    private Trade mapTrade(ResultSet rs) throws SQLException {
+        Trade trade = new Trade();
+        trade.setOrderLinkId(rs.getString("order_link_id"));
+        trade.setOrderId(rs.getString("order_id"));
+        trade.setSymbol(rs.getString("symbol"));
+        trade.setStrategy(rs.getString("strategy"));
+        String side = rs.getString("side");
+        trade.setType(side != null ? Trade.TradeType.valueOf(side) : null);
+        String status = rs.getString("status");
+        trade.setStatus(status != null ? Trade.TradeStatus.valueOf(status) : null);
+        trade.setQuantity(rs.getBigDecimal("quantity"));
+        trade.setEntryPrice(rs.getBigDecimal("entry_price"));
+        trade.setExitPrice(rs.getBigDecimal("exit_price"));
+        trade.setStopLossPrice(rs.getBigDecimal("stop_loss_price"));
+        trade.setTakeProfitPrice(rs.getBigDecimal("take_profit_price"));
+        trade.setProfit(rs.getBigDecimal("profit"));
+        trade.setProfitPercentage(rs.getBigDecimal("profit_percentage"));
+        trade.setTotalFees(rs.getBigDecimal("total_fees"));
+        Timestamp entryTime = rs.getTimestamp("entry_time");
+        trade.setEntryTime(entryTime != null ? entryTime.toLocalDateTime() : null);
+        Timestamp exitTime = rs.getTimestamp("exit_time");
+        trade.setExitTime(exitTime != null ? exitTime.toLocalDateTime() : null);
+        trade.setNotes(rs.getString("notes"));
+        return trade;
+    }
+    
+    private static String truncate(String text) {
+        return text != null && text.length() > 1024 ? text.substring(0, 1024) : text;
+    }
+    
+    private interface StatementBinder {
+        void bind(PreparedStatement statement) throws SQLException;
+    }
+    
+    /**
+     * Immutable copy of a trade at the moment of the event
+     */
+    private static class JournalEntry {
+        private final long eventTimeMillis = System.currentTimeMillis();
+        private final int partitionMonth = monthKey(
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(eventTimeMillis), ZoneId.systemDefault()));
+        private final EventType type;
+        private final String orderLinkId;
+        private final String orderId;
+        private final String symbol;
+        private final String strategy;
+        private final String side;
+        private final String status;
+        private final BigDecimal quantity;
+        private final BigDecimal entryPrice;
+        private final BigDecimal exitPrice;
+        private final BigDecimal stopLossPrice;
+        private final BigDecimal takeProfitPrice;
+        private final BigDecimal profit;
+        private final BigDecimal profitPercentage;
+        private final BigDecimal totalFees;
+        private final LocalDateTime entryTime;
+        private final LocalDateTime exitTime;
+        private final String notes;
+        
+        public JournalEntry(EventType type, Trade trade) {
+            this.type = type;
+            this.orderLinkId = trade.getOrderLinkId();
+            this.orderId = trade.getOrderId();
+            this.symbol = trade.getSymbol();
+            this.strategy = trade.getStrategy();
+            this.side = trade.getType() != null ? trade.getType().name() : null;
+            this.status = trade.getStatus() != null ? trade.getStatus().name() : null;
+            this.quantity = trade.getQuantity();
+            this.entryPrice = trade.getEntryPrice();
+            this.exitPrice = trade.getExitPrice();
+            this.stopLossPrice = trade.getStopLossPrice();
+            this.takeProfitPrice = trade.getTakeProfitPrice();
+            this.profit = trade.getProfit();
+            this.profitPercentage = trade.getProfitPercentage();
+            this.totalFees = trade.getTotalFees();
+            this.entryTime = trade.getEntryTime();
+            this.exitTime = trade.getExitTime();
+            this.notes = trade.getNotes();
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.bitunix.scalper.service;
+
+import com.bitunix.scalper.model.Trade;
+import com.bitunix.scalper.util.AsyncLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Service for running trade statistics
+ * 
+ * Aggregates (overall, per strategy, per symbol, per day) are updated in O(1)
+ * when a trade opens or closes and read directly by the dashboard, instead of
+ * loading and scanning the whole trade history on every request. They are
+ * rebuilt once on startup from the trade journal.
+ */
+@Service
+public class TradeStatisticsService {
+    
+    private static final AsyncLog log = AsyncLog.getLogger(TradeStatisticsService.class);
+    
+    // Daily buckets kept in memory
+    private static final int MAX_DAYS = 366;
+    
+    @Autowired(required = false)
+    private TradeJournalService tradeJournalService;
+    
+    private final TradeStats overall = new TradeStats();
+    private final ConcurrentMap<String, TradeStats> byStrategy = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, TradeStats> bySymbol = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<LocalDate, TradeStats> byDay = new ConcurrentSkipListMap<>();
+    
+    /**
+     * One-off rebuild from the journal on startup
+     */
+    @PostConstruct
+    public void rebuild() {
+        if (tradeJournalService == null) {
+            return;
+        }
+        
+        long start = System.currentTimeMillis();
+        int count = 0;
+        for (Trade trade : tradeJournalService.loadTrades(null)) {
+            // Entries the exchange rejected, and limit entries not (yet) filled, never opened a position
+            if (trade.getStatus() == Trade.TradeStatus.PENDING || (trade.getStatus() == Trade.TradeStatus.CANCELLED
+                    && (trade.getOrderId() == null || trade.getQuantity() != null && trade.getQuantity().signum() == 0))) {
+                continue;
+            }
+            recordOpened(trade);
+            if (trade.getStatus() == Trade.TradeStatus.CLOSED) {
+                recordClosed(trade);
+            }
+            count++;
+        }
+        log.info("Trade statistics rebuilt", "trades", count, "durationMs", System.currentTimeMillis() - start);
+    }
+    
+    /**
+     * Count a newly opened trade
+     */
+    public void recordOpened(Trade trade) {
+        overall.addOpened();
+        statsFor(byStrategy, trade.getStrategy()).addOpened();
+        statsFor(bySymbol, trade.getSymbol()).addOpened();
+    }
+    
+    /**
+     * Add a closed trade to all aggregates it belongs to
+     */
+    public void recordClosed(Trade trade) {
+        if (trade.getStatus() != Trade.TradeStatus.CLOSED || trade.getProfit() == null) {
+            return;
+        }
+        
+        overall.addClosed(trade);
+        statsFor(byStrategy, trade.getStrategy()).addClosed(trade);
+        statsFor(bySymbol, trade.getSymbol()).addClosed(trade);
+        
+        LocalDate day = trade.getExitTime() != null ? trade.getExitTime().toLocalDate() : LocalDate.now();
+        byDay.computeIfAbsent(day, k -> new TradeStats()).addClosed(trade);
+        while (byDay.size() > MAX_DAYS) {
+            byDay.pollFirstEntry();
+        }
+    }
+    
+    public TradeStats getOverall() {
+        return overall;
+    }
+    
+    public TradeStats getStrategyStats(String strategy) {
+        return byStrategy.getOrDefault(strategy, new TradeStats());
+    }
+    
+    public TradeStats getSymbolStats(String symbol) {
+        return bySymbol.getOrDefault(symbol, new TradeStats());
+    }
+    
+    public TradeStats getDayStats(LocalDate day) {
+        return byDay.getOrDefault(day, new TradeStats());
+    }
+    
+    /**
+     * Summary of all aggregates for the statistics API
+     */
+    public Map<String, Object> getSummary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("overall", overall.toMap());
+        summary.put("strategies", toMaps(byStrategy));
+        summary.put("symbols", toMaps(bySymbol));
+        
+        Map<String, Object> days = new LinkedHashMap<>();
+        NavigableMap<LocalDate, TradeStats> recent = byDay.descendingMap();
+        for (Map.Entry<LocalDate, TradeStats> entry : recent.entrySet()) {
+            days.put(entry.getKey().toString(), entry.getValue().toMap());
+        }
+        summary.put("days", days);
+        return summary;
+    }
+    
+    private static TradeStats statsFor(ConcurrentMap<String, TradeStats> map, String key) {
+        return map.computeIfAbsent(key != null ? key : "unknown", k -> new TradeStats());
+    }
+    
+    private static Map<String, Object> toMaps(Map<String, TradeStats> map) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        map.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> result.put(entry.getKey(), entry.getValue().toMap()));
+        return result;
+    }
+    
+    /**
+     * Running aggregate for one group of trades
+     */
+    public static class TradeStats {
+        private long openedTrades;
+        private long closedTrades;
+        private long winningTrades;
+        private BigDecimal totalProfit = BigDecimal.ZERO;
+        private BigDecimal grossProfit = BigDecimal.ZERO;
+        private BigDecimal grossLoss = BigDecimal.ZERO;
+        private BigDecimal totalFees = BigDecimal.ZERO;
+        private BigDecimal bestTrade;
+        private BigDecimal worstTrade;
+        
+        synchronized void addOpened() {
+            openedTrades++;
+        }
+        
+        synchronized void addClosed(Trade trade) {
+            BigDecimal profit = trade.getProfit();
+            closedTrades++;
+            totalProfit = totalProfit.add(profit);
+            if (profit.signum() > 0) {
+                winningTrades++;
+                grossProfit = grossProfit.add(profit);
+            } else {
+                grossLoss = grossLoss.add(profit.negate());
+            }
+            if (trade.getTotalFees() != null) {
+                totalFees = totalFees.add(trade.getTotalFees());
+            }
+            bestTrade = bestTrade == null || profit.compareTo(bestTrade) > 0 ? profit : bestTrade;
+            worstTrade = worstTrade == null || profit.compareTo(worstTrade) < 0 ? profit : worstTrade;
+        }
+        
+        public synchronized long getOpenedTrades() {
+            return openedTrades;
+        }
+        
+        public synchronized long getClosedTrades() {
+            return closedTrades;
+        }
+        
+        public synchronized long getWinningTrades() {
+            return winningTrades;
+        }
+        
+        public synchronized BigDecimal getTotalProfit() {
+            return totalProfit;
+        }
+        
+        /**
+         * Winning closed trades in percent (same scale as TradingService.calculateSuccessRate)
+         */
+        public synchronized BigDecimal getSuccessRate() {
+            if (closedTrades == 0) {
+                return BigDecimal.ZERO;
+            }
+            return BigDecimal.valueOf(winningTrades)
+                    .divide(BigDecimal.valueOf(closedTrades), 4, RoundingMode.HALF_UP)
+                    .multiply(BigDecimal.valueOf(100));
+        }
+        
+        /**
+         * Gross profit / gross loss, null when there are no losing trades
+         */
+        public synchronized BigDecimal getProfitFactor() {
+            if (grossLoss.signum() == 0) {
+                return null;
+            }
+            return grossProfit.divide(grossLoss, 4, RoundingMode.HALF_UP);
+        }
+        
+        public synchronized Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("openedTrades", openedTrades);
+            map.put("closedTrades", closedTrades);
+            map.put("winningTrades", winningTrades);
+            map.put("totalProfit", totalProfit);
+            map.put("successRate", getSuccessRate());
+            map.put("averageProfit", closedTrades == 0 ? BigDecimal.ZERO :
+                    totalProfit.divide(BigDecimal.valueOf(closedTrades), 8, RoundingMode.HALF_UP));
+            map.put("profitFactor", getProfitFactor());
+            map.put("totalFees", totalFees);
+            map.put("bestTrade", bestTrade);
+            map.put("worstTrade", worstTrade);
+            return map;
+        }
+    }
+}
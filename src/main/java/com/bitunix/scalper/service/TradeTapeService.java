@@ -0,0 +1,111 @@
+package com.bitunix.scalper.service;
+
+import com.bitunix.scalper.model.TradingPair;
+import com.bitunix.scalper.strategy.BarSeries;
+import com.bitunix.scalper.strategy.TradeBarBuilder;
+import com.bitunix.scalper.util.SymbolTable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Per-symbol trade tape and sub-minute bars from the public trade stream
+ * 
+ * Trades arrive on the market feed thread, which is the only writer of every
+ * {@link TradeBarBuilder}; strategies on the symbol workers and the exit
+ * monitor read the closed bars lock-free.
+ */
+@Service
+public class TradeTapeService {
+    
+    // Bar intervals after which the newest closed bar is too old to use
+    private static final int STALE_INTERVALS = 3;
+    
+    @Value("${bitunix.trades.tape-size:4096}")
+    private int tapeSize;
+    
+    @Value("${bitunix.trades.bar-capacity:512}")
+    private int barCapacity;
+    
+    @Value("${bitunix.trades.volume-bar-notional:50000}")
+    private double volumeBarNotional;
+    
+    @Value("${bitunix.trades.tick-bar-trades:100}")
+    private int tickBarTrades;
+    
+    @Autowired
+    private SymbolRegistryService symbolRegistry;
+    
+    @Autowired
+    private MetricsService metricsService;
+    
+    private final SymbolTable<TradeBarBuilder> builders = new SymbolTable<>();
+    private MetricsService.Counter trades;
+    private MetricsService.Counter outOfOrder;
+    
+    @PostConstruct
+    public void init() {
+        trades = metricsService.counter("scalper_stream_trades_total");
+        outOfOrder = metricsService.counter("scalper_stream_trades_out_of_order_total");
+    }
+    
+    /**
+     * Public trade from the market stream (market feed thread only)
+     * 
+     * @param time Exchange trade time (epoch millis)
+     * @param takerBuy Whether the taker was the buyer
+     */
+    public void onTrade(String symbol, long time, double price, double size, boolean takerBuy) {
+        int symbolId = symbolRegistry.find(symbol);
+        if (symbolId == SymbolRegistryService.UNKNOWN) {
+            return;
+        }
+        TradeBarBuilder builder = builders.get(symbolId);
+        if (builder == null) {
+            builder = new TradeBarBuilder(tapeSize, barCapacity, volumeBarNotional, tickBarTrades);
+            builders.put(symbolId, builder);
+        }
+        if (builder.onTrade(time, price, size, takerBuy)) {
+            trades.increment();
+        } else {
+            outOfOrder.increment();
+        }
+    }
+    
+    /**
+     * Trade tape and bars of a symbol, or null before its first trade
+     */
+    public TradeBarBuilder bars(int symbolId) {
+        return symbolId >= 0 ? builders.get(symbolId) : null;
+    }
+    
+    /**
+     * Closed time bars of a symbol, or null before its first trade
+     */
+    public BarSeries timeBars(int symbolId, int seconds) {
+        TradeBarBuilder builder = bars(symbolId);
+        return builder != null ? builder.timeBars(seconds) : null;
+    }
+    
+    /**
+     * Closed time bars of a pair's symbol if they are current
+     * 
+     * @return null before the first trade, or when no bar has closed within the
+     *         last few intervals (stream down or trades not subscribed)
+     */
+    public BarSeries recentTimeBars(TradingPair pair, int seconds) {
+        int symbolId = pair.getSymbolId() != SymbolRegistryService.UNKNOWN
+                ? pair.getSymbolId() : symbolRegistry.find(pair.getSymbol());
+        BarSeries series = timeBars(symbolId, seconds);
+        if (series == null) {
+            return null;
+        }
+        long count = series.count();
+        if (count == 0 || series.endTime(count - 1) < System.currentTimeMillis() - STALE_INTERVALS * seconds * 1000L) {
+            return null;
+        }
+        return series;
+    }
+}
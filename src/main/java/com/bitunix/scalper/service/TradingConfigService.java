@@ -3,6 +3,7 @@ package com.bitunix.scalper.service;
 import com.bitunix.scalper.model.TradingConfig;
 import com.bitunix.scalper.model.TradingPair;
 import com.bitunix.scalper.repository.TradingConfigRepository;
+import com.bitunix.scalper.util.AsyncLog;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,6 +23,8 @@ import java.util.stream.Collectors;
 @Service
 public class TradingConfigService {
     
+    private static final AsyncLog log = AsyncLog.getLogger(TradingConfigService.class);
+    
     @Autowired
     private TradingConfigRepository configRepository;
     
@@ -41,7 +44,7 @@ public class TradingConfigService {
                         return createDefaultConfig();
                     } catch (Exception e) {
                         // If creation fails (e.g., duplicate), try to find existing
-                        System.err.println("Error creating default config: " + e.getMessage());
+                        log.error("Error creating default config", "error", e.getMessage());
                         return configRepository.findByName("default")
                                 .orElseGet(() -> {
                                     // Last resort: return a minimal config
@@ -62,10 +65,10 @@ public class TradingConfigService {
                     if (!defaultPairs.isEmpty()) {
                         config.setSelectedPairs(stringifyList(defaultPairs));
                         config = saveConfig(config);
-                        System.out.println("Auto-populated default pairs: " + defaultPairs);
+                        log.info("Auto-populated default pairs", "pairs", defaultPairs);
                     }
                 } catch (Exception e) {
-                    System.err.println("Error populating default pairs: " + e.getMessage());
+                    log.error("Error populating default pairs", "error", e.getMessage());
                 }
             }
         }
@@ -194,7 +197,7 @@ public class TradingConfigService {
                     config.setSelectedPairs("[]"); // Empty if can't select
                 }
             } catch (Exception e) {
-                System.err.println("Error selecting default pairs: " + e.getMessage());
+                log.error("Error selecting default pairs", "error", e.getMessage());
                 config.setSelectedPairs("[]"); // Empty on error
             }
             
@@ -213,7 +216,7 @@ public class TradingConfigService {
                 return configRepository.save(config);
             } catch (org.springframework.dao.DataIntegrityViolationException e) {
                 // If save fails due to duplicate, find and return existing
-                System.err.println("Duplicate key violation, finding existing config: " + e.getMessage());
+                log.warn("Duplicate key violation, finding existing config", "error", e.getMessage());
                 return configRepository.findByName("default")
                         .orElseThrow(() -> new RuntimeException("Failed to create or find default config", e));
             }
@@ -281,7 +284,7 @@ public class TradingConfigService {
             }
             
         } catch (Exception e) {
-            System.err.println("Error selecting default pairs: " + e.getMessage());
+            log.error("Error selecting default pairs", "error", e.getMessage());
             // Return empty list on error
         }
         
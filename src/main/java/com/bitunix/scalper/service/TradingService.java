@@ -1,52 +1,212 @@
 package com.bitunix.scalper.service;
 
 import com.bitunix.scalper.model.Trade;
+import com.bitunix.scalper.model.TradingConfig;
 import com.bitunix.scalper.model.TradingPair;
+import com.bitunix.scalper.strategy.ExecutionCostModel;
+import com.bitunix.scalper.strategy.OrderBook;
+import com.bitunix.scalper.strategy.SignalResult;
 import com.bitunix.scalper.strategy.TradingStrategyInterface;
+import com.bitunix.scalper.util.AsyncLog;
+import com.bitunix.scalper.util.FixedPoint;
+import com.bitunix.scalper.util.SymbolScale;
+import com.fasterxml.jackson.databind.JsonNode;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
 
 @Service
 public class TradingService {
     
+    private static final AsyncLog log = AsyncLog.getLogger(TradingService.class);
+    
+    // Fee rates as parts per million (0.00055 -> 550)
+    private static final int FEE_RATE_SCALE = 6;
+    
     @Autowired
     private List<TradingStrategyInterface> strategies;
     
-    @Value("${bitunix.trading.maker-fee}")
-    private BigDecimal makerFee;
+    @Value("${bitunix.trading.place-orders:true}")
+    private boolean placeOrders;
+    
+    @Value("${bitunix.trading.category:linear}")
+    private String category;
+    
+    // A limit entry still resting after this is cancelled
+    @Value("${bitunix.trading.limit-entry-timeout-ms:30000}")
+    private long limitEntryTimeoutMs;
     
-    @Value("${bitunix.trading.taker-fee}")
-    private BigDecimal takerFee;
+    @Value("${bitunix.book.max-spread-bps:10}")
+    private double maxSpreadBps;
+    
+    @Value("${bitunix.book.max-slippage-bps:5}")
+    private double maxSlippageBps;
     
     @Autowired
     private TradingConfigService configService;
     
+    @Autowired
+    private BybitDemoTradingService bybitDemoTradingService;
+    
+    @Autowired
+    private OrderBatchService orderBatchService;
+    
+    @Autowired
+    private LatencyTrackerService latencyTracker;
+    
+    @Autowired
+    private MetricsService metricsService;
+    
+    @Autowired
+    private TradeJournalService tradeJournalService;
+    
+    @Autowired
+    private TradeStatisticsService tradeStatisticsService;
+    
+    @Autowired
+    private SymbolScaleService symbolScaleService;
+    
+    @Autowired
+    private InstrumentRegistryService instrumentRegistry;
+    
+    @Autowired
+    private StrategyRegistryService strategyRegistry;
+    
+    @Autowired
+    private OrderBookService orderBookService;
+    
+    @Autowired
+    private ExecutionCostService executionCostService;
+    
+    private long makerFeeRate;
+    private long takerFeeRate;
+    
+    @PostConstruct
+    public void initFeeRates() {
+        makerFeeRate = FixedPoint.fromDecimal(executionCostService.getMakerFee(), FEE_RATE_SCALE);
+        takerFeeRate = FixedPoint.fromDecimal(executionCostService.getTakerFee(), FEE_RATE_SCALE);
+    }
+    
     /**
-     * Execute a trade based on strategy signals
+     * Execute a trade from a signal the strategy has already evaluated
      */
     public Trade executeTrade(TradingPair pair, TradingStrategyInterface strategy, 
-                            List<TradingPair> historicalData, double availableBalance) {
+                            SignalResult signal, double availableBalance) {
         
-        if (!strategy.isActive()) {
+        if (!strategy.isActive() || !signal.isEntry()) {
             return null;
         }
         
-        // Check if strategy signals entry
-        if (!strategy.shouldEnter(pair, historicalData)) {
+        // Calculate trade parameters
+        long riskCheckStart = System.nanoTime();
+        double entryPrice = signal.getEntryPrice();
+        TradingConfig config = configService.getActiveConfig();
+        double positionSize = positionSize(pair, strategy, config, availableBalance);
+        latencyTracker.record(LatencyTrackerService.Stage.RISK_CHECK, pair.getSymbol(), riskCheckStart);
+        
+        // Fixed-point sizing: price on the tick grid, quantity rounded down to the lot size
+        SymbolScale scale = symbolScaleService.getScale(pair.getSymbol(), entryPrice);
+        long price = scale.price(entryPrice);
+        long quantity = lotQuantity(pair, scale, positionSize, price);
+        
+        // With a current order book: skip wide spreads and cap a market entry
+        // at the depth within the slippage limit
+        boolean buy = signal.getDirection() == Trade.TradeType.BUY;
+        boolean marketEntry = executionCostService.getEntryOrderType() == ExecutionCostModel.OrderType.MARKET;
+        OrderBook book = orderBookService.book(pair);
+        OrderBook.Quote quote = new OrderBook.Quote();
+        if (book != null && quantity > 0 && orderBookService.quote(pair, quote)) {
+            if (quote.getSpreadBps() > maxSpreadBps) {
+                log.debug("Spread too wide", "symbol", pair.getSymbol(), "spreadBps", quote.getSpreadBps());
+                metricsService.counter("scalper_entry_rejections_total", "reason", "spread").increment();
+                return null;
+            }
+            double slippage = maxSlippageBps / 10_000;
+            double limitPrice = quote.getMid() * (buy ? 1 + slippage : 1 - slippage);
+            double depth = book.quantityWithin(buy, limitPrice);
+            if (marketEntry && !Double.isNaN(depth)) {
+                quantity = Math.min(quantity, scale.qty(BigDecimal.valueOf(depth)));
+            }
+        }
+        if (quantity > 0 && marketEntry) {
+            // Price the trade at the expected fill of the market entry; a limit entry fills at its price
+            price = scale.price(executionCostService.marketFillPrice(pair, buy,
+                    scale.qtyToDecimal(quantity).doubleValue(), entryPrice));
+        }
+        if (quantity <= 0) {
+            log.debug("Position size below one lot", "symbol", pair.getSymbol(), "positionSize", positionSize);
+            return null;
+        }
+        String rejection = instrumentRegistry.validateOrder(pair.getSymbol(),
+                scale.qtyToDecimal(quantity), scale.priceToDecimal(price));
+        if (rejection != null) {
+            log.debug("Order outside instrument limits", "symbol", pair.getSymbol(), "reason", rejection);
             return null;
         }
         
-        // Calculate trade parameters
-        double entryPrice = strategy.calculateEntryPrice(pair);
+        // Direction comes from the strategy's signal
+        Trade.TradeType tradeType = signal.getDirection();
+        
+        // Entry fee at the rate of the entry order type; the exit fee is added on close
+        long entryFee = orderFee(scale, price, quantity, executionCostService.getEntryOrderType());
+        
+        // Create trade - BigDecimal only from here on, for JPA/JSON
+        Trade trade = new Trade();
+        trade.setSymbol(pair.getSymbol());
+        trade.setType(tradeType);
+        trade.setStatus(Trade.TradeStatus.OPEN);
+        trade.setEntryPrice(scale.priceToDecimal(price));
+        trade.setQuantity(scale.qtyToDecimal(quantity));
+        trade.setStrategy(strategy.getName());
+        trade.setStrategyId(strategyRegistry.idOf(strategy));
+        trade.setEntryTime(LocalDateTime.now());
+        trade.setMakerFee(scale.valueToDecimal(marketEntry ? 0 : entryFee));
+        trade.setTakerFee(scale.valueToDecimal(marketEntry ? entryFee : 0));
+        trade.setTotalFees(scale.valueToDecimal(entryFee));
+        
+        // Stop loss / take profit prices, attached to the exchange order on submission
+        applyProtectionPrices(trade, config, scale, price);
+        if (signal.hasStopPrice()) {
+            trade.setStopLossPrice(scale.priceToDecimal(scale.price(signal.getStopPrice())));
+        }
+        if (signal.hasTargetPrice()) {
+            trade.setTakeProfitPrice(scale.priceToDecimal(scale.price(signal.getTargetPrice())));
+        }
+        trade.setOrderLinkId("sb" + UUID.randomUUID().toString().replace("-", "").substring(0, 24));
+        tradeJournalService.record(TradeJournalService.EventType.OPENED, trade);
         
-        // Calculate position size based on percentage of balance
-        com.bitunix.scalper.model.TradingConfig config = configService.getActiveConfig();
+        return trade;
+    }
+    
+    /**
+     * Quantity an entry on a signal would be sized at, in base units, before
+     * the order book depth cap; 0 if it is below one lot
+     */
+    public double plannedQuantity(TradingPair pair, TradingStrategyInterface strategy,
+                                  SignalResult signal, double availableBalance) {
+        double entryPrice = signal.getEntryPrice();
+        if (!(entryPrice > 0)) {
+            return 0;
+        }
+        double positionSize = positionSize(pair, strategy, configService.getActiveConfig(), availableBalance);
+        SymbolScale scale = symbolScaleService.getScale(pair.getSymbol(), entryPrice);
+        long quantity = lotQuantity(pair, scale, positionSize, scale.price(entryPrice));
+        return quantity > 0 ? scale.qtyToDecimal(quantity).doubleValue() : 0;
+    }
+    
+    /**
+     * Position value: the configured share of the balance, capped by the strategy's own size
+     */
+    private double positionSize(TradingPair pair, TradingStrategyInterface strategy, TradingConfig config,
+                                double availableBalance) {
         double positionSizePercent = config.getPositionSizePercent() != null ? 
             config.getPositionSizePercent() : 5.0; // Default 5%
         
@@ -57,65 +217,374 @@ public class TradingService {
         double strategyPositionSize = strategy.calculatePositionSize(pair, availableBalance);
         
         // Use the smaller of the two (more conservative)
-        positionSize = Math.min(positionSize, strategyPositionSize);
+        return Math.min(positionSize, strategyPositionSize);
+    }
+    
+    /**
+     * Quantity for a position value, rounded down to the lot size and capped at the market order maximum
+     */
+    private long lotQuantity(TradingPair pair, SymbolScale scale, double positionSize, long price) {
+        long quantity = scale.qtyForValue(scale.value(positionSize), price);
+        BigDecimal maxQuantity = instrumentRegistry.getMaxMarketQty(pair.getSymbol());
+        if (maxQuantity != null) {
+            quantity = Math.min(quantity, scale.qty(maxQuantity));
+        }
+        return quantity;
+    }
+    
+    /**
+     * Submit the entry order for a trade to the exchange with stop loss and
+     * take profit attached. An optional trailing stop is left pending on the
+     * trade, see {@link #setPendingTrailingStop}.
+     * 
+     * @return true if the trade is to be tracked: the exchange accepted the order,
+     *         or orders are not placed (paper trading) and the trade is kept locally
+     *         only. An accepted limit entry is PENDING until it fills, see
+     *         {@link #checkPendingEntry}. A rejected or rate-limited order cancels the trade.
+     */
+    public boolean submitEntryOrder(Trade trade) {
+        if (!placeOrders) {
+            tradeStatisticsService.recordOpened(trade);
+            return true;
+        }
         
-        // Determine trade type based on strategy
-        Trade.TradeType tradeType = determineTradeType(pair, strategy);
+        String side = trade.getType() == Trade.TradeType.BUY ? "Buy" : "Sell";
+        // A limit entry rests at the trade's entry price
+        boolean marketEntry = executionCostService.getEntryOrderType() == ExecutionCostModel.OrderType.MARKET;
+        // Entries submitted within the batch window share one create-batch call
+        JsonNode result = orderBatchService.await(orderBatchService.submitOrder(category,
+                bybitDemoTradingService.orderRequest(trade.getSymbol(), side,
+                        marketEntry ? "Market" : "Limit", formatDecimal(trade.getQuantity()),
+                        marketEntry ? null : formatDecimal(trade.getEntryPrice()),
+                        formatDecimal(trade.getStopLossPrice()), formatDecimal(trade.getTakeProfitPrice()),
+                        trade.getOrderLinkId())));
         
-        // Create trade
-        Trade trade = new Trade();
-        trade.setSymbol(pair.getSymbol());
-        trade.setType(tradeType);
-        trade.setStatus(Trade.TradeStatus.OPEN);
-        trade.setEntryPrice(BigDecimal.valueOf(entryPrice));
-        trade.setQuantity(BigDecimal.valueOf(positionSize / entryPrice));
-        trade.setStrategy(strategy.getName());
-        trade.setEntryTime(LocalDateTime.now());
+        if (!OrderBatchService.isAccepted(result)) {
+            String reason = result != null ? result.path("msg").asText("rejected") : "no response";
+            trade.setNotes("Exchange order not placed: " + reason);
+            trade.setStatus(Trade.TradeStatus.CANCELLED);
+            trade.setExitTime(LocalDateTime.now());
+            tradeJournalService.record(TradeJournalService.EventType.ORDER_REJECTED, trade);
+            return false;
+        }
         
-        // Calculate fees
-        BigDecimal tradeValue = BigDecimal.valueOf(positionSize);
-        BigDecimal makerFeeAmount = tradeValue.multiply(makerFee);
-        BigDecimal takerFeeAmount = tradeValue.multiply(takerFee);
+        if (!result.path("orderId").asText("").isEmpty()) {
+            trade.setOrderId(result.get("orderId").asText());
+        }
+        if (!marketEntry) {
+            // Open only once the exchange reports the fill
+            trade.setStatus(Trade.TradeStatus.PENDING);
+            tradeJournalService.record(TradeJournalService.EventType.ORDER_ACCEPTED, trade);
+            return true;
+        }
+        tradeJournalService.record(TradeJournalService.EventType.ORDER_ACCEPTED, trade);
+        tradeStatisticsService.recordOpened(trade);
         
-        trade.setMakerFee(makerFeeAmount);
-        trade.setTakerFee(takerFeeAmount);
-        trade.setTotalFees(makerFeeAmount.add(takerFeeAmount));
+        // Trailing stop can only be set once the position exists; the exit monitor sets it
+        trade.setPendingTrailingStop(calculateTrailingDistance(trade, configService.getActiveConfig()));
         
+        return true;
+    }
+    
+    /**
+     * Follow a resting limit entry until it is filled or cancelled
+     * 
+     * A filled order opens the trade at its average fill price. An order
+     * still resting after the limit entry timeout is cancelled; once the
+     * exchange reports it cancelled, a partial fill opens the trade with the
+     * filled quantity and an unfilled order cancels the trade.
+     * 
+     * @return The trade: OPEN once filled, CANCELLED if nothing was filled, otherwise still PENDING
+     */
+    public Trade checkPendingEntry(Trade trade) {
+        boolean expired = trade.getEntryTime() == null
+                || Duration.between(trade.getEntryTime(), LocalDateTime.now()).toMillis() >= limitEntryTimeoutMs;
+        return checkPendingEntry(trade, expired);
+    }
+    
+    /**
+     * Cancel a resting limit entry right away (kill switch)
+     * 
+     * @return The trade as after {@link #checkPendingEntry}; still PENDING if the
+     *         exchange has not reported the order cancelled yet
+     */
+    public Trade cancelPendingEntry(Trade trade) {
+        return checkPendingEntry(trade, true);
+    }
+    
+    private Trade checkPendingEntry(Trade trade, boolean expired) {
+        if (trade.getStatus() != Trade.TradeStatus.PENDING) {
+            return trade;
+        }
+        if (expired && !trade.isEntryCancelRequested()) {
+            requestEntryCancel(trade);
+        }
+        
+        JsonNode response = bybitDemoTradingService.getOrder(category, trade.getSymbol(), trade.getOrderLinkId());
+        if (!isSuccess(response)) {
+            return trade;
+        }
+        JsonNode order = response.path("result").path("list").path(0);
+        String orderStatus = order.path("orderStatus").asText("");
+        BigDecimal filled = parseDecimal(order.path("cumExecQty").asText());
+        
+        switch (orderStatus) {
+            case "Filled":
+                return openPendingEntry(trade, parseDecimal(order.path("avgPrice").asText()), filled);
+            case "Cancelled":
+            case "PartiallyFilledCanceled":
+            case "Rejected":
+            case "Deactivated":
+                if (filled != null && filled.signum() > 0) {
+                    return openPendingEntry(trade, parseDecimal(order.path("avgPrice").asText()), filled);
+                }
+                return cancelUnfilledEntry(trade, "Limit entry not filled: " + orderStatus);
+            case "":
+                // Not listed although cancelled: whatever filled shows up as the position
+                if (trade.isEntryCancelRequested()) {
+                    return resolveFromPosition(trade);
+                }
+                return trade;
+            default:
+                // Still resting (New, PartiallyFilled)
+                return trade;
+        }
+    }
+    
+    private void requestEntryCancel(Trade trade) {
+        JsonNode result = orderBatchService.await(orderBatchService.cancelOrder(category, trade.getSymbol(),
+                trade.getOrderId(), trade.getOrderLinkId()));
+        if (OrderBatchService.isAccepted(result)) {
+            trade.setEntryCancelRequested(true);
+        } else {
+            // Also when the order has filled in the meantime; its status tells on the next check
+            log.warn("Limit entry not cancelled", "symbol", trade.getSymbol(), "orderLinkId", trade.getOrderLinkId(),
+                    "reason", result != null ? result.path("msg").asText("rejected") : "no response");
+        }
+    }
+    
+    private Trade resolveFromPosition(Trade trade) {
+        JsonNode response = bybitDemoTradingService.getPositions(category, trade.getSymbol(),
+                RateLimiterService.Priority.HIGH);
+        if (!isSuccess(response)) {
+            return trade;
+        }
+        String side = trade.getType() == Trade.TradeType.SELL ? "Sell" : "Buy";
+        for (JsonNode position : response.path("result").path("list")) {
+            BigDecimal size = parseDecimal(position.path("size").asText());
+            if (side.equals(position.path("side").asText()) && size != null && size.signum() > 0) {
+                return openPendingEntry(trade, parseDecimal(position.path("avgPrice").asText()), size);
+            }
+        }
+        return cancelUnfilledEntry(trade, "Limit entry not found on the exchange");
+    }
+    
+    /**
+     * Open a pending trade at its fill, paying the maker fee of the filled quantity
+     */
+    private Trade openPendingEntry(Trade trade, BigDecimal avgPrice, BigDecimal filled) {
+        if (avgPrice != null && avgPrice.signum() > 0) {
+            trade.setEntryPrice(avgPrice);
+        }
+        if (filled != null && filled.signum() > 0) {
+            trade.setQuantity(filled);
+        }
+        SymbolScale scale = symbolScaleService.getScale(trade.getSymbol(), trade.getEntryPrice().doubleValue());
+        long entryFee = orderFee(scale, scale.price(trade.getEntryPrice()), scale.qty(trade.getQuantity()),
+                ExecutionCostModel.OrderType.LIMIT);
+        trade.setMakerFee(scale.valueToDecimal(entryFee));
+        trade.setTotalFees(scale.valueToDecimal(entryFee));
+        trade.setStatus(Trade.TradeStatus.OPEN);
+        trade.setPendingTrailingStop(calculateTrailingDistance(trade, configService.getActiveConfig()));
+        
+        metricsService.counter("scalper_limit_entries_total", "state", "filled").increment();
+        tradeJournalService.record(TradeJournalService.EventType.ENTRY_FILLED, trade);
+        tradeStatisticsService.recordOpened(trade);
+        return trade;
+    }
+    
+    /**
+     * Cancel a pending trade whose entry did not fill; its quantity is the filled quantity, zero
+     */
+    private Trade cancelUnfilledEntry(Trade trade, String reason) {
+        trade.setNotes(reason);
+        trade.setQuantity(BigDecimal.ZERO);
+        trade.setStatus(Trade.TradeStatus.CANCELLED);
+        trade.setExitTime(LocalDateTime.now());
+        
+        metricsService.counter("scalper_limit_entries_total", "state", "cancelled").increment();
+        tradeJournalService.record(TradeJournalService.EventType.ENTRY_CANCELLED, trade);
         return trade;
     }
     
     /**
-     * Close a trade
+     * Set the pending trailing stop of an open trade on its exchange position
+     * 
+     * Fails while the entry has not produced a position yet; the pending
+     * distance is kept so the caller can retry.
+     * 
+     * @return true if nothing is pending anymore
+     */
+    public boolean setPendingTrailingStop(Trade trade) {
+        BigDecimal distance = trade.getPendingTrailingStop();
+        if (distance == null) {
+            return true;
+        }
+        
+        JsonNode response = bybitDemoTradingService.setTradingStop(category, trade.getSymbol(),
+                null, null, formatDecimal(distance));
+        if (!isSuccess(response)) {
+            metricsService.counter("scalper_trailing_stop_total", "state", "failed").increment();
+            log.warn("Failed to set trailing stop", "symbol", trade.getSymbol(), "orderId", trade.getOrderId(),
+                    "reason", response != null ? response.path("retMsg").asText() : "no response");
+            return false;
+        }
+        
+        trade.setPendingTrailingStop(null);
+        metricsService.counter("scalper_trailing_stop_total", "state", "set").increment();
+        tradeJournalService.record(TradeJournalService.EventType.PROTECTION_UPDATED, trade);
+        return true;
+    }
+    
+    /**
+     * Send the reduce-only market order closing a trade's position, batched
+     * with other closing orders on the closing-order budget
+     * 
+     * @return true if the exchange accepted the order
+     */
+    private boolean submitExitOrder(Trade trade) {
+        String side = trade.getType() == Trade.TradeType.SELL ? "Buy" : "Sell";
+        String orderLinkId = "sx" + UUID.randomUUID().toString().replace("-", "").substring(0, 24);
+        JsonNode result = orderBatchService.await(orderBatchService.submitClosingOrder(category,
+                bybitDemoTradingService.closingOrderRequest(trade.getSymbol(), side,
+                        formatDecimal(trade.getQuantity()), orderLinkId)));
+        
+        if (!OrderBatchService.isAccepted(result)) {
+            String reason = result != null ? result.path("msg").asText("rejected") : "no response";
+            log.warn("Exit order not placed", "symbol", trade.getSymbol(),
+                    "orderLinkId", trade.getOrderLinkId(), "reason", reason);
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Move the exchange-side stop loss / take profit of an open trade
+     * Null values leave the corresponding level unchanged
+     */
+    public boolean updateProtection(Trade trade, BigDecimal stopLossPrice, BigDecimal takeProfitPrice) {
+        if (trade.getStatus() != Trade.TradeStatus.OPEN) {
+            return false;
+        }
+        
+        if (placeOrders) {
+            JsonNode response = bybitDemoTradingService.setTradingStop(category, trade.getSymbol(),
+                    formatDecimal(stopLossPrice), formatDecimal(takeProfitPrice), null);
+            if (!isSuccess(response)) {
+                return false;
+            }
+        }
+        
+        if (stopLossPrice != null) {
+            trade.setStopLossPrice(stopLossPrice);
+        }
+        if (takeProfitPrice != null) {
+            trade.setTakeProfitPrice(takeProfitPrice);
+        }
+        tradeJournalService.record(TradeJournalService.EventType.PROTECTION_UPDATED, trade);
+        return true;
+    }
+    
+    /**
+     * Get the protection level crossed by the current price, if any.
+     * The exchange closes the position at this level on its own; this keeps
+     * the local trade book in sync with it.
+     */
+    public BigDecimal getTriggeredProtectionPrice(Trade trade, TradingPair currentPair) {
+        if (trade.getStatus() != Trade.TradeStatus.OPEN || currentPair.getPrice() == null) {
+            return null;
+        }
+        
+        BigDecimal price = currentPair.getPrice();
+        BigDecimal stopLoss = trade.getStopLossPrice();
+        BigDecimal takeProfit = trade.getTakeProfitPrice();
+        
+        if (trade.getType() == Trade.TradeType.BUY) {
+            if (stopLoss != null && price.compareTo(stopLoss) <= 0) {
+                return stopLoss;
+            }
+            if (takeProfit != null && price.compareTo(takeProfit) >= 0) {
+                return takeProfit;
+            }
+        } else {
+            if (stopLoss != null && price.compareTo(stopLoss) >= 0) {
+                return stopLoss;
+            }
+            if (takeProfit != null && price.compareTo(takeProfit) <= 0) {
+                return takeProfit;
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Close a trade on the exit signal of its strategy
+     * 
+     * The caller has already evaluated the exit; it is not evaluated again here.
+     * When orders are placed the position is closed on the exchange first and
+     * the trade is only marked CLOSED once the closing order is accepted;
+     * otherwise it is returned still OPEN and the exit is retried on the next check.
      */
     public Trade closeTrade(Trade trade, TradingPair currentPair, TradingStrategyInterface strategy) {
         if (trade.getStatus() != Trade.TradeStatus.OPEN) {
             return trade;
         }
-        
-        // Check if strategy signals exit
-        if (!strategy.shouldExit(trade, currentPair, null)) {
+        if (placeOrders && !submitExitOrder(trade)) {
             return trade;
         }
         
-        // Calculate exit price
+        // Expected fill of the closing market order, not the last price itself
         double exitPrice = strategy.calculateExitPrice(trade, currentPair);
-        trade.setExitPrice(BigDecimal.valueOf(exitPrice));
-        trade.setExitTime(LocalDateTime.now());
-        trade.setStatus(Trade.TradeStatus.CLOSED);
+        exitPrice = executionCostService.marketFillPrice(currentPair, trade.getType() == Trade.TradeType.SELL,
+                trade.getQuantity().doubleValue(), exitPrice);
+        return closeTradeAt(trade, BigDecimal.valueOf(exitPrice));
+    }
+    
+    /**
+     * Close a trade at a known exit price (e.g. a triggered stop loss / take profit)
+     */
+    public Trade closeTradeAt(Trade trade, BigDecimal exitPrice) {
+        if (trade.getStatus() != Trade.TradeStatus.OPEN) {
+            return trade;
+        }
         
-        // Calculate profit/loss
-        BigDecimal entryValue = trade.getEntryPrice().multiply(trade.getQuantity());
-        BigDecimal exitValue = trade.getExitPrice().multiply(trade.getQuantity());
-        BigDecimal grossProfit = exitValue.subtract(entryValue);
+        // Calculate profit/loss in fixed point at the symbol's value scale
+        SymbolScale scale = symbolScaleService.getScale(trade.getSymbol(), trade.getEntryPrice().doubleValue());
+        long entry = FixedPoint.fromDecimal(trade.getEntryPrice(), scale.getPriceScale());
+        long exit = scale.price(exitPrice);
+        long quantity = FixedPoint.fromDecimal(trade.getQuantity(), scale.getQtyScale());
+        // Entry fee plus the fee of the closing order
+        long exitFee = orderFee(scale, exit, quantity, ExecutionCostService.EXIT_ORDER_TYPE);
+        long fees = (trade.getTotalFees() != null ? scale.value(trade.getTotalFees()) : 0) + exitFee;
+        long netProfit = scale.pnl(entry, exit, quantity, trade.getType() != Trade.TradeType.SELL) - fees;
+        long entryValue = scale.notional(entry, quantity);
         
-        // Apply fees
-        BigDecimal netProfit = grossProfit.subtract(trade.getTotalFees());
-        trade.setProfit(netProfit);
+        trade.setExitPrice(scale.priceToDecimal(exit));
+        trade.setExitTime(LocalDateTime.now());
+        trade.setStatus(Trade.TradeStatus.CLOSED);
+        trade.setProfit(scale.valueToDecimal(netProfit));
+        trade.setTotalFees(scale.valueToDecimal(fees));
+        // Exits are market orders (exchange-side stop / take profit, reduce-only close)
+        trade.setTakerFee(addFee(trade.getTakerFee(), scale.valueToDecimal(exitFee)));
         
-        // Calculate profit percentage
-        BigDecimal profitPercentage = netProfit.divide(entryValue, 4, RoundingMode.HALF_UP)
-                                            .multiply(BigDecimal.valueOf(100));
-        trade.setProfitPercentage(profitPercentage);
+        // Profit percentage with 4 decimals
+        long profitPercentage = entryValue != 0 ? Math.round((double) netProfit / entryValue * 1_000_000) : 0;
+        trade.setProfitPercentage(FixedPoint.toDecimal(profitPercentage, 4));
+        metricsService.counter("scalper_trades_closed_total",
+                "result", netProfit > 0 ? "win" : "loss").increment();
+        tradeJournalService.record(TradeJournalService.EventType.CLOSED, trade);
+        tradeStatisticsService.recordClosed(trade);
         
         return trade;
     }
@@ -153,33 +622,69 @@ public class TradingService {
     }
     
     /**
-     * Determine trade type based on strategy and market conditions
+     * Fee of one order at the rate of its order type (taker for market, maker for limit), at value scale
      */
-    private Trade.TradeType determineTradeType(TradingPair pair, TradingStrategyInterface strategy) {
-        // This is a simplified logic - in real implementation, 
-        // you would analyze market conditions more thoroughly
+    private long orderFee(SymbolScale scale, long price, long quantity, ExecutionCostModel.OrderType type) {
+        int valueScale = scale.getValueScale();
+        long feeRate = type == ExecutionCostModel.OrderType.MARKET ? takerFeeRate : makerFeeRate;
+        return FixedPoint.multiply(scale.notional(price, quantity), valueScale, feeRate, FEE_RATE_SCALE, valueScale);
+    }
+    
+    private static BigDecimal addFee(BigDecimal fee, BigDecimal amount) {
+        return fee != null ? fee.add(amount) : amount;
+    }
+    
+    /**
+     * Set stop loss / take profit prices from the configured percentages
+     */
+    private void applyProtectionPrices(Trade trade, TradingConfig config, SymbolScale scale, long entryPrice) {
+        boolean isLong = trade.getType() != Trade.TradeType.SELL;
         
-        // For RSI strategy
-        if (strategy.getName().equals("RSI Scalping")) {
-            if (pair.getRsi() != null && pair.getRsi().doubleValue() < 30) {
-                return Trade.TradeType.BUY;
-            } else if (pair.getRsi() != null && pair.getRsi().doubleValue() > 70) {
-                return Trade.TradeType.SELL;
-            }
+        Double stopLossPercent = config.getStopLossPercent();
+        if (stopLossPercent != null && stopLossPercent > 0) {
+            long offset = Math.round(entryPrice * (stopLossPercent / 100.0));
+            long stopLoss = isLong ? entryPrice - offset : entryPrice + offset;
+            trade.setStopLossPrice(scale.priceToDecimal(scale.roundPrice(stopLoss, RoundingMode.HALF_UP)));
         }
         
-        // For Bollinger Bands strategy
-        if (strategy.getName().equals("Bollinger Bounce")) {
-            if (pair.getBollingerLower() != null && 
-                pair.getPrice().compareTo(pair.getBollingerLower()) <= 0) {
-                return Trade.TradeType.BUY;
-            } else if (pair.getBollingerUpper() != null && 
-                      pair.getPrice().compareTo(pair.getBollingerUpper()) >= 0) {
-                return Trade.TradeType.SELL;
-            }
+        Double takeProfitPercent = config.getTakeProfitPercent();
+        if (takeProfitPercent != null && takeProfitPercent > 0) {
+            long offset = Math.round(entryPrice * (takeProfitPercent / 100.0));
+            long takeProfit = isLong ? entryPrice + offset : entryPrice - offset;
+            trade.setTakeProfitPrice(scale.priceToDecimal(scale.roundPrice(takeProfit, RoundingMode.HALF_UP)));
         }
-        
-        // Default to BUY for other strategies
-        return Trade.TradeType.BUY;
+    }
+    
+    /**
+     * Trailing stop distance in price units, or null if disabled
+     */
+    private BigDecimal calculateTrailingDistance(Trade trade, TradingConfig config) {
+        Double trailingStopPercent = config.getTrailingStopPercent();
+        if (trailingStopPercent == null || trailingStopPercent <= 0) {
+            return null;
+        }
+        SymbolScale scale = symbolScaleService.getScale(trade.getSymbol(), trade.getEntryPrice().doubleValue());
+        long entryPrice = scale.price(trade.getEntryPrice());
+        long distance = scale.roundPrice(Math.round(entryPrice * (trailingStopPercent / 100.0)), RoundingMode.HALF_UP);
+        return scale.priceToDecimal(Math.max(distance, scale.getTickSize()));
+    }
+    
+    private boolean isSuccess(JsonNode response) {
+        return response != null && response.has("retCode") && response.get("retCode").asInt() == 0;
+    }
+    
+    private static BigDecimal parseDecimal(String value) {
+        try {
+            return value == null || value.isEmpty() ? null : new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    private String formatDecimal(BigDecimal value) {
+        if (value == null) {
+            return null;
+        }
+        return value.setScale(8, RoundingMode.HALF_UP).stripTrailingZeros().toPlainString();
     }
 }
@@ -0,0 +1,152 @@
+package com.bitunix.scalper.strategy;
+
+/**
+ * Closed bars of one kind in preallocated primitive arrays
+ * 
+ * One writer appends bars; any thread may read them by absolute index
+ * (0 = first bar ever). The writer overwrites the oldest slot, so readers
+ * only see the newest capacity - 1 bars: those are never being written.
+ * Read {@link #count()} once and index relative to it for a consistent view.
+ */
+public final class BarSeries {
+    
+    private final int capacity;
+    private final long[] startTime;
+    private final long[] endTime;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final double[] volume;
+    private final double[] buyVolume;
+    private final int[] trades;
+    
+    // Bars appended so far; the volatile write publishes the slot written before it
+    private volatile long count;
+    
+    public BarSeries(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2");
+        }
+        this.capacity = capacity;
+        this.startTime = new long[capacity];
+        this.endTime = new long[capacity];
+        this.open = new double[capacity];
+        this.high = new double[capacity];
+        this.low = new double[capacity];
+        this.close = new double[capacity];
+        this.volume = new double[capacity];
+        this.buyVolume = new double[capacity];
+        this.trades = new int[capacity];
+    }
+    
+    /**
+     * Append a closed bar (writer only)
+     */
+    void append(long barStart, long barEnd, double barOpen, double barHigh, double barLow, double barClose,
+                double barVolume, double barBuyVolume, int barTrades) {
+        long next = count;
+        int slot = (int) (next % capacity);
+        startTime[slot] = barStart;
+        endTime[slot] = barEnd;
+        open[slot] = barOpen;
+        high[slot] = barHigh;
+        low[slot] = barLow;
+        close[slot] = barClose;
+        volume[slot] = barVolume;
+        buyVolume[slot] = barBuyVolume;
+        trades[slot] = barTrades;
+        count = next + 1;
+    }
+    
+    /**
+     * Number of bars appended so far; the newest closed bar is count() - 1
+     */
+    public long count() {
+        return count;
+    }
+    
+    /**
+     * Whether a bar can still be read, given a count read earlier
+     */
+    public boolean isAvailable(long index, long count) {
+        return index >= 0 && index < count && index > count - capacity;
+    }
+    
+    public long startTime(long index) {
+        return startTime[slot(index)];
+    }
+    
+    /**
+     * End of the bar (exclusive for time bars, last trade time otherwise)
+     */
+    public long endTime(long index) {
+        return endTime[slot(index)];
+    }
+    
+    public double open(long index) {
+        return open[slot(index)];
+    }
+    
+    public double high(long index) {
+        return high[slot(index)];
+    }
+    
+    public double low(long index) {
+        return low[slot(index)];
+    }
+    
+    public double close(long index) {
+        return close[slot(index)];
+    }
+    
+    public double volume(long index) {
+        return volume[slot(index)];
+    }
+    
+    /**
+     * Volume of the trades where the taker bought
+     */
+    public double buyVolume(long index) {
+        return buyVolume[slot(index)];
+    }
+    
+    public int trades(long index) {
+        return trades[slot(index)];
+    }
+    
+    /**
+     * Average volume of the bars before endExclusive
+     * 
+     * @return NaN if fewer than bars bars are available
+     */
+    public double averageVolume(long endExclusive, int bars, long count) {
+        long from = endExclusive - bars;
+        if (bars <= 0 || !isAvailable(from, count) || !isAvailable(endExclusive - 1, count)) {
+            return Double.NaN;
+        }
+        double sum = 0;
+        for (long index = from; index < endExclusive; index++) {
+            sum += volume(index);
+        }
+        return sum / bars;
+    }
+    
+    /**
+     * Volume of a bar relative to the average of the bars before it
+     * 
+     * @return NaN if not enough bars are available or they had no volume
+     */
+    public double volumeRatio(long index, int bars, long count) {
+        double average = averageVolume(index, bars, count);
+        return isAvailable(index, count) && average > 0 ? volume(index) / average : Double.NaN;
+    }
+    
+    public int capacity() {
+        return capacity;
+    }
+    
+    private int slot(long index) {
+        return (int) (index % capacity);
+    }
+}
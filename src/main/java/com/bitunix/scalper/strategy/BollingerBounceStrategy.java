@@ -68,6 +68,31 @@ public class BollingerBounceStrategy implements TradingStrategyInterface {
         return false;
     }
     
+    @Override
+    public boolean shouldExit(Trade trade, TradingPair currentPair, FeatureSnapshot features) {
+        if (features == null) {
+            return shouldExit(trade, currentPair, (List<TradingPair>) null);
+        }
+        if (currentPair.getPrice() == null) {
+            return false;
+        }
+        
+        double price = currentPair.getPrice().doubleValue();
+        double middle = (features.getBollingerLower() + features.getBollingerUpper()) / 2;
+        
+        // Exit long when price reaches middle of bands
+        if (trade.getType() == Trade.TradeType.BUY && price >= middle) {
+            return true;
+        }
+        
+        // Exit short when price reaches middle of bands
+        if (trade.getType() == Trade.TradeType.SELL && price <= middle) {
+            return true;
+        }
+        
+        return false;
+    }
+    
     @Override
     public double calculateEntryPrice(TradingPair pair) {
         return pair.getPrice().doubleValue();
@@ -84,6 +109,33 @@ public class BollingerBounceStrategy implements TradingStrategyInterface {
         return availableBalance * 0.015;
     }
     
+    @Override
+    public Trade.TradeType getDirection(TradingPair pair) {
+        if (pair.getBollingerUpper() != null && pair.getPrice() != null
+                && (pair.getBollingerLower() == null || pair.getPrice().compareTo(pair.getBollingerLower()) > 0)
+                && pair.getPrice().compareTo(pair.getBollingerUpper()) >= 0) {
+            return Trade.TradeType.SELL;
+        }
+        return Trade.TradeType.BUY;
+    }
+    
+    @Override
+    public double getSignalStrength(TradingPair pair) {
+        if (pair.getBollingerLower() != null && pair.getBollingerUpper() != null) {
+            double price = pair.getPrice().doubleValue();
+            double lower = pair.getBollingerLower().doubleValue();
+            double upper = pair.getBollingerUpper().doubleValue();
+            double range = upper - lower;
+            
+            if (range > 0) {
+                double distanceFromLower = (price - lower) / range;
+                double distanceFromUpper = (upper - price) / range;
+                return Math.max(distanceFromLower, distanceFromUpper);
+            }
+        }
+        return 0.5;
+    }
+    
     @Override
     public int getPriority() {
         return PRIORITY;
@@ -0,0 +1,164 @@
+package com.bitunix.scalper.strategy;
+
+import com.bitunix.scalper.model.TradingPair;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Higher-timeframe candles of one symbol, built incrementally from its 1m candles
+ * 
+ * Every closed 1m candle is folded into the current bar of each timeframe
+ * (close = last close, volume = sum). A bar is closed as soon as its last
+ * minute arrives, or when a candle of a later bar shows up (a bar with missing
+ * minutes is closed as it is). Lists are newest first with a forming bar at
+ * index 0, like the exchange klines: the bar in progress, or a placeholder at
+ * the last close when the previous bar has just closed.
+ * 
+ * Written by the symbol's worker only; not thread-safe.
+ */
+public final class CandleAggregator {
+    
+    private final int capacity;
+    private final Map<Timeframe, Series> series = new EnumMap<>(Timeframe.class);
+    private long lastCandleTime = Long.MIN_VALUE;
+    
+    /**
+     * @param timeframes Timeframes to build (M1 is the input and passes through)
+     * @param capacity Closed bars kept per timeframe
+     */
+    public CandleAggregator(Set<Timeframe> timeframes, int capacity) {
+        this.capacity = capacity;
+        for (Timeframe timeframe : timeframes) {
+            series.put(timeframe, new Series(timeframe));
+        }
+    }
+    
+    /**
+     * Fold in one closed 1m candle
+     * 
+     * @return false if the candle is not newer than the last one (duplicate or out of order)
+     */
+    public boolean onCandle(TradingPair candle) {
+        long time = candle.getCandleTime();
+        if (time <= lastCandleTime || candle.getPrice() == null) {
+            return false;
+        }
+        lastCandleTime = time;
+        double close = candle.getPrice().doubleValue();
+        double volume = candle.getVolume24h() != null ? candle.getVolume24h().doubleValue() : 0.0;
+        for (Series bars : series.values()) {
+            bars.add(candle.getSymbol(), time, close, volume);
+        }
+        return true;
+    }
+    
+    /**
+     * Fold in the closed candles of 1m klines (newest first, forming candle at index 0)
+     * that are newer than the last candle, e.g. after a REST refresh or a stream gap
+     * 
+     * @return Number of candles folded in
+     */
+    public int catchUp(List<TradingPair> klines) {
+        int added = 0;
+        for (int i = klines.size() - 1; i >= 1; i--) {
+            if (onCandle(klines.get(i))) {
+                added++;
+            }
+        }
+        return added;
+    }
+    
+    /**
+     * Candles of a timeframe, newest first with the forming bar at index 0
+     * 
+     * @return Empty if the timeframe is not built or no candle has arrived yet
+     */
+    public List<TradingPair> candles(Timeframe timeframe) {
+        Series bars = series.get(timeframe);
+        return bars != null ? bars.snapshot() : Collections.emptyList();
+    }
+    
+    /**
+     * Number of closed bars of a timeframe
+     */
+    public int closedBars(Timeframe timeframe) {
+        Series bars = series.get(timeframe);
+        return bars != null ? bars.closed.size() : 0;
+    }
+    
+    public Set<Timeframe> getTimeframes() {
+        return series.keySet();
+    }
+    
+    /**
+     * Closed bars plus the bar in progress of one timeframe
+     */
+    private final class Series {
+        private final Timeframe timeframe;
+        // Oldest first, at most capacity
+        private final ArrayList<TradingPair> closed = new ArrayList<>();
+        private String symbol;
+        private long barStart = Long.MIN_VALUE;
+        private double close = Double.NaN;
+        private double volume;
+        private int minutes;
+        
+        private Series(Timeframe timeframe) {
+            this.timeframe = timeframe;
+        }
+        
+        private void add(String candleSymbol, long time, double candleClose, double candleVolume) {
+            long start = timeframe.barStart(time);
+            if (minutes > 0 && start != barStart) {
+                // Later bar started before this one was complete
+                closeBar();
+            }
+            symbol = candleSymbol;
+            barStart = start;
+            close = candleClose;
+            volume += candleVolume;
+            minutes++;
+            if (time + Timeframe.M1.getMillis() >= barStart + timeframe.getMillis()) {
+                closeBar();
+            }
+        }
+        
+        private void closeBar() {
+            closed.add(bar(barStart, close, volume));
+            if (closed.size() > capacity) {
+                closed.remove(0);
+            }
+            volume = 0;
+            minutes = 0;
+        }
+        
+        private List<TradingPair> snapshot() {
+            if (Double.isNaN(close)) {
+                return Collections.emptyList();
+            }
+            List<TradingPair> bars = new ArrayList<>(closed.size() + 1);
+            // Forming bar: the one in progress, or an empty one after the last closed bar
+            bars.add(minutes > 0 ? bar(barStart, close, volume) : bar(barStart + timeframe.getMillis(), close, 0));
+            for (int i = closed.size() - 1; i >= 0; i--) {
+                bars.add(closed.get(i));
+            }
+            return bars;
+        }
+        
+        private TradingPair bar(long time, double barClose, double barVolume) {
+            TradingPair bar = new TradingPair();
+            bar.setSymbol(symbol);
+            bar.setPrice(BigDecimal.valueOf(barClose));
+            bar.setVolume24h(BigDecimal.valueOf(barVolume));
+            bar.setCandleTime(time);
+            bar.setIsActive(true);
+            return bar;
+        }
+    }
+}
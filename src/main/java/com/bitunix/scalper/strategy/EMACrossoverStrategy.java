@@ -78,6 +78,28 @@ public class EMACrossoverStrategy implements TradingStrategyInterface {
         return false;
     }
     
+    @Override
+    public boolean shouldExit(Trade trade, TradingPair currentPair, FeatureSnapshot features) {
+        if (features == null) {
+            return shouldExit(trade, currentPair, (List<TradingPair>) null);
+        }
+        
+        double emaFast = features.getEmaFast();
+        double emaSlow = features.getEmaSlow();
+        
+        // Exit long position on death cross
+        if (trade.getType() == Trade.TradeType.BUY && emaFast < emaSlow) {
+            return true;
+        }
+        
+        // Exit short position on golden cross
+        if (trade.getType() == Trade.TradeType.SELL && emaFast > emaSlow) {
+            return true;
+        }
+        
+        return false;
+    }
+    
     @Override
     public double calculateEntryPrice(TradingPair pair) {
         return pair.getPrice().doubleValue();
@@ -94,6 +116,20 @@ public class EMACrossoverStrategy implements TradingStrategyInterface {
         return availableBalance * 0.025;
     }
     
+    @Override
+    public double getSignalStrength(TradingPair pair) {
+        if (pair.getEma12() != null && pair.getEma26() != null) {
+            double ema12 = pair.getEma12().doubleValue();
+            double ema26 = pair.getEma26().doubleValue();
+            
+            if (ema26 > 0) {
+                double crossoverStrength = Math.abs(ema12 - ema26) / ema26;
+                return Math.min(crossoverStrength * 10, 1.0);
+            }
+        }
+        return 0.5;
+    }
+    
     @Override
     public int getPriority() {
         return PRIORITY;
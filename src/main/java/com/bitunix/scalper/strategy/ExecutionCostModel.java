@@ -0,0 +1,102 @@
+package com.bitunix.scalper.strategy;
+
+/**
+ * Expected cost of trading a position in and out, in basis points of the mid price
+ * 
+ * Each side pays the fee rate of its order type (taker for market orders,
+ * maker for resting limit orders). Market orders also cross half the spread
+ * and walk the book for their quantity (slippage). Spread and slippage come
+ * from the current order book when there is one, otherwise from the
+ * configured typical values. Immutable and shared; the caller supplies the
+ * scratch quote so estimates do not allocate.
+ */
+public final class ExecutionCostModel {
+    
+    private static final double BPS = 10_000;
+    
+    /**
+     * How an order is executed
+     */
+    public enum OrderType {
+        MARKET, LIMIT
+    }
+    
+    private final double makerFeeBps;
+    private final double takerFeeBps;
+    private final double halfSpreadBps;
+    private final double slippageBps;
+    
+    /**
+     * @param makerFeeRate Maker fee as a fraction of notional (0.0002 = 0.02%)
+     * @param takerFeeRate Taker fee as a fraction of notional
+     * @param halfSpreadBps Typical half spread when there is no order book
+     * @param slippageBps Typical slippage when there is no order book
+     */
+    public ExecutionCostModel(double makerFeeRate, double takerFeeRate, double halfSpreadBps, double slippageBps) {
+        this.makerFeeBps = makerFeeRate * BPS;
+        this.takerFeeBps = takerFeeRate * BPS;
+        this.halfSpreadBps = halfSpreadBps;
+        this.slippageBps = slippageBps;
+    }
+    
+    public double feeBps(OrderType type) {
+        return type == OrderType.MARKET ? takerFeeBps : makerFeeBps;
+    }
+    
+    /**
+     * Cost of one side: fee, plus half spread and slippage for a market order
+     */
+    public double sideCostBps(OrderType type, double sideHalfSpreadBps, double sideSlippageBps) {
+        double cost = feeBps(type);
+        if (type == OrderType.MARKET) {
+            cost += sideHalfSpreadBps + sideSlippageBps;
+        }
+        return cost;
+    }
+    
+    /**
+     * Round trip cost at the typical spread and slippage
+     */
+    public double roundTripBps(OrderType entry, OrderType exit) {
+        return sideCostBps(entry, halfSpreadBps, slippageBps) + sideCostBps(exit, halfSpreadBps, slippageBps);
+    }
+    
+    /**
+     * Round trip cost of a quantity against an order book: the entry takes one
+     * side of the book and the exit the other
+     * 
+     * @param book Current order book, or null for the typical values
+     * @param quote Scratch quote owned by the caller
+     * @param buy Whether the entry buys
+     */
+    public double roundTripBps(OrderBook book, OrderBook.Quote quote, boolean buy, double quantity,
+                               OrderType entry, OrderType exit) {
+        if (book == null || !book.readQuote(quote, 1)) {
+            return roundTripBps(entry, exit);
+        }
+        double mid = quote.getMid();
+        double bookHalfSpreadBps = quote.getSpread() / 2 / mid * BPS;
+        return sideCostBps(entry, bookHalfSpreadBps, slippageBps(book, quote, buy, quantity))
+                + sideCostBps(exit, bookHalfSpreadBps, slippageBps(book, quote, !buy, quantity));
+    }
+    
+    /**
+     * Expected fill of a market order at a reference (last or mark) price when there is no order book
+     */
+    public double marketFillPrice(double price, boolean buy) {
+        double adverse = (halfSpreadBps + slippageBps) / BPS;
+        return buy ? price * (1 + adverse) : price * (1 - adverse);
+    }
+    
+    /**
+     * Distance walked past the best price to fill a quantity, typical slippage if the book cannot fill it
+     */
+    private double slippageBps(OrderBook book, OrderBook.Quote quote, boolean buy, double quantity) {
+        double fill = book.fillPrice(buy, quantity);
+        if (Double.isNaN(fill)) {
+            return slippageBps;
+        }
+        double best = buy ? quote.getBestAsk() : quote.getBestBid();
+        return Math.abs(fill - best) / quote.getMid() * BPS;
+    }
+}
@@ -0,0 +1,468 @@
+package com.bitunix.scalper.strategy;
+
+import com.bitunix.scalper.model.TradingPair;
+
+import java.lang.invoke.VarHandle;
+import java.util.List;
+
+/**
+ * Per-symbol feature vector shared by all strategies
+ * 
+ * Computed once per closed candle from the kline history into primitive
+ * fields (volume averages, z-scores, returns, realised volatility, RSI, EMAs,
+ * Bollinger Bands, support / resistance), then read by every strategy in
+ * O(1) instead of each strategy re-scanning the history. Mutable and reused:
+ * {@link #update} recomputes in place only when a new candle has closed.
+ * Features without enough history are NaN.
+ * 
+ * Updates must come from one thread; other threads take a consistent copy
+ * with {@link #copyFrom} (a sequence lock: odd version while writing).
+ */
+public final class FeatureSnapshot {
+    
+    // Window for mean / standard deviation / z-scores / realised volatility
+    public static final int STATS_WINDOW = 20;
+    
+    // Incremented before and after every recompute
+    private volatile int version;
+    
+    // Open time of the newest candle used, 0 when klines carry no time
+    private long candleTime = Long.MIN_VALUE;
+    private int candles;
+    
+    // History buffers, newest first
+    private double[] closes = new double[0];
+    private double[] volumes = new double[0];
+    
+    // Price
+    private double close;
+    private double previousClose;
+    private double previousClose2;
+    private double return1;
+    private double return3;
+    private double mean;
+    private double stdDev;
+    private double zScore;
+    private double realizedVolatility;
+    
+    // Volume of the newest candle against the candles before it
+    private double volume;
+    private double averageVolume5;
+    private double averageVolume10;
+    private double averageVolume20;
+    private double volumeRatio5;
+    private double volumeRatio10;
+    private double volumeRatio20;
+    private double volumeZScore;
+    
+    // Indicators
+    private double rsi;
+    private double emaFast;
+    private double emaSlow;
+    private double bollingerUpper;
+    private double bollingerMiddle;
+    private double bollingerLower;
+    private double support;
+    private double resistance;
+    
+    public FeatureSnapshot() {
+        clear();
+    }
+    
+    /**
+     * One-off snapshot of a kline list (newest first), for callers outside the trading loop
+     */
+    public static FeatureSnapshot fromCandles(List<TradingPair> klines) {
+        FeatureSnapshot snapshot = new FeatureSnapshot();
+        snapshot.update(klines, 0, Settings.DEFAULTS);
+        return snapshot;
+    }
+    
+    /**
+     * Recompute from klines if a new candle has closed
+     * 
+     * @param klines Kline history, newest first (exchange order)
+     * @param skip Number of newest klines to ignore (the candle still forming)
+     * @return true if the features were recomputed
+     */
+    public boolean update(List<TradingPair> klines, int skip, Settings settings) {
+        if (klines == null || klines.size() <= skip) {
+            return false;
+        }
+        
+        // Klines without a time are always recomputed
+        long newest = klines.get(skip).getCandleTime();
+        if (newest != 0 && newest == candleTime && candles > 0) {
+            return false;
+        }
+        
+        int size = klines.size() - skip;
+        if (closes.length < size) {
+            closes = new double[size];
+            volumes = new double[size];
+        }
+        
+        // Copy until the first candle without a price
+        int count = 0;
+        for (int i = skip; i < klines.size(); i++) {
+            TradingPair kline = klines.get(i);
+            if (kline.getPrice() == null) {
+                break;
+            }
+            closes[count] = kline.getPrice().doubleValue();
+            volumes[count] = kline.getVolume24h() != null ? kline.getVolume24h().doubleValue() : 0.0;
+            count++;
+        }
+        
+        version++;
+        VarHandle.storeStoreFence();
+        candleTime = newest;
+        compute(count, settings);
+        version++;
+        return true;
+    }
+    
+    /**
+     * Copy the features of a snapshot that another thread may be updating
+     * 
+     * @return false if the source changed during the copy (this snapshot is then inconsistent)
+     */
+    public boolean copyFrom(FeatureSnapshot source) {
+        int before = source.version;
+        if ((before & 1) != 0) {
+            return false;
+        }
+        candleTime = source.candleTime;
+        candles = source.candles;
+        close = source.close;
+        previousClose = source.previousClose;
+        previousClose2 = source.previousClose2;
+        return1 = source.return1;
+        return3 = source.return3;
+        mean = source.mean;
+        stdDev = source.stdDev;
+        zScore = source.zScore;
+        realizedVolatility = source.realizedVolatility;
+        volume = source.volume;
+        averageVolume5 = source.averageVolume5;
+        averageVolume10 = source.averageVolume10;
+        averageVolume20 = source.averageVolume20;
+        volumeRatio5 = source.volumeRatio5;
+        volumeRatio10 = source.volumeRatio10;
+        volumeRatio20 = source.volumeRatio20;
+        volumeZScore = source.volumeZScore;
+        rsi = source.rsi;
+        emaFast = source.emaFast;
+        emaSlow = source.emaSlow;
+        bollingerUpper = source.bollingerUpper;
+        bollingerMiddle = source.bollingerMiddle;
+        bollingerLower = source.bollingerLower;
+        support = source.support;
+        resistance = source.resistance;
+        VarHandle.acquireFence();
+        return source.version == before;
+    }
+    
+    private void compute(int count, Settings settings) {
+        clear();
+        candles = count;
+        if (count == 0) {
+            return;
+        }
+        
+        double[] c = closes;
+        close = c[0];
+        previousClose = count > 1 ? c[1] : Double.NaN;
+        previousClose2 = count > 2 ? c[2] : Double.NaN;
+        return1 = count > 1 ? c[0] / c[1] - 1.0 : Double.NaN;
+        return3 = count > 3 ? c[0] / c[3] - 1.0 : Double.NaN;
+        
+        if (count >= STATS_WINDOW) {
+            mean = average(c, 0, STATS_WINDOW);
+            stdDev = deviation(c, 0, STATS_WINDOW, mean);
+            zScore = stdDev > 0 ? (close - mean) / stdDev : Double.NaN;
+        }
+        
+        // Sample standard deviation of one-candle log returns
+        if (count > STATS_WINDOW) {
+            double sum = 0.0;
+            double sumSquares = 0.0;
+            for (int i = 0; i < STATS_WINDOW; i++) {
+                double r = Math.log(c[i] / c[i + 1]);
+                sum += r;
+                sumSquares += r * r;
+            }
+            double meanReturn = sum / STATS_WINDOW;
+            realizedVolatility = Math.sqrt(Math.max(0.0,
+                    (sumSquares - STATS_WINDOW * meanReturn * meanReturn) / (STATS_WINDOW - 1)));
+        }
+        
+        volume = volumes[0];
+        averageVolume5 = count > 5 ? average(volumes, 1, 5) : Double.NaN;
+        averageVolume10 = count > 10 ? average(volumes, 1, 10) : Double.NaN;
+        averageVolume20 = count > 20 ? average(volumes, 1, 20) : Double.NaN;
+        volumeRatio5 = ratio(volume, averageVolume5);
+        volumeRatio10 = ratio(volume, averageVolume10);
+        volumeRatio20 = ratio(volume, averageVolume20);
+        if (count > 20) {
+            double volumeStdDev = deviation(volumes, 1, 20, averageVolume20);
+            volumeZScore = volumeStdDev > 0 ? (volume - averageVolume20) / volumeStdDev : Double.NaN;
+        }
+        
+        computeRsi(count, settings.rsiPeriod);
+        emaFast = ema(count, settings.emaFastPeriod);
+        emaSlow = ema(count, settings.emaSlowPeriod);
+        
+        int period = settings.bollingerPeriod;
+        if (count >= period) {
+            bollingerMiddle = average(c, 0, period);
+            double band = deviation(c, 0, period, bollingerMiddle) * settings.bollingerStdDev;
+            bollingerUpper = bollingerMiddle + band;
+            bollingerLower = bollingerMiddle - band;
+        }
+        
+        if (count >= settings.levelsPeriod) {
+            support = c[0];
+            resistance = c[0];
+            for (int i = 1; i < settings.levelsPeriod; i++) {
+                support = Math.min(support, c[i]);
+                resistance = Math.max(resistance, c[i]);
+            }
+        }
+    }
+    
+    /**
+     * RSI over simple averages of the last period gains / losses
+     */
+    private void computeRsi(int count, int period) {
+        if (count < period + 1) {
+            return;
+        }
+        double gains = 0.0;
+        double losses = 0.0;
+        for (int i = 0; i < period; i++) {
+            double change = closes[i] - closes[i + 1];
+            if (change > 0) {
+                gains += change;
+            } else {
+                losses -= change;
+            }
+        }
+        rsi = losses == 0 ? 100.0 : 100.0 - 100.0 / (1.0 + gains / losses);
+    }
+    
+    /**
+     * EMA seeded with the oldest close and run over the whole history
+     */
+    private double ema(int count, int period) {
+        if (count < period) {
+            return Double.NaN;
+        }
+        double multiplier = 2.0 / (period + 1);
+        double ema = closes[count - 1];
+        for (int i = count - 2; i >= 0; i--) {
+            ema = closes[i] * multiplier + ema * (1.0 - multiplier);
+        }
+        return ema;
+    }
+    
+    private void clear() {
+        candles = 0;
+        close = Double.NaN;
+        previousClose = Double.NaN;
+        previousClose2 = Double.NaN;
+        return1 = Double.NaN;
+        return3 = Double.NaN;
+        mean = Double.NaN;
+        stdDev = Double.NaN;
+        zScore = Double.NaN;
+        realizedVolatility = Double.NaN;
+        volume = Double.NaN;
+        averageVolume5 = Double.NaN;
+        averageVolume10 = Double.NaN;
+        averageVolume20 = Double.NaN;
+        volumeRatio5 = Double.NaN;
+        volumeRatio10 = Double.NaN;
+        volumeRatio20 = Double.NaN;
+        volumeZScore = Double.NaN;
+        rsi = Double.NaN;
+        emaFast = Double.NaN;
+        emaSlow = Double.NaN;
+        bollingerUpper = Double.NaN;
+        bollingerMiddle = Double.NaN;
+        bollingerLower = Double.NaN;
+        support = Double.NaN;
+        resistance = Double.NaN;
+    }
+    
+    private static double average(double[] values, int from, int length) {
+        double sum = 0.0;
+        for (int i = from; i < from + length; i++) {
+            sum += values[i];
+        }
+        return sum / length;
+    }
+    
+    /**
+     * Population standard deviation (same as TechnicalAnalysisService)
+     */
+    private static double deviation(double[] values, int from, int length, double mean) {
+        double variance = 0.0;
+        for (int i = from; i < from + length; i++) {
+            double diff = values[i] - mean;
+            variance += diff * diff;
+        }
+        return Math.sqrt(variance / length);
+    }
+    
+    private static double ratio(double value, double average) {
+        return average > 0 ? value / average : Double.NaN;
+    }
+    
+    /**
+     * Z-score of a live price against the closed-candle mean
+     */
+    public double zScore(double price) {
+        return stdDev > 0 ? (price - mean) / stdDev : Double.NaN;
+    }
+    
+    /**
+     * Enough history for the mean / deviation based features
+     */
+    public boolean isReady() {
+        return candles >= STATS_WINDOW;
+    }
+    
+    public long getCandleTime() {
+        return candleTime;
+    }
+    
+    public int getCandles() {
+        return candles;
+    }
+    
+    public double getClose() {
+        return close;
+    }
+    
+    public double getPreviousClose() {
+        return previousClose;
+    }
+    
+    public double getPreviousClose2() {
+        return previousClose2;
+    }
+    
+    public double getReturn1() {
+        return return1;
+    }
+    
+    public double getReturn3() {
+        return return3;
+    }
+    
+    public double getMean() {
+        return mean;
+    }
+    
+    public double getStdDev() {
+        return stdDev;
+    }
+    
+    public double getZScore() {
+        return zScore;
+    }
+    
+    public double getRealizedVolatility() {
+        return realizedVolatility;
+    }
+    
+    public double getVolume() {
+        return volume;
+    }
+    
+    public double getAverageVolume5() {
+        return averageVolume5;
+    }
+    
+    public double getAverageVolume10() {
+        return averageVolume10;
+    }
+    
+    public double getAverageVolume20() {
+        return averageVolume20;
+    }
+    
+    public double getVolumeRatio5() {
+        return volumeRatio5;
+    }
+    
+    public double getVolumeRatio10() {
+        return volumeRatio10;
+    }
+    
+    public double getVolumeRatio20() {
+        return volumeRatio20;
+    }
+    
+    public double getVolumeZScore() {
+        return volumeZScore;
+    }
+    
+    public double getRsi() {
+        return rsi;
+    }
+    
+    public double getEmaFast() {
+        return emaFast;
+    }
+    
+    public double getEmaSlow() {
+        return emaSlow;
+    }
+    
+    public double getBollingerUpper() {
+        return bollingerUpper;
+    }
+    
+    public double getBollingerMiddle() {
+        return bollingerMiddle;
+    }
+    
+    public double getBollingerLower() {
+        return bollingerLower;
+    }
+    
+    public double getSupport() {
+        return support;
+    }
+    
+    public double getResistance() {
+        return resistance;
+    }
+    
+    /**
+     * Indicator periods (from the active trading config)
+     */
+    public static final class Settings {
+        
+        public static final Settings DEFAULTS = new Settings(14, 20, 2.0, 12, 26, 50);
+        
+        private final int rsiPeriod;
+        private final int bollingerPeriod;
+        private final double bollingerStdDev;
+        private final int emaFastPeriod;
+        private final int emaSlowPeriod;
+        private final int levelsPeriod;
+        
+        public Settings(int rsiPeriod, int bollingerPeriod, double bollingerStdDev,
+                        int emaFastPeriod, int emaSlowPeriod, int levelsPeriod) {
+            this.rsiPeriod = rsiPeriod;
+            this.bollingerPeriod = bollingerPeriod;
+            this.bollingerStdDev = bollingerStdDev;
+            this.emaFastPeriod = emaFastPeriod;
+            this.emaSlowPeriod = emaSlowPeriod;
+            this.levelsPeriod = levelsPeriod;
+        }
+    }
+}
@@ -4,7 +4,6 @@ import com.bitunix.scalper.model.Trade;
 import com.bitunix.scalper.model.TradingPair;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
 import java.util.List;
 
 @Component
@@ -21,62 +20,71 @@ public class MeanReversionStrategy implements TradingStrategyInterface {
     
     @Override
     public boolean shouldEnter(TradingPair pair, List<TradingPair> historicalData) {
-        if (pair.getPrice() == null || historicalData.size() < 20) {
+        return historicalData != null && direction(pair, FeatureSnapshot.fromCandles(historicalData)) != null;
+    }
+    
+    @Override
+    public boolean evaluate(TradingPair pair, List<TradingPair> historicalData, SignalResult result) {
+        FeatureSnapshot features = historicalData != null ? FeatureSnapshot.fromCandles(historicalData) : null;
+        return evaluate(pair, historicalData, features, result);
+    }
+    
+    @Override
+    public boolean evaluate(TradingPair pair, List<TradingPair> historicalData,
+                            FeatureSnapshot features, SignalResult result) {
+        result.reset();
+        Trade.TradeType direction = direction(pair, features);
+        if (direction == null) {
             return false;
         }
-        
-        // Calculate moving average and standard deviation
-        BigDecimal[] stats = calculateMeanAndStdDev(historicalData, 20);
-        if (stats == null) {
-            return false;
+        result.enter(direction, getSignalStrength(pair), calculateEntryPrice(pair));
+        return true;
+    }
+    
+    /**
+     * Reversion direction, or null when the price is within the deviation threshold
+     */
+    private Trade.TradeType direction(TradingPair pair, FeatureSnapshot features) {
+        if (pair.getPrice() == null || features == null) {
+            return null;
         }
         
-        BigDecimal mean = stats[0];
-        BigDecimal stdDev = stats[1];
-        BigDecimal price = pair.getPrice();
-        
-        // Calculate z-score
-        BigDecimal zScore = price.subtract(mean).divide(stdDev, 4, BigDecimal.ROUND_HALF_UP);
+        // Z-score of the current price against the 20 candle mean
+        double zScore = features.zScore(pair.getPrice().doubleValue());
         
         // Enter long when price is significantly below mean (oversold)
-        if (zScore.doubleValue() < -DEVIATION_THRESHOLD) {
-            return true;
+        if (zScore < -DEVIATION_THRESHOLD) {
+            return Trade.TradeType.BUY;
         }
         
         // Enter short when price is significantly above mean (overbought)
-        if (zScore.doubleValue() > DEVIATION_THRESHOLD) {
-            return true;
+        if (zScore > DEVIATION_THRESHOLD) {
+            return Trade.TradeType.SELL;
         }
         
-        return false;
+        return null;
     }
     
     @Override
     public boolean shouldExit(Trade trade, TradingPair currentPair, List<TradingPair> historicalData) {
-        if (currentPair.getPrice() == null || historicalData.size() < 20) {
-            return false;
-        }
-        
-        // Calculate moving average and standard deviation
-        BigDecimal[] stats = calculateMeanAndStdDev(historicalData, 20);
-        if (stats == null) {
+        return historicalData != null && shouldExit(trade, currentPair, FeatureSnapshot.fromCandles(historicalData));
+    }
+    
+    @Override
+    public boolean shouldExit(Trade trade, TradingPair currentPair, FeatureSnapshot features) {
+        if (currentPair.getPrice() == null || features == null) {
             return false;
         }
         
-        BigDecimal mean = stats[0];
-        BigDecimal stdDev = stats[1];
-        BigDecimal price = currentPair.getPrice();
-        
-        // Calculate z-score
-        BigDecimal zScore = price.subtract(mean).divide(stdDev, 4, BigDecimal.ROUND_HALF_UP);
+        double zScore = features.zScore(currentPair.getPrice().doubleValue());
         
         // Exit long when price returns to mean
-        if (trade.getType() == Trade.TradeType.BUY && zScore.doubleValue() >= 0) {
+        if (trade.getType() == Trade.TradeType.BUY && zScore >= 0) {
             return true;
         }
         
         // Exit short when price returns to mean
-        if (trade.getType() == Trade.TradeType.SELL && zScore.doubleValue() <= 0) {
+        if (trade.getType() == Trade.TradeType.SELL && zScore <= 0) {
             return true;
         }
         
@@ -108,41 +116,4 @@ public class MeanReversionStrategy implements TradingStrategyInterface {
     public boolean isActive() {
         return true;
     }
-    
-    private BigDecimal[] calculateMeanAndStdDev(List<TradingPair> data, int periods) {
-        if (data.size() < periods) {
-            return null;
-        }
-        
-        // Calculate mean
-        BigDecimal sum = BigDecimal.ZERO;
-        int count = 0;
-        
-        for (int i = data.size() - periods; i < data.size(); i++) {
-            if (data.get(i).getPrice() != null) {
-                sum = sum.add(data.get(i).getPrice());
-                count++;
-            }
-        }
-        
-        if (count == 0) {
-            return null;
-        }
-        
-        BigDecimal mean = sum.divide(BigDecimal.valueOf(count), 8, BigDecimal.ROUND_HALF_UP);
-        
-        // Calculate standard deviation
-        BigDecimal variance = BigDecimal.ZERO;
-        for (int i = data.size() - periods; i < data.size(); i++) {
-            if (data.get(i).getPrice() != null) {
-                BigDecimal diff = data.get(i).getPrice().subtract(mean);
-                variance = variance.add(diff.multiply(diff));
-            }
-        }
-        
-        variance = variance.divide(BigDecimal.valueOf(count), 8, BigDecimal.ROUND_HALF_UP);
-        BigDecimal stdDev = new BigDecimal(Math.sqrt(variance.doubleValue()));
-        
-        return new BigDecimal[]{mean, stdDev};
-    }
 }
@@ -2,10 +2,13 @@ package com.bitunix.scalper.strategy;
 
 import com.bitunix.scalper.model.Trade;
 import com.bitunix.scalper.model.TradingPair;
+import com.bitunix.scalper.service.TradeTapeService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 @Component
 public class MomentumBreakoutStrategy implements TradingStrategyInterface {
@@ -13,74 +16,119 @@ public class MomentumBreakoutStrategy implements TradingStrategyInterface {
     private static final String STRATEGY_NAME = "Momentum Breakout";
     private static final int PRIORITY = 6;
     private static final double VOLUME_THRESHOLD = 1.5; // 150% of average volume
+    private static final int BAR_SECONDS = 15;
+    
+    @Autowired
+    private TradeTapeService tradeTapeService;
     
     @Override
     public String getName() {
         return STRATEGY_NAME;
     }
     
+    @Override
+    public Set<Timeframe> getTimeframes() {
+        return EnumSet.of(Timeframe.M1, Timeframe.M5);
+    }
+    
     @Override
     public boolean shouldEnter(TradingPair pair, List<TradingPair> historicalData) {
-        if (pair.getVolume24h() == null || historicalData.size() < 20) {
+        return historicalData != null && direction(pair, FeatureSnapshot.fromCandles(historicalData)) != null;
+    }
+    
+    @Override
+    public boolean evaluate(TradingPair pair, List<TradingPair> historicalData, SignalResult result) {
+        FeatureSnapshot features = historicalData != null ? FeatureSnapshot.fromCandles(historicalData) : null;
+        return evaluate(pair, historicalData, features, result);
+    }
+    
+    @Override
+    public boolean evaluate(TradingPair pair, List<TradingPair> historicalData,
+                            FeatureSnapshot features, SignalResult result) {
+        result.reset();
+        Trade.TradeType direction = direction(pair, features);
+        if (direction == null) {
             return false;
         }
-        
-        // Calculate average volume over last 20 periods
-        BigDecimal avgVolume = calculateAverageVolume(historicalData, 20);
-        if (avgVolume == null || avgVolume.compareTo(BigDecimal.ZERO) == 0) {
+        result.enter(direction, getSignalStrength(pair), calculateEntryPrice(pair));
+        return true;
+    }
+    
+    @Override
+    public boolean evaluate(TradingPair pair, List<TradingPair> historicalData, FeatureSnapshot features,
+                            CandleAggregator timeframes, SignalResult result) {
+        if (!evaluate(pair, historicalData, features, result)) {
             return false;
         }
-        
-        BigDecimal currentVolume = pair.getVolume24h();
-        BigDecimal volumeRatio = currentVolume.divide(avgVolume, 4, BigDecimal.ROUND_HALF_UP);
-        
-        // Check for volume spike
-        if (volumeRatio.doubleValue() >= VOLUME_THRESHOLD) {
-            // Check for price momentum
-            if (historicalData.size() >= 3) {
-                TradingPair prev1 = historicalData.get(historicalData.size() - 2);
-                TradingPair prev2 = historicalData.get(historicalData.size() - 3);
-                
-                if (prev1.getPrice() != null && prev2.getPrice() != null) {
-                    // Bullish momentum
-                    if (pair.getPrice().compareTo(prev1.getPrice()) > 0 && 
-                        prev1.getPrice().compareTo(prev2.getPrice()) > 0) {
-                        return true;
-                    }
-                    
-                    // Bearish momentum
-                    if (pair.getPrice().compareTo(prev1.getPrice()) < 0 && 
-                        prev1.getPrice().compareTo(prev2.getPrice()) < 0) {
-                        return true;
-                    }
+        // Confirm on 5m: the last closed 5m bar must not move against the breakout
+        if (timeframes != null && timeframes.closedBars(Timeframe.M5) >= 2) {
+            List<TradingPair> bars = timeframes.candles(Timeframe.M5);
+            double trend = bars.get(1).getPrice().doubleValue() - bars.get(2).getPrice().doubleValue();
+            boolean buy = result.getDirection() == Trade.TradeType.BUY;
+            if (buy ? trend < 0 : trend > 0) {
+                result.reset();
+                return false;
+            }
+        }
+        // Confirm on 15s trade bars: the last closed bar must keep going with volume
+        // at least its minute average, taken mostly by the breakout side
+        BarSeries bars = tradeTapeService != null ? tradeTapeService.recentTimeBars(pair, BAR_SECONDS) : null;
+        if (bars != null) {
+            long count = bars.count();
+            long last = count - 1;
+            double ratio = bars.volumeRatio(last, 4, count);
+            if (!Double.isNaN(ratio)) {
+                boolean buy = result.getDirection() == Trade.TradeType.BUY;
+                double move = bars.close(last) - bars.open(last);
+                double takerShare = bars.buyVolume(last) / bars.volume(last);
+                if (ratio < 1.0 || (buy ? move < 0 || takerShare < 0.5 : move > 0 || takerShare > 0.5)) {
+                    result.reset();
+                    return false;
                 }
             }
         }
-        
-        return false;
+        return true;
     }
     
-    @Override
-    public boolean shouldExit(Trade trade, TradingPair currentPair, List<TradingPair> historicalData) {
-        if (currentPair.getVolume24h() == null || historicalData.size() < 10) {
-            return false;
+    /**
+     * Breakout direction, or null when there is no breakout
+     */
+    private Trade.TradeType direction(TradingPair pair, FeatureSnapshot features) {
+        if (pair.getPrice() == null || features == null) {
+            return null;
         }
         
-        // Calculate average volume over last 10 periods
-        BigDecimal avgVolume = calculateAverageVolume(historicalData, 10);
-        if (avgVolume == null || avgVolume.compareTo(BigDecimal.ZERO) == 0) {
-            return false;
+        // Check for volume spike against the last 20 candles
+        if (!(features.getVolumeRatio20() >= VOLUME_THRESHOLD)) {
+            return null;
         }
         
-        BigDecimal currentVolume = currentPair.getVolume24h();
-        BigDecimal volumeRatio = currentVolume.divide(avgVolume, 4, BigDecimal.ROUND_HALF_UP);
+        double close = features.getClose();
+        double previous = features.getPreviousClose();
+        double previous2 = features.getPreviousClose2();
         
-        // Exit when volume drops below threshold
-        if (volumeRatio.doubleValue() < 0.8) {
-            return true;
+        // Bullish momentum
+        if (close > previous && previous > previous2) {
+            return Trade.TradeType.BUY;
         }
         
-        return false;
+        // Bearish momentum
+        if (close < previous && previous < previous2) {
+            return Trade.TradeType.SELL;
+        }
+        
+        return null;
+    }
+    
+    @Override
+    public boolean shouldExit(Trade trade, TradingPair currentPair, List<TradingPair> historicalData) {
+        return historicalData != null && shouldExit(trade, currentPair, FeatureSnapshot.fromCandles(historicalData));
+    }
+    
+    @Override
+    public boolean shouldExit(Trade trade, TradingPair currentPair, FeatureSnapshot features) {
+        // Exit when volume drops below threshold of the last 10 candles
+        return features != null && features.getVolumeRatio10() < 0.8;
     }
     
     @Override
@@ -108,26 +156,4 @@ public class MomentumBreakoutStrategy implements TradingStrategyInterface {
     public boolean isActive() {
         return true;
     }
-    
-    private BigDecimal calculateAverageVolume(List<TradingPair> data, int periods) {
-        if (data.size() < periods) {
-            return null;
-        }
-        
-        BigDecimal sum = BigDecimal.ZERO;
-        int count = 0;
-        
-        for (int i = data.size() - periods; i < data.size(); i++) {
-            if (data.get(i).getVolume24h() != null) {
-                sum = sum.add(data.get(i).getVolume24h());
-                count++;
-            }
-        }
-        
-        if (count == 0) {
-            return null;
-        }
-        
-        return sum.divide(BigDecimal.valueOf(count), 8, BigDecimal.ROUND_HALF_UP);
-    }
 }
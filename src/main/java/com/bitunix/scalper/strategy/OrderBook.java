@@ -0,0 +1,328 @@
+package com.bitunix.scalper.strategy;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * Local L2 order book of one symbol, kept from a snapshot plus delta stream
+ * 
+ * Each side is a sorted array of price levels (bids descending, asks
+ * ascending) in preallocated primitive arrays, so updates do not allocate.
+ * Deltas must carry consecutive update ids; on a gap the book is marked out
+ * of sync and ignores deltas until the next snapshot.
+ * 
+ * One thread updates the book between {@link #begin} and {@link #end}; other
+ * threads read it through a sequence lock (odd version while writing) with
+ * {@link #readQuote}, {@link #fillPrice} and {@link #quantityWithin}.
+ */
+public final class OrderBook {
+    
+    // Seqlock retries before a reader gives up on a busy book
+    private static final int MAX_READ_ATTEMPTS = 64;
+    
+    private final int capacity;
+    private final double[] bidPrices;
+    private final double[] bidSizes;
+    private final double[] askPrices;
+    private final double[] askSizes;
+    private int bidCount;
+    private int askCount;
+    private long updateId;
+    private long updateTime;
+    private boolean synced;
+    
+    // Incremented before and after every update
+    private volatile int version;
+    
+    /**
+     * @param capacity Price levels kept per side (the worst levels are dropped beyond it)
+     */
+    public OrderBook(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.bidPrices = new double[capacity];
+        this.bidSizes = new double[capacity];
+        this.askPrices = new double[capacity];
+        this.askSizes = new double[capacity];
+    }
+    
+    /**
+     * Start applying a snapshot or a delta (writer only)
+     * 
+     * A snapshot clears the book. A delta is only accepted when the book is
+     * in sync and its update id follows the last one.
+     * 
+     * @return false if the delta was rejected; call {@link #end} only after true
+     */
+    public boolean begin(long newUpdateId, boolean snapshot) {
+        if (!snapshot && (!synced || newUpdateId != updateId + 1)) {
+            if (synced) {
+                invalidate();
+            }
+            return false;
+        }
+        version++;
+        VarHandle.storeStoreFence();
+        if (snapshot) {
+            bidCount = 0;
+            askCount = 0;
+            synced = true;
+        }
+        updateId = newUpdateId;
+        return true;
+    }
+    
+    /**
+     * Set the size of a price level; size 0 removes the level (writer only, inside begin/end)
+     */
+    public void update(boolean bid, double price, double size) {
+        if (bid) {
+            bidCount = update(bidPrices, bidSizes, bidCount, price, size, true);
+        } else {
+            askCount = update(askPrices, askSizes, askCount, price, size, false);
+        }
+    }
+    
+    /**
+     * Finish an update and publish it
+     * 
+     * @param time Exchange time of the update (epoch millis)
+     */
+    public void end(long time) {
+        updateTime = time;
+        version++;
+    }
+    
+    /**
+     * Mark the book out of sync until the next snapshot (writer only)
+     */
+    public void invalidate() {
+        version++;
+        VarHandle.storeStoreFence();
+        synced = false;
+        version++;
+    }
+    
+    /**
+     * Whether the book follows the stream without gaps (writer's view)
+     */
+    public boolean isSynced() {
+        return synced;
+    }
+    
+    public long getUpdateId() {
+        return updateId;
+    }
+    
+    /**
+     * Copy the top of the book into a quote
+     * 
+     * @param levels Levels per side summed for the depth imbalance
+     * @return false if the book is out of sync, one-sided, or changed during every attempt
+     */
+    public boolean readQuote(Quote quote, int levels) {
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            int before = version;
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            boolean valid = synced;
+            int bids = Math.min(bidCount, capacity);
+            int asks = Math.min(askCount, capacity);
+            if (valid && bids > 0 && asks > 0) {
+                quote.bestBid = bidPrices[0];
+                quote.bidSize = bidSizes[0];
+                quote.bestAsk = askPrices[0];
+                quote.askSize = askSizes[0];
+                quote.bidDepth = sum(bidSizes, Math.min(bids, levels));
+                quote.askDepth = sum(askSizes, Math.min(asks, levels));
+                quote.updateTime = updateTime;
+            }
+            VarHandle.acquireFence();
+            if (version == before) {
+                return valid && bids > 0 && asks > 0;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Average price of a market order of the given quantity, walking the opposite side
+     * 
+     * @param buy Whether the order buys (and so takes the asks)
+     * @return NaN if the book is out of sync or its depth does not cover the quantity
+     */
+    public double fillPrice(boolean buy, double quantity) {
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            int before = version;
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            double[] prices = buy ? askPrices : bidPrices;
+            double[] sizes = buy ? askSizes : bidSizes;
+            int count = Math.min(buy ? askCount : bidCount, capacity);
+            double remaining = quantity;
+            double cost = 0;
+            for (int i = 0; i < count && remaining > 0; i++) {
+                double taken = Math.min(remaining, sizes[i]);
+                cost += taken * prices[i];
+                remaining -= taken;
+            }
+            boolean valid = synced && quantity > 0 && remaining <= 0;
+            VarHandle.acquireFence();
+            if (version == before) {
+                return valid ? cost / quantity : Double.NaN;
+            }
+        }
+        return Double.NaN;
+    }
+    
+    /**
+     * Quantity a market order can take from the opposite side without trading beyond a limit price
+     * 
+     * @param buy Whether the order buys (and so takes the asks up to the limit)
+     * @return NaN if the book is out of sync
+     */
+    public double quantityWithin(boolean buy, double limitPrice) {
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            int before = version;
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            double[] prices = buy ? askPrices : bidPrices;
+            double[] sizes = buy ? askSizes : bidSizes;
+            int count = Math.min(buy ? askCount : bidCount, capacity);
+            double quantity = 0;
+            for (int i = 0; i < count && (buy ? prices[i] <= limitPrice : prices[i] >= limitPrice); i++) {
+                quantity += sizes[i];
+            }
+            boolean valid = synced;
+            VarHandle.acquireFence();
+            if (version == before) {
+                return valid ? quantity : Double.NaN;
+            }
+        }
+        return Double.NaN;
+    }
+    
+    private int update(double[] prices, double[] sizes, int count, double price, double size, boolean descending) {
+        // Binary search for the level, or the slot where it belongs
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            double level = prices[mid];
+            if (level == price) {
+                if (size > 0) {
+                    sizes[mid] = size;
+                    return count;
+                }
+                System.arraycopy(prices, mid + 1, prices, mid, count - mid - 1);
+                System.arraycopy(sizes, mid + 1, sizes, mid, count - mid - 1);
+                return count - 1;
+            }
+            if (descending ? level > price : level < price) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (size <= 0 || low >= capacity) {
+            // Removing a level we do not have, or a level worse than all we keep
+            return count;
+        }
+        int moved = Math.min(count, capacity - 1) - low;
+        System.arraycopy(prices, low, prices, low + 1, moved);
+        System.arraycopy(sizes, low, sizes, low + 1, moved);
+        prices[low] = price;
+        sizes[low] = size;
+        return Math.min(count + 1, capacity);
+    }
+    
+    private static double sum(double[] values, int count) {
+        double total = 0;
+        for (int i = 0; i < count; i++) {
+            total += values[i];
+        }
+        return total;
+    }
+    
+    /**
+     * Top of the book as seen by one reader; mutable and reusable
+     */
+    public static final class Quote {
+        private double bestBid;
+        private double bidSize;
+        private double bestAsk;
+        private double askSize;
+        private double bidDepth;
+        private double askDepth;
+        private long updateTime;
+        
+        public double getBestBid() {
+            return bestBid;
+        }
+        
+        public double getBidSize() {
+            return bidSize;
+        }
+        
+        public double getBestAsk() {
+            return bestAsk;
+        }
+        
+        public double getAskSize() {
+            return askSize;
+        }
+        
+        public double getMid() {
+            return (bestBid + bestAsk) / 2;
+        }
+        
+        public double getSpread() {
+            return bestAsk - bestBid;
+        }
+        
+        /**
+         * Spread in basis points of the mid price
+         */
+        public double getSpreadBps() {
+            return getSpread() / getMid() * 10_000;
+        }
+        
+        /**
+         * Mid price weighted by the opposite best sizes: leans toward the side likely to be hit next
+         */
+        public double getMicroprice() {
+            double total = bidSize + askSize;
+            return total > 0 ? (bestBid * askSize + bestAsk * bidSize) / total : getMid();
+        }
+        
+        /**
+         * (bid depth - ask depth) / (bid depth + ask depth) over the levels read, in [-1, 1]
+         */
+        public double getImbalance() {
+            double total = bidDepth + askDepth;
+            return total > 0 ? (bidDepth - askDepth) / total : 0;
+        }
+        
+        public double getBidDepth() {
+            return bidDepth;
+        }
+        
+        public double getAskDepth() {
+            return askDepth;
+        }
+        
+        /**
+         * Exchange time of the last update (epoch millis)
+         */
+        public long getUpdateTime() {
+            return updateTime;
+        }
+    }
+}
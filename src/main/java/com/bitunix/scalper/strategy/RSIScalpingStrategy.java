@@ -63,6 +63,49 @@ public class RSIScalpingStrategy implements TradingStrategyInterface {
         return false;
     }
     
+    @Override
+    public boolean shouldExit(Trade trade, TradingPair currentPair, FeatureSnapshot features) {
+        if (features == null) {
+            return shouldExit(trade, currentPair, (List<TradingPair>) null);
+        }
+        
+        // NaN until enough candles, which never exits
+        double rsi = features.getRsi();
+        
+        // Exit long position when RSI reaches neutral zone
+        if (trade.getType() == Trade.TradeType.BUY && rsi > RSI_EXIT_OVERSOLD) {
+            return true;
+        }
+        
+        // Exit short position when RSI reaches neutral zone
+        if (trade.getType() == Trade.TradeType.SELL && rsi < RSI_EXIT_OVERBOUGHT) {
+            return true;
+        }
+        
+        return false;
+    }
+    
+    @Override
+    public Trade.TradeType getDirection(TradingPair pair) {
+        if (pair.getRsi() != null && pair.getRsi().doubleValue() > RSI_OVERBOUGHT) {
+            return Trade.TradeType.SELL;
+        }
+        return Trade.TradeType.BUY;
+    }
+    
+    @Override
+    public double getSignalStrength(TradingPair pair) {
+        if (pair.getRsi() != null) {
+            double rsi = pair.getRsi().doubleValue();
+            if (rsi < RSI_OVERSOLD) {
+                return 1.0 - (rsi / RSI_OVERSOLD); // Stronger signal when RSI is lower
+            } else if (rsi > RSI_OVERBOUGHT) {
+                return 1.0 - ((100 - rsi) / (100 - RSI_OVERBOUGHT)); // Stronger signal when RSI is higher
+            }
+        }
+        return 0.5;
+    }
+    
     @Override
     public double calculateEntryPrice(TradingPair pair) {
         return pair.getPrice().doubleValue();
@@ -0,0 +1,105 @@
+package com.bitunix.scalper.strategy;
+
+import com.bitunix.scalper.model.Trade;
+
+/**
+ * Result of one strategy evaluation for one pair
+ * 
+ * Mutable and meant to be reused: the caller keeps one instance per strategy
+ * and passes it to {@link TradingStrategyInterface#evaluate}, which resets and
+ * fills it. Scoring and trade execution read the same result instead of
+ * evaluating the strategy again. Prices are NaN when not set.
+ */
+public final class SignalResult {
+    
+    private boolean entry;
+    private Trade.TradeType direction;
+    private double strength;
+    private double entryPrice;
+    private double stopPrice;
+    private double targetPrice;
+    
+    public SignalResult() {
+        reset();
+    }
+    
+    /**
+     * Clear to "no signal"
+     */
+    public SignalResult reset() {
+        entry = false;
+        direction = null;
+        strength = 0.0;
+        entryPrice = Double.NaN;
+        stopPrice = Double.NaN;
+        targetPrice = Double.NaN;
+        return this;
+    }
+    
+    /**
+     * Mark as an entry signal
+     */
+    public SignalResult enter(Trade.TradeType direction, double strength, double entryPrice) {
+        this.entry = true;
+        this.direction = direction;
+        this.strength = strength;
+        this.entryPrice = entryPrice;
+        return this;
+    }
+    
+    /**
+     * Suggested protection levels; NaN leaves the configured percentage in effect
+     */
+    public SignalResult protect(double stopPrice, double targetPrice) {
+        this.stopPrice = stopPrice;
+        this.targetPrice = targetPrice;
+        return this;
+    }
+    
+    public void copyFrom(SignalResult other) {
+        entry = other.entry;
+        direction = other.direction;
+        strength = other.strength;
+        entryPrice = other.entryPrice;
+        stopPrice = other.stopPrice;
+        targetPrice = other.targetPrice;
+    }
+    
+    public boolean isEntry() {
+        return entry;
+    }
+    
+    public Trade.TradeType getDirection() {
+        return direction;
+    }
+    
+    public double getStrength() {
+        return strength;
+    }
+    
+    public double getEntryPrice() {
+        return entryPrice;
+    }
+    
+    public double getStopPrice() {
+        return stopPrice;
+    }
+    
+    public double getTargetPrice() {
+        return targetPrice;
+    }
+    
+    public boolean hasStopPrice() {
+        return !Double.isNaN(stopPrice);
+    }
+    
+    public boolean hasTargetPrice() {
+        return !Double.isNaN(targetPrice);
+    }
+    
+    @Override
+    public String toString() {
+        return entry ? direction + " strength=" + strength + " entry=" + entryPrice
+                + " stop=" + stopPrice + " target=" + targetPrice : "no signal";
+    }
+}
@@ -67,6 +67,30 @@ public class SupportResistanceStrategy implements TradingStrategyInterface {
         return false;
     }
     
+    @Override
+    public boolean shouldExit(Trade trade, TradingPair currentPair, FeatureSnapshot features) {
+        if (features == null) {
+            return shouldExit(trade, currentPair, (List<TradingPair>) null);
+        }
+        if (currentPair.getPrice() == null) {
+            return false;
+        }
+        
+        double price = currentPair.getPrice().doubleValue();
+        
+        // Exit long when price reaches resistance
+        if (trade.getType() == Trade.TradeType.BUY && isNearLevel(price, features.getResistance())) {
+            return true;
+        }
+        
+        // Exit short when price reaches support
+        if (trade.getType() == Trade.TradeType.SELL && isNearLevel(price, features.getSupport())) {
+            return true;
+        }
+        
+        return false;
+    }
+    
     @Override
     public double calculateEntryPrice(TradingPair pair) {
         return pair.getPrice().doubleValue();
@@ -103,4 +127,11 @@ public class SupportResistanceStrategy implements TradingStrategyInterface {
         
         return difference.compareTo(tolerance) <= 0;
     }
+    
+    private boolean isNearLevel(double price, double level) {
+        if (Double.isNaN(level) || level == 0) {
+            return false;
+        }
+        return Math.abs(price - level) <= level * TOUCH_TOLERANCE;
+    }
 }
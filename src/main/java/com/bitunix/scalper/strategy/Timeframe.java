@@ -0,0 +1,44 @@
+package com.bitunix.scalper.strategy;
+
+/**
+ * Candle timeframes built from the 1m base candles
+ */
+public enum Timeframe {
+    M1(1, "1m"),
+    M3(3, "3m"),
+    M5(5, "5m"),
+    M15(15, "15m"),
+    M30(30, "30m"),
+    H1(60, "1h"),
+    H4(240, "4h"),
+    D1(1440, "1d");
+    
+    private final int minutes;
+    private final long millis;
+    private final String label;
+    
+    Timeframe(int minutes, String label) {
+        this.minutes = minutes;
+        this.millis = minutes * 60_000L;
+        this.label = label;
+    }
+    
+    /**
+     * Start time of the bar containing the given time (epoch millis, UTC aligned like the exchange)
+     */
+    public long barStart(long time) {
+        return Math.floorDiv(time, millis) * millis;
+    }
+    
+    public int getMinutes() {
+        return minutes;
+    }
+    
+    public long getMillis() {
+        return millis;
+    }
+    
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,163 @@
+package com.bitunix.scalper.strategy;
+
+/**
+ * Sub-minute bars of one symbol, built from its public trades
+ * 
+ * Every trade goes to the {@link TradeTape} and to three kinds of bars:
+ * time bars (1s, 5s and 15s, UTC aligned), volume bars (closed once their
+ * quote notional reaches a threshold) and tick bars (closed after a fixed
+ * number of trades). A time bar closes on the first trade after its end;
+ * intervals without trades become empty bars at the last close, so time bar
+ * indexes stay contiguous in time.
+ * 
+ * Written by the market feed thread only; readers use the {@link BarSeries}
+ * and {@link TradeTape} contracts.
+ */
+public final class TradeBarBuilder {
+    
+    /**
+     * Time bar intervals in seconds
+     */
+    public static final int[] TIME_BAR_SECONDS = {1, 5, 15};
+    
+    private final TradeTape tape;
+    private final Accumulator[] timeBars = new Accumulator[TIME_BAR_SECONDS.length];
+    private final Accumulator volumeBars;
+    private final Accumulator tickBars;
+    private final double volumeBarNotional;
+    private final int tickBarTrades;
+    
+    /**
+     * @param tapeSize Trades kept on the tape
+     * @param barCapacity Bars kept per bar kind
+     * @param volumeBarNotional Quote notional (price * size) per volume bar
+     * @param tickBarTrades Trades per tick bar
+     */
+    public TradeBarBuilder(int tapeSize, int barCapacity, double volumeBarNotional, int tickBarTrades) {
+        if (volumeBarNotional <= 0 || tickBarTrades <= 0) {
+            throw new IllegalArgumentException("volume bar notional and tick bar trades must be positive");
+        }
+        this.tape = new TradeTape(tapeSize);
+        for (int i = 0; i < TIME_BAR_SECONDS.length; i++) {
+            timeBars[i] = new Accumulator(new BarSeries(barCapacity));
+        }
+        this.volumeBars = new Accumulator(new BarSeries(barCapacity));
+        this.tickBars = new Accumulator(new BarSeries(barCapacity));
+        this.volumeBarNotional = volumeBarNotional;
+        this.tickBarTrades = tickBarTrades;
+    }
+    
+    /**
+     * Add one trade
+     * 
+     * @param time Exchange trade time (epoch millis)
+     * @param takerBuy Whether the taker was the buyer
+     * @return false if the trade is older than the last one and was dropped
+     */
+    public boolean onTrade(long time, double price, double size, boolean takerBuy) {
+        long count = tape.count();
+        if (count > 0 && time < tape.time(count - 1)) {
+            return false;
+        }
+        tape.append(time, price, size, takerBuy);
+        
+        for (int i = 0; i < TIME_BAR_SECONDS.length; i++) {
+            long millis = TIME_BAR_SECONDS[i] * 1000L;
+            Accumulator bars = timeBars[i];
+            long start = Math.floorDiv(time, millis) * millis;
+            if (bars.trades > 0 && start != bars.start) {
+                bars.closeBar(bars.start + millis);
+                // Empty bars for the intervals without trades, at most one series worth
+                long gaps = Math.min((start - bars.start) / millis - 1, bars.series.capacity());
+                for (long gapStart = start - gaps * millis; gapStart < start; gapStart += millis) {
+                    bars.series.append(gapStart, gapStart + millis, bars.close, bars.close, bars.close, bars.close,
+                            0, 0, 0);
+                }
+            }
+            bars.add(start, price, size, takerBuy);
+        }
+        
+        volumeBars.add(time, price, size, takerBuy);
+        if (volumeBars.notional >= volumeBarNotional) {
+            volumeBars.closeBar(time);
+        }
+        tickBars.add(time, price, size, takerBuy);
+        if (tickBars.trades >= tickBarTrades) {
+            tickBars.closeBar(time);
+        }
+        return true;
+    }
+    
+    public TradeTape getTape() {
+        return tape;
+    }
+    
+    /**
+     * Closed time bars of an interval in {@link #TIME_BAR_SECONDS}
+     * 
+     * @return null for any other interval
+     */
+    public BarSeries timeBars(int seconds) {
+        for (int i = 0; i < TIME_BAR_SECONDS.length; i++) {
+            if (TIME_BAR_SECONDS[i] == seconds) {
+                return timeBars[i].series;
+            }
+        }
+        return null;
+    }
+    
+    public BarSeries volumeBars() {
+        return volumeBars.series;
+    }
+    
+    public BarSeries tickBars() {
+        return tickBars.series;
+    }
+    
+    /**
+     * The bar in progress of one bar kind
+     */
+    private static final class Accumulator {
+        private final BarSeries series;
+        private long start;
+        private double open;
+        private double high;
+        private double low;
+        private double close;
+        private double volume;
+        private double buyVolume;
+        private double notional;
+        private int trades;
+        
+        private Accumulator(BarSeries series) {
+            this.series = series;
+        }
+        
+        private void add(long barStart, double price, double size, boolean takerBuy) {
+            if (trades == 0) {
+                start = barStart;
+                open = price;
+                high = price;
+                low = price;
+            } else {
+                high = Math.max(high, price);
+                low = Math.min(low, price);
+            }
+            close = price;
+            volume += size;
+            if (takerBuy) {
+                buyVolume += size;
+            }
+            notional += price * size;
+            trades++;
+        }
+        
+        private void closeBar(long end) {
+            series.append(start, end, open, high, low, close, volume, buyVolume, trades);
+            volume = 0;
+            buyVolume = 0;
+            notional = 0;
+            trades = 0;
+        }
+    }
+}
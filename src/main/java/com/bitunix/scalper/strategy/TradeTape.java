@@ -0,0 +1,89 @@
+package com.bitunix.scalper.strategy;
+
+/**
+ * Recent public trades of one symbol in preallocated primitive arrays
+ * 
+ * Same single-writer / many-reader contract as {@link BarSeries}: readers see
+ * the newest capacity - 1 trades by absolute index below {@link #count()}.
+ */
+public final class TradeTape {
+    
+    private final int capacity;
+    private final long[] time;
+    private final double[] price;
+    private final double[] size;
+    private final boolean[] buy;
+    
+    private volatile long count;
+    
+    public TradeTape(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2");
+        }
+        this.capacity = capacity;
+        this.time = new long[capacity];
+        this.price = new double[capacity];
+        this.size = new double[capacity];
+        this.buy = new boolean[capacity];
+    }
+    
+    /**
+     * Append a trade (writer only)
+     * 
+     * @param tradeTime Exchange trade time (epoch millis)
+     * @param takerBuy Whether the taker was the buyer
+     */
+    void append(long tradeTime, double tradePrice, double tradeSize, boolean takerBuy) {
+        long next = count;
+        int slot = (int) (next % capacity);
+        time[slot] = tradeTime;
+        price[slot] = tradePrice;
+        size[slot] = tradeSize;
+        buy[slot] = takerBuy;
+        count = next + 1;
+    }
+    
+    public long count() {
+        return count;
+    }
+    
+    public boolean isAvailable(long index, long count) {
+        return index >= 0 && index < count && index > count - capacity;
+    }
+    
+    public long time(long index) {
+        return time[slot(index)];
+    }
+    
+    public double price(long index) {
+        return price[slot(index)];
+    }
+    
+    public double size(long index) {
+        return size[slot(index)];
+    }
+    
+    public boolean isBuy(long index) {
+        return buy[slot(index)];
+    }
+    
+    /**
+     * Buy minus sell volume of the trades at or after a time (within the readable trades)
+     */
+    public double netVolumeSince(long since) {
+        long end = count;
+        double net = 0;
+        for (long index = end - 1; isAvailable(index, end) && time(index) >= since; index--) {
+            net += isBuy(index) ? size(index) : -size(index);
+        }
+        return net;
+    }
+    
+    public int capacity() {
+        return capacity;
+    }
+    
+    private int slot(long index) {
+        return (int) (index % capacity);
+    }
+}
@@ -3,7 +3,9 @@ package com.bitunix.scalper.strategy;
 import com.bitunix.scalper.model.TradingPair;
 import com.bitunix.scalper.model.Trade;
 
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 public interface TradingStrategyInterface {
     
@@ -22,6 +24,75 @@ public interface TradingStrategyInterface {
      */
     boolean shouldExit(Trade trade, TradingPair currentPair, List<TradingPair> historicalData);
     
+    /**
+     * Evaluate the entry signal once and describe it in a reusable result
+     * 
+     * The default adapts shouldEnter, getDirection, getSignalStrength and
+     * calculateEntryPrice; strategies that can compute everything in one pass
+     * (or suggest their own stop / target) override it.
+     * 
+     * @return true if the strategy signals an entry
+     */
+    default boolean evaluate(TradingPair pair, List<TradingPair> historicalData, SignalResult result) {
+        result.reset();
+        if (!shouldEnter(pair, historicalData)) {
+            return false;
+        }
+        result.enter(getDirection(pair), getSignalStrength(pair), calculateEntryPrice(pair));
+        return true;
+    }
+    
+    /**
+     * Evaluate the entry signal against the symbol's shared feature snapshot
+     * 
+     * The snapshot is computed once per closed candle by the scheduler and may
+     * be null before the first klines arrive. The default ignores it and falls
+     * back to the history-based evaluation.
+     */
+    default boolean evaluate(TradingPair pair, List<TradingPair> historicalData,
+                             FeatureSnapshot features, SignalResult result) {
+        return evaluate(pair, historicalData, result);
+    }
+    
+    /**
+     * Timeframes the strategy reads; the scheduler aggregates them from the 1m candles
+     */
+    default Set<Timeframe> getTimeframes() {
+        return EnumSet.of(Timeframe.M1);
+    }
+    
+    /**
+     * Evaluate the entry signal with the symbol's higher-timeframe candles
+     * 
+     * The aggregator holds at least the timeframes of {@link #getTimeframes()}
+     * and may be null before the first candles arrive. The default ignores it.
+     */
+    default boolean evaluate(TradingPair pair, List<TradingPair> historicalData, FeatureSnapshot features,
+                             CandleAggregator timeframes, SignalResult result) {
+        return evaluate(pair, historicalData, features, result);
+    }
+    
+    /**
+     * Check if strategy should exit a trade, using the shared feature snapshot
+     */
+    default boolean shouldExit(Trade trade, TradingPair currentPair, FeatureSnapshot features) {
+        return shouldExit(trade, currentPair, (List<TradingPair>) null);
+    }
+    
+    /**
+     * Direction of the trade to open when shouldEnter is true
+     */
+    default Trade.TradeType getDirection(TradingPair pair) {
+        return Trade.TradeType.BUY;
+    }
+    
+    /**
+     * Strength of the entry signal, from 0.0 to 1.0
+     */
+    default double getSignalStrength(TradingPair pair) {
+        return 0.5;
+    }
+    
     /**
      * Calculate entry price
      */
@@ -2,9 +2,10 @@ package com.bitunix.scalper.strategy;
 
 import com.bitunix.scalper.model.Trade;
 import com.bitunix.scalper.model.TradingPair;
+import com.bitunix.scalper.service.TradeTapeService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
 import java.util.List;
 
 @Component
@@ -13,6 +14,13 @@ public class VolumeSpikeStrategy implements TradingStrategyInterface {
     private static final String STRATEGY_NAME = "Volume Spike";
     private static final int PRIORITY = 7;
     private static final double VOLUME_SPIKE_THRESHOLD = 2.0; // 200% of average volume
+    // 5s trade bars: spike of the last closed bar against the minute before it
+    private static final int BAR_SECONDS = 5;
+    private static final int BAR_AVERAGE = 12;
+    private static final double BAR_SPIKE_THRESHOLD = 3.0;
+    
+    @Autowired
+    private TradeTapeService tradeTapeService;
     
     @Override
     public String getName() {
@@ -21,61 +29,92 @@ public class VolumeSpikeStrategy implements TradingStrategyInterface {
     
     @Override
     public boolean shouldEnter(TradingPair pair, List<TradingPair> historicalData) {
-        if (pair.getVolume24h() == null || historicalData.size() < 20) {
-            return false;
-        }
-        
-        // Calculate average volume over last 20 periods
-        BigDecimal avgVolume = calculateAverageVolume(historicalData, 20);
-        if (avgVolume == null || avgVolume.compareTo(BigDecimal.ZERO) == 0) {
+        return historicalData != null && shouldEnter(pair, FeatureSnapshot.fromCandles(historicalData));
+    }
+    
+    @Override
+    public boolean evaluate(TradingPair pair, List<TradingPair> historicalData, SignalResult result) {
+        FeatureSnapshot features = historicalData != null ? FeatureSnapshot.fromCandles(historicalData) : null;
+        return evaluate(pair, historicalData, features, result);
+    }
+    
+    @Override
+    public boolean evaluate(TradingPair pair, List<TradingPair> historicalData,
+                            FeatureSnapshot features, SignalResult result) {
+        result.reset();
+        if (!shouldEnter(pair, features)) {
             return false;
         }
-        
-        BigDecimal currentVolume = pair.getVolume24h();
-        BigDecimal volumeRatio = currentVolume.divide(avgVolume, 4, BigDecimal.ROUND_HALF_UP);
-        
-        // Check for significant volume spike
-        if (volumeRatio.doubleValue() >= VOLUME_SPIKE_THRESHOLD) {
-            // Check for price movement in same direction as volume
-            if (historicalData.size() >= 2) {
-                TradingPair previousPair = historicalData.get(historicalData.size() - 2);
-                if (previousPair.getPrice() != null) {
-                    // Price should be moving up with volume spike
-                    if (pair.getPrice().compareTo(previousPair.getPrice()) > 0) {
-                        return true;
-                    }
-                    // Price should be moving down with volume spike
-                    if (pair.getPrice().compareTo(previousPair.getPrice()) < 0) {
-                        return true;
-                    }
-                }
-            }
-        }
-        
-        return false;
+        // Trade in the direction the price moved with the volume
+        Trade.TradeType direction = features.getReturn1() > 0 ? Trade.TradeType.BUY : Trade.TradeType.SELL;
+        result.enter(direction, getSignalStrength(pair), calculateEntryPrice(pair));
+        return true;
     }
     
     @Override
-    public boolean shouldExit(Trade trade, TradingPair currentPair, List<TradingPair> historicalData) {
-        if (currentPair.getVolume24h() == null || historicalData.size() < 5) {
+    public boolean evaluate(TradingPair pair, List<TradingPair> historicalData, FeatureSnapshot features,
+                            CandleAggregator timeframes, SignalResult result) {
+        if (evaluate(pair, historicalData, features, result)) {
+            return true;
+        }
+        // No spike on the 1m candle yet: look for one on the 5s trade bars
+        BarSeries bars = recentBars(pair);
+        if (bars == null || pair.getPrice() == null) {
             return false;
         }
-        
-        // Calculate average volume over last 5 periods
-        BigDecimal avgVolume = calculateAverageVolume(historicalData, 5);
-        if (avgVolume == null || avgVolume.compareTo(BigDecimal.ZERO) == 0) {
+        long count = bars.count();
+        long last = count - 1;
+        if (!(bars.volumeRatio(last, BAR_AVERAGE, count) >= BAR_SPIKE_THRESHOLD)) {
             return false;
         }
-        
-        BigDecimal currentVolume = currentPair.getVolume24h();
-        BigDecimal volumeRatio = currentVolume.divide(avgVolume, 4, BigDecimal.ROUND_HALF_UP);
-        
-        // Exit when volume drops significantly
-        if (volumeRatio.doubleValue() < 0.5) {
-            return true;
+        // Price and taker flow of the spike bar must agree on the direction
+        double move = bars.close(last) - bars.open(last);
+        boolean buyers = bars.buyVolume(last) * 2 > bars.volume(last);
+        if (move == 0 || (move > 0) != buyers) {
+            return false;
+        }
+        Trade.TradeType direction = move > 0 ? Trade.TradeType.BUY : Trade.TradeType.SELL;
+        result.enter(direction, getSignalStrength(pair), calculateEntryPrice(pair));
+        return true;
+    }
+    
+    private boolean shouldEnter(TradingPair pair, FeatureSnapshot features) {
+        if (pair.getPrice() == null || features == null) {
+            return false;
         }
         
-        return false;
+        // Significant volume spike on the last candle versus the 20 before it,
+        // with the price moving up or down along with it
+        return features.getVolumeRatio20() >= VOLUME_SPIKE_THRESHOLD
+                && (features.getReturn1() > 0 || features.getReturn1() < 0);
+    }
+    
+    @Override
+    public boolean shouldExit(Trade trade, TradingPair currentPair, List<TradingPair> historicalData) {
+        return historicalData != null && shouldExit(trade, currentPair, FeatureSnapshot.fromCandles(historicalData));
+    }
+    
+    @Override
+    public boolean shouldExit(Trade trade, TradingPair currentPair, FeatureSnapshot features) {
+        BarSeries bars = recentBars(currentPair);
+        if (bars != null) {
+            // Exit when the last 15s of trades run at under half the volume of the minute before
+            long count = bars.count();
+            double recent = bars.averageVolume(count, 3, count);
+            double before = bars.averageVolume(count - 3, BAR_AVERAGE, count);
+            if (!Double.isNaN(recent) && before > 0) {
+                return recent < before * 0.5;
+            }
+        }
+        // Exit when volume drops significantly below the last 5 candles
+        return features != null && features.getVolumeRatio5() < 0.5;
+    }
+    
+    /**
+     * Current 5s trade bars of the pair, or null when the trade stream is not available
+     */
+    private BarSeries recentBars(TradingPair pair) {
+        return tradeTapeService != null && pair != null ? tradeTapeService.recentTimeBars(pair, BAR_SECONDS) : null;
     }
     
     @Override
@@ -103,26 +142,4 @@ public class VolumeSpikeStrategy implements TradingStrategyInterface {
     public boolean isActive() {
         return true;
     }
-    
-    private BigDecimal calculateAverageVolume(List<TradingPair> data, int periods) {
-        if (data.size() < periods) {
-            return null;
-        }
-        
-        BigDecimal sum = BigDecimal.ZERO;
-        int count = 0;
-        
-        for (int i = data.size() - periods; i < data.size(); i++) {
-            if (data.get(i).getVolume24h() != null) {
-                sum = sum.add(data.get(i).getVolume24h());
-                count++;
-            }
-        }
-        
-        if (count == 0) {
-            return null;
-        }
-        
-        return sum.divide(BigDecimal.valueOf(count), 8, BigDecimal.ROUND_HALF_UP);
-    }
 }
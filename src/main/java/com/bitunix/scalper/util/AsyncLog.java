@@ -0,0 +1,280 @@
+package com.bitunix.scalper.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous structured logger on top of SLF4J
+ * 
+ * Calling threads only copy the message, key-value fields and throwable into
+ * a preallocated slot of a bounded ring buffer; a single background thread
+ * formats the line ("message key=value ...") and hands it to SLF4J. When the
+ * buffer is full the event is dropped and counted rather than blocking the
+ * trading thread.
+ * 
+ * Warnings and errors are rate limited per message: at most
+ * {@link #MAX_ERRORS_PER_WINDOW} lines per {@link #ERROR_WINDOW_MS}, the
+ * number of suppressed lines is appended to the next line that gets through.
+ * 
+ * Usage:
+ * private static final AsyncLog log = AsyncLog.getLogger(MyService.class);
+ * log.info("Order placed", "symbol", symbol, "orderId", orderId);
+ */
+public final class AsyncLog {
+    
+    private static final int BUFFER_SIZE = 8192; // power of two
+    private static final int MAX_ERRORS_PER_WINDOW = 5;
+    private static final long ERROR_WINDOW_MS = 60000;
+    
+    private static final Dispatcher DISPATCHER = new Dispatcher(BUFFER_SIZE);
+    
+    private final Logger delegate;
+    private final ConcurrentMap<String, RateWindow> errorWindows = new ConcurrentHashMap<>();
+    
+    private AsyncLog(Logger delegate) {
+        this.delegate = delegate;
+    }
+    
+    public static AsyncLog getLogger(Class<?> type) {
+        return new AsyncLog(LoggerFactory.getLogger(type));
+    }
+    
+    /**
+     * Number of events dropped because the ring buffer was full
+     */
+    public static long getDroppedCount() {
+        return DISPATCHER.dropped.sum();
+    }
+    
+    /**
+     * Number of warnings/errors suppressed by rate limiting
+     */
+    public static long getSuppressedCount() {
+        return DISPATCHER.suppressed.sum();
+    }
+    
+    public boolean isDebugEnabled() {
+        return delegate.isDebugEnabled();
+    }
+    
+    public void debug(String message, Object... fields) {
+        if (delegate.isDebugEnabled()) {
+            DISPATCHER.publish(delegate, Level.DEBUG, message, null, fields, 0);
+        }
+    }
+    
+    public void info(String message, Object... fields) {
+        if (delegate.isInfoEnabled()) {
+            DISPATCHER.publish(delegate, Level.INFO, message, null, fields, 0);
+        }
+    }
+    
+    public void warn(String message, Object... fields) {
+        if (delegate.isWarnEnabled()) {
+            long suppressed = acquire(message);
+            if (suppressed >= 0) {
+                DISPATCHER.publish(delegate, Level.WARN, message, null, fields, suppressed);
+            }
+        }
+    }
+    
+    public void error(String message, Object... fields) {
+        error(message, null, fields);
+    }
+    
+    /**
+     * Log an error with its stack trace
+     */
+    public void error(String message, Throwable error, Object... fields) {
+        if (delegate.isErrorEnabled()) {
+            long suppressed = acquire(message);
+            if (suppressed >= 0) {
+                DISPATCHER.publish(delegate, Level.ERROR, message, error, fields, suppressed);
+            }
+        }
+    }
+    
+    /**
+     * Take a slot in the message's rate window
+     * 
+     * @return Lines suppressed since the last one that got through, or -1 if this one is suppressed
+     */
+    private long acquire(String message) {
+        RateWindow window = errorWindows.computeIfAbsent(message, k -> new RateWindow());
+        synchronized (window) {
+            long now = System.currentTimeMillis();
+            if (now - window.start >= ERROR_WINDOW_MS) {
+                window.start = now;
+                window.count = 0;
+            }
+            if (window.count >= MAX_ERRORS_PER_WINDOW) {
+                window.suppressed++;
+                DISPATCHER.suppressed.increment();
+                return -1;
+            }
+            window.count++;
+            long suppressed = window.suppressed;
+            window.suppressed = 0;
+            return suppressed;
+        }
+    }
+    
+    private enum Level {
+        DEBUG, INFO, WARN, ERROR
+    }
+    
+    private static class RateWindow {
+        private long start;
+        private int count;
+        private long suppressed;
+    }
+    
+    /**
+     * Preallocated ring buffer slot
+     */
+    private static class LogEvent {
+        private Logger logger;
+        private Level level;
+        private String message;
+        private Throwable error;
+        private Object[] fields;
+        private long suppressed;
+        private String threadName;
+        
+        private void clear() {
+            logger = null;
+            message = null;
+            error = null;
+            fields = null;
+            threadName = null;
+        }
+    }
+    
+    /**
+     * Multi-producer, single-consumer ring buffer plus the background appender thread
+     */
+    private static class Dispatcher implements Runnable {
+        private final LogEvent[] slots;
+        private final AtomicLongArray published;
+        private final int mask;
+        private final AtomicLong claimed = new AtomicLong();
+        private final AtomicLong consumed = new AtomicLong();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder suppressed = new LongAdder();
+        private final StringBuilder line = new StringBuilder(256);
+        
+        private Dispatcher(int size) {
+            slots = new LogEvent[size];
+            published = new AtomicLongArray(size);
+            mask = size - 1;
+            for (int i = 0; i < size; i++) {
+                slots[i] = new LogEvent();
+                published.set(i, -1);
+            }
+            
+            Thread thread = new Thread(this, "async-logger");
+            thread.setDaemon(true);
+            thread.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "async-logger-flush"));
+        }
+        
+        private void publish(Logger logger, Level level, String message, Throwable error,
+                             Object[] fields, long suppressedBefore) {
+            long sequence;
+            do {
+                sequence = claimed.get();
+                if (sequence - consumed.get() >= slots.length) {
+                    dropped.increment();
+                    return;
+                }
+            } while (!claimed.compareAndSet(sequence, sequence + 1));
+            
+            int index = (int) (sequence & mask);
+            LogEvent event = slots[index];
+            event.logger = logger;
+            event.level = level;
+            event.message = message;
+            event.error = error;
+            event.fields = fields;
+            event.suppressed = suppressedBefore;
+            event.threadName = Thread.currentThread().getName();
+            published.set(index, sequence);
+        }
+        
+        @Override
+        public void run() {
+            while (true) {
+                if (!drain()) {
+                    LockSupport.parkNanos(1_000_000L);
+                }
+            }
+        }
+        
+        /**
+         * Write out everything published so far
+         * 
+         * @return true if at least one event was written
+         */
+        private synchronized boolean drain() {
+            boolean wrote = false;
+            long sequence = consumed.get();
+            int index = (int) (sequence & mask);
+            while (published.get(index) == sequence) {
+                LogEvent event = slots[index];
+                try {
+                    write(event);
+                } catch (RuntimeException e) {
+                    // Never let a bad toString() kill the appender thread
+                } finally {
+                    event.clear();
+                    consumed.lazySet(++sequence);
+                }
+                wrote = true;
+                index = (int) (sequence & mask);
+            }
+            return wrote;
+        }
+        
+        private void write(LogEvent event) {
+            line.setLength(0);
+            line.append(event.message);
+            Object[] fields = event.fields;
+            if (fields != null) {
+                for (int i = 0; i + 1 < fields.length; i += 2) {
+                    line.append(' ').append(fields[i]).append('=').append(fields[i + 1]);
+                }
+            }
+            if (event.suppressed > 0) {
+                line.append(" suppressed=").append(event.suppressed);
+            }
+            line.append(" thread=").append(event.threadName);
+            
+            String text = line.toString();
+            switch (event.level) {
+                case DEBUG:
+                    event.logger.debug(text);
+                    break;
+                case INFO:
+                    event.logger.info(text);
+                    break;
+                case WARN:
+                    event.logger.warn(text);
+                    break;
+                default:
+                    if (event.error != null) {
+                        event.logger.error(text, event.error);
+                    } else {
+                        event.logger.error(text);
+                    }
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.bitunix.scalper.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Arithmetic on scaled longs: a value v with scale s represents v / 10^s
+ * 
+ * Used by the trading core for prices, quantities and money so that sizing
+ * and PnL are exact decimals computed with primitive operations and without
+ * allocation. BigDecimal is only produced at the JPA/JSON boundary via
+ * {@link #toDecimal(long, int)}. Overflow throws ArithmeticException instead
+ * of silently wrapping.
+ */
+public final class FixedPoint {
+    
+    public static final int MAX_SCALE = 18;
+    
+    private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+    
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_SCALE; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+    
+    private FixedPoint() {
+    }
+    
+    public static long pow10(int scale) {
+        return POWERS_OF_TEN[scale];
+    }
+    
+    /**
+     * Convert a double, rounding half away from zero at the given scale
+     */
+    public static long fromDouble(double value, int scale) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new ArithmeticException("Not a finite number: " + value);
+        }
+        double scaled = value * POWERS_OF_TEN[scale];
+        if (Math.abs(scaled) >= Long.MAX_VALUE) {
+            throw new ArithmeticException("Fixed-point overflow: " + value + " at scale " + scale);
+        }
+        return scaled < 0 ? -Math.round(-scaled) : Math.round(scaled);
+    }
+    
+    /**
+     * Convert a BigDecimal (boundary only), rounding half up at the given scale
+     */
+    public static long fromDecimal(BigDecimal value, int scale) {
+        return value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+    
+    public static BigDecimal toDecimal(long value, int scale) {
+        return BigDecimal.valueOf(value, scale);
+    }
+    
+    public static double toDouble(long value, int scale) {
+        return (double) value / POWERS_OF_TEN[scale];
+    }
+    
+    /**
+     * Change the scale of a value, rounding half away from zero when digits are dropped
+     */
+    public static long rescale(long value, int fromScale, int toScale) {
+        if (toScale >= fromScale) {
+            return Math.multiplyExact(value, POWERS_OF_TEN[toScale - fromScale]);
+        }
+        return divideHalfUp(value, POWERS_OF_TEN[fromScale - toScale]);
+    }
+    
+    /**
+     * Product of two values, returned at resultScale
+     */
+    public static long multiply(long a, int aScale, long b, int bScale, int resultScale) {
+        return rescale(Math.multiplyExact(a, b), aScale + bScale, resultScale);
+    }
+    
+    /**
+     * Division rounding half away from zero
+     */
+    public static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) * 2 >= Math.abs(divisor)) {
+            quotient += (dividend < 0) == (divisor < 0) ? 1 : -1;
+        }
+        return quotient;
+    }
+    
+    /**
+     * Round a value to a multiple of step (both at the same scale)
+     * 
+     * @param mode DOWN / FLOOR round toward zero, UP / CEILING away from zero, anything else half up
+     */
+    public static long roundToStep(long value, long step, RoundingMode mode) {
+        if (step <= 1) {
+            return value;
+        }
+        switch (mode) {
+            case DOWN:
+            case FLOOR:
+                return value / step * step;
+            case UP:
+            case CEILING:
+                long down = value / step * step;
+                return down == value ? value : down + (value < 0 ? -step : step);
+            default:
+                return divideHalfUp(value, step) * step;
+        }
+    }
+    
+    /**
+     * Number of decimal places needed to represent a step size such as 0.001 or 0.5
+     */
+    public static int scaleOf(BigDecimal step) {
+        return Math.max(0, step.stripTrailingZeros().scale());
+    }
+}
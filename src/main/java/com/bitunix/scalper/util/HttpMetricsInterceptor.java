@@ -0,0 +1,60 @@
+package com.bitunix.scalper.util;
+
+import com.bitunix.scalper.service.MetricsService;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+
+/**
+ * Apache HttpClient interceptor that counts and times outgoing exchange calls
+ * 
+ * Metrics are labelled by client, endpoint path (query string stripped) and
+ * HTTP status. Calls that fail before a response arrives (connect/read
+ * timeouts) produce no sample.
+ */
+public class HttpMetricsInterceptor implements HttpRequestInterceptor, HttpResponseInterceptor {
+    
+    private static final String START_ATTRIBUTE = "scalper.metrics.start";
+    
+    private final MetricsService metricsService;
+    private final String client;
+    
+    public HttpMetricsInterceptor(MetricsService metricsService, String client) {
+        this.metricsService = metricsService;
+        this.client = client;
+    }
+    
+    @Override
+    public void process(HttpRequest request, HttpContext context) {
+        context.setAttribute(START_ATTRIBUTE, System.nanoTime());
+    }
+    
+    @Override
+    public void process(HttpResponse response, HttpContext context) {
+        Object start = context.getAttribute(START_ATTRIBUTE);
+        HttpRequest request = HttpCoreContext.adapt(context).getRequest();
+        if (!(start instanceof Long) || request == null) {
+            return;
+        }
+        
+        String endpoint = extractPath(request.getRequestLine().getUri());
+        String status = String.valueOf(response.getStatusLine().getStatusCode());
+        metricsService.counter("scalper_http_requests_total",
+                "client", client, "endpoint", endpoint, "status", status).increment();
+        metricsService.timer("scalper_http_request_seconds",
+                "client", client, "endpoint", endpoint).recordSince((Long) start);
+    }
+    
+    static String extractPath(String uri) {
+        int start = uri.indexOf("://");
+        if (start >= 0) {
+            int slash = uri.indexOf('/', start + 3);
+            uri = slash >= 0 ? uri.substring(slash) : "/";
+        }
+        int query = uri.indexOf('?');
+        return query >= 0 ? uri.substring(0, query) : uri;
+    }
+}
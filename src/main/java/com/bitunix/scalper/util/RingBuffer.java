@@ -0,0 +1,215 @@
+package com.bitunix.scalper.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free single-producer/single-consumer ring buffer of reusable events
+ * 
+ * All event slots are allocated up front; the producer claims a slot, fills
+ * it in place and publishes it, and the consumer handles every published slot
+ * in batches. Nothing is allocated per event and the only shared writes are
+ * the two sequence counters (each on its own cache line), published with
+ * release/acquire ordering.
+ * 
+ * Exactly one thread may claim/publish and exactly one other thread may poll.
+ * A handler must copy whatever it keeps: the slot is reused once it returns.
+ */
+public final class RingBuffer<E> {
+    
+    /**
+     * Consumer callback for one event
+     */
+    public interface EventHandler<E> {
+        /**
+         * @param endOfBatch Whether this is the last event currently available
+         */
+        void onEvent(E event, long sequence, boolean endOfBatch) throws Exception;
+    }
+    
+    /**
+     * How a thread waits for the other side
+     */
+    public enum WaitStrategy {
+        // Lowest latency, burns a core
+        BUSY_SPIN,
+        // Spin briefly, then yield the CPU
+        YIELD,
+        // Spin, yield, then park for a microsecond at a time
+        PARK;
+        
+        /**
+         * Back off after the given number of consecutive empty attempts
+         */
+        public void idle(int attempt) {
+            if (this == BUSY_SPIN || attempt < 100) {
+                Thread.onSpinWait();
+            } else if (this == YIELD || attempt < 200) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(1000);
+            }
+        }
+    }
+    
+    // Attempts after which every wait strategy has reached its final stage
+    private static final int MAX_ATTEMPT = 200;
+    
+    private static final VarHandle SEQUENCE;
+    
+    static {
+        try {
+            SEQUENCE = MethodHandles.lookup().findVarHandle(Sequence.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
+    private final Object[] slots;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    
+    // Next sequence to publish (written by the producer) and next to consume (written by the consumer)
+    private final Sequence tail = new Sequence();
+    private final Sequence head = new Sequence();
+    
+    // Producer-local: sequence being claimed and the last head it read
+    private long claimed = -1;
+    private long headCache;
+    
+    // Consumer-local: the last tail it read
+    private long tailCache;
+    
+    /**
+     * @param capacity Number of slots, rounded up to a power of two
+     * @param factory Creates each slot once
+     */
+    public RingBuffer(int capacity, Supplier<E> factory, WaitStrategy waitStrategy) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new Object[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = factory.get();
+        }
+        this.mask = size - 1;
+        this.waitStrategy = waitStrategy;
+    }
+    
+    /**
+     * Claim the next slot, waiting while the buffer is full (producer only)
+     * 
+     * @return Slot to fill, then {@link #publish()}
+     */
+    public E claim() {
+        E slot;
+        int attempt = 0;
+        while ((slot = tryClaim()) == null) {
+            waitStrategy.idle(attempt);
+            attempt = Math.min(attempt + 1, MAX_ATTEMPT);
+        }
+        return slot;
+    }
+    
+    /**
+     * Claim the next slot if there is room (producer only)
+     * 
+     * @return Slot to fill, or null if the buffer is full
+     */
+    @SuppressWarnings("unchecked")
+    public E tryClaim() {
+        long next = (long) SEQUENCE.get(tail);
+        if (next - headCache >= slots.length) {
+            headCache = (long) SEQUENCE.getAcquire(head);
+            if (next - headCache >= slots.length) {
+                return null;
+            }
+        }
+        claimed = next;
+        return (E) slots[(int) next & mask];
+    }
+    
+    /**
+     * Make the claimed slot visible to the consumer (producer only)
+     */
+    public void publish() {
+        if (claimed < 0) {
+            throw new IllegalStateException("No slot claimed");
+        }
+        SEQUENCE.setRelease(tail, claimed + 1);
+        claimed = -1;
+    }
+    
+    /**
+     * Handle every event published so far, up to maxBatch (consumer only)
+     * 
+     * @return Number of events handled
+     */
+    @SuppressWarnings("unchecked")
+    public int poll(EventHandler<E> handler, int maxBatch) throws Exception {
+        long next = (long) SEQUENCE.get(head);
+        // Re-read the tail only when the cached one does not cover a full batch
+        if (next + maxBatch > tailCache) {
+            tailCache = (long) SEQUENCE.getAcquire(tail);
+            if (next >= tailCache) {
+                return 0;
+            }
+        }
+        long end = Math.min(tailCache, next + maxBatch);
+        long sequence = next;
+        try {
+            for (; sequence < end; sequence++) {
+                handler.onEvent((E) slots[(int) sequence & mask], sequence, sequence == end - 1);
+            }
+        } finally {
+            // A failing event is consumed too, so it is never handled twice
+            SEQUENCE.setRelease(head, sequence < end ? sequence + 1 : end);
+        }
+        return (int) (end - next);
+    }
+    
+    /**
+     * Consume until running returns false, waiting with the wait strategy when empty (consumer only)
+     * 
+     * Handler exceptions propagate and end the loop.
+     */
+    public void consume(EventHandler<E> handler, int maxBatch, BooleanSupplier running) throws Exception {
+        int attempt = 0;
+        while (running.getAsBoolean()) {
+            if (poll(handler, maxBatch) > 0) {
+                attempt = 0;
+            } else {
+                waitStrategy.idle(attempt);
+                attempt = Math.min(attempt + 1, MAX_ATTEMPT);
+            }
+        }
+    }
+    
+    /**
+     * Events published but not yet consumed (approximate when read from a third thread)
+     */
+    public int size() {
+        return (int) ((long) SEQUENCE.getAcquire(tail) - (long) SEQUENCE.getAcquire(head));
+    }
+    
+    public int capacity() {
+        return slots.length;
+    }
+    
+    /**
+     * Sequence counter padded to a cache line of its own
+     */
+    @SuppressWarnings("unused")
+    private static final class Sequence {
+        private long p1, p2, p3, p4, p5, p6, p7;
+        private volatile long value;
+        private long p9, p10, p11, p12, p13, p14, p15;
+    }
+}
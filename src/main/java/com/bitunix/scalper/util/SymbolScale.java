@@ -0,0 +1,158 @@
+package com.bitunix.scalper.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point layout of one symbol: decimal places and step sizes for price and quantity
+ * 
+ * Prices are scaled longs at priceScale, quantities at qtyScale and money
+ * (notional, fees, PnL) at valueScale = priceScale + qtyScale, so that
+ * price * qty is exact without rescaling. The combined scale is capped so a
+ * notional of at least ~9 million quote units fits in a long.
+ */
+public final class SymbolScale {
+    
+    public static final int MAX_VALUE_SCALE = 12;
+    
+    // Combined scale of inferred layouts: notional up to ~9.2e8 quote units
+    private static final int INFERRED_VALUE_SCALE = 10;
+    private static final int INFERRED_SIGNIFICANT_DIGITS = 8;
+    
+    private final String symbol;
+    private final int priceScale;
+    private final int qtyScale;
+    private final long tickSize;
+    private final long lotSize;
+    
+    public SymbolScale(String symbol, int priceScale, int qtyScale, long tickSize, long lotSize) {
+        if (priceScale < 0 || qtyScale < 0 || priceScale + qtyScale > MAX_VALUE_SCALE) {
+            throw new IllegalArgumentException("Unsupported scale for " + symbol + ": price "
+                    + priceScale + ", qty " + qtyScale);
+        }
+        this.symbol = symbol;
+        this.priceScale = priceScale;
+        this.qtyScale = qtyScale;
+        this.tickSize = Math.max(1, tickSize);
+        this.lotSize = Math.max(1, lotSize);
+    }
+    
+    /**
+     * Layout from exchange step sizes, e.g. tick 0.1 and lot 0.001
+     */
+    public static SymbolScale of(String symbol, BigDecimal tickSize, BigDecimal lotSize) {
+        int priceScale = FixedPoint.scaleOf(tickSize);
+        int qtyScale = FixedPoint.scaleOf(lotSize);
+        return new SymbolScale(symbol, priceScale, qtyScale,
+                FixedPoint.fromDecimal(tickSize, priceScale), FixedPoint.fromDecimal(lotSize, qtyScale));
+    }
+    
+    /**
+     * Layout guessed from a reference price when no exchange metadata is known:
+     * about 8 significant digits of price, the rest of the value scale for quantity
+     */
+    public static SymbolScale infer(String symbol, double referencePrice) {
+        int integerDigits = referencePrice >= 1 ? (int) Math.floor(Math.log10(referencePrice)) + 1 : 0;
+        int priceScale = Math.max(0, Math.min(INFERRED_VALUE_SCALE, INFERRED_SIGNIFICANT_DIGITS - integerDigits));
+        return new SymbolScale(symbol, priceScale, INFERRED_VALUE_SCALE - priceScale, 1, 1);
+    }
+    
+    public String getSymbol() {
+        return symbol;
+    }
+    
+    public int getPriceScale() {
+        return priceScale;
+    }
+    
+    public int getQtyScale() {
+        return qtyScale;
+    }
+    
+    public int getValueScale() {
+        return priceScale + qtyScale;
+    }
+    
+    public long getTickSize() {
+        return tickSize;
+    }
+    
+    public long getLotSize() {
+        return lotSize;
+    }
+    
+    /**
+     * Price rounded to the nearest tick
+     */
+    public long price(double value) {
+        return FixedPoint.roundToStep(FixedPoint.fromDouble(value, priceScale), tickSize, RoundingMode.HALF_UP);
+    }
+    
+    public long price(BigDecimal value) {
+        return FixedPoint.roundToStep(FixedPoint.fromDecimal(value, priceScale), tickSize, RoundingMode.HALF_UP);
+    }
+    
+    /**
+     * Price rounded to a tick in the given direction (e.g. DOWN for a long stop loss)
+     */
+    public long roundPrice(long price, RoundingMode mode) {
+        return FixedPoint.roundToStep(price, tickSize, mode);
+    }
+    
+    /**
+     * Quantity rounded down to the lot size
+     */
+    public long qty(BigDecimal value) {
+        return FixedPoint.roundToStep(FixedPoint.fromDecimal(value, qtyScale), lotSize, RoundingMode.DOWN);
+    }
+    
+    public long value(double amount) {
+        return FixedPoint.fromDouble(amount, getValueScale());
+    }
+    
+    public long value(BigDecimal amount) {
+        return FixedPoint.fromDecimal(amount, getValueScale());
+    }
+    
+    /**
+     * Price * quantity at value scale (exact)
+     */
+    public long notional(long price, long qty) {
+        return Math.multiplyExact(price, qty);
+    }
+    
+    /**
+     * Largest lot-size multiple of quantity whose notional at price does not exceed value
+     */
+    public long qtyForValue(long value, long price) {
+        if (price <= 0) {
+            return 0;
+        }
+        return FixedPoint.roundToStep(value / price, lotSize, RoundingMode.DOWN);
+    }
+    
+    /**
+     * Signed PnL at value scale: (exit - entry) * qty for longs, reversed for shorts
+     */
+    public long pnl(long entryPrice, long exitPrice, long qty, boolean isLong) {
+        long move = isLong ? exitPrice - entryPrice : entryPrice - exitPrice;
+        return Math.multiplyExact(move, qty);
+    }
+    
+    public BigDecimal priceToDecimal(long price) {
+        return FixedPoint.toDecimal(price, priceScale);
+    }
+    
+    public BigDecimal qtyToDecimal(long qty) {
+        return FixedPoint.toDecimal(qty, qtyScale);
+    }
+    
+    public BigDecimal valueToDecimal(long value) {
+        return FixedPoint.toDecimal(value, getValueScale());
+    }
+    
+    @Override
+    public String toString() {
+        return symbol + "{price=" + priceToDecimal(tickSize) + ", lot=" + qtyToDecimal(lotSize) + "}";
+    }
+}
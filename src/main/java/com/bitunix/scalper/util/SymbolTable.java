@@ -0,0 +1,123 @@
+package com.bitunix.scalper.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Per-symbol values in an array indexed by symbol id
+ * 
+ * Reads are a bounds check and an array load with no hashing or boxing; the
+ * array grows to fit the largest id written. Writes are serialized, reads
+ * are lock-free and may come from any thread.
+ */
+public final class SymbolTable<T> {
+    
+    private static final int INITIAL_CAPACITY = 64;
+    
+    private volatile AtomicReferenceArray<T> slots = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    private volatile int size;
+    
+    public T get(int id) {
+        AtomicReferenceArray<T> current = slots;
+        return id >= 0 && id < current.length() ? current.get(id) : null;
+    }
+    
+    public boolean contains(int id) {
+        return get(id) != null;
+    }
+    
+    /**
+     * Set the value of a symbol
+     * 
+     * @return Previous value, or null
+     */
+    public synchronized T put(int id, T value) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Invalid symbol id: " + id);
+        }
+        ensureCapacity(id + 1);
+        T previous = slots.getAndSet(id, value);
+        if (previous == null && value != null) {
+            size++;
+        } else if (previous != null && value == null) {
+            size--;
+        }
+        return previous;
+    }
+    
+    /**
+     * Set the value of a symbol unless it already has one
+     * 
+     * @return Existing value, or null if value was set
+     */
+    public synchronized T putIfAbsent(int id, T value) {
+        T existing = get(id);
+        if (existing != null) {
+            return existing;
+        }
+        put(id, value);
+        return null;
+    }
+    
+    public T remove(int id) {
+        return get(id) != null ? put(id, null) : null;
+    }
+    
+    public synchronized void clear() {
+        AtomicReferenceArray<T> current = slots;
+        for (int i = 0; i < current.length(); i++) {
+            current.set(i, null);
+        }
+        size = 0;
+    }
+    
+    /**
+     * Number of ids with a value
+     */
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * Upper bound (exclusive) of ids to scan when iterating
+     */
+    public int capacity() {
+        return slots.length();
+    }
+    
+    /**
+     * Copy of all values in id order, for callers off the hot path
+     */
+    public List<T> values() {
+        List<T> values = new ArrayList<>(size);
+        AtomicReferenceArray<T> current = slots;
+        for (int i = 0; i < current.length(); i++) {
+            T value = current.get(i);
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+    
+    private void ensureCapacity(int capacity) {
+        AtomicReferenceArray<T> current = slots;
+        if (capacity <= current.length()) {
+            return;
+        }
+        int length = current.length();
+        while (length < capacity) {
+            length *= 2;
+        }
+        AtomicReferenceArray<T> grown = new AtomicReferenceArray<>(length);
+        for (int i = 0; i < current.length(); i++) {
+            grown.set(i, current.get(i));
+        }
+        slots = grown;
+    }
+}
@@ -0,0 +1,189 @@
+package com.bitunix.scalper.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Structured fan-out of subtasks with a shared deadline
+ * 
+ * Subtasks forked in a scope are owned by it: join() waits for all of them
+ * until the deadline, and close() cancels (interrupts) any that are still
+ * running, so no subtask outlives the try-with-resources block that forked
+ * it. A Java 11 stand-in for StructuredTaskScope.
+ * 
+ * Interrupting a thread does not stop blocking socket I/O, so a subtask
+ * doing I/O registers how to abort it with {@link #onCancel(Runnable)}
+ * (e.g. HttpGet::abort); cancellation runs that hook before interrupting.
+ * 
+ * Not thread-safe: fork, join and close from the owning thread only.
+ */
+public final class TaskScope<T> implements AutoCloseable {
+    
+    private final ExecutorService executor;
+    private final long deadlineNanos;
+    private final List<Future<T>> subtasks = new ArrayList<>();
+    private final List<CancelHook> hooks = new ArrayList<>();
+    private int cancelled;
+    
+    // Hook of the subtask running on the current thread
+    private static final ThreadLocal<CancelHook> CURRENT_HOOK = new ThreadLocal<>();
+    
+    /**
+     * @param deadlineNanos System.nanoTime() after which join() stops waiting
+     */
+    public TaskScope(ExecutorService executor, long deadlineNanos) {
+        this.executor = executor;
+        this.deadlineNanos = deadlineNanos;
+    }
+    
+    /**
+     * Start a subtask
+     * 
+     * @return Index of the subtask, for {@link #result(int)}
+     */
+    public int fork(Callable<T> task) {
+        CancelHook hook = new CancelHook();
+        hooks.add(hook);
+        subtasks.add(executor.submit(() -> {
+            CURRENT_HOOK.set(hook);
+            try {
+                return task.call();
+            } finally {
+                CURRENT_HOOK.remove();
+            }
+        }));
+        return subtasks.size() - 1;
+    }
+    
+    /**
+     * Register how to abort the blocking call the current subtask is about to make
+     * 
+     * Replaces the subtask's previous hook. Runs the action at once if the
+     * subtask was already cancelled; does nothing outside a subtask.
+     */
+    public static void onCancel(Runnable action) {
+        CancelHook hook = CURRENT_HOOK.get();
+        if (hook != null) {
+            hook.set(action);
+        }
+    }
+    
+    /**
+     * Wait for all subtasks until the deadline, then cancel the unfinished ones
+     */
+    public void join() throws InterruptedException {
+        for (Future<T> subtask : subtasks) {
+            long remaining = deadlineNanos - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            try {
+                subtask.get(remaining, TimeUnit.NANOSECONDS);
+            } catch (ExecutionException | TimeoutException e) {
+                // Reported per subtask by result()
+            }
+        }
+        cancelRemaining();
+    }
+    
+    /**
+     * Result of a joined subtask
+     * 
+     * @return The result, or null if the subtask failed or was cancelled
+     */
+    public T result(int index) {
+        Future<T> subtask = subtasks.get(index);
+        if (!subtask.isDone() || hooks.get(index).isCancelled()) {
+            return null;
+        }
+        try {
+            return subtask.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Failure of a joined subtask, or null if it succeeded or did not finish
+     */
+    public Throwable failure(int index) {
+        Future<T> subtask = subtasks.get(index);
+        if (!subtask.isDone() || hooks.get(index).isCancelled()) {
+            return null;
+        }
+        try {
+            subtask.get();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+    
+    public int size() {
+        return subtasks.size();
+    }
+    
+    /**
+     * Number of subtasks cancelled because they missed the deadline
+     */
+    public int getCancelled() {
+        return cancelled;
+    }
+    
+    @Override
+    public void close() {
+        cancelRemaining();
+    }
+    
+    private void cancelRemaining() {
+        for (int i = 0; i < subtasks.size(); i++) {
+            Future<T> subtask = subtasks.get(i);
+            if (subtask.isDone()) {
+                continue;
+            }
+            // Abort the I/O first: the interrupt alone leaves a socket read running.
+            // Counted here, since an aborted subtask may finish before cancel() below
+            hooks.get(i).cancel();
+            subtask.cancel(true);
+            cancelled++;
+        }
+    }
+    
+    /**
+     * Abort action of one subtask
+     */
+    private static class CancelHook {
+        private Runnable action;
+        private boolean cancelled;
+        
+        synchronized void set(Runnable action) {
+            this.action = action;
+            if (cancelled) {
+                action.run();
+            }
+        }
+        
+        synchronized boolean isCancelled() {
+            return cancelled;
+        }
+        
+        synchronized void cancel() {
+            cancelled = true;
+            if (action != null) {
+                action.run();
+            }
+        }
+    }
+}
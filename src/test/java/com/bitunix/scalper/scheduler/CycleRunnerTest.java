@@ -0,0 +1,66 @@
+package com.bitunix.scalper.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CycleRunnerTest {
+    
+    private static final long INTERVAL = 30_000;
+    
+    @Test
+    void testOnTimeRunKeepsFixedRate() {
+        assertEquals(0, CycleRunner.missedSlots(1000, 1000 + INTERVAL, INTERVAL));
+        assertEquals(1000 + INTERVAL,
+                CycleRunner.nextSlot(1000, 1000 + 12_000, INTERVAL, CycleRunner.LatePolicy.SKIP));
+        assertEquals(1000 + INTERVAL,
+                CycleRunner.nextSlot(1000, 1000 + 12_000, INTERVAL, CycleRunner.LatePolicy.COALESCE));
+    }
+    
+    @Test
+    void testSkipWaitsForNextFutureSlot() {
+        // Ran 2.5 intervals: the slots at +1 and +2 intervals were missed
+        long end = 1000 + INTERVAL * 5 / 2;
+        assertEquals(2, CycleRunner.missedSlots(1000, end, INTERVAL));
+        assertEquals(1000 + 3 * INTERVAL, CycleRunner.nextSlot(1000, end, INTERVAL, CycleRunner.LatePolicy.SKIP));
+    }
+    
+    @Test
+    void testCoalesceRunsImmediately() {
+        long end = 1000 + INTERVAL * 5 / 2;
+        assertEquals(end, CycleRunner.nextSlot(1000, end, INTERVAL, CycleRunner.LatePolicy.COALESCE));
+    }
+    
+    @Test
+    void testStartStop() throws Exception {
+        CountDownLatch ran = new CountDownLatch(2);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CycleRunner runner = new CycleRunner("test-cycle", 10, 5, CycleRunner.LatePolicy.SKIP, deadline -> {
+            ran.countDown();
+            if (ran.getCount() == 0) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+            }
+        });
+        try {
+            runner.start();
+            runner.start();
+            assertTrue(runner.isRunning());
+            assertTrue(ran.await(5, TimeUnit.SECONDS));
+            
+            runner.stop();
+            assertFalse(runner.isRunning());
+            assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+            assertEquals(0, runner.getFailures());
+        } finally {
+            runner.shutdown();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.bitunix.scalper.scheduler;
+
+import com.bitunix.scalper.model.Trade;
+import com.bitunix.scalper.model.TradingPair;
+import com.bitunix.scalper.service.MetricsService;
+import com.bitunix.scalper.service.OrderBatchService;
+import com.bitunix.scalper.service.StrategyRegistryService;
+import com.bitunix.scalper.service.SymbolRegistryService;
+import com.bitunix.scalper.service.TradingService;
+import com.bitunix.scalper.strategy.BollingerBounceStrategy;
+import com.bitunix.scalper.strategy.EMACrossoverStrategy;
+import com.bitunix.scalper.strategy.FeatureSnapshot;
+import com.bitunix.scalper.strategy.RSIScalpingStrategy;
+import com.bitunix.scalper.strategy.SupportResistanceStrategy;
+import com.bitunix.scalper.strategy.TradingStrategyInterface;
+import com.bitunix.scalper.util.SymbolTable;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExitMonitorTest {
+    
+    // Rising closes 100, 101, ... 159 (newest last)
+    private static final int CANDLES = 60;
+    private static final double NEWEST_CLOSE = 100.0 + CANDLES - 1;
+    
+    private final SymbolTable<Trade> activeTrades = new SymbolTable<>();
+    private final SymbolTable<FeatureSnapshot> features = new SymbolTable<>();
+    private SymbolRegistryService symbolRegistry;
+    private TradingService tradingService;
+    private OrderBatchService orderBatchService;
+    private ExitMonitor exitMonitor;
+    
+    /**
+     * Exit monitor with real strategies, the scheduler's trade book and a trading
+     * service that closes every trade it is asked to
+     */
+    @BeforeEach
+    void setUp() {
+        TradingScheduler tradingScheduler = Mockito.mock(TradingScheduler.class);
+        Mockito.when(tradingScheduler.isTradingEnabled()).thenReturn(true);
+        Mockito.when(tradingScheduler.getActiveTradeTable()).thenReturn(activeTrades);
+        Mockito.when(tradingScheduler.getFeatures(Mockito.anyInt()))
+                .thenAnswer(invocation -> features.get(invocation.getArgument(0)));
+        
+        tradingService = Mockito.mock(TradingService.class);
+        Mockito.when(tradingService.closeTrade(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenAnswer(invocation -> {
+                    Trade trade = invocation.getArgument(0);
+                    trade.setStatus(Trade.TradeStatus.CLOSED);
+                    return trade;
+                });
+        
+        Mockito.when(tradingService.closeTradeAt(Mockito.any(), Mockito.any()))
+                .thenAnswer(invocation -> {
+                    Trade trade = invocation.getArgument(0);
+                    trade.setStatus(Trade.TradeStatus.CLOSED);
+                    trade.setExitPrice(invocation.getArgument(1));
+                    return trade;
+                });
+        orderBatchService = Mockito.mock(OrderBatchService.class);
+        
+        StrategyRegistryService strategyRegistry = new StrategyRegistryService();
+        List<TradingStrategyInterface> strategies = Arrays.asList(new RSIScalpingStrategy(),
+                new BollingerBounceStrategy(), new EMACrossoverStrategy(), new SupportResistanceStrategy());
+        ReflectionTestUtils.setField(strategyRegistry, "strategyBeans", strategies);
+        strategyRegistry.init();
+        
+        symbolRegistry = new SymbolRegistryService();
+        MetricsService metricsService = new MetricsService();
+        
+        exitMonitor = new ExitMonitor();
+        ReflectionTestUtils.setField(exitMonitor, "tradingScheduler", tradingScheduler);
+        ReflectionTestUtils.setField(exitMonitor, "tradingService", tradingService);
+        ReflectionTestUtils.setField(exitMonitor, "strategyRegistry", strategyRegistry);
+        ReflectionTestUtils.setField(exitMonitor, "symbolRegistry", symbolRegistry);
+        ReflectionTestUtils.setField(exitMonitor, "orderBatchService", orderBatchService);
+        ReflectionTestUtils.setField(exitMonitor, "staleAfterMs", 60_000L);
+        ReflectionTestUtils.setField(exitMonitor, "trailingStopRetryMs", 60_000L);
+        ReflectionTestUtils.setField(exitMonitor, "pendingEntryPollMs", 60_000L);
+        ReflectionTestUtils.setField(exitMonitor, "checkTimer", metricsService.timer("exit_check"));
+        ReflectionTestUtils.setField(exitMonitor, "protectionExits", metricsService.counter("protection_exits"));
+        ReflectionTestUtils.setField(exitMonitor, "strategyExits", metricsService.counter("strategy_exits"));
+        ReflectionTestUtils.setField(exitMonitor, "restPrices", metricsService.counter("rest_prices"));
+        ReflectionTestUtils.setField(exitMonitor, "killSwitchExits", metricsService.counter("kill_switch_exits"));
+    }
+    
+    @Test
+    void testStrategyExitsFireOnMarkPrices() {
+        // Rising market: RSI above 50, price above the middle band and at resistance, fast EMA above slow
+        int rsi = open("BTCUSDT", "RSI Scalping", Trade.TradeType.BUY);
+        int bollinger = open("ETHUSDT", "Bollinger Bounce", Trade.TradeType.BUY);
+        int ema = open("SOLUSDT", "EMA Crossover", Trade.TradeType.SELL);
+        int levels = open("XRPUSDT", "Support/Resistance", Trade.TradeType.BUY);
+        
+        exitMonitor.checkOpenTrades();
+        
+        for (int symbolId : new int[] {rsi, bollinger, ema, levels}) {
+            assertNull(activeTrades.get(symbolId), symbolRegistry.symbolOf(symbolId) + " should have exited");
+        }
+        Mockito.verify(tradingService, Mockito.times(4)).closeTrade(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+    
+    @Test
+    void testTradeStaysWhenCloseIsNotAccepted() {
+        Mockito.doAnswer(invocation -> invocation.getArgument(0))
+                .when(tradingService).closeTrade(Mockito.any(), Mockito.any(), Mockito.any());
+        int symbolId = open("BTCUSDT", "RSI Scalping", Trade.TradeType.BUY);
+        
+        exitMonitor.checkOpenTrades();
+        
+        assertNotNull(activeTrades.get(symbolId));
+        assertEquals(Trade.TradeStatus.OPEN, activeTrades.get(symbolId).getStatus());
+    }
+    
+    @Test
+    void testPendingTrailingStopIsRetriedUntilSet() {
+        Mockito.doAnswer(invocation -> invocation.getArgument(0))
+                .when(tradingService).closeTrade(Mockito.any(), Mockito.any(), Mockito.any());
+        Trade trade = activeTrades.get(open("BTCUSDT", "RSI Scalping", Trade.TradeType.BUY));
+        trade.setPendingTrailingStop(new BigDecimal("0.8"));
+        
+        exitMonitor.checkOpenTrades();
+        exitMonitor.checkOpenTrades();
+        
+        // The failed attempt is not repeated within the retry interval
+        Mockito.verify(tradingService, Mockito.times(1)).setPendingTrailingStop(trade);
+        
+        trade.setTrailingStopRetryAt(0);
+        exitMonitor.checkOpenTrades();
+        Mockito.verify(tradingService, Mockito.times(2)).setPendingTrailingStop(trade);
+        
+        // Nothing left to set
+        trade.setPendingTrailingStop(null);
+        trade.setTrailingStopRetryAt(0);
+        exitMonitor.checkOpenTrades();
+        Mockito.verify(tradingService, Mockito.times(2)).setPendingTrailingStop(trade);
+    }
+    
+    @Test
+    void testPendingEntryIsPolledUntilResolved() {
+        Trade trade = activeTrades.get(open("BTCUSDT", "RSI Scalping", Trade.TradeType.BUY));
+        trade.setStatus(Trade.TradeStatus.PENDING);
+        Mockito.when(tradingService.checkPendingEntry(trade)).thenReturn(trade);
+        
+        exitMonitor.checkOpenTrades();
+        exitMonitor.checkOpenTrades();
+        
+        // Not exited while pending, and polled once per interval
+        Mockito.verify(tradingService, Mockito.times(1)).checkPendingEntry(trade);
+        Mockito.verify(tradingService, Mockito.never()).closeTrade(Mockito.any(), Mockito.any(), Mockito.any());
+        assertSame(trade, activeTrades.get(symbolRegistry.find("BTCUSDT")));
+        
+        Mockito.when(tradingService.checkPendingEntry(trade)).thenAnswer(invocation -> {
+            trade.setStatus(Trade.TradeStatus.CANCELLED);
+            return trade;
+        });
+        trade.setEntryCheckAt(0);
+        exitMonitor.checkOpenTrades();
+        
+        assertNull(activeTrades.get(symbolRegistry.find("BTCUSDT")));
+    }
+    
+    @Test
+    void testKillSwitchCancelsPendingEntriesFirst() {
+        int symbolId = open("BTCUSDT", "RSI Scalping", Trade.TradeType.BUY);
+        Trade trade = activeTrades.get(symbolId);
+        trade.setStatus(Trade.TradeStatus.PENDING);
+        Mockito.when(tradingService.cancelPendingEntry(trade)).thenAnswer(invocation -> {
+            trade.setStatus(Trade.TradeStatus.CANCELLED);
+            return trade;
+        });
+        Mockito.when(orderBatchService.flattenAllPositions("linear")).thenReturn(new ArrayList<>());
+        
+        exitMonitor.flatten("linear");
+        
+        assertNull(activeTrades.get(symbolId));
+        InOrder order = Mockito.inOrder(tradingService, orderBatchService);
+        order.verify(tradingService).cancelPendingEntry(trade);
+        order.verify(orderBatchService).flattenAllPositions("linear");
+    }
+    
+    @Test
+    void testKillSwitchClosesTradesOfAcceptedOrders() {
+        int accepted = open("BTCUSDT", "RSI Scalping", Trade.TradeType.BUY);
+        int rejected = open("ETHUSDT", "RSI Scalping", Trade.TradeType.BUY);
+        Mockito.when(orderBatchService.flattenAllPositions("linear")).thenReturn(Arrays.asList(
+                result("BTCUSDT", 0), result("ETHUSDT", 110017), result("SOLUSDT", 0)));
+        
+        List<JsonNode> results = exitMonitor.flatten("linear");
+        
+        assertEquals(3, results.size());
+        assertNull(activeTrades.get(accepted));
+        // Closed at the last mark price
+        Mockito.verify(tradingService).closeTradeAt(Mockito.argThat(trade -> trade.getSymbol().equals("BTCUSDT")),
+                Mockito.eq(BigDecimal.valueOf(NEWEST_CLOSE)));
+        // The position of a rejected closing order is still open
+        assertEquals(Trade.TradeStatus.OPEN, activeTrades.get(rejected).getStatus());
+        Mockito.verify(tradingService, Mockito.times(1)).closeTradeAt(Mockito.any(), Mockito.any());
+    }
+    
+    private static JsonNode result(String symbol, int code) {
+        return JsonNodeFactory.instance.objectNode().put("symbol", symbol).put("code", code);
+    }
+    
+    /**
+     * Open a trade in a rising market, with the newest close as the streamed mark price
+     */
+    private int open(String symbol, String strategy, Trade.TradeType type) {
+        int symbolId = symbolRegistry.idOf(symbol);
+        
+        List<TradingPair> klines = new ArrayList<>();
+        for (int i = 0; i < CANDLES; i++) {
+            TradingPair kline = new TradingPair();
+            kline.setPrice(BigDecimal.valueOf(NEWEST_CLOSE - i));
+            kline.setVolume24h(BigDecimal.TEN);
+            kline.setCandleTime(1_000_000L - i * 60_000L);
+            klines.add(kline);
+        }
+        features.put(symbolId, FeatureSnapshot.fromCandles(klines));
+        
+        Trade trade = new Trade();
+        trade.setSymbol(symbol);
+        trade.setType(type);
+        trade.setStatus(Trade.TradeStatus.OPEN);
+        trade.setEntryPrice(BigDecimal.valueOf(NEWEST_CLOSE));
+        trade.setQuantity(BigDecimal.ONE);
+        trade.setStrategy(strategy);
+        activeTrades.put(symbolId, trade);
+        
+        exitMonitor.onMarkPrice(symbol, NEWEST_CLOSE);
+        return symbolId;
+    }
+}
@@ -0,0 +1,53 @@
+package com.bitunix.scalper.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyTrackerServiceTest {
+    
+    private LatencyTrackerService latencyTracker;
+    
+    @BeforeEach
+    void setUp() {
+        latencyTracker = new LatencyTrackerService();
+    }
+    
+    @Test
+    void testSymbolKeepsOnlyRecordedStages() {
+        latencyTracker.recordDuration(LatencyTrackerService.Stage.RECEIVE, "BTCUSDT", 2_000);
+        latencyTracker.recordDuration(LatencyTrackerService.Stage.RECEIVE, "BTCUSDT", 4_000);
+        latencyTracker.recordDuration(LatencyTrackerService.Stage.PARSE, "BTCUSDT", 1_000);
+        latencyTracker.recordDuration(LatencyTrackerService.Stage.SCORING, null, 1_000);
+        
+        Map<String, Map<String, Object>> summary = latencyTracker.getSymbolSummary("BTCUSDT");
+        assertEquals(Arrays.asList("RECEIVE", "PARSE"), Arrays.asList(summary.keySet().toArray()));
+        assertEquals(2L, summary.get("RECEIVE").get("count"));
+        
+        // Multi-symbol work only goes to the overall histograms
+        assertEquals(1, latencyTracker.getHistogram(LatencyTrackerService.Stage.SCORING).getCount());
+        assertEquals(Collections.singleton("BTCUSDT"), latencyTracker.getTrackedSymbols());
+    }
+    
+    @Test
+    void testTickToTradeFromLastReceive() {
+        latencyTracker.recordTickToTrade("ETHUSDT");
+        assertEquals(0, latencyTracker.getHistogram(LatencyTrackerService.Stage.TICK_TO_TRADE).getCount());
+        
+        latencyTracker.markReceived("ETHUSDT", System.nanoTime());
+        latencyTracker.recordTickToTrade("ETHUSDT");
+        
+        assertEquals(1, latencyTracker.getHistogram(LatencyTrackerService.Stage.TICK_TO_TRADE).getCount());
+        assertTrue(latencyTracker.getSymbolSummary("ETHUSDT").containsKey("TICK_TO_TRADE"));
+    }
+    
+    @Test
+    void testUnknownSymbolHasEmptySummary() {
+        assertTrue(latencyTracker.getSymbolSummary("XRPUSDT").isEmpty());
+    }
+}
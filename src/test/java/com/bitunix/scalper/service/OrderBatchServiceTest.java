@@ -0,0 +1,310 @@
+package com.bitunix.scalper.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderBatchServiceTest {
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private HttpServer exchange;
+    private final List<JsonNode> batches = new CopyOnWriteArrayList<>();
+    private final List<String> batchPaths = new CopyOnWriteArrayList<>();
+    private final List<Map<String, String>> positionQueries = new CopyOnWriteArrayList<>();
+    private volatile List<String> positionSymbols = new ArrayList<>();
+    
+    private RateLimiterService rateLimiterService;
+    private BybitDemoTradingService bybitDemoTradingService;
+    private IoExecutorService ioExecutorService;
+    private OrderBatchService orderBatchService;
+    
+    /**
+     * Batch service wired to a local stand-in for the exchange's REST API
+     */
+    @BeforeEach
+    void setUp() throws IOException {
+        exchange = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        exchange.createContext("/", this::respond);
+        exchange.start();
+        
+        rateLimiterService = new RateLimiterService();
+        MetricsService metricsService = new MetricsService();
+        
+        bybitDemoTradingService = new BybitDemoTradingService();
+        ReflectionTestUtils.setField(bybitDemoTradingService, "defaultBaseUrl",
+                "http://127.0.0.1:" + exchange.getAddress().getPort());
+        ReflectionTestUtils.setField(bybitDemoTradingService, "defaultApiKey", "key");
+        ReflectionTestUtils.setField(bybitDemoTradingService, "defaultSecretKey", "secret");
+        ReflectionTestUtils.setField(bybitDemoTradingService, "rateLimiterService", rateLimiterService);
+        ReflectionTestUtils.setField(bybitDemoTradingService, "latencyTracker", new LatencyTrackerService());
+        ReflectionTestUtils.setField(bybitDemoTradingService, "metricsService", metricsService);
+        
+        ioExecutorService = new IoExecutorService();
+        ReflectionTestUtils.setField(ioExecutorService, "virtualThreads", "false");
+        ReflectionTestUtils.setField(ioExecutorService, "platformThreads", 8);
+        ioExecutorService.init();
+        
+        orderBatchService = new OrderBatchService();
+        ReflectionTestUtils.setField(orderBatchService, "bybitDemoTradingService", bybitDemoTradingService);
+        ReflectionTestUtils.setField(orderBatchService, "metricsService", metricsService);
+        ReflectionTestUtils.setField(orderBatchService, "latencyTracker", new LatencyTrackerService());
+        ReflectionTestUtils.setField(orderBatchService, "ioExecutorService", ioExecutorService);
+        ReflectionTestUtils.setField(orderBatchService, "batchWindowMs", 50L);
+        ReflectionTestUtils.setField(orderBatchService, "batchTimeoutMs", 15_000L);
+    }
+    
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        exchange.stop(0);
+        ioExecutorService.shutdown();
+    }
+    
+    @Test
+    void testFlattenAfterBalancePoll() {
+        // The trading cycle's balance poll takes the shared bybit_demo request
+        assertTrue(rateLimiterService.canMakeRequest("bybit_demo"));
+        positionSymbols = symbols(12);
+        
+        List<JsonNode> results = orderBatchService.flattenAllPositions("linear");
+        
+        assertEquals(12, results.size());
+        assertEquals(2, batches.size());
+        List<Integer> sizes = Arrays.asList(batches.get(0).path("request").size(),
+                batches.get(1).path("request").size());
+        Collections.sort(sizes);
+        assertEquals(Arrays.asList(2, 10), sizes);
+        for (JsonNode batch : batches) {
+            for (JsonNode order : batch.path("request")) {
+                assertTrue(order.path("reduceOnly").asBoolean());
+                assertEquals("Sell", order.path("side").asText());
+            }
+        }
+        // Results come back in position order
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(0, results.get(i).path("code").asInt());
+            assertEquals(positionSymbols.get(i), results.get(i).path("symbol").asText());
+        }
+    }
+    
+    @Test
+    void testFlattenWaitsForBudgetBeyondOneSecond() {
+        // Position read plus six batch calls exceed one second of the closing-order budget
+        positionSymbols = symbols(60);
+        
+        List<JsonNode> results = orderBatchService.flattenAllPositions("linear");
+        
+        assertEquals(60, results.size());
+        assertEquals(6, batches.size());
+        for (JsonNode result : results) {
+            assertEquals(0, result.path("code").asInt());
+        }
+    }
+    
+    @Test
+    void testFlattenFollowsPositionPages() {
+        positionSymbols = symbols(250);
+        
+        JsonNode positions = bybitDemoTradingService.getPositions("linear", null, RateLimiterService.Priority.HIGH);
+        
+        // 250 open positions plus the flat one, over two full-size pages
+        assertEquals(251, positions.path("result").path("list").size());
+        assertEquals("", positions.path("result").path("nextPageCursor").asText());
+        assertEquals(2, positionQueries.size());
+        for (Map<String, String> query : positionQueries) {
+            assertEquals("200", query.get("limit"));
+            assertEquals("USDT", query.get("settleCoin"));
+        }
+        assertNull(positionQueries.get(0).get("cursor"));
+        assertEquals("offset:200", positionQueries.get(1).get("cursor"));
+        // One request of the closing-order budget for the whole listing
+        assertEquals(1, rateLimiterService.getGrantedCount("bybit_demo_exits:high"));
+    }
+    
+    @Test
+    void testFlattenResultsCarryTheirSymbol() {
+        positionSymbols = symbols(3);
+        while (rateLimiterService.canMakeRequest("bybit_demo_exits", RateLimiterService.Priority.HIGH)
+                && rateLimiterService.getGrantedCount("bybit_demo_exits:high") < 4) {
+            // Leave the closing-order budget one request: the position read
+        }
+        ReflectionTestUtils.setField(orderBatchService, "batchTimeoutMs", 100L);
+        
+        List<JsonNode> results = orderBatchService.flattenAllPositions("linear");
+        
+        assertEquals(3, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertFalse(OrderBatchService.isAccepted(results.get(i)));
+            assertEquals(positionSymbols.get(i), results.get(i).path("symbol").asText());
+        }
+    }
+    
+    @Test
+    void testOrdersWithinWindowShareOneBatch() throws Exception {
+        List<CompletableFuture<JsonNode>> futures = new ArrayList<>();
+        for (String symbol : symbols(3)) {
+            futures.add(orderBatchService.submitOrder("linear", bybitDemoTradingService.orderRequest(
+                    symbol, "Buy", "Market", "1", null, null, null, "link-" + symbol)));
+        }
+        
+        for (int i = 0; i < futures.size(); i++) {
+            JsonNode result = orderBatchService.await(futures.get(i));
+            assertTrue(OrderBatchService.isAccepted(result));
+            assertEquals("id-COIN" + i + "USDT", result.path("orderId").asText());
+        }
+        assertEquals(Collections.singletonList("/v5/order/create-batch"), batchPaths);
+        assertEquals(3, batches.get(0).path("request").size());
+        assertEquals(1, rateLimiterService.getGrantedCount("bybit_demo:high"));
+    }
+    
+    @Test
+    void testClosingOrdersAndCancelsBatchSeparately() {
+        while (rateLimiterService.canMakeRequest("bybit_demo", RateLimiterService.Priority.HIGH)) {
+            // Entries use up the order budget
+        }
+        CompletableFuture<JsonNode> close = orderBatchService.submitClosingOrder("linear",
+                bybitDemoTradingService.closingOrderRequest("BTCUSDT", "Sell", "1", null));
+        CompletableFuture<JsonNode> cancel = orderBatchService.cancelOrder("linear", "ETHUSDT", null, "link-1");
+        
+        // The closing order has a budget of its own; the cancel does not
+        assertTrue(OrderBatchService.isAccepted(orderBatchService.await(close)));
+        JsonNode cancelled = orderBatchService.await(cancel);
+        assertNull(cancelled);
+        assertEquals(Collections.singletonList("/v5/order/create-batch"), batchPaths);
+        assertTrue(batches.get(0).path("request").get(0).path("reduceOnly").asBoolean());
+    }
+    
+    @Test
+    void testNothingToFlatten() {
+        assertTrue(orderBatchService.flattenAllPositions("linear").isEmpty());
+        assertTrue(batches.isEmpty());
+    }
+    
+    @Test
+    void testChunksHoldAtMostOneBatch() {
+        List<List<Integer>> chunks = OrderBatchService.chunk(Arrays.asList(
+                1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21));
+        
+        assertEquals(3, chunks.size());
+        assertEquals(10, chunks.get(0).size());
+        assertEquals(10, chunks.get(1).size());
+        assertEquals(Collections.singletonList(21), chunks.get(2));
+        assertTrue(OrderBatchService.chunk(new ArrayList<>()).isEmpty());
+    }
+    
+    @Test
+    void testSplitBatchResultsPerItem() throws IOException {
+        JsonNode response = objectMapper.readTree("{\"retCode\":0,\"retMsg\":\"OK\","
+                + "\"result\":{\"list\":[{\"symbol\":\"BTCUSDT\",\"orderId\":\"o1\"},"
+                + "{\"symbol\":\"ETHUSDT\",\"orderId\":\"\"}]},"
+                + "\"retExtInfo\":{\"list\":[{\"code\":0,\"msg\":\"OK\"},{\"code\":110017,\"msg\":\"reduce-only rejected\"}]}}");
+        
+        List<JsonNode> results = bybitDemoTradingService.splitBatchResults(response, 2);
+        
+        assertEquals(0, results.get(0).path("code").asInt());
+        assertEquals("o1", results.get(0).path("orderId").asText());
+        assertEquals(110017, results.get(1).path("code").asInt());
+        assertEquals("reduce-only rejected", results.get(1).path("msg").asText());
+        assertEquals("ETHUSDT", results.get(1).path("symbol").asText());
+    }
+    
+    @Test
+    void testSplitBatchResultsOnBatchFailure() throws IOException {
+        JsonNode response = objectMapper.readTree("{\"retCode\":10006,\"retMsg\":\"Too many visits\",\"result\":{}}");
+        
+        List<JsonNode> results = bybitDemoTradingService.splitBatchResults(response, 3);
+        
+        assertEquals(3, results.size());
+        for (JsonNode result : results) {
+            assertEquals(10006, result.path("code").asInt());
+            assertEquals("Too many visits", result.path("msg").asText());
+        }
+        
+        // No response at all: one null per item
+        assertEquals(Arrays.asList(null, null), bybitDemoTradingService.splitBatchResults(null, 2));
+    }
+    
+    private List<String> symbols(int count) {
+        List<String> symbols = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            symbols.add("COIN" + i + "USDT");
+        }
+        return symbols;
+    }
+    
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        for (String param : rawQuery.split("&")) {
+            int separator = param.indexOf('=');
+            params.put(param.substring(0, separator),
+                    URLDecoder.decode(param.substring(separator + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+    
+    private void respond(HttpExchange request) throws IOException {
+        String path = request.getRequestURI().getPath();
+        byte[] requestBody = request.getRequestBody().readAllBytes();
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("retCode", 0);
+        response.put("retMsg", "OK");
+        
+        if (path.equals("/v5/position/list")) {
+            Map<String, String> query = query(request.getRequestURI().getRawQuery());
+            positionQueries.add(query);
+            // Pages of at most limit positions (the exchange default is 20), with the flat position last
+            int limit = Integer.parseInt(query.getOrDefault("limit", "20"));
+            int offset = query.containsKey("cursor") ? Integer.parseInt(query.get("cursor").substring(7)) : 0;
+            ObjectNode result = response.putObject("result");
+            ArrayNode list = result.putArray("list");
+            List<String> symbols = new ArrayList<>(positionSymbols);
+            symbols.add("FLATUSDT");
+            for (int i = offset; i < Math.min(offset + limit, symbols.size()); i++) {
+                String symbol = symbols.get(i);
+                boolean flat = symbol.equals("FLATUSDT");
+                list.addObject().put("symbol", symbol).put("side", flat ? "None" : "Buy").put("size", flat ? "0" : "0.5");
+            }
+            result.put("nextPageCursor", offset + limit < symbols.size() ? "offset%3A" + (offset + limit) : "");
+        } else if (path.startsWith("/v5/order/")) {
+            JsonNode body = objectMapper.readTree(requestBody);
+            batches.add(body);
+            batchPaths.add(path);
+            ArrayNode list = response.putObject("result").putArray("list");
+            ArrayNode extInfo = response.putObject("retExtInfo").putArray("list");
+            for (JsonNode order : body.path("request")) {
+                String symbol = order.path("symbol").asText();
+                list.addObject().put("symbol", symbol).put("orderId", "id-" + symbol);
+                extInfo.addObject().put("code", 0).put("msg", "OK");
+            }
+        }
+        
+        byte[] bytes = objectMapper.writeValueAsBytes(response);
+        request.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = request.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -73,4 +73,40 @@ public class RateLimiterServiceTest {
         // Проверяем, что второй API еще работает
         assertTrue(rateLimiterService.canMakeRequest(api2));
     }
+    
+    @Test
+    void testHighPriorityHasOwnBudget() {
+        String apiName = "exits";
+        
+        // Обычный бюджет исчерпан
+        while (rateLimiterService.canMakeRequest(apiName)) {
+            // drain
+        }
+        
+        // Приоритетные запросы по-прежнему разрешены
+        assertTrue(rateLimiterService.canMakeRequest(apiName, RateLimiterService.Priority.HIGH));
+        assertFalse(rateLimiterService.canMakeRequest(apiName));
+    }
+    
+    @Test
+    void testWaitForRequestCountsOneOutcome() {
+        String apiName = "flatten";
+        while (rateLimiterService.canMakeRequest(apiName, RateLimiterService.Priority.HIGH)) {
+            // drain
+        }
+        long granted = rateLimiterService.getGrantedCount(apiName + ":high");
+        long denied = rateLimiterService.getDeniedCount(apiName + ":high");
+        
+        // Ждет следующего окна, повторные попытки не считаются отказами
+        assertTrue(rateLimiterService.waitForRequest(apiName, RateLimiterService.Priority.HIGH, 2000));
+        assertEquals(granted + 1, rateLimiterService.getGrantedCount(apiName + ":high"));
+        assertEquals(denied, rateLimiterService.getDeniedCount(apiName + ":high"));
+        
+        while (rateLimiterService.canMakeRequest(apiName, RateLimiterService.Priority.HIGH)) {
+            // drain
+        }
+        denied = rateLimiterService.getDeniedCount(apiName + ":high");
+        assertFalse(rateLimiterService.waitForRequest(apiName, RateLimiterService.Priority.HIGH, 50));
+        assertEquals(denied + 1, rateLimiterService.getDeniedCount(apiName + ":high"));
+    }
 }
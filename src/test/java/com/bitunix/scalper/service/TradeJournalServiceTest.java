@@ -0,0 +1,241 @@
+package com.bitunix.scalper.service;
+
+import com.bitunix.scalper.model.Trade;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TradeJournalServiceTest {
+    
+    @TempDir
+    Path dataDir;
+    
+    private String url;
+    private final List<TradeJournalService> journals = new ArrayList<>();
+    
+    @BeforeEach
+    void setUp() {
+        url = "jdbc:h2:file:" + dataDir.resolve("trade-journal").toAbsolutePath();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        for (TradeJournalService journal : journals) {
+            journal.stop();
+        }
+    }
+    
+    @Test
+    void testBatchWritesMergeLatestTradeState() {
+        TradeJournalService journal = start(0, 120);
+        Trade first = trade("link-1", "BTCUSDT");
+        Trade second = trade("link-2", "ETHUSDT");
+        
+        journal.record(TradeJournalService.EventType.OPENED, first);
+        journal.record(TradeJournalService.EventType.OPENED, second);
+        first.setStatus(Trade.TradeStatus.CLOSED);
+        first.setExitPrice(new BigDecimal("101"));
+        journal.record(TradeJournalService.EventType.CLOSED, first);
+        awaitWritten(journal, 3);
+        
+        // One row per trade holding its latest state
+        List<Trade> trades = journal.loadTrades(null);
+        assertEquals(2, trades.size());
+        assertEquals(Arrays.asList("link-2"), orderLinkIds(journal.loadTrades(Trade.TradeStatus.OPEN)));
+        Trade closed = journal.loadTrades(Trade.TradeStatus.CLOSED).get(0);
+        assertEquals("link-1", closed.getOrderLinkId());
+        assertEquals(0, new BigDecimal("101").compareTo(closed.getExitPrice()));
+        
+        assertEquals(3, journal.getLastEventId());
+        assertEquals(1, journal.getPartitionCount());
+        assertEquals(2, journal.loadEvents("BTCUSDT", LocalDateTime.now().minusDays(1),
+                LocalDateTime.now().plusDays(1)).size());
+        
+        assertEquals(Arrays.asList("link-1", "link-2"), sorted(orderLinkIds(journal.loadTradesChangedAfter(0))));
+        assertEquals(Arrays.asList("link-1"), orderLinkIds(journal.loadTradesChangedAfter(2)));
+        assertTrue(journal.loadTradesChangedAfter(3).isEmpty());
+    }
+    
+    @Test
+    void testReopenKeepsTradesAndEventIds() {
+        TradeJournalService journal = start(0, 120);
+        journal.record(TradeJournalService.EventType.OPENED, trade("link-1", "BTCUSDT"));
+        journal.record(TradeJournalService.EventType.OPENED, trade("link-2", "ETHUSDT"));
+        awaitWritten(journal, 2);
+        journal.stop();
+        
+        TradeJournalService reopened = start(0, 120);
+        assertEquals(Arrays.asList("link-1", "link-2"), sorted(orderLinkIds(reopened.loadTrades(null))));
+        assertEquals(2, reopened.getLastEventId());
+        assertEquals(1, reopened.getPartitionCount());
+        
+        // The event sequence continues after the reopen
+        reopened.record(TradeJournalService.EventType.RECONCILED, trade("link-1", "BTCUSDT"));
+        awaitWritten(reopened, 1);
+        assertEquals(3, reopened.getLastEventId());
+        assertEquals(Arrays.asList("link-1"), orderLinkIds(reopened.loadTradesChangedAfter(2)));
+    }
+    
+    @Test
+    void testLegacyMigrationCompactionAndRetention() throws SQLException {
+        // Create the schema, then add an unpartitioned journal_events table of an earlier version
+        start(0, 120).stop();
+        YearMonth now = YearMonth.now();
+        YearMonth expired = now.minusMonths(14);
+        YearMonth older = now.minusMonths(3);
+        YearMonth old = now.minusMonths(2);
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+                Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE journal_events (id BIGINT PRIMARY KEY, event_time TIMESTAMP NOT NULL, "
+                    + "event_type VARCHAR(32) NOT NULL, order_link_id VARCHAR(64), order_id VARCHAR(64), "
+                    + "symbol VARCHAR(32) NOT NULL, strategy VARCHAR(64), side VARCHAR(8), status VARCHAR(16), "
+                    + "quantity DECIMAL(20, 8), entry_price DECIMAL(20, 8), exit_price DECIMAL(20, 8), "
+                    + "stop_loss_price DECIMAL(20, 8), take_profit_price DECIMAL(20, 8), profit DECIMAL(20, 8), "
+                    + "notes VARCHAR(1024))");
+            legacyEvent(connection, 1, expired, "expired-1", "BTCUSDT", "OPENED");
+            legacyEvent(connection, 2, expired, "expired-1", "BTCUSDT", "CLOSED");
+            legacyEvent(connection, 3, older, "link-1", "BTCUSDT", "OPENED");
+            legacyEvent(connection, 4, older, "link-1", "BTCUSDT", "ORDER_ACCEPTED");
+            legacyEvent(connection, 5, older, "link-1", "BTCUSDT", "PROTECTION_UPDATED");
+            legacyEvent(connection, 6, old, "link-1", "BTCUSDT", "CLOSED");
+            legacyEvent(connection, 7, older, "link-2", "BTCUSDT", "OPENED");
+            legacyEvent(connection, 8, older, "link-2", "BTCUSDT", "ORDER_ACCEPTED");
+            legacyEvent(connection, 9, old, "link-3", "ETHUSDT", "OPENED");
+            legacyEvent(connection, 10, old, "link-3", "ETHUSDT", "CLOSED");
+            for (String link : Arrays.asList("expired-1", "link-1", "link-2", "link-3")) {
+                statement.execute("MERGE INTO journal_trades (order_link_id, symbol, status, updated_at) "
+                        + "KEY (order_link_id) VALUES ('" + link + "', 'BTCUSDT', 'CLOSED', CURRENT_TIMESTAMP)");
+            }
+        }
+        
+        // Startup moves the legacy events into monthly partitions and continues their ids
+        TradeJournalService journal = start(0, 120);
+        assertEquals(3, journal.getPartitionCount());
+        assertEquals(10, journal.getLastEventId());
+        journal.record(TradeJournalService.EventType.RECONCILED, trade("link-3", "ETHUSDT"));
+        awaitWritten(journal, 1);
+        assertEquals(4, journal.getPartitionCount());
+        assertEquals(11, journal.getLastEventId());
+        
+        LocalDateTime from = older.atDay(1).atStartOfDay();
+        LocalDateTime to = LocalDateTime.now().plusDays(1);
+        List<List<String>> changedBefore = changedAfterEachId(journal, 11);
+        // Oldest partition first, by id within a partition
+        List<Map<String, Object>> eventsBefore = journal.loadEvents("BTCUSDT", from, to);
+        assertEquals(Arrays.asList(3L, 4L, 5L, 7L, 8L, 6L), ids(eventsBefore));
+        
+        // Compact partitions older than a month down to the last event of each trade
+        ReflectionTestUtils.setField(journal, "compactAfterMonths", 1);
+        journal.maintain();
+        
+        assertEquals(changedBefore, changedAfterEachId(journal, 11));
+        List<Map<String, Object>> eventsAfter = journal.loadEvents("BTCUSDT", from, to);
+        assertEquals(Arrays.asList(5L, 8L, 6L), ids(eventsAfter));
+        assertEquals(eventsBefore.stream().filter(event -> eventsAfter.stream()
+                .anyMatch(kept -> kept.get("id").equals(event.get("id")))).collect(Collectors.toList()), eventsAfter);
+        // A trade keeps its last event of every month
+        assertEquals(2, journal.loadEvents("ETHUSDT", from, to).size());
+        
+        // Retention drops the whole expired partition
+        assertEquals(1, journal.loadEvents("BTCUSDT", expired.atDay(1).atStartOfDay(),
+                expired.plusMonths(1).atDay(1).atStartOfDay()).size());
+        ReflectionTestUtils.setField(journal, "retentionMonths", 12);
+        journal.maintain();
+        assertEquals(3, journal.getPartitionCount());
+        assertTrue(journal.loadEvents("BTCUSDT", expired.atDay(1).atStartOfDay(),
+                expired.plusMonths(1).atDay(1).atStartOfDay()).isEmpty());
+        assertFalse(orderLinkIds(journal.loadTradesChangedAfter(0)).contains("expired-1"));
+        assertEquals(changedBefore.subList(2, changedBefore.size()), changedAfterEachId(journal, 11).subList(2, 12));
+    }
+    
+    private TradeJournalService start(int retentionMonths, int compactAfterMonths) {
+        TradeJournalService journal = new TradeJournalService();
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "url", url);
+        ReflectionTestUtils.setField(journal, "batchSize", 256);
+        ReflectionTestUtils.setField(journal, "flushIntervalMs", 10L);
+        ReflectionTestUtils.setField(journal, "fsyncPolicy", "batch");
+        ReflectionTestUtils.setField(journal, "fsyncIntervalMs", 1000L);
+        ReflectionTestUtils.setField(journal, "retentionMonths", retentionMonths);
+        ReflectionTestUtils.setField(journal, "compactAfterMonths", compactAfterMonths);
+        ReflectionTestUtils.setField(journal, "metricsService", new MetricsService());
+        journal.start();
+        journals.add(journal);
+        return journal;
+    }
+    
+    private void awaitWritten(TradeJournalService journal, long count) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (journal.getWrittenCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(count, journal.getWrittenCount());
+        assertEquals(0, journal.getPendingCount());
+    }
+    
+    private void legacyEvent(Connection connection, long id, YearMonth month, String orderLinkId, String symbol,
+            String type) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO journal_events "
+                + "(id, event_time, event_type, order_link_id, symbol, status) VALUES (?, ?, ?, ?, ?, 'OPEN')")) {
+            statement.setLong(1, id);
+            statement.setTimestamp(2, Timestamp.valueOf(month.atDay(10).atTime(12, (int) id)));
+            statement.setString(3, type);
+            statement.setString(4, orderLinkId);
+            statement.setString(5, symbol);
+            statement.executeUpdate();
+        }
+    }
+    
+    private List<List<String>> changedAfterEachId(TradeJournalService journal, long lastId) {
+        List<List<String>> changed = new ArrayList<>();
+        for (long id = 0; id <= lastId; id++) {
+            changed.add(sorted(orderLinkIds(journal.loadTradesChangedAfter(id))));
+        }
+        return changed;
+    }
+    
+    private static Trade trade(String orderLinkId, String symbol) {
+        Trade trade = new Trade();
+        trade.setOrderLinkId(orderLinkId);
+        trade.setSymbol(symbol);
+        trade.setStrategy("RSI Scalping");
+        trade.setType(Trade.TradeType.BUY);
+        trade.setStatus(Trade.TradeStatus.OPEN);
+        trade.setQuantity(new BigDecimal("0.5"));
+        trade.setEntryPrice(new BigDecimal("100"));
+        trade.setEntryTime(LocalDateTime.now());
+        return trade;
+    }
+    
+    private static List<String> orderLinkIds(List<Trade> trades) {
+        return trades.stream().map(Trade::getOrderLinkId).collect(Collectors.toList());
+    }
+    
+    private static List<Long> ids(List<Map<String, Object>> events) {
+        return events.stream().map(event -> (Long) event.get("id")).collect(Collectors.toList());
+    }
+    
+    private static List<String> sorted(List<String> values) {
+        return values.stream().sorted().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,103 @@
+package com.bitunix.scalper.service;
+
+import com.bitunix.scalper.model.Trade;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+public class TradeStatisticsServiceTest {
+    
+    private TradeStatisticsService statisticsService;
+    
+    @BeforeEach
+    void setUp() {
+        statisticsService = new TradeStatisticsService();
+    }
+    
+    @Test
+    void testClosedTradesUpdateAllAggregates() {
+        record("BTCUSDT", "RSI Scalping", "10");
+        record("BTCUSDT", "EMA Crossover", "-4");
+        record("ETHUSDT", "RSI Scalping", "6");
+        
+        TradeStatisticsService.TradeStats overall = statisticsService.getOverall();
+        assertEquals(3, overall.getOpenedTrades());
+        assertEquals(3, overall.getClosedTrades());
+        assertEquals(2, overall.getWinningTrades());
+        assertEquals(0, new BigDecimal("12").compareTo(overall.getTotalProfit()));
+        assertEquals(0, new BigDecimal("4").compareTo(overall.getProfitFactor()));
+        
+        assertEquals(2, statisticsService.getStrategyStats("RSI Scalping").getClosedTrades());
+        assertEquals(0, new BigDecimal("6").compareTo(statisticsService.getSymbolStats("BTCUSDT").getTotalProfit()));
+        assertEquals(3, statisticsService.getDayStats(LocalDateTime.now().toLocalDate()).getClosedTrades());
+    }
+    
+    @Test
+    void testSuccessRateMatchesTradingService() {
+        record("BTCUSDT", "RSI Scalping", "1");
+        record("BTCUSDT", "RSI Scalping", "-1");
+        record("BTCUSDT", "RSI Scalping", "-1");
+        
+        assertEquals(0, new BigDecimal("33.33").compareTo(statisticsService.getOverall().getSuccessRate()));
+    }
+    
+    @Test
+    void testOpenTradesAreNotCountedAsClosed() {
+        Trade trade = trade("BTCUSDT", "RSI Scalping", null);
+        trade.setStatus(Trade.TradeStatus.OPEN);
+        statisticsService.recordOpened(trade);
+        statisticsService.recordClosed(trade);
+        
+        assertEquals(1, statisticsService.getOverall().getOpenedTrades());
+        assertEquals(0, statisticsService.getOverall().getClosedTrades());
+    }
+    
+    @Test
+    void testRebuildCountsOnlyTradesThatOpenedAPosition() {
+        Trade closed = trade("BTCUSDT", "RSI Scalping", new BigDecimal("5"));
+        closed.setOrderId("order-1");
+        Trade pending = cancelled("order-2", "0.01");
+        pending.setStatus(Trade.TradeStatus.PENDING);
+        TradeJournalService journal = Mockito.mock(TradeJournalService.class);
+        Mockito.when(journal.loadTrades(null)).thenReturn(Arrays.asList(closed, pending,
+                cancelled(null, "0.01"), cancelled("order-3", "0"), cancelled("order-4", "0.01")));
+        ReflectionTestUtils.setField(statisticsService, "tradeJournalService", journal);
+        
+        statisticsService.rebuild();
+        
+        // The closed trade and the position closed while the bot was down; not the pending,
+        // rejected or unfilled limit entries
+        assertEquals(2, statisticsService.getOverall().getOpenedTrades());
+        assertEquals(1, statisticsService.getOverall().getClosedTrades());
+    }
+    
+    private Trade cancelled(String orderId, String quantity) {
+        Trade trade = trade("ETHUSDT", "RSI Scalping", null);
+        trade.setStatus(Trade.TradeStatus.CANCELLED);
+        trade.setOrderId(orderId);
+        trade.setQuantity(new BigDecimal(quantity));
+        return trade;
+    }
+    
+    private void record(String symbol, String strategy, String profit) {
+        Trade trade = trade(symbol, strategy, new BigDecimal(profit));
+        statisticsService.recordOpened(trade);
+        statisticsService.recordClosed(trade);
+    }
+    
+    private Trade trade(String symbol, String strategy, BigDecimal profit) {
+        Trade trade = new Trade();
+        trade.setSymbol(symbol);
+        trade.setStrategy(strategy);
+        trade.setStatus(Trade.TradeStatus.CLOSED);
+        trade.setProfit(profit);
+        trade.setExitTime(LocalDateTime.now());
+        return trade;
+    }
+}
@@ -0,0 +1,382 @@
+package com.bitunix.scalper.service;
+
+import com.bitunix.scalper.model.Trade;
+import com.bitunix.scalper.model.TradingConfig;
+import com.bitunix.scalper.model.TradingPair;
+import com.bitunix.scalper.strategy.ExecutionCostModel;
+import com.bitunix.scalper.strategy.RSIScalpingStrategy;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TradingServiceTest {
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private HttpServer exchange;
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+    private final List<String> queries = new CopyOnWriteArrayList<>();
+    // Outcome of a batch call as a whole, and of each of its items
+    private volatile int batchCode = 0;
+    private volatile String batchMsg = "OK";
+    private volatile int itemCode = 0;
+    private volatile String itemMsg = "OK";
+    // Outcome of setting protection on the position
+    private volatile int tradingStopCode = 0;
+    // Order status reported for a resting entry, with its fill
+    private volatile String orderStatus = "New";
+    private volatile String cumExecQty = "0";
+    
+    private RateLimiterService rateLimiterService;
+    private IoExecutorService ioExecutorService;
+    private ExecutionCostService executionCostService;
+    private MetricsService metricsService;
+    private TradingService tradingService;
+    
+    /**
+     * Trading service wired to a local stand-in for the exchange's REST API
+     */
+    @BeforeEach
+    void setUp() throws IOException {
+        exchange = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        exchange.createContext("/", this::respond);
+        exchange.start();
+        
+        rateLimiterService = new RateLimiterService();
+        metricsService = new MetricsService();
+        
+        BybitDemoTradingService bybitDemoTradingService = new BybitDemoTradingService();
+        ReflectionTestUtils.setField(bybitDemoTradingService, "defaultBaseUrl",
+                "http://127.0.0.1:" + exchange.getAddress().getPort());
+        ReflectionTestUtils.setField(bybitDemoTradingService, "defaultApiKey", "key");
+        ReflectionTestUtils.setField(bybitDemoTradingService, "defaultSecretKey", "secret");
+        ReflectionTestUtils.setField(bybitDemoTradingService, "rateLimiterService", rateLimiterService);
+        ReflectionTestUtils.setField(bybitDemoTradingService, "latencyTracker", new LatencyTrackerService());
+        ReflectionTestUtils.setField(bybitDemoTradingService, "metricsService", metricsService);
+        
+        ioExecutorService = new IoExecutorService();
+        ReflectionTestUtils.setField(ioExecutorService, "virtualThreads", "false");
+        ReflectionTestUtils.setField(ioExecutorService, "platformThreads", 4);
+        ioExecutorService.init();
+        
+        OrderBatchService orderBatchService = new OrderBatchService();
+        ReflectionTestUtils.setField(orderBatchService, "bybitDemoTradingService", bybitDemoTradingService);
+        ReflectionTestUtils.setField(orderBatchService, "metricsService", metricsService);
+        ReflectionTestUtils.setField(orderBatchService, "latencyTracker", new LatencyTrackerService());
+        ReflectionTestUtils.setField(orderBatchService, "ioExecutorService", ioExecutorService);
+        ReflectionTestUtils.setField(orderBatchService, "batchWindowMs", 1L);
+        ReflectionTestUtils.setField(orderBatchService, "batchTimeoutMs", 15_000L);
+        
+        TradingConfig config = new TradingConfig();
+        config.setTrailingStopPercent(0.5);
+        TradingConfigService configService = Mockito.mock(TradingConfigService.class);
+        Mockito.when(configService.getActiveConfig()).thenReturn(config);
+        
+        // Market entries at the default fee tier, filled at the reference price
+        executionCostService = Mockito.mock(ExecutionCostService.class);
+        Mockito.when(executionCostService.marketFillPrice(Mockito.any(), Mockito.anyBoolean(),
+                Mockito.anyDouble(), Mockito.anyDouble())).thenAnswer(invocation -> invocation.getArgument(3));
+        Mockito.when(executionCostService.getEntryOrderType()).thenReturn(ExecutionCostModel.OrderType.MARKET);
+        Mockito.when(executionCostService.getMakerFee()).thenReturn(new BigDecimal("0.0002"));
+        Mockito.when(executionCostService.getTakerFee()).thenReturn(new BigDecimal("0.00055"));
+        
+        tradingService = new TradingService();
+        ReflectionTestUtils.setField(tradingService, "placeOrders", true);
+        ReflectionTestUtils.setField(tradingService, "category", "linear");
+        ReflectionTestUtils.setField(tradingService, "limitEntryTimeoutMs", 60_000L);
+        ReflectionTestUtils.setField(tradingService, "bybitDemoTradingService", bybitDemoTradingService);
+        ReflectionTestUtils.setField(tradingService, "orderBatchService", orderBatchService);
+        ReflectionTestUtils.setField(tradingService, "configService", configService);
+        ReflectionTestUtils.setField(tradingService, "metricsService", metricsService);
+        ReflectionTestUtils.setField(tradingService, "tradeJournalService", new TradeJournalService());
+        ReflectionTestUtils.setField(tradingService, "tradeStatisticsService", new TradeStatisticsService());
+        ReflectionTestUtils.setField(tradingService, "symbolScaleService", new SymbolScaleService());
+        ReflectionTestUtils.setField(tradingService, "executionCostService", executionCostService);
+        tradingService.initFeeRates();
+    }
+    
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        exchange.stop(0);
+        ioExecutorService.shutdown();
+    }
+    
+    @Test
+    void testEntryOrderAfterBalancePollLeavesTrailingStopPending() {
+        // The trading cycle's balance poll takes the shared bybit_demo request
+        assertTrue(rateLimiterService.canMakeRequest("bybit_demo"));
+        assertFalse(rateLimiterService.canMakeRequest("bybit_demo"));
+        
+        Trade trade = trade();
+        assertTrue(tradingService.submitEntryOrder(trade));
+        
+        assertEquals("order-1", trade.getOrderId());
+        assertEquals(Arrays.asList("/v5/order/create-batch"), requests);
+        // 0.5% of the entry price, set once the position exists
+        assertEquals(0, new BigDecimal("250").compareTo(trade.getPendingTrailingStop()));
+    }
+    
+    @Test
+    void testPendingTrailingStopIsKeptUntilSet() {
+        Trade trade = trade();
+        trade.setPendingTrailingStop(new BigDecimal("250"));
+        
+        // No position yet
+        tradingStopCode = 10001;
+        assertFalse(tradingService.setPendingTrailingStop(trade));
+        assertNotNull(trade.getPendingTrailingStop());
+        assertEquals(1, metricsService.counter("scalper_trailing_stop_total", "state", "failed").get());
+        
+        tradingStopCode = 0;
+        assertTrue(tradingService.setPendingTrailingStop(trade));
+        assertNull(trade.getPendingTrailingStop());
+        assertTrue(bodies.get(1).contains("\"trailingStop\":\"250\""));
+        assertEquals(1, metricsService.counter("scalper_trailing_stop_total", "state", "set").get());
+        
+        assertTrue(tradingService.setPendingTrailingStop(trade));
+        assertEquals(Arrays.asList("/v5/position/trading-stop", "/v5/position/trading-stop"), requests);
+    }
+    
+    @Test
+    void testLimitEntryRestsAtEntryPrice() {
+        Mockito.when(executionCostService.getEntryOrderType()).thenReturn(ExecutionCostModel.OrderType.LIMIT);
+        
+        Trade trade = trade();
+        assertTrue(tradingService.submitEntryOrder(trade));
+        
+        assertTrue(bodies.get(0).contains("\"orderType\":\"Limit\""));
+        assertTrue(bodies.get(0).contains("\"price\":\"50000\""));
+        // Accepted but not filled: no position to protect yet
+        assertEquals(Trade.TradeStatus.PENDING, trade.getStatus());
+        assertNull(trade.getPendingTrailingStop());
+    }
+    
+    @Test
+    void testPendingLimitEntryOpensOnFill() {
+        Trade trade = pendingTrade();
+        
+        assertEquals(Trade.TradeStatus.PENDING, tradingService.checkPendingEntry(trade).getStatus());
+        
+        orderStatus = "Filled";
+        cumExecQty = "0.01";
+        assertEquals(Trade.TradeStatus.OPEN, tradingService.checkPendingEntry(trade).getStatus());
+        
+        // Opened at the average fill price, paying the maker fee, then protected
+        assertEquals(0, new BigDecimal("49990").compareTo(trade.getEntryPrice()));
+        assertEquals(0, new BigDecimal("0.09998").compareTo(trade.getTotalFees()));
+        assertNotNull(trade.getPendingTrailingStop());
+        assertEquals(Arrays.asList("/v5/order/realtime", "/v5/order/realtime"), requests);
+        assertTrue(queries.get(0).contains("orderLinkId=sbtest"));
+    }
+    
+    @Test
+    void testExpiredLimitEntryIsCancelled() {
+        ReflectionTestUtils.setField(tradingService, "limitEntryTimeoutMs", 0L);
+        Trade trade = pendingTrade();
+        
+        // Cancelled on the exchange, still pending until the order reports it
+        assertEquals(Trade.TradeStatus.PENDING, tradingService.checkPendingEntry(trade).getStatus());
+        assertTrue(trade.isEntryCancelRequested());
+        assertEquals(Arrays.asList("/v5/order/cancel-batch", "/v5/order/realtime"), requests);
+        
+        orderStatus = "Cancelled";
+        assertEquals(Trade.TradeStatus.CANCELLED, tradingService.checkPendingEntry(trade).getStatus());
+        assertEquals(0, BigDecimal.ZERO.compareTo(trade.getQuantity()));
+        assertNotNull(trade.getExitTime());
+        // The cancellation is only sent once
+        assertEquals(Arrays.asList("/v5/order/cancel-batch", "/v5/order/realtime", "/v5/order/realtime"), requests);
+    }
+    
+    @Test
+    void testPartiallyFilledLimitEntryOpensWithFilledQuantity() {
+        Trade trade = pendingTrade();
+        orderStatus = "PartiallyFilledCanceled";
+        cumExecQty = "0.004";
+        
+        assertEquals(Trade.TradeStatus.OPEN, tradingService.cancelPendingEntry(trade).getStatus());
+        
+        assertEquals(0, new BigDecimal("0.004").compareTo(trade.getQuantity()));
+    }
+    
+    @Test
+    void testStrategyExitPaysTakerFee() {
+        Trade trade = trade();
+        trade.setTotalFees(new BigDecimal("0.1"));
+        trade.setMakerFee(new BigDecimal("0.1"));
+        
+        Trade closed = tradingService.closeTrade(trade, pair("50000"), new RSIScalpingStrategy());
+        
+        // 500 USDT notional at the 0.055% taker rate
+        assertEquals(0, new BigDecimal("0.275").compareTo(closed.getTakerFee()));
+        assertEquals(0, new BigDecimal("0.375").compareTo(closed.getTotalFees()));
+    }
+    
+    @Test
+    void testRejectedEntryIsCancelled() {
+        itemCode = 110007;
+        itemMsg = "Insufficient balance";
+        
+        Trade trade = trade();
+        assertFalse(tradingService.submitEntryOrder(trade));
+        
+        assertEquals(Trade.TradeStatus.CANCELLED, trade.getStatus());
+        assertNotNull(trade.getExitTime());
+        assertTrue(trade.getNotes().contains("Insufficient balance"));
+        // No trailing stop for a position that does not exist
+        assertEquals(Arrays.asList("/v5/order/create-batch"), requests);
+        assertNull(trade.getPendingTrailingStop());
+    }
+    
+    @Test
+    void testRateLimitedEntryIsCancelled() {
+        while (rateLimiterService.canMakeRequest("bybit_demo", RateLimiterService.Priority.HIGH)) {
+            // Use up the order budget
+        }
+        
+        Trade trade = trade();
+        assertFalse(tradingService.submitEntryOrder(trade));
+        
+        assertEquals(Trade.TradeStatus.CANCELLED, trade.getStatus());
+        assertTrue(requests.isEmpty());
+    }
+    
+    @Test
+    void testPaperTradeIsKeptLocally() {
+        ReflectionTestUtils.setField(tradingService, "placeOrders", false);
+        
+        Trade trade = trade();
+        assertTrue(tradingService.submitEntryOrder(trade));
+        
+        assertEquals(Trade.TradeStatus.OPEN, trade.getStatus());
+        assertTrue(requests.isEmpty());
+    }
+    
+    @Test
+    void testStrategyExitClosesThePosition() {
+        Trade trade = trade();
+        Trade closed = tradingService.closeTrade(trade, pair("50500"), new RSIScalpingStrategy());
+        
+        assertEquals(Trade.TradeStatus.CLOSED, closed.getStatus());
+        assertEquals(0, new BigDecimal("50500").compareTo(closed.getExitPrice()));
+        assertEquals(Arrays.asList("/v5/order/create-batch"), requests);
+        assertTrue(bodies.get(0).contains("\"reduceOnly\":true"));
+        assertTrue(bodies.get(0).contains("\"side\":\"Sell\""));
+    }
+    
+    @Test
+    void testStrategyExitStaysOpenUntilAccepted() {
+        batchCode = 10006;
+        batchMsg = "Too many visits";
+        
+        Trade trade = trade();
+        Trade result = tradingService.closeTrade(trade, pair("50500"), new RSIScalpingStrategy());
+        
+        assertEquals(Trade.TradeStatus.OPEN, result.getStatus());
+        assertNull(result.getExitPrice());
+    }
+    
+    @Test
+    void testExitOrderHasItsOwnBudget() {
+        while (rateLimiterService.canMakeRequest("bybit_demo", RateLimiterService.Priority.HIGH)) {
+            // Entries and protection updates use up the order budget
+        }
+        
+        Trade closed = tradingService.closeTrade(trade(), pair("50500"), new RSIScalpingStrategy());
+        
+        assertEquals(Trade.TradeStatus.CLOSED, closed.getStatus());
+        assertEquals(Arrays.asList("/v5/order/create-batch"), requests);
+    }
+    
+    private Trade pendingTrade() {
+        Trade trade = trade();
+        trade.setStatus(Trade.TradeStatus.PENDING);
+        trade.setOrderId("order-1");
+        return trade;
+    }
+    
+    private TradingPair pair(String price) {
+        TradingPair pair = new TradingPair();
+        pair.setSymbol("BTCUSDT");
+        pair.setPrice(new BigDecimal(price));
+        return pair;
+    }
+    
+    private Trade trade() {
+        Trade trade = new Trade();
+        trade.setSymbol("BTCUSDT");
+        trade.setType(Trade.TradeType.BUY);
+        trade.setStatus(Trade.TradeStatus.OPEN);
+        trade.setEntryPrice(new BigDecimal("50000"));
+        trade.setQuantity(new BigDecimal("0.01"));
+        trade.setStopLossPrice(new BigDecimal("49500"));
+        trade.setTakeProfitPrice(new BigDecimal("51000"));
+        trade.setTotalFees(BigDecimal.ZERO);
+        trade.setStrategy("RSI Scalping");
+        trade.setEntryTime(LocalDateTime.now());
+        trade.setOrderLinkId("sbtest");
+        return trade;
+    }
+    
+    private void respond(HttpExchange request) throws IOException {
+        String path = request.getRequestURI().getPath();
+        requests.add(path);
+        String requestBody = new String(request.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        bodies.add(requestBody);
+        queries.add(String.valueOf(request.getRequestURI().getQuery()));
+        
+        ObjectNode response = objectMapper.createObjectNode();
+        if (path.endsWith("-batch")) {
+            response.put("retCode", batchCode);
+            response.put("retMsg", batchMsg);
+            ArrayNode list = response.putObject("result").putArray("list");
+            ArrayNode extInfo = response.putObject("retExtInfo").putArray("list");
+            for (JsonNode order : objectMapper.readTree(requestBody).path("request")) {
+                list.addObject().put("symbol", order.path("symbol").asText())
+                        .put("orderId", itemCode == 0 ? "order-1" : "");
+                extInfo.addObject().put("code", itemCode).put("msg", itemMsg);
+            }
+        } else if (path.equals("/v5/order/realtime")) {
+            response.put("retCode", 0);
+            response.put("retMsg", "OK");
+            response.putObject("result").putArray("list").addObject()
+                    .put("orderLinkId", "sbtest")
+                    .put("orderStatus", orderStatus)
+                    .put("cumExecQty", cumExecQty)
+                    .put("avgPrice", cumExecQty.equals("0") ? "" : "49990");
+        } else if (path.equals("/v5/position/trading-stop")) {
+            response.put("retCode", tradingStopCode);
+            response.put("retMsg", tradingStopCode == 0 ? "OK" : "can not set tp/sl/ts for zero position");
+            response.putObject("result");
+        } else {
+            response.put("retCode", 0);
+            response.put("retMsg", "OK");
+            response.putObject("result");
+        }
+        byte[] bytes = objectMapper.writeValueAsBytes(response);
+        request.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = request.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.bitunix.scalper.strategy;
+
+import com.bitunix.scalper.model.TradingPair;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CandleAggregatorTest {
+    
+    // Aligned to a 5m (and 15m) boundary
+    private static final long START = 1_700_000_100_000L;
+    private static final long MINUTE = 60_000L;
+    
+    private static TradingPair candle(int minute, double close, double volume) {
+        TradingPair candle = new TradingPair();
+        candle.setSymbol("BTCUSDT");
+        candle.setPrice(BigDecimal.valueOf(close));
+        candle.setVolume24h(BigDecimal.valueOf(volume));
+        candle.setCandleTime(START + minute * MINUTE);
+        return candle;
+    }
+    
+    @Test
+    void testBarStartAlignment() {
+        assertEquals(START, Timeframe.M5.barStart(START + 4 * MINUTE + 59_999));
+        assertEquals(START + 5 * MINUTE, Timeframe.M5.barStart(START + 5 * MINUTE));
+        assertEquals(START, Timeframe.M15.barStart(START + 14 * MINUTE));
+    }
+    
+    @Test
+    void testPartialBarIsFormingCandle() {
+        CandleAggregator aggregator = new CandleAggregator(EnumSet.of(Timeframe.M5), 100);
+        aggregator.onCandle(candle(0, 100, 1));
+        aggregator.onCandle(candle(1, 101, 2));
+        aggregator.onCandle(candle(2, 102, 3));
+        
+        List<TradingPair> bars = aggregator.candles(Timeframe.M5);
+        assertEquals(1, bars.size());
+        assertEquals(0, aggregator.closedBars(Timeframe.M5));
+        assertEquals(102.0, bars.get(0).getPrice().doubleValue());
+        assertEquals(6.0, bars.get(0).getVolume24h().doubleValue());
+        assertEquals(START, bars.get(0).getCandleTime());
+    }
+    
+    @Test
+    void testBarClosesOnItsLastMinute() {
+        CandleAggregator aggregator = new CandleAggregator(EnumSet.of(Timeframe.M5), 100);
+        for (int minute = 0; minute < 5; minute++) {
+            aggregator.onCandle(candle(minute, 100 + minute, 1));
+        }
+        
+        List<TradingPair> bars = aggregator.candles(Timeframe.M5);
+        assertEquals(1, aggregator.closedBars(Timeframe.M5));
+        assertEquals(2, bars.size());
+        // Empty forming bar after the closed one, at the last close
+        assertEquals(START + 5 * MINUTE, bars.get(0).getCandleTime());
+        assertEquals(0.0, bars.get(0).getVolume24h().doubleValue());
+        assertEquals(104.0, bars.get(1).getPrice().doubleValue());
+        assertEquals(5.0, bars.get(1).getVolume24h().doubleValue());
+    }
+    
+    @Test
+    void testGapClosesIncompleteBar() {
+        CandleAggregator aggregator = new CandleAggregator(EnumSet.of(Timeframe.M5, Timeframe.M15), 100);
+        aggregator.onCandle(candle(0, 100, 1));
+        aggregator.onCandle(candle(1, 101, 1));
+        // Minutes 2-6 missing
+        aggregator.onCandle(candle(7, 107, 1));
+        
+        List<TradingPair> m5 = aggregator.candles(Timeframe.M5);
+        assertEquals(1, aggregator.closedBars(Timeframe.M5));
+        assertEquals(START + 5 * MINUTE, m5.get(0).getCandleTime());
+        assertEquals(107.0, m5.get(0).getPrice().doubleValue());
+        assertEquals(101.0, m5.get(1).getPrice().doubleValue());
+        assertEquals(2.0, m5.get(1).getVolume24h().doubleValue());
+        
+        // Still the same 15m bar
+        assertEquals(0, aggregator.closedBars(Timeframe.M15));
+        assertEquals(3.0, aggregator.candles(Timeframe.M15).get(0).getVolume24h().doubleValue());
+    }
+    
+    @Test
+    void testDuplicatesAndCatchUp() {
+        CandleAggregator aggregator = new CandleAggregator(EnumSet.of(Timeframe.M5), 2);
+        assertTrue(aggregator.onCandle(candle(0, 100, 1)));
+        assertFalse(aggregator.onCandle(candle(0, 100, 1)));
+        
+        // REST klines, newest first with the forming candle at index 0
+        List<TradingPair> klines = new ArrayList<>();
+        for (int minute = 20; minute >= 0; minute--) {
+            klines.add(candle(minute, 100 + minute, 1));
+        }
+        assertEquals(19, aggregator.catchUp(klines));
+        
+        // Capacity 2: bars of minutes 5-9 and 10-14 were dropped
+        assertEquals(2, aggregator.closedBars(Timeframe.M5));
+        List<TradingPair> bars = aggregator.candles(Timeframe.M5);
+        assertEquals(START + 20 * MINUTE, bars.get(0).getCandleTime());
+        assertEquals(119.0, bars.get(1).getPrice().doubleValue());
+        assertEquals(114.0, bars.get(2).getPrice().doubleValue());
+        assertTrue(aggregator.candles(Timeframe.H1).isEmpty());
+    }
+}
@@ -0,0 +1,63 @@
+package com.bitunix.scalper.strategy;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExecutionCostModelTest {
+    
+    private static final ExecutionCostModel MODEL = new ExecutionCostModel(0.0002, 0.0006, 2, 3);
+    private static final ExecutionCostModel.OrderType MARKET = ExecutionCostModel.OrderType.MARKET;
+    private static final ExecutionCostModel.OrderType LIMIT = ExecutionCostModel.OrderType.LIMIT;
+    
+    @Test
+    void testFeeByOrderType() {
+        assertEquals(6, MODEL.feeBps(MARKET), 1e-9);
+        assertEquals(2, MODEL.feeBps(LIMIT), 1e-9);
+    }
+    
+    @Test
+    void testLimitOrderPaysNoSpreadOrSlippage() {
+        assertEquals(2, MODEL.sideCostBps(LIMIT, 5, 5), 1e-9);
+        assertEquals(16, MODEL.sideCostBps(MARKET, 5, 5), 1e-9);
+    }
+    
+    @Test
+    void testRoundTripWithoutBook() {
+        assertEquals(2 * (6 + 2 + 3), MODEL.roundTripBps(MARKET, MARKET), 1e-9);
+        assertEquals(2 * (6 + 2 + 3), MODEL.roundTripBps(null, new OrderBook.Quote(), true, 1, MARKET, MARKET), 1e-9);
+        assertEquals(2 + 6 + 2 + 3, MODEL.roundTripBps(LIMIT, MARKET), 1e-9);
+    }
+    
+    @Test
+    void testRoundTripFromBook() {
+        OrderBook book = new OrderBook(10);
+        book.begin(1, true);
+        book.update(true, 99.99, 1);
+        book.update(true, 99.98, 5);
+        book.update(false, 100.01, 1);
+        book.update(false, 100.03, 5);
+        book.end(0);
+        
+        // Half spread 1 bp; buying 2 walks to 100.02 average (1 bp past the ask), selling 2 to 99.985
+        double cost = MODEL.roundTripBps(book, new OrderBook.Quote(), true, 2, MARKET, MARKET);
+        assertEquals(6 + 1 + 1 + 6 + 1 + 0.5, cost, 1e-6);
+    }
+    
+    @Test
+    void testThinBookFallsBackToTypicalSlippage() {
+        OrderBook book = new OrderBook(10);
+        book.begin(1, true);
+        book.update(true, 99.99, 1);
+        book.update(false, 100.01, 1);
+        book.end(0);
+        double cost = MODEL.roundTripBps(book, new OrderBook.Quote(), true, 5, MARKET, MARKET);
+        assertEquals(2 * (6 + 1 + 3), cost, 1e-6);
+    }
+    
+    @Test
+    void testMarketFillPriceIsAdverse() {
+        assertEquals(100.05, MODEL.marketFillPrice(100, true), 1e-9);
+        assertEquals(99.95, MODEL.marketFillPrice(100, false), 1e-9);
+    }
+}
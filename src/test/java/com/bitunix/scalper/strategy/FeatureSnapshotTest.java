@@ -0,0 +1,148 @@
+package com.bitunix.scalper.strategy;
+
+import com.bitunix.scalper.model.TradingPair;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FeatureSnapshotTest {
+    
+    private static final FeatureSnapshot.Settings SETTINGS = FeatureSnapshot.Settings.DEFAULTS;
+    
+    /**
+     * Klines newest first, one minute apart
+     */
+    private static List<TradingPair> klines(long newestTime, double[] closes, double[] volumes) {
+        List<TradingPair> klines = new ArrayList<>();
+        for (int i = 0; i < closes.length; i++) {
+            TradingPair kline = new TradingPair();
+            kline.setPrice(BigDecimal.valueOf(closes[i]));
+            kline.setVolume24h(BigDecimal.valueOf(volumes[i]));
+            kline.setCandleTime(newestTime - i * 60000L);
+            klines.add(kline);
+        }
+        return klines;
+    }
+    
+    private static double[] constant(int count, double value) {
+        double[] values = new double[count];
+        Arrays.fill(values, value);
+        return values;
+    }
+    
+    @Test
+    void testPriceAndVolumeFeatures() {
+        // Closes alternate 101 / 99 around a mean of 100; newest volume spikes
+        double[] closes = new double[30];
+        for (int i = 0; i < closes.length; i++) {
+            closes[i] = i % 2 == 0 ? 101.0 : 99.0;
+        }
+        double[] volumes = constant(30, 10.0);
+        volumes[0] = 30.0;
+        
+        FeatureSnapshot snapshot = new FeatureSnapshot();
+        assertTrue(snapshot.update(klines(1_000_000L, closes, volumes), 0, SETTINGS));
+        
+        assertTrue(snapshot.isReady());
+        assertEquals(30, snapshot.getCandles());
+        assertEquals(101.0, snapshot.getClose(), 1e-9);
+        assertEquals(99.0, snapshot.getPreviousClose(), 1e-9);
+        assertEquals(101.0 / 99.0 - 1.0, snapshot.getReturn1(), 1e-12);
+        assertEquals(100.0, snapshot.getMean(), 1e-9);
+        assertEquals(1.0, snapshot.getStdDev(), 1e-9);
+        assertEquals(1.0, snapshot.getZScore(), 1e-9);
+        assertEquals(-2.5, snapshot.zScore(97.5), 1e-9);
+        
+        // The newest volume is compared against the candles before it
+        assertEquals(10.0, snapshot.getAverageVolume20(), 1e-9);
+        assertEquals(3.0, snapshot.getVolumeRatio5(), 1e-9);
+        assertEquals(3.0, snapshot.getVolumeRatio20(), 1e-9);
+        assertTrue(Double.isNaN(snapshot.getVolumeZScore()));
+        
+        assertTrue(snapshot.getRealizedVolatility() > 0);
+        
+        // Levels need 50 candles
+        assertTrue(Double.isNaN(snapshot.getSupport()));
+    }
+    
+    @Test
+    void testIndicators() {
+        // Rising closes (newest first): RSI 100, fast EMA above slow EMA
+        double[] closes = new double[60];
+        for (int i = 0; i < closes.length; i++) {
+            closes[i] = 200.0 - i;
+        }
+        FeatureSnapshot snapshot = new FeatureSnapshot();
+        snapshot.update(klines(1_000_000L, closes, constant(60, 5.0)), 0, SETTINGS);
+        
+        assertEquals(100.0, snapshot.getRsi(), 1e-9);
+        assertTrue(snapshot.getEmaFast() > snapshot.getEmaSlow());
+        assertEquals(190.5, snapshot.getBollingerMiddle(), 1e-9);
+        assertEquals(snapshot.getBollingerMiddle() - snapshot.getBollingerLower(),
+                snapshot.getBollingerUpper() - snapshot.getBollingerMiddle(), 1e-9);
+        assertEquals(151.0, snapshot.getSupport(), 1e-9);
+        assertEquals(200.0, snapshot.getResistance(), 1e-9);
+    }
+    
+    @Test
+    void testNotEnoughHistory() {
+        FeatureSnapshot snapshot = new FeatureSnapshot();
+        snapshot.update(klines(1_000_000L, new double[]{10.0, 11.0}, new double[]{1.0, 1.0}), 0, SETTINGS);
+        
+        assertFalse(snapshot.isReady());
+        assertEquals(10.0, snapshot.getClose(), 1e-9);
+        assertTrue(Double.isNaN(snapshot.getMean()));
+        assertTrue(Double.isNaN(snapshot.getRsi()));
+        assertTrue(Double.isNaN(snapshot.zScore(10.0)));
+        assertFalse(snapshot.getVolumeRatio20() >= 1.0);
+    }
+    
+    @Test
+    void testRecomputesOncePerClosedCandle() {
+        double[] closes = constant(40, 50.0);
+        double[] volumes = constant(40, 1.0);
+        FeatureSnapshot snapshot = new FeatureSnapshot();
+        
+        // Newest kline is still forming and skipped
+        List<TradingPair> first = klines(600_000L, closes, volumes);
+        first.get(0).setPrice(BigDecimal.valueOf(1000));
+        assertTrue(snapshot.update(first, 1, SETTINGS));
+        assertEquals(540_000L, snapshot.getCandleTime());
+        assertEquals(39, snapshot.getCandles());
+        assertEquals(50.0, snapshot.getClose(), 1e-9);
+        
+        // Same closed candle: nothing recomputed
+        assertFalse(snapshot.update(klines(600_000L, closes, volumes), 1, SETTINGS));
+        
+        // Next candle closed
+        assertTrue(snapshot.update(klines(660_000L, closes, volumes), 1, SETTINGS));
+        assertEquals(600_000L, snapshot.getCandleTime());
+        
+        // No klines (e.g. rate limited): last snapshot kept
+        assertFalse(snapshot.update(new ArrayList<>(), 1, SETTINGS));
+        assertEquals(50.0, snapshot.getClose(), 1e-9);
+    }
+    
+    @Test
+    void testCopyFrom() {
+        double[] closes = new double[30];
+        for (int i = 0; i < closes.length; i++) {
+            closes[i] = 100.0 + i % 3;
+        }
+        FeatureSnapshot source = new FeatureSnapshot();
+        source.update(klines(1_000_000L, closes, constant(30, 2.0)), 0, SETTINGS);
+        
+        FeatureSnapshot copy = new FeatureSnapshot();
+        assertTrue(copy.copyFrom(source));
+        assertEquals(source.getCandleTime(), copy.getCandleTime());
+        assertEquals(source.getMean(), copy.getMean(), 0.0);
+        assertEquals(source.getStdDev(), copy.getStdDev(), 0.0);
+        assertEquals(source.getRsi(), copy.getRsi(), 0.0);
+        assertEquals(source.zScore(105.0), copy.zScore(105.0), 0.0);
+    }
+}
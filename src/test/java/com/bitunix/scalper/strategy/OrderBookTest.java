@@ -0,0 +1,109 @@
+package com.bitunix.scalper.strategy;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderBookTest {
+    
+    private static OrderBook snapshot(int capacity) {
+        OrderBook book = new OrderBook(capacity);
+        assertTrue(book.begin(100, true));
+        book.update(true, 99.0, 2);
+        book.update(true, 99.5, 1);
+        book.update(true, 98.0, 5);
+        book.update(false, 100.5, 3);
+        book.update(false, 100.0, 1);
+        book.update(false, 101.0, 4);
+        book.end(1000);
+        return book;
+    }
+    
+    @Test
+    void testSnapshotSortsLevels() {
+        OrderBook book = snapshot(10);
+        OrderBook.Quote quote = new OrderBook.Quote();
+        assertTrue(book.readQuote(quote, 2));
+        assertEquals(99.5, quote.getBestBid());
+        assertEquals(1, quote.getBidSize());
+        assertEquals(100.0, quote.getBestAsk());
+        assertEquals(1, quote.getAskSize());
+        assertEquals(0.5, quote.getSpread(), 1e-12);
+        assertEquals(99.75, quote.getMid(), 1e-12);
+        assertEquals(3, quote.getBidDepth(), 1e-12);
+        assertEquals(4, quote.getAskDepth(), 1e-12);
+        assertEquals(-1.0 / 7, quote.getImbalance(), 1e-12);
+        assertEquals(1000, quote.getUpdateTime());
+    }
+    
+    @Test
+    void testMicropriceLeansTowardThinSide() {
+        OrderBook book = new OrderBook(4);
+        book.begin(1, true);
+        book.update(true, 100, 9);
+        book.update(false, 101, 1);
+        book.end(0);
+        OrderBook.Quote quote = new OrderBook.Quote();
+        assertTrue(book.readQuote(quote, 1));
+        // Heavy bid, thin ask: the next trade more likely lifts the ask
+        assertEquals(100.9, quote.getMicroprice(), 1e-12);
+    }
+    
+    @Test
+    void testDeltaUpdatesAndRemovesLevels() {
+        OrderBook book = snapshot(10);
+        assertTrue(book.begin(101, false));
+        book.update(true, 99.5, 0);
+        book.update(true, 99.2, 7);
+        book.update(false, 100.0, 2);
+        book.end(1001);
+        OrderBook.Quote quote = new OrderBook.Quote();
+        assertTrue(book.readQuote(quote, 1));
+        assertEquals(99.2, quote.getBestBid());
+        assertEquals(7, quote.getBidSize());
+        assertEquals(2, quote.getAskSize());
+    }
+    
+    @Test
+    void testGapInvalidatesUntilSnapshot() {
+        OrderBook book = snapshot(10);
+        assertFalse(book.begin(105, false));
+        assertFalse(book.isSynced());
+        assertFalse(book.readQuote(new OrderBook.Quote(), 1));
+        assertFalse(book.begin(106, false));
+        
+        assertTrue(book.begin(200, true));
+        book.update(true, 50, 1);
+        book.update(false, 51, 1);
+        book.end(2000);
+        OrderBook.Quote quote = new OrderBook.Quote();
+        assertTrue(book.readQuote(quote, 1));
+        assertEquals(50, quote.getBestBid());
+        assertTrue(book.begin(201, false));
+        book.end(2001);
+    }
+    
+    @Test
+    void testCapacityKeepsBestLevels() {
+        OrderBook book = snapshot(2);
+        assertEquals(3.0, book.quantityWithin(false, 0), 1e-12);
+        assertEquals(4.0, book.quantityWithin(true, Double.MAX_VALUE), 1e-12);
+    }
+    
+    @Test
+    void testFillPriceWalksLevels() {
+        OrderBook book = snapshot(10);
+        assertEquals(100.0, book.fillPrice(true, 1), 1e-12);
+        assertEquals((100.0 + 2 * 100.5) / 3, book.fillPrice(true, 3), 1e-12);
+        assertEquals((99.5 + 99.0) / 2, book.fillPrice(false, 2), 1e-12);
+        assertTrue(Double.isNaN(book.fillPrice(true, 9)));
+    }
+    
+    @Test
+    void testQuantityWithinLimit() {
+        OrderBook book = snapshot(10);
+        assertEquals(4, book.quantityWithin(true, 100.5), 1e-12);
+        assertEquals(3, book.quantityWithin(false, 99.0), 1e-12);
+        assertEquals(0, book.quantityWithin(true, 99.9), 1e-12);
+    }
+}
@@ -0,0 +1,117 @@
+package com.bitunix.scalper.strategy;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TradeBarBuilderTest {
+    
+    // Aligned to a 15s boundary
+    private static final long START = 1_700_000_100_000L;
+    
+    private static TradeBarBuilder builder() {
+        return new TradeBarBuilder(16, 8, 1000, 3);
+    }
+    
+    @Test
+    void testTimeBarClosesOnNextInterval() {
+        TradeBarBuilder builder = builder();
+        builder.onTrade(START, 100, 1, true);
+        builder.onTrade(START + 300, 102, 2, false);
+        builder.onTrade(START + 900, 99, 3, true);
+        BarSeries bars = builder.timeBars(1);
+        assertEquals(0, bars.count());
+        
+        builder.onTrade(START + 1000, 101, 1, true);
+        assertEquals(1, bars.count());
+        assertEquals(START, bars.startTime(0));
+        assertEquals(START + 1000, bars.endTime(0));
+        assertEquals(100, bars.open(0));
+        assertEquals(102, bars.high(0));
+        assertEquals(99, bars.low(0));
+        assertEquals(99, bars.close(0));
+        assertEquals(6, bars.volume(0));
+        assertEquals(4, bars.buyVolume(0));
+        assertEquals(3, bars.trades(0));
+        // Still inside the first 5s and 15s bars
+        assertEquals(0, builder.timeBars(5).count());
+        assertEquals(0, builder.timeBars(15).count());
+    }
+    
+    @Test
+    void testGapsBecomeEmptyBars() {
+        TradeBarBuilder builder = builder();
+        builder.onTrade(START, 100, 1, true);
+        builder.onTrade(START + 3500, 105, 2, true);
+        BarSeries bars = builder.timeBars(1);
+        assertEquals(3, bars.count());
+        assertEquals(1, bars.volume(0));
+        for (long i = 1; i < 3; i++) {
+            assertEquals(START + i * 1000, bars.startTime(i));
+            assertEquals(0, bars.volume(i));
+            assertEquals(100, bars.close(i));
+        }
+    }
+    
+    @Test
+    void testVolumeAndTickBars() {
+        TradeBarBuilder builder = builder();
+        builder.onTrade(START, 100, 4, true);
+        builder.onTrade(START + 10, 100, 5, false);
+        assertEquals(0, builder.volumeBars().count());
+        // Notional reaches 1000
+        builder.onTrade(START + 20, 100, 1, true);
+        assertEquals(1, builder.volumeBars().count());
+        assertEquals(10, builder.volumeBars().volume(0));
+        assertEquals(START + 20, builder.volumeBars().endTime(0));
+        assertEquals(1, builder.tickBars().count());
+        assertEquals(3, builder.tickBars().trades(0));
+    }
+    
+    @Test
+    void testOutOfOrderTradeDropped() {
+        TradeBarBuilder builder = builder();
+        assertTrue(builder.onTrade(START + 500, 100, 1, true));
+        assertFalse(builder.onTrade(START + 400, 100, 1, true));
+        assertEquals(1, builder.getTape().count());
+    }
+    
+    @Test
+    void testOnlyNewestBarsReadable() {
+        TradeBarBuilder builder = builder();
+        for (int i = 0; i <= 20; i++) {
+            builder.onTrade(START + i * 1000L, 100 + i, 1, i % 2 == 0);
+        }
+        BarSeries bars = builder.timeBars(1);
+        long count = bars.count();
+        assertEquals(20, count);
+        assertTrue(bars.isAvailable(count - 1, count));
+        assertTrue(bars.isAvailable(count - 7, count));
+        assertFalse(bars.isAvailable(count - 8, count));
+        assertEquals(119, bars.close(count - 1));
+    }
+    
+    @Test
+    void testVolumeRatio() {
+        TradeBarBuilder builder = builder();
+        for (int i = 0; i < 4; i++) {
+            builder.onTrade(START + i * 1000L, 100, 1, true);
+        }
+        builder.onTrade(START + 4000, 100, 3, true);
+        builder.onTrade(START + 5000, 100, 1, true);
+        BarSeries bars = builder.timeBars(1);
+        long count = bars.count();
+        assertEquals(3.0, bars.volumeRatio(count - 1, 4, count), 1e-9);
+        assertTrue(Double.isNaN(bars.volumeRatio(count - 1, 7, count)));
+    }
+    
+    @Test
+    void testTapeNetVolume() {
+        TradeBarBuilder builder = builder();
+        builder.onTrade(START, 100, 5, true);
+        builder.onTrade(START + 100, 100, 2, false);
+        builder.onTrade(START + 200, 100, 1, true);
+        assertEquals(-1, builder.getTape().netVolumeSince(START + 100), 1e-9);
+        assertEquals(4, builder.getTape().netVolumeSince(START), 1e-9);
+    }
+}
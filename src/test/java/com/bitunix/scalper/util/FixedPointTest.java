@@ -0,0 +1,77 @@
+package com.bitunix.scalper.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FixedPointTest {
+    
+    @Test
+    void testConversionRoundTrip() {
+        assertEquals(6543210, FixedPoint.fromDouble(65432.10, 2));
+        assertEquals(-6543210, FixedPoint.fromDouble(-65432.10, 2));
+        assertEquals(new BigDecimal("65432.10"), FixedPoint.toDecimal(6543210, 2));
+        assertEquals(123, FixedPoint.fromDecimal(new BigDecimal("0.01225"), 4));
+    }
+    
+    @Test
+    void testRescaleRoundsHalfAwayFromZero() {
+        assertEquals(13, FixedPoint.rescale(125, 1, 0));
+        assertEquals(-13, FixedPoint.rescale(-125, 1, 0));
+        assertEquals(12, FixedPoint.rescale(124, 1, 0));
+        assertEquals(12500, FixedPoint.rescale(125, 0, 2));
+    }
+    
+    @Test
+    void testRoundToStep() {
+        assertEquals(1230, FixedPoint.roundToStep(1234, 10, RoundingMode.DOWN));
+        assertEquals(1240, FixedPoint.roundToStep(1231, 10, RoundingMode.UP));
+        assertEquals(1240, FixedPoint.roundToStep(1235, 10, RoundingMode.HALF_UP));
+        assertEquals(1230, FixedPoint.roundToStep(1230, 10, RoundingMode.UP));
+    }
+    
+    @Test
+    void testOverflowIsDetected() {
+        assertThrows(ArithmeticException.class, () -> FixedPoint.multiply(Long.MAX_VALUE / 2, 0, 3, 0, 0));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.fromDouble(Double.NaN, 2));
+    }
+    
+    @Test
+    void testSymbolScaleFromStepSizes() {
+        SymbolScale scale = SymbolScale.of("BTCUSDT", new BigDecimal("0.10"), new BigDecimal("0.001"));
+        
+        assertEquals(1, scale.getPriceScale());
+        assertEquals(3, scale.getQtyScale());
+        assertEquals(new BigDecimal("65432.1"), scale.priceToDecimal(scale.price(65432.14)));
+        
+        // 100 USDT at 65432.1 buys 0.00152 BTC, rounded down to 0.001
+        long price = scale.price(65432.1);
+        long qty = scale.qtyForValue(scale.value(100), price);
+        assertEquals(new BigDecimal("0.001"), scale.qtyToDecimal(qty));
+    }
+    
+    @Test
+    void testPnlIsExact() {
+        SymbolScale scale = SymbolScale.of("ETHUSDT", new BigDecimal("0.01"), new BigDecimal("0.01"));
+        long entry = scale.price(3000.10);
+        long exit = scale.price(3000.30);
+        long qty = scale.qty(new BigDecimal("0.03"));
+        
+        assertEquals(new BigDecimal("0.0060"), scale.valueToDecimal(scale.pnl(entry, exit, qty, true)));
+        assertEquals(new BigDecimal("-0.0060"), scale.valueToDecimal(scale.pnl(entry, exit, qty, false)));
+    }
+    
+    @Test
+    void testInferredScaleKeepsCombinedScale() {
+        SymbolScale btc = SymbolScale.infer("BTCUSDT", 65000);
+        SymbolScale pepe = SymbolScale.infer("PEPEUSDT", 0.00001234);
+        
+        assertEquals(3, btc.getPriceScale());
+        assertEquals(8, pepe.getPriceScale());
+        assertEquals(10, btc.getValueScale());
+        assertEquals(10, pepe.getValueScale());
+    }
+}
@@ -0,0 +1,58 @@
+package com.bitunix.scalper.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+    
+    private LatencyHistogram histogram;
+    
+    @BeforeEach
+    void setUp() {
+        histogram = new LatencyHistogram();
+    }
+    
+    @Test
+    void testEmptyHistogram() {
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals(0.0, histogram.getMean());
+    }
+    
+    @Test
+    void testPercentilesWithinRelativeError() {
+        for (long i = 1; i <= 100000; i++) {
+            histogram.record(i * 1000);
+        }
+        
+        assertEquals(100000, histogram.getCount());
+        assertEquals(100_000_000L, histogram.getMax());
+        assertWithinError(50_000_000L, histogram.getValueAtPercentile(50));
+        assertWithinError(99_000_000L, histogram.getValueAtPercentile(99));
+        assertWithinError(99_900_000L, histogram.getValueAtPercentile(99.9));
+    }
+    
+    @Test
+    void testBucketBoundsAreConsistent() {
+        long[] values = {0, 1, 31, 32, 33, 63, 64, 1000, 123456789L};
+        for (long value : values) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(LatencyHistogram.bucketLowerBound(index) <= value, "lower bound for " + value);
+            assertTrue(LatencyHistogram.bucketLowerBound(index + 1) > value, "upper bound for " + value);
+        }
+    }
+    
+    @Test
+    void testReset() {
+        histogram.record(500);
+        histogram.reset();
+        
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+    
+    private void assertWithinError(long expected, long actual) {
+        assertEquals(expected, actual, expected * 0.03, "percentile value");
+    }
+}
@@ -0,0 +1,105 @@
+package com.bitunix.scalper.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RingBufferTest {
+    
+    private static final class Event {
+        long value;
+    }
+    
+    @Test
+    void testCapacityRoundsUpToPowerOfTwo() {
+        assertEquals(8, new RingBuffer<>(5, Event::new, RingBuffer.WaitStrategy.PARK).capacity());
+        assertEquals(1024, new RingBuffer<>(1024, Event::new, RingBuffer.WaitStrategy.PARK).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(0, Event::new, RingBuffer.WaitStrategy.PARK));
+    }
+    
+    @Test
+    void testFullBufferRejectsClaimUntilConsumed() throws Exception {
+        RingBuffer<Event> ring = new RingBuffer<>(4, Event::new, RingBuffer.WaitStrategy.PARK);
+        for (int i = 0; i < 4; i++) {
+            ring.tryClaim().value = i;
+            ring.publish();
+        }
+        assertNull(ring.tryClaim());
+        assertEquals(4, ring.size());
+        
+        List<Long> seen = new ArrayList<>();
+        assertEquals(2, ring.poll((event, sequence, endOfBatch) -> seen.add(event.value), 2));
+        assertNotNull(ring.tryClaim());
+        ring.publish();
+        
+        List<Boolean> ends = new ArrayList<>();
+        assertEquals(3, ring.poll((event, sequence, endOfBatch) -> {
+            seen.add(event.value);
+            ends.add(endOfBatch);
+        }, 16));
+        assertEquals(List.of(0L, 1L, 2L, 3L, 0L), seen);
+        assertEquals(List.of(false, false, true), ends);
+        assertEquals(0, ring.poll((event, sequence, endOfBatch) -> fail("empty"), 16));
+    }
+    
+    @Test
+    void testFailingEventIsConsumedOnce() throws Exception {
+        RingBuffer<Event> ring = new RingBuffer<>(8, Event::new, RingBuffer.WaitStrategy.PARK);
+        for (int i = 0; i < 3; i++) {
+            ring.claim().value = i;
+            ring.publish();
+        }
+        assertThrows(IllegalStateException.class, () -> ring.poll((event, sequence, endOfBatch) -> {
+            if (event.value == 1) {
+                throw new IllegalStateException("bad event");
+            }
+        }, 16));
+        
+        List<Long> rest = new ArrayList<>();
+        ring.poll((event, sequence, endOfBatch) -> rest.add(event.value), 16);
+        assertEquals(List.of(2L), rest);
+    }
+    
+    @Test
+    void testPublishWithoutClaim() {
+        RingBuffer<Event> ring = new RingBuffer<>(8, Event::new, RingBuffer.WaitStrategy.PARK);
+        assertThrows(IllegalStateException.class, ring::publish);
+    }
+    
+    @Test
+    void testTransfersEventsInOrderAcrossThreads() throws Exception {
+        int events = 1_000_000;
+        RingBuffer<Event> ring = new RingBuffer<>(1024, Event::new, RingBuffer.WaitStrategy.YIELD);
+        AtomicLong expected = new AtomicLong();
+        AtomicBoolean ordered = new AtomicBoolean(true);
+        
+        Thread consumer = new Thread(() -> {
+            try {
+                ring.consume((event, sequence, endOfBatch) -> {
+                    if (event.value != expected.get()) {
+                        ordered.set(false);
+                    }
+                    expected.incrementAndGet();
+                }, 256, () -> expected.get() < events);
+            } catch (Exception e) {
+                ordered.set(false);
+            }
+        });
+        consumer.start();
+        
+        for (long i = 0; i < events; i++) {
+            ring.claim().value = i;
+            ring.publish();
+        }
+        consumer.join(30_000);
+        
+        assertFalse(consumer.isAlive());
+        assertTrue(ordered.get());
+        assertEquals(events, expected.get());
+    }
+}
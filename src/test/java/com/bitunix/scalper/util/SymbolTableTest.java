@@ -0,0 +1,57 @@
+package com.bitunix.scalper.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SymbolTableTest {
+    
+    @Test
+    void testPutGetRemove() {
+        SymbolTable<String> table = new SymbolTable<>();
+        
+        assertNull(table.put(3, "ETHUSDT"));
+        assertEquals("ETHUSDT", table.get(3));
+        assertNull(table.get(2));
+        assertNull(table.get(-1));
+        assertEquals(1, table.size());
+        
+        assertEquals("ETHUSDT", table.remove(3));
+        assertNull(table.get(3));
+        assertTrue(table.isEmpty());
+    }
+    
+    @Test
+    void testGrowsToLargestId() {
+        SymbolTable<Integer> table = new SymbolTable<>();
+        for (int id = 0; id < 600; id += 3) {
+            table.put(id, id);
+        }
+        
+        assertEquals(200, table.size());
+        assertTrue(table.capacity() >= 600);
+        assertEquals(Integer.valueOf(597), table.get(597));
+        assertEquals(200, table.values().size());
+    }
+    
+    @Test
+    void testClear() {
+        SymbolTable<String> table = new SymbolTable<>();
+        table.put(0, "BTCUSDT");
+        table.put(10, "SOLUSDT");
+        table.clear();
+        
+        assertTrue(table.isEmpty());
+        assertNull(table.get(10));
+    }
+    
+    @Test
+    void testPutIfAbsent() {
+        SymbolTable<String> table = new SymbolTable<>();
+        
+        assertNull(table.putIfAbsent(5, "SOLUSDT"));
+        assertEquals("SOLUSDT", table.putIfAbsent(5, "XRPUSDT"));
+        assertEquals("SOLUSDT", table.get(5));
+        assertEquals(1, table.size());
+    }
+}
@@ -0,0 +1,111 @@
+package com.bitunix.scalper.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskScopeTest {
+    
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    void testJoinCollectsResultsAndFailures() throws Exception {
+        try (TaskScope<String> scope = new TaskScope<>(executor, System.nanoTime() + TimeUnit.SECONDS.toNanos(5))) {
+            int ok = scope.fork(() -> "BTCUSDT");
+            int failed = scope.fork(() -> {
+                throw new IllegalStateException("boom");
+            });
+            scope.join();
+            
+            assertEquals("BTCUSDT", scope.result(ok));
+            assertNull(scope.failure(ok));
+            assertNull(scope.result(failed));
+            assertEquals("boom", scope.failure(failed).getMessage());
+            assertEquals(0, scope.getCancelled());
+        }
+    }
+    
+    @Test
+    void testDeadlineCancelsUnfinishedSubtasks() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        try (TaskScope<String> scope = new TaskScope<>(executor, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50))) {
+            int fast = scope.fork(() -> "fast");
+            int slow = scope.fork(() -> {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+                return "slow";
+            });
+            scope.join();
+            
+            assertEquals("fast", scope.result(fast));
+            assertNull(scope.result(slow));
+            assertEquals(1, scope.getCancelled());
+        }
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    void testCloseCancelsWithoutJoin() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        TaskScope<String> scope = new TaskScope<>(executor, System.nanoTime() + TimeUnit.HOURS.toNanos(1));
+        int index = scope.fork(() -> {
+            started.countDown();
+            Thread.sleep(10_000);
+            return "never";
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        scope.close();
+        
+        assertEquals(1, scope.getCancelled());
+        assertNull(scope.result(index));
+    }
+    
+    @Test
+    void testDeadlineAbortsBlockingIo() throws Exception {
+        CountDownLatch released = new CountDownLatch(1);
+        // A server that accepts and never answers
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            try (TaskScope<String> scope = new TaskScope<>(executor, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100))) {
+                int read = scope.fork(() -> {
+                    try (Socket socket = new Socket(server.getInetAddress(), server.getLocalPort())) {
+                        TaskScope.onCancel(() -> {
+                            try {
+                                socket.close();
+                            } catch (IOException e) {
+                                // Already closed
+                            }
+                        });
+                        // Blocks in socket I/O, which an interrupt does not stop
+                        return String.valueOf(socket.getInputStream().read());
+                    } finally {
+                        released.countDown();
+                    }
+                });
+                scope.join();
+                
+                assertNull(scope.result(read));
+                assertEquals(1, scope.getCancelled());
+            }
+            assertTrue(released.await(5, TimeUnit.SECONDS));
+        }
+    }
+}